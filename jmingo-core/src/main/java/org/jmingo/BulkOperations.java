@@ -0,0 +1,225 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo;
+
+import com.google.common.collect.Lists;
+import com.mongodb.DBObject;
+import net.jcip.annotations.NotThreadSafe;
+import org.apache.commons.lang3.Validate;
+import org.jmingo.mongo.DurabilityProfile;
+import org.jmingo.query.Criteria;
+import org.jmingo.util.DocumentUtils;
+
+import java.util.List;
+
+/**
+ * Builder of a bulk write that mixes inserts, updates and removes of documents in different collections.
+ * Objects are marshalled when operations are added. Operations are grouped by collection and durability profile,
+ * each group is sent as one bulk write split in batches limited by number and size of operations, so operations
+ * with different profiles are sent in separate round trips even if they write to the same collection.
+ * In ordered mode operations are performed in the order they were added, only consecutive operations with the same
+ * collection and profile are grouped, and the write stops at the first failed operation, so alternating profiles
+ * split the write into more round trips. In unordered mode all operations with the same collection and profile
+ * are grouped and all operations are attempted.
+ * <p>
+ * Usage:
+ * <pre>
+ * BulkResult result = jMingoTemplate.bulkOps()
+ *     .insert(user)
+ *     .update(new BasicDBObject("$inc", new BasicDBObject("count", 1)), query, "counters", false, false)
+ *     .remove(Criteria.where("{'status': '#status'}").with("status", "DELETED"), User.class)
+ *     .execute();
+ * </pre>
+ */
+@NotThreadSafe
+public class BulkOperations {
+
+    private final JMingoTemplate template;
+    private final List<WriteOperation> operations = Lists.newArrayList();
+    private boolean ordered = true;
+    /* profile of all operations, if null then operations use profiles of document types */
+    private DurabilityProfile durability;
+
+    BulkOperations(JMingoTemplate template) {
+        this.template = template;
+    }
+
+    /**
+     * Sets mode of the write, default is ordered.
+     *
+     * @param val true to stop at the first failed operation
+     * @return current builder
+     */
+    public BulkOperations ordered(boolean val) {
+        this.ordered = val;
+        return this;
+    }
+
+    /**
+     * Sets durability profile of operations that are added after the call. By default operations with objects use
+     * profiles of their document types and other operations use the default profile.
+     *
+     * @param val the durability profile
+     * @return current builder
+     */
+    public BulkOperations durability(DurabilityProfile val) {
+        Validate.notNull(val, "durability profile cannot be null");
+        this.durability = val;
+        return this;
+    }
+
+    /**
+     * Adds insert of the object to the collection for the document type of the object.
+     *
+     * @param objectToInsert the object to insert
+     * @return current builder
+     */
+    public BulkOperations insert(Object objectToInsert) {
+        DocumentUtils.assertDocument(objectToInsert);
+        return insert(objectToInsert, DocumentUtils.getCollectionName(objectToInsert));
+    }
+
+    /**
+     * Adds insert of the object to the collection.
+     *
+     * @param objectToInsert the object to insert
+     * @param collectionName the collection name
+     * @return current builder
+     */
+    public BulkOperations insert(Object objectToInsert, String collectionName) {
+        operations.add(WriteOperation.insert(collectionName, template.toInsertDocument(objectToInsert),
+                durabilityOf(objectToInsert.getClass())));
+        return this;
+    }
+
+    /**
+     * Adds update of documents that satisfy the criteria, parameters 'multi' and 'upsert' are taken from criteria.
+     *
+     * @param objectToUpdate the object to update
+     * @param criteria       the criteria to find documents to update
+     * @return current builder
+     */
+    public BulkOperations update(Object objectToUpdate, Criteria criteria) {
+        DocumentUtils.assertDocument(objectToUpdate);
+        return update(objectToUpdate, criteria, DocumentUtils.getCollectionName(objectToUpdate));
+    }
+
+    /**
+     * Adds update of documents that satisfy the criteria, parameters 'multi' and 'upsert' are taken from criteria.
+     *
+     * @param objectToUpdate the object to update
+     * @param criteria       the criteria to find documents to update
+     * @param collectionName the collection name
+     * @return current builder
+     */
+    public BulkOperations update(Object objectToUpdate, Criteria criteria, String collectionName) {
+        Validate.notNull(objectToUpdate, "object to update cannot be null");
+        Validate.notNull(criteria, "update criteria should be not null");
+        operations.add(WriteOperation.update(collectionName, template.toDocument(objectToUpdate),
+                template.buildQuery(criteria), criteria.isUpsert(), criteria.isMulti(),
+                durabilityOf(objectToUpdate.getClass())));
+        return this;
+    }
+
+    /**
+     * Adds update of documents that satisfy the query.
+     *
+     * @param update         the modifications to apply or the replacement document
+     * @param query          the query to find documents to update
+     * @param collectionName the collection name
+     * @param upsert         if true - inserts document if no documents satisfy the query
+     * @param multi          if true - updates all documents that satisfy the query, otherwise only first
+     * @return current builder
+     */
+    public BulkOperations update(DBObject update, DBObject query, String collectionName, boolean upsert,
+                                 boolean multi) {
+        operations.add(WriteOperation.update(collectionName, update, query, upsert, multi, durabilityOf(null)));
+        return this;
+    }
+
+    /**
+     * Adds remove of the object by document id from the collection for the document type of the object.
+     *
+     * @param objectToRemove the object to remove
+     * @return current builder
+     */
+    public BulkOperations remove(Object objectToRemove) {
+        DocumentUtils.assertDocument(objectToRemove);
+        operations.add(WriteOperation.remove(DocumentUtils.getCollectionName(objectToRemove),
+                template.buildQuery(Criteria.whereId(DocumentUtils.getIdValue(objectToRemove))),
+                durabilityOf(objectToRemove.getClass())));
+        return this;
+    }
+
+    /**
+     * Adds remove of documents that satisfy the criteria from the collection for the document type.
+     *
+     * @param criteria      the criteria to find documents to remove
+     * @param documentClass the document type
+     * @return current builder
+     */
+    public BulkOperations remove(Criteria criteria, Class<?> documentClass) {
+        Validate.notNull(criteria, "remove criteria cannot be null");
+        DocumentUtils.assertDocument(documentClass);
+        operations.add(WriteOperation.remove(DocumentUtils.getCollectionName(documentClass),
+                template.buildQuery(criteria), durabilityOf(documentClass)));
+        return this;
+    }
+
+    /**
+     * Adds remove of documents that satisfy the query.
+     *
+     * @param query          the query to find documents to remove
+     * @param collectionName the collection name
+     * @return current builder
+     */
+    public BulkOperations remove(DBObject query, String collectionName) {
+        operations.add(WriteOperation.remove(collectionName, query, durabilityOf(null)));
+        return this;
+    }
+
+    /**
+     * Gets the number of added operations.
+     *
+     * @return the number of operations
+     */
+    public int size() {
+        return operations.size();
+    }
+
+    /**
+     * Performs added operations.
+     *
+     * @return aggregated result, errors are mapped to positions of operations in the order they were added
+     */
+    public BulkResult execute() {
+        return template.execute(operations, ordered);
+    }
+
+    /**
+     * Gets profile of an operation, the profile is resolved when the operation is added.
+     *
+     * @param documentType the document type or null if the operation isn't bound to a type
+     */
+    private DurabilityProfile durabilityOf(Class<?> documentType) {
+        if (durability != null) {
+            return durability;
+        }
+        return documentType != null
+                ? template.getDurabilityProfile(documentType)
+                : template.getDurabilityProfiles().getDefault();
+    }
+}
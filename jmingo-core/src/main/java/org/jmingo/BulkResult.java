@@ -0,0 +1,212 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.mongodb.BulkWriteResult;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregated result of a bulk write performed by {@link BulkOperations}. Errors and upserted ids are mapped to
+ * positions of operations in the order they were added. Counts don't include unacknowledged writes. Immutable.
+ */
+public class BulkResult {
+
+    private final int insertedCount;
+    private final int matchedCount;
+    private final int modifiedCount;
+    private final boolean modifiedCountAvailable;
+    private final int removedCount;
+    private final Map<Integer, Object> upserts;
+    private final List<BulkError> errors;
+
+    private BulkResult(Builder builder) {
+        this.insertedCount = builder.insertedCount;
+        this.matchedCount = builder.matchedCount;
+        this.modifiedCount = builder.modifiedCount;
+        this.modifiedCountAvailable = builder.modifiedCountAvailable;
+        this.removedCount = builder.removedCount;
+        this.upserts = ImmutableMap.copyOf(builder.upserts);
+        builder.errors.sort(Comparator.comparingInt(BulkError::getIndex));
+        this.errors = ImmutableList.copyOf(builder.errors);
+    }
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    public int getInsertedCount() {
+        return insertedCount;
+    }
+
+    public int getMatchedCount() {
+        return matchedCount;
+    }
+
+    /**
+     * Gets the number of documents modified by updates, is available only with servers that support write commands.
+     *
+     * @return the number of modified documents
+     * @throws IllegalStateException if the count isn't available
+     */
+    public int getModifiedCount() {
+        if (!modifiedCountAvailable) {
+            throw new IllegalStateException("modified count is not available");
+        }
+        return modifiedCount;
+    }
+
+    public boolean isModifiedCountAvailable() {
+        return modifiedCountAvailable;
+    }
+
+    public int getRemovedCount() {
+        return removedCount;
+    }
+
+    /**
+     * Gets ids of documents inserted by upserts.
+     *
+     * @return immutable map: key - position of the operation, value - id of the inserted document
+     */
+    public Map<Integer, Object> getUpserts() {
+        return upserts;
+    }
+
+    /**
+     * Gets errors of failed operations in order of positions.
+     *
+     * @return immutable list of errors, empty list if all operations succeeded
+     */
+    public List<BulkError> getErrors() {
+        return errors;
+    }
+
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("insertedCount", insertedCount)
+                .append("matchedCount", matchedCount)
+                .append("modifiedCount", modifiedCount)
+                .append("modifiedCountAvailable", modifiedCountAvailable)
+                .append("removedCount", removedCount)
+                .append("upserts", upserts)
+                .append("errors", errors)
+                .toString();
+    }
+
+    /**
+     * Error of an operation that failed. Immutable.
+     */
+    public static class BulkError {
+        private final int index;
+        private final int code;
+        private final String message;
+
+        /**
+         * Constructor with parameters.
+         *
+         * @param index   the position of the operation
+         * @param code    the server error code
+         * @param message the server error message
+         */
+        public BulkError(int index, int code, String message) {
+            this.index = index;
+            this.code = code;
+            this.message = message;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public int getCode() {
+            return code;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return new ToStringBuilder(this)
+                    .append("index", index)
+                    .append("code", code)
+                    .append("message", message)
+                    .toString();
+        }
+    }
+
+    /**
+     * Accumulates results of batches of a bulk write.
+     */
+    static class Builder {
+        private int insertedCount;
+        private int matchedCount;
+        private int modifiedCount;
+        private boolean modifiedCountAvailable = true;
+        private int removedCount;
+        private final Map<Integer, Object> upserts = Maps.newHashMap();
+        private final List<BulkError> errors = Lists.newArrayList();
+
+        Builder add(BulkWriteResult result) {
+            insertedCount += result.getInsertedCount();
+            matchedCount += result.getMatchedCount();
+            removedCount += result.getRemovedCount();
+            if (result.isModifiedCountAvailable()) {
+                modifiedCount += result.getModifiedCount();
+            } else {
+                modifiedCountAvailable = false;
+            }
+            return this;
+        }
+
+        Builder upsert(int index, Object id) {
+            upserts.put(index, id);
+            return this;
+        }
+
+        Builder error(int index, int code, String message) {
+            errors.add(new BulkError(index, code, message));
+            return this;
+        }
+
+        Builder unacknowledged() {
+            modifiedCountAvailable = false;
+            return this;
+        }
+
+        boolean hasErrors() {
+            return !errors.isEmpty();
+        }
+
+        BulkResult build() {
+            return new BulkResult(this);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo;
+
+import com.google.common.collect.MapMaker;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import net.jcip.annotations.ThreadSafe;
+import org.jmingo.document.annotation.TrackChanges;
+import org.jmingo.util.MongoUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps snapshots of marshalled forms of loaded documents annotated with {@link TrackChanges} and computes
+ * partial updates from them. Snapshots are referenced by document instances and are released together with them.
+ * <p>
+ * Changed fields of embedded documents are set by dotted paths, removed fields are unset, elements appended
+ * to arrays are pushed, other changes of arrays set the whole array.
+ */
+@ThreadSafe
+public class ChangeTracker {
+
+    /* key - document instance, compared by identity */
+    private final ConcurrentMap<Object, DBObject> snapshots = new MapMaker().weakKeys().makeMap();
+    private final LongAdder partialUpdateCount = new LongAdder();
+    private final LongAdder unchangedCount = new LongAdder();
+    private final LongAdder sentBytes = new LongAdder();
+    private final LongAdder savedBytes = new LongAdder();
+
+    private static final String ID_FIELD = "_id";
+    private static final String SET = "$set";
+    private static final String SET_ON_INSERT = "$setOnInsert";
+    private static final String UNSET = "$unset";
+    private static final String PUSH = "$push";
+
+    /**
+     * Checks whether changes of documents of the type are tracked.
+     *
+     * @param type the document type
+     * @return true if the type is annotated with {@link TrackChanges}
+     */
+    public static boolean isTracked(Class<?> type) {
+        return type.isAnnotationPresent(TrackChanges.class);
+    }
+
+    /**
+     * Stores snapshot of the document.
+     *
+     * @param document the document instance
+     * @param snapshot the marshalled form of the document, mustn't be shared with other documents
+     */
+    void track(Object document, DBObject snapshot) {
+        snapshots.put(document, snapshot);
+    }
+
+    /**
+     * Gets snapshot of the document.
+     *
+     * @param document the document instance
+     * @return snapshot or null if the document wasn't loaded through the template
+     */
+    DBObject getSnapshot(Object document) {
+        return snapshots.get(document);
+    }
+
+    /**
+     * Computes partial update from the snapshot of the document to its current marshalled form.
+     *
+     * @param snapshot the snapshot
+     * @param current  the current marshalled form of the document
+     * @return update with $set, $unset and $push operators or empty object if there are no changes
+     */
+    DBObject diff(DBObject snapshot, DBObject current) {
+        DBObject changes = computeDiff(snapshot, current);
+        if (changes.keySet().isEmpty()) {
+            unchangedCount.increment();
+        } else {
+            int size = MongoUtil.estimateSize(changes);
+            partialUpdateCount.increment();
+            sentBytes.add(size);
+            savedBytes.add(Math.max(0, MongoUtil.estimateSize(current) - size));
+        }
+        return changes;
+    }
+
+    /**
+     * Creates update that never changes the document: $setOnInsert of the id, which is applied only when
+     * an upsert inserts a document, so an update without upsert doesn't write anything and can't overwrite
+     * concurrent changes. Is sent for unchanged documents, because the driver doesn't allow to create a write
+     * result without a round trip, the server reports whether the document still exists.
+     *
+     * @param current the current marshalled form of the document
+     * @return update that leaves the document as is
+     */
+    static DBObject noChange(DBObject current) {
+        return new BasicDBObject(SET_ON_INSERT, new BasicDBObject(ID_FIELD, current.get(ID_FIELD)));
+    }
+
+    /**
+     * Gets the number of updates sent as changed fields.
+     *
+     * @return partial update count
+     */
+    public long getPartialUpdateCount() {
+        return partialUpdateCount.sum();
+    }
+
+    /**
+     * Gets the number of updates of unchanged documents, only an update that doesn't write
+     * anything is sent for them, see {@link #noChange}.
+     *
+     * @return unchanged count
+     */
+    public long getUnchangedCount() {
+        return unchangedCount.sum();
+    }
+
+    /**
+     * Gets estimated size of sent partial updates in bytes.
+     *
+     * @return sent bytes
+     */
+    public long getSentBytes() {
+        return sentBytes.sum();
+    }
+
+    /**
+     * Gets estimated difference in bytes between whole documents and partial updates that were sent instead.
+     *
+     * @return saved bytes
+     */
+    public long getSavedBytes() {
+        return savedBytes.sum();
+    }
+
+    /**
+     * Computes partial update.
+     *
+     * @param previous the previous marshalled form of the document
+     * @param current  the current marshalled form of the document
+     * @return update or empty object if there are no changes
+     */
+    static DBObject computeDiff(DBObject previous, DBObject current) {
+        BasicDBObject set = new BasicDBObject();
+        BasicDBObject unset = new BasicDBObject();
+        BasicDBObject push = new BasicDBObject();
+        diff("", previous, current, set, unset, push);
+        BasicDBObject update = new BasicDBObject();
+        if (!set.isEmpty()) {
+            update.put(SET, set);
+        }
+        if (!unset.isEmpty()) {
+            update.put(UNSET, unset);
+        }
+        if (!push.isEmpty()) {
+            update.put(PUSH, push);
+        }
+        return update;
+    }
+
+    private static void diff(String prefix, DBObject previous, DBObject current, DBObject set, DBObject unset,
+                             DBObject push) {
+        for (String key : previous.keySet()) {
+            if (!current.containsField(key)) {
+                unset.put(prefix + key, "");
+            }
+        }
+        for (String key : current.keySet()) {
+            String path = prefix + key;
+            Object value = current.get(key);
+            if (!previous.containsField(key)) {
+                set.put(path, value);
+                continue;
+            }
+            Object previousValue = previous.get(key);
+            if (previousValue instanceof List && value instanceof List) {
+                List<?> previousList = (List<?>) previousValue;
+                List<?> list = (List<?>) value;
+                if (list.size() > previousList.size() && !previousList.isEmpty()
+                        && list.subList(0, previousList.size()).equals(previousList)) {
+                    push.put(path, new BasicDBObject("$each",
+                            new ArrayList<>(list.subList(previousList.size(), list.size()))));
+                } else if (!list.equals(previousList)) {
+                    set.put(path, value);
+                }
+            } else if (isEmbeddedDocument(previousValue) && isEmbeddedDocument(value)
+                    && !((DBObject) value).keySet().isEmpty()) {
+                diff(path + ".", (DBObject) previousValue, (DBObject) value, set, unset, push);
+            } else if (!Objects.equals(previousValue, value)) {
+                set.put(path, value);
+            }
+        }
+    }
+
+    private static boolean isEmbeddedDocument(Object value) {
+        return value instanceof DBObject && !(value instanceof List);
+    }
+}
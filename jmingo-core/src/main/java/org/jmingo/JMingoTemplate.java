@@ -15,8 +15,18 @@
  */
 package org.jmingo;
 
+import com.google.common.base.Throwables;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteError;
+import com.mongodb.BulkWriteException;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.BulkWriteResult;
+import com.mongodb.BulkWriteUpsert;
 import com.mongodb.DB;
 import com.mongodb.DBCollection;
 import com.mongodb.DBCursor;
@@ -25,8 +35,19 @@ import com.mongodb.WriteResult;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.tuple.Pair;
+import org.bson.types.ObjectId;
+import org.jmingo.cache.BatchLoader;
+import org.jmingo.cache.CacheManager;
+import org.jmingo.cache.CollectionBloomFilter;
+import org.jmingo.cache.EntityCache;
+import org.jmingo.cache.OffHeapResultCache;
+import org.jmingo.cache.UnitOfWork;
+import org.jmingo.document.annotation.Document;
+import org.jmingo.document.annotation.TimeSeries;
 import org.jmingo.document.id.IdFieldGenerator;
 import org.jmingo.document.id.generator.factory.IdGeneratorFactory;
+import org.jmingo.exceptions.BatchInsertException;
 import org.jmingo.executor.QueryExecutor;
 import org.jmingo.mapping.convert.ConverterService;
 import org.jmingo.mapping.marshall.BsonMarshaller;
@@ -34,37 +55,104 @@ import org.jmingo.mapping.marshall.BsonMarshallingFactory;
 import org.jmingo.mapping.marshall.JsonToDBObjectMarshaller;
 import org.jmingo.mapping.marshall.jackson.JacksonBsonMarshallingFactory;
 import org.jmingo.mapping.marshall.mongo.MongoBsonMarshallingFactory;
+import org.jmingo.mongo.DurabilityProfile;
+import org.jmingo.mongo.DurabilityProfiles;
 import org.jmingo.mongo.MongoDBFactory;
 import org.jmingo.mongo.index.Index;
 import org.jmingo.query.Criteria;
+import org.jmingo.query.FindAndModifyOptions;
+import org.jmingo.query.Update;
 import org.jmingo.util.DocumentUtils;
+import org.jmingo.util.MongoUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
  * Class that specifies a basic set of JMingo operations.
  */
 public class JMingoTemplate {
 
+    private static final String ID_FIELD = "_id";
+    /* maximum number of ids in a single $in query performed by findByIds */
+    private static final int FIND_BY_IDS_CHUNK_SIZE = 500;
+    private static final long READ_THREAD_KEEP_ALIVE = 60;
+    private static final int SCAN_BATCH_SIZE = 1000;
+    private static final int WRITE_BATCH_SIZE = 1000;
+    /* limit of estimated size of a write batch, is far below the limit of a message to the server */
+    private static final int WRITE_BATCH_BYTES = 8 * 1024 * 1024;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JMingoTemplate.class);
 
     private QueryExecutor queryExecutor;
     private MongoDBFactory mongoDBFactory;
     private ConverterService converterService;
+    private CacheManager cacheManager;
     private BsonMarshallingFactory bsonMarshallingFactory = new JacksonBsonMarshallingFactory();
     private BsonMarshallingFactory mongoBsonMarshallingFactory = new MongoBsonMarshallingFactory();
     private BsonMarshaller jacksonBsonMarshaller = bsonMarshallingFactory.createMarshaller();
     private JsonToDBObjectMarshaller mongoBsonMarshaller = mongoBsonMarshallingFactory.createJsonToDbObjectMarshaller();
 
     private IdFieldGenerator idFieldModifier;
+    /* performs chunks of findByIds in parallel, idle threads are terminated */
+    private final ExecutorService readExecutor = createReadExecutor();
+    /* key - collection name */
+    private final ConcurrentMap<String, WriteBehindChannel> writeBehindChannels = Maps.newConcurrentMap();
+    private final ChangeTracker changeTracker = new ChangeTracker();
+    /* key - collection name and counter name */
+    private final ConcurrentMap<String, ShardedCounter> counters = Maps.newConcurrentMap();
+    /* performs periodic compactions of counters, is created with the first counter that needs it */
+    private ScheduledExecutorService counterScheduler;
+    /* collections of time series buckets that have the index by series and window */
+    private final Set<String> bucketIndexes = Sets.newConcurrentHashSet();
+    /* key - collection name, value - number of changes of the collection, see UnitOfWork#sync */
+    private final ConcurrentMap<String, AtomicLong> collectionVersions = Maps.newConcurrentMap();
 
     public JMingoTemplate(QueryExecutor queryExecutor, MongoDBFactory mongoDBFactory, ConverterService converterService,
                           IdGeneratorFactory idGeneratorFactory) {
+        this(queryExecutor, mongoDBFactory, converterService, idGeneratorFactory, new CacheManager());
+    }
+
+    public JMingoTemplate(QueryExecutor queryExecutor, MongoDBFactory mongoDBFactory, ConverterService converterService,
+                          IdGeneratorFactory idGeneratorFactory, CacheManager cacheManager) {
         this.queryExecutor = queryExecutor;
         this.mongoDBFactory = mongoDBFactory;
         this.converterService = converterService;
         this.idFieldModifier = new IdFieldGenerator(idGeneratorFactory);
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * Gets tracker of changes of loaded documents annotated with
+     * {@link org.jmingo.document.annotation.TrackChanges}, e.g. to report bytes saved by partial updates.
+     *
+     * @return change tracker
+     */
+    public ChangeTracker getChangeTracker() {
+        return changeTracker;
     }
 
     /**
@@ -93,7 +181,12 @@ public class JMingoTemplate {
      * @param collectionName the collection name to drop
      */
     public void dropCollection(String collectionName) {
-        mongoDBFactory.getDB().getCollection(collectionName).drop();
+        try {
+            mongoDBFactory.getDB().getCollection(collectionName).drop();
+            cacheManager.getBloomFilters(collectionName).forEach(CollectionBloomFilter::clear);
+        } finally {
+            invalidate(collectionName);
+        }
     }
 
     /**
@@ -103,7 +196,7 @@ public class JMingoTemplate {
      * @param type the type
      */
     public void dropCollection(Class<?> type) {
-        mongoDBFactory.getDB().getCollection(DocumentUtils.getCollectionName(type)).drop();
+        dropCollection(DocumentUtils.getCollectionName(type));
     }
 
     /**
@@ -202,14 +295,434 @@ public class JMingoTemplate {
     }
 
     /**
-     * Inserts array of different objects in necessary collections. Method {@link #insert(Object)} is used for each object from array.
+     * Inserts the object to the collection for the document type of the object with the write concern of the profile.
+     *
+     * @param objectToInsert the object to store in the collection
+     * @param durability     the durability profile of the write
+     */
+    public void insert(Object objectToInsert, DurabilityProfile durability) {
+        DocumentUtils.assertDocument(objectToInsert);
+        insert(objectToInsert, DocumentUtils.getCollectionName(objectToInsert), durability);
+    }
+
+    /**
+     * Inserts array of different objects in necessary collections in ordered mode, see {@link #insertAll(Collection, boolean)}.
      *
      * @param objectsToInsert the objects to insert
+     * @throws BatchInsertException if some documents weren't inserted
      */
     public void insert(Object... objectsToInsert) {
-        for (Object objectToInsert : objectsToInsert) {
-            insert(objectToInsert);
+        insertAll(Arrays.asList(objectsToInsert));
+    }
+
+    /**
+     * Inserts collection of different objects in necessary collections in ordered mode, see {@link #insertAll(Collection, boolean)}.
+     *
+     * @param objectsToInsert the objects to insert
+     * @throws BatchInsertException if some documents weren't inserted
+     */
+    public void insertAll(Collection<?> objectsToInsert) {
+        insertAll(objectsToInsert, true);
+    }
+
+    /**
+     * Inserts collection of different objects in necessary collections. Objects are grouped by collection and
+     * durability profile and sent in batches limited by number and size of documents, each batch takes one round trip.
+     * In ordered mode documents are inserted in the given order, only consecutive documents with the same collection
+     * and profile are grouped, and the insert stops at the first failed document, following documents aren't
+     * inserted. In unordered mode all documents with the same collection and profile are grouped and all documents
+     * are attempted.
+     *
+     * @param objectsToInsert the objects to insert
+     * @param ordered         true to stop at the first failed document
+     * @throws BatchInsertException if some documents weren't inserted, errors are mapped to positions of the objects
+     *                              in the given collection
+     */
+    public void insertAll(Collection<?> objectsToInsert, boolean ordered) {
+        insertAll(objectsToInsert, ordered, null);
+    }
+
+    /**
+     * Inserts collection of different objects in necessary collections with the write concern of the profile,
+     * see {@link #insertAll(Collection, boolean)}.
+     *
+     * @param objectsToInsert the objects to insert
+     * @param ordered         true to stop at the first failed document
+     * @param durability      the durability profile of the write, if null then profiles of document types are used
+     * @throws BatchInsertException if some documents weren't inserted
+     */
+    public void insertAll(Collection<?> objectsToInsert, boolean ordered, DurabilityProfile durability) {
+        Validate.notNull(objectsToInsert, "objects to insert cannot be null");
+        List<Object> objects = new ArrayList<>(objectsToInsert);
+        List<WriteOperation> operations = new ArrayList<>(objects.size());
+        for (Object objectToInsert : objects) {
+            DocumentUtils.assertDocument(objectToInsert);
+            operations.add(WriteOperation.insert(DocumentUtils.getCollectionName(objectToInsert),
+                    toInsertDocument(objectToInsert),
+                    durability != null ? durability : getDurabilityProfile(objectToInsert.getClass())));
+        }
+        BulkResult result = execute(operations, ordered);
+        if (result.hasErrors()) {
+            throw new BatchInsertException(result.getInsertedCount(), result.getErrors().stream()
+                    .map(error -> new BatchInsertException.InsertError(error.getIndex(),
+                            objects.get(error.getIndex()), error.getCode(), error.getMessage()))
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * Appends the event to a bucket document of its series and time window in one round trip,
+     * see {@link TimeSeries}. Writes of events invalidate caches of the collection like other updates.
+     *
+     * @param event the event, an instance of document type annotated with {@link TimeSeries}
+     */
+    public void insertEvent(Object event) {
+        DocumentUtils.assertDocument(event);
+        TimeSeries settings = TimeSeriesBuckets.getSettings(event.getClass());
+        String collectionName = DocumentUtils.getCollectionName(event);
+        ensureBucketIndex(collectionName);
+        DBObject document = toDocument(event);
+        update(TimeSeriesBuckets.bucketUpdate(document), TimeSeriesBuckets.bucketQuery(document, settings),
+                collectionName, true, false, getDurabilityProfile(event.getClass()));
+    }
+
+    /**
+     * Appends the events to bucket documents in the given order, consecutive events with the same collection and
+     * durability profile are sent in batches, each batch takes one round trip. The insert stops at the first failed
+     * event, following events aren't appended. Writes of events invalidate caches of the collection like other
+     * updates.
+     *
+     * @param events the events, instances of document types annotated with {@link TimeSeries}
+     * @throws BatchInsertException if some events weren't inserted, the inserted count is the number of appended
+     *                              events
+     */
+    public void insertEvents(Collection<?> events) {
+        Validate.notNull(events, "events cannot be null");
+        List<Object> objects = new ArrayList<>(events);
+        List<WriteOperation> operations = new ArrayList<>(objects.size());
+        for (Object event : objects) {
+            DocumentUtils.assertDocument(event);
+            TimeSeries settings = TimeSeriesBuckets.getSettings(event.getClass());
+            String collectionName = DocumentUtils.getCollectionName(event);
+            ensureBucketIndex(collectionName);
+            DBObject document = toDocument(event);
+            operations.add(WriteOperation.update(collectionName, TimeSeriesBuckets.bucketUpdate(document),
+                    TimeSeriesBuckets.bucketQuery(document, settings), true, false,
+                    getDurabilityProfile(event.getClass())));
+        }
+        BulkResult result = execute(operations, true);
+        if (result.hasErrors()) {
+            // each appended event either matched a bucket or created a new one
+            throw new BatchInsertException(result.getMatchedCount() + result.getUpserts().size(),
+                    result.getErrors().stream()
+                            .map(error -> new BatchInsertException.InsertError(error.getIndex(),
+                                    objects.get(error.getIndex()), error.getCode(), error.getMessage()))
+                            .collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * Creates index of buckets by series and window once per collection.
+     */
+    private void ensureBucketIndex(String collectionName) {
+        if (!bucketIndexes.contains(collectionName)) {
+            // concurrent creation of the same index is a no-op, the collection is added only after success,
+            // so a failed creation is retried by the next write
+            mongoDBFactory.getDB().getCollection(collectionName).createIndex(
+                    new BasicDBObject(TimeSeriesBuckets.SERIES_FIELD, 1).append(TimeSeriesBuckets.START_FIELD, 1));
+            bucketIndexes.add(collectionName);
+        }
+    }
+
+    /**
+     * Gets durability profiles declared in the context.
+     *
+     * @return durability profiles
+     */
+    public DurabilityProfiles getDurabilityProfiles() {
+        return mongoDBFactory.getDurabilityProfiles();
+    }
+
+    /**
+     * Gets durability profile by name, see {@link DurabilityProfiles#get(String)}.
+     *
+     * @param name the profile name
+     * @return the profile
+     */
+    public DurabilityProfile getDurabilityProfile(String name) {
+        return getDurabilityProfiles().get(name);
+    }
+
+    /**
+     * Gets durability profile of the document type, see {@link Document#durability()}.
+     *
+     * @param documentType the document type
+     * @return the profile of the type or the default profile if the type doesn't specify it
+     */
+    DurabilityProfile getDurabilityProfile(Class<?> documentType) {
+        Document document = documentType.getAnnotation(Document.class);
+        return getDurabilityProfiles().get(document != null ? document.durability() : null);
+    }
+
+    /**
+     * Performs the write and records its latency in the profile.
+     */
+    private static <T> T write(DurabilityProfile durability, Supplier<T> write) {
+        long start = System.nanoTime();
+        try {
+            return write.get();
+        } finally {
+            durability.recordLatency(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Creates builder of a bulk write that mixes inserts, updates and removes.
+     *
+     * @return new bulk write builder
+     */
+    public BulkOperations bulkOps() {
+        return new BulkOperations(this);
+    }
+
+    /**
+     * Gets or creates write-behind channel of the collection for the document type with default settings,
+     * flushed writes use durability profile of the document type, see {@link Document#durability()}.
+     *
+     * @param documentType the document type
+     * @return write-behind channel
+     */
+    public WriteBehindChannel writeBehind(Class<?> documentType) {
+        DocumentUtils.assertDocument(documentType);
+        return writeBehind(DocumentUtils.getCollectionName(documentType), WriteBehindConfig.builder()
+                .durability(getDurabilityProfile(documentType))
+                .build());
+    }
+
+    /**
+     * Gets or creates write-behind channel of the collection. Settings are taken when the channel is created.
+     *
+     * @param collectionName the collection name
+     * @param config         the channel settings
+     * @return write-behind channel
+     */
+    public WriteBehindChannel writeBehind(String collectionName, WriteBehindConfig config) {
+        Validate.notBlank(collectionName, "collectionName cannot be null or empty");
+        return writeBehindChannels.computeIfAbsent(collectionName,
+                key -> new WriteBehindChannel(this, key, config));
+    }
+
+    /**
+     * Gets or creates sharded counter with default settings.
+     *
+     * @param collectionName the collection of shard documents
+     * @param name           the counter name
+     * @return sharded counter
+     */
+    public ShardedCounter counter(String collectionName, String name) {
+        return counter(collectionName, name, ShardedCounterConfig.builder().build());
+    }
+
+    /**
+     * Gets or creates sharded counter. Settings are taken when the counter is created,
+     * periodic compaction is scheduled if the compaction interval is set.
+     *
+     * @param collectionName the collection of shard documents
+     * @param name           the counter name
+     * @param config         the counter settings
+     * @return sharded counter
+     */
+    public ShardedCounter counter(String collectionName, String name, ShardedCounterConfig config) {
+        Validate.notBlank(collectionName, "collectionName cannot be null or empty");
+        Validate.notBlank(name, "counter name cannot be null or empty");
+        return counters.computeIfAbsent(collectionName + "." + name, key -> {
+            ShardedCounter counter = new ShardedCounter(this, collectionName, name, config);
+            long interval = config.getCompactInterval();
+            if (interval > 0) {
+                getCounterScheduler().scheduleWithFixedDelay(() -> {
+                    try {
+                        counter.compact();
+                    } catch (RuntimeException e) {
+                        LOGGER.error("failed to compact counter '{}'", name, e);
+                    }
+                }, interval, interval, TimeUnit.MILLISECONDS);
+            }
+            return counter;
+        });
+    }
+
+    private synchronized ScheduledExecutorService getCounterScheduler() {
+        if (counterScheduler == null) {
+            counterScheduler = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("jmingo-counter-compaction-%d").setDaemon(true).build());
         }
+        return counterScheduler;
+    }
+
+    /**
+     * Writes buffered writes of write-behind channels and releases resources.
+     * Is called when jmingo context is being closed.
+     */
+    public void shutdown() {
+        writeBehindChannels.values().forEach(WriteBehindChannel::close);
+        readExecutor.shutdown();
+        synchronized (this) {
+            if (counterScheduler != null) {
+                counterScheduler.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Performs operations grouped by collection and durability profile, see {@link #group(List, boolean)},
+     * each group is sent in batches limited by number and size of operations, each batch takes one round trip.
+     *
+     * @param operations the operations to perform
+     * @param ordered    true to perform operations in the given order and stop at the first failed operation
+     * @return aggregated result, errors are mapped to positions of operations
+     */
+    BulkResult execute(List<WriteOperation> operations, boolean ordered) {
+        BulkResult.Builder result = BulkResult.builder();
+        for (List<Integer> group : group(operations, ordered)) {
+            WriteOperation first = operations.get(group.get(0));
+            List<Integer> batch = Lists.newArrayList();
+            int batchBytes = 0;
+            for (int index : group) {
+                int size = operations.get(index).estimateSize();
+                if (!batch.isEmpty() && (batch.size() >= WRITE_BATCH_SIZE || batchBytes + size > WRITE_BATCH_BYTES)) {
+                    executeBatch(first.getCollectionName(), first.getDurability(), batch, operations, ordered, result);
+                    if (ordered && result.hasErrors()) {
+                        return result.build();
+                    }
+                    batch = Lists.newArrayList();
+                    batchBytes = 0;
+                }
+                batch.add(index);
+                batchBytes += size;
+            }
+            executeBatch(first.getCollectionName(), first.getDurability(), batch, operations, ordered, result);
+            if (ordered && result.hasErrors()) {
+                return result.build();
+            }
+        }
+        return result.build();
+    }
+
+    /**
+     * Groups operations that can be sent together, operations of a group have the same collection and durability
+     * profile. In ordered mode groups are consecutive runs of operations, so the groups keep the given order of
+     * all operations. In unordered mode all operations with the same collection and profile form one group.
+     *
+     * @param operations the operations to group
+     * @param ordered    true to keep the order of operations
+     * @return positions of operations of each group in the order of execution
+     */
+    static List<List<Integer>> group(List<WriteOperation> operations, boolean ordered) {
+        // key - collection name and durability profile, value - positions of operations of the group
+        Map<Pair<String, DurabilityProfile>, List<Integer>> positions = Maps.newLinkedHashMap();
+        List<List<Integer>> groups = Lists.newArrayList();
+        Pair<String, DurabilityProfile> previous = null;
+        for (int index = 0; index < operations.size(); index++) {
+            WriteOperation operation = operations.get(index);
+            Pair<String, DurabilityProfile> key = Pair.of(operation.getCollectionName(), operation.getDurability());
+            if (!ordered) {
+                positions.computeIfAbsent(key, k -> Lists.newArrayList()).add(index);
+            } else if (key.equals(previous)) {
+                groups.get(groups.size() - 1).add(index);
+            } else {
+                groups.add(Lists.newArrayList(index));
+            }
+            previous = key;
+        }
+        return ordered ? groups : Lists.newArrayList(positions.values());
+    }
+
+    /**
+     * Performs the batch of operations on the collection in one round trip.
+     */
+    private void executeBatch(String collectionName, DurabilityProfile durability, List<Integer> batch,
+                              List<WriteOperation> operations, boolean ordered, BulkResult.Builder result) {
+        DBCollection collection = mongoDBFactory.getDB().getCollection(collectionName);
+        BulkWriteOperation bulkWrite = ordered
+                ? collection.initializeOrderedBulkOperation()
+                : collection.initializeUnorderedBulkOperation();
+        List<CollectionBloomFilter> bloomFilters = cacheManager.getBloomFilters(collectionName);
+        // ids of changed documents, null if some of changed documents are unknown
+        List<Object> ids = Lists.newArrayListWithCapacity(batch.size());
+        for (int index : batch) {
+            WriteOperation operation = operations.get(index);
+            Object id;
+            if (operation.getType() == WriteOperation.Type.INSERT) {
+                DBObject document = operation.getDocument();
+                // values are put before the document is stored to never report the stored document as absent
+                bloomFilters.forEach(filter -> filter.put(document.get(filter.getField())));
+                id = document.get(ID_FIELD);
+            } else if (operation.getType() == WriteOperation.Type.UPDATE) {
+                updateBloomFilters(operation.getDocument(), operation.getQuery(), collectionName,
+                        operation.isUpsert());
+                id = getId(operation.getQuery());
+            } else {
+                bloomFilters.forEach(CollectionBloomFilter::markStale);
+                id = getId(operation.getQuery());
+            }
+            if (ids != null && id != null) {
+                ids.add(id);
+            } else {
+                ids = null;
+            }
+            operation.addTo(bulkWrite);
+        }
+        long start = System.nanoTime();
+        try {
+            BulkWriteResult writeResult = bulkWrite.execute(durability.getWriteConcern());
+            if (writeResult.isAcknowledged()) {
+                addResult(writeResult, batch, result);
+            } else {
+                result.unacknowledged();
+            }
+        } catch (BulkWriteException e) {
+            if (e.getWriteErrors().isEmpty()) {
+                // operations were performed but the write concern wasn't satisfied
+                throw e;
+            }
+            addResult(e.getWriteResult(), batch, result);
+            for (BulkWriteError error : e.getWriteErrors()) {
+                result.error(batch.get(error.getIndex()), error.getCode(), error.getMessage());
+            }
+        } finally {
+            durability.recordLatency(System.nanoTime() - start);
+            invalidate(collectionName, ids);
+        }
+    }
+
+    private static void addResult(BulkWriteResult writeResult, List<Integer> batch, BulkResult.Builder result) {
+        result.add(writeResult);
+        for (BulkWriteUpsert upsert : writeResult.getUpserts()) {
+            result.upsert(batch.get(upsert.getIndex()), upsert.getId());
+        }
+    }
+
+    /**
+     * Marshals the object to insert, documents are taken as is. The id is generated if the object doesn't have it.
+     */
+    DBObject toInsertDocument(Object objectToInsert) {
+        Validate.notNull(objectToInsert, "object to insert cannot be null");
+        DBObject dbObject;
+        if (objectToInsert instanceof DBObject) {
+            dbObject = (DBObject) objectToInsert;
+        } else {
+            idFieldModifier.generateId(objectToInsert);
+            dbObject = toDocument(objectToInsert);
+        }
+        if (dbObject.get(ID_FIELD) == null) {
+            // the driver would generate the id anyway, ids are needed to invalidate caches
+            dbObject.put(ID_FIELD, new ObjectId());
+        }
+        return dbObject;
+    }
+
+    DBObject toDocument(Object object) {
+        return jacksonBsonMarshaller.marshall(BasicDBObject.class, object);
     }
 
     /**
@@ -219,11 +732,34 @@ public class JMingoTemplate {
      * @param collectionName the collection name
      */
     public void insert(Object objectToInsert, String collectionName) {
+        Validate.notNull(objectToInsert, "object to insert cannot be null");
+        insert(objectToInsert, collectionName, getDurabilityProfile(objectToInsert.getClass()));
+    }
+
+    /**
+     * Inserts the object to the collection with the write concern of the profile.
+     *
+     * @param objectToInsert the object to store in the collection
+     * @param collectionName the collection name
+     * @param durability     the durability profile of the write
+     */
+    public void insert(Object objectToInsert, String collectionName, DurabilityProfile durability) {
         Validate.notNull(objectToInsert, "object to insert cannot be null");
         Validate.notBlank(collectionName, "collectionName cannot be null or empty");
+        Validate.notNull(durability, "durability profile cannot be null");
         idFieldModifier.generateId(objectToInsert);
         DBObject dbObject = jacksonBsonMarshaller.marshall(BasicDBObject.class, objectToInsert);
-        mongoDBFactory.getDB().getCollection(collectionName).insert(dbObject);
+        List<CollectionBloomFilter> bloomFilters = cacheManager.getBloomFilters(collectionName);
+        // values are put before the document is stored to never report the stored document as absent
+        bloomFilters.forEach(filter -> filter.put(dbObject.get(filter.getField())));
+        try {
+            write(durability, () -> mongoDBFactory.getDB().getCollection(collectionName)
+                    .insert(dbObject, durability.getWriteConcern()));
+            // id that is generated by the driver
+            bloomFilters.forEach(filter -> filter.put(dbObject.get(filter.getField())));
+        } finally {
+            invalidate(collectionName, dbObject.get(ID_FIELD));
+        }
     }
 
     /**
@@ -231,18 +767,33 @@ public class JMingoTemplate {
      *
      * @param objectToUpdate the object to update
      * @param criteria       the criteria to find objects in the collection that should be updated
-     * @return the result of the operation
+     * @return the result of the operation, see {@link #update(Object, Criteria, String)}
      */
     public WriteResult update(Object objectToUpdate, Criteria criteria) {
         DocumentUtils.assertDocument(objectToUpdate);
-        DBObject updateDocument = jacksonBsonMarshaller.marshall(BasicDBObject.class, objectToUpdate);
-        DBObject queryObject = buildQuery(criteria);
-        return update(updateDocument, queryObject, objectToUpdate.getClass(), criteria.isUpsert(), criteria.isMulti());
+        return update(objectToUpdate, criteria, DocumentUtils.getCollectionName(objectToUpdate));
+    }
+
+    /**
+     * Updates one or multiple objects from collection that satisfy selection criteria with the write concern
+     * of the profile.
+     *
+     * @param objectToUpdate the object to update
+     * @param criteria       the criteria to find objects in the collection that should be updated
+     * @param durability     the durability profile of the write
+     * @return the result of the operation, see {@link #update(Object, Criteria, String)}
+     */
+    public WriteResult update(Object objectToUpdate, Criteria criteria, DurabilityProfile durability) {
+        DocumentUtils.assertDocument(objectToUpdate);
+        return update(objectToUpdate, criteria, DocumentUtils.getCollectionName(objectToUpdate), durability);
     }
 
     /**
      * Updates one or multiple objects from collection that satisfy selection criteria.
      *
+     * If the object was loaded through the template and its type is annotated with
+     * {@link org.jmingo.document.annotation.TrackChanges} then an update by id of the object sends only changed fields.
+     *
      * @param objectToUpdate the object to update
      * @param criteria       the criteria to find objects in the collection that should be updated. the parameters 'multi' and 'upsert' are taken from criteria.
      * @param collectionName the collection name
@@ -250,11 +801,47 @@ public class JMingoTemplate {
      */
     public WriteResult update(Object objectToUpdate, Criteria criteria, String collectionName) {
         Validate.notNull(objectToUpdate, "object to update cannot be null");
+        return update(objectToUpdate, criteria, collectionName, getDurabilityProfile(objectToUpdate.getClass()));
+    }
+
+    /**
+     * Updates one or multiple objects from collection that satisfy selection criteria with the write concern
+     * of the profile, see {@link #update(Object, Criteria, String)}.
+     *
+     * @param objectToUpdate the object to update
+     * @param criteria       the criteria to find objects in the collection that should be updated
+     * @param collectionName the collection name
+     * @param durability     the durability profile of the write
+     * @return the result of the operation
+     */
+    public WriteResult update(Object objectToUpdate, Criteria criteria, String collectionName,
+                              DurabilityProfile durability) {
+        Validate.notNull(objectToUpdate, "object to update cannot be null");
         Validate.notNull(criteria, "update criteria should be not null");
         Validate.notBlank(collectionName, "collectionName cannot be null or empty");
         DBObject updateDocument = jacksonBsonMarshaller.marshall(BasicDBObject.class, objectToUpdate);
         DBObject queryObject = buildQuery(criteria);
-        return update(updateDocument, queryObject, collectionName, criteria.isUpsert(), criteria.isMulti());
+        DBObject snapshot = changeTracker.getSnapshot(objectToUpdate);
+        if (snapshot == null) {
+            return update(updateDocument, queryObject, collectionName, criteria.isUpsert(), criteria.isMulti(),
+                    durability);
+        }
+        WriteResult result;
+        if (criteria.isIdCriteria() && !criteria.isUpsert() && !criteria.isMulti()
+                && Objects.equals(criteria.getId(), DocumentUtils.getIdValue(objectToUpdate))) {
+            // the loaded document is updated, only changes are sent
+            DBObject changes = changeTracker.diff(snapshot, updateDocument);
+            if (changes.keySet().isEmpty()) {
+                // nothing is written, the round trip only reports whether the document exists
+                changes = ChangeTracker.noChange(updateDocument);
+            }
+            result = update(changes, queryObject, collectionName, false, false, durability);
+        } else {
+            result = update(updateDocument, queryObject, collectionName, criteria.isUpsert(), criteria.isMulti(),
+                    durability);
+        }
+        changeTracker.track(objectToUpdate, updateDocument);
+        return result;
     }
 
     /**
@@ -270,7 +857,7 @@ public class JMingoTemplate {
     public WriteResult update(DBObject update, DBObject query, Class<?> documentClass, boolean upsert, boolean multi) {
         DocumentUtils.assertDocument(documentClass);
         String collectionName = DocumentUtils.getCollectionName(documentClass);
-        return update(update, query, collectionName, upsert, multi);
+        return update(update, query, collectionName, upsert, multi, getDurabilityProfile(documentClass));
     }
 
     /**
@@ -284,10 +871,149 @@ public class JMingoTemplate {
      * @return the result of the operation
      */
     public WriteResult update(DBObject update, DBObject query, String collectionName, boolean upsert, boolean multi) {
+        return update(update, query, collectionName, upsert, multi, getDurabilityProfiles().getDefault());
+    }
+
+    /**
+     * Updates one or multiple objects (depends on 'multi' value) from collection that satisfy selection criteria (query)
+     * with the write concern of the profile.
+     *
+     * @param update         the modifications to apply
+     * @param query          the query that specifies criteria used to update documents
+     * @param collectionName the collection name
+     * @param upsert         if true - inserts document in collection if no documents that satisfy given criteria
+     * @param multi          if true then all documents that satisfy condition will be updated otherwise only first matched
+     * @param durability     the durability profile of the write
+     * @return the result of the operation
+     */
+    public WriteResult update(DBObject update, DBObject query, String collectionName, boolean upsert, boolean multi,
+                              DurabilityProfile durability) {
         Validate.notNull(update, "object to update cannot be null");
         Validate.notNull(query, "update query cannot be null");
         Validate.notBlank(collectionName, "collectionName cannot be null or empty");
-        return mongoDBFactory.getDB().getCollection(collectionName).update(query, update, upsert, multi);
+        Validate.notNull(durability, "durability profile cannot be null");
+        updateBloomFilters(update, query, collectionName, upsert);
+        try {
+            return write(durability, () -> mongoDBFactory.getDB().getCollection(collectionName)
+                    .update(query, update, upsert, multi, durability.getWriteConcern()));
+        } finally {
+            invalidate(collectionName, getId(query));
+        }
+    }
+
+    /**
+     * Applies the update with atomic field operators to documents that satisfy the criteria in one round trip,
+     * the parameters 'multi' and 'upsert' are taken from criteria.
+     *
+     * @param update        the update
+     * @param criteria      the criteria to find documents to update
+     * @param documentClass the type of document
+     * @return the result of the operation
+     */
+    public WriteResult update(Update update, Criteria criteria, Class<?> documentClass) {
+        DocumentUtils.assertDocument(documentClass);
+        return update(update, criteria, DocumentUtils.getCollectionName(documentClass),
+                getDurabilityProfile(documentClass));
+    }
+
+    /**
+     * Applies the update with atomic field operators to documents that satisfy the criteria in one round trip,
+     * the parameters 'multi' and 'upsert' are taken from criteria.
+     *
+     * @param update         the update
+     * @param criteria       the criteria to find documents to update
+     * @param collectionName the collection name
+     * @return the result of the operation
+     */
+    public WriteResult update(Update update, Criteria criteria, String collectionName) {
+        return update(update, criteria, collectionName, getDurabilityProfiles().getDefault());
+    }
+
+    /**
+     * Applies the update with atomic field operators to documents that satisfy the criteria in one round trip
+     * with the write concern of the profile, the parameters 'multi' and 'upsert' are taken from criteria.
+     *
+     * @param update         the update
+     * @param criteria       the criteria to find documents to update
+     * @param collectionName the collection name
+     * @param durability     the durability profile of the write
+     * @return the result of the operation
+     */
+    public WriteResult update(Update update, Criteria criteria, String collectionName, DurabilityProfile durability) {
+        Validate.notNull(update, "update cannot be null");
+        Validate.isTrue(!update.isEmpty(), "update must have at least one operator");
+        Validate.notNull(criteria, "update criteria should be not null");
+        return update(update.getUpdateObject(), buildQuery(criteria), collectionName, criteria.isUpsert(),
+                criteria.isMulti(), durability);
+    }
+
+    /**
+     * Atomically modifies the first document that satisfies the criteria and returns the original document,
+     * see {@link #findAndModify(Criteria, Update, FindAndModifyOptions, Class)}.
+     *
+     * @param criteria the criteria to find the document
+     * @param update   the update
+     * @param type     the type of document
+     * @return the original document or null if no documents satisfy the criteria
+     */
+    public <T> T findAndModify(Criteria criteria, Update update, Class<T> type) {
+        return findAndModify(criteria, update, FindAndModifyOptions.defaults(), type);
+    }
+
+    /**
+     * Atomically modifies the first document that satisfies the criteria and returns the document
+     * before or after modification in one round trip.
+     *
+     * @param criteria the criteria to find the document
+     * @param update   the update
+     * @param options  the options: which document to return, upsert, sort order and projection
+     * @param type     the type of document
+     * @return the original or the modified document depending on options or null if no documents
+     * satisfy the criteria and the original document is requested
+     */
+    public <T> T findAndModify(Criteria criteria, Update update, FindAndModifyOptions options, Class<T> type) {
+        Validate.notNull(criteria, "criteria cannot be null");
+        Validate.notNull(update, "update cannot be null");
+        Validate.isTrue(!update.isEmpty(), "update must have at least one operator");
+        Validate.notNull(options, "options cannot be null");
+        DocumentUtils.assertDocument(type);
+        String collectionName = DocumentUtils.getCollectionName(type);
+        DBObject query = buildQuery(criteria);
+        DBObject updateObject = update.getUpdateObject();
+        updateBloomFilters(updateObject, query, collectionName, options.isUpsert());
+        DBObject result = null;
+        try {
+            result = mongoDBFactory.getDB().getCollection(collectionName).findAndModify(query, options.getFields(),
+                    options.getSort(), false, updateObject, options.isReturnNew(), options.isUpsert());
+            return convert(result, type, options.getFields() == null);
+        } finally {
+            Object id = result != null && (options.getFields() == null || result.containsField(ID_FIELD))
+                    ? result.get(ID_FIELD)
+                    : getId(query);
+            invalidate(collectionName, id);
+        }
+    }
+
+    /**
+     * Finds events of the series within the time range, buckets that cover the range are loaded in one query
+     * and unpacked, see {@link TimeSeries}.
+     *
+     * @param type      the event type annotated with {@link TimeSeries}
+     * @param seriesKey the series key, null if the series field isn't specified
+     * @param from      the start of the range, inclusive
+     * @param to        the end of the range, exclusive
+     * @return events ordered by time
+     */
+    public <T> List<T> findEvents(Class<T> type, Object seriesKey, Date from, Date to) {
+        Validate.notNull(from, "start of time range cannot be null");
+        Validate.notNull(to, "end of time range cannot be null");
+        DocumentUtils.assertDocument(type);
+        TimeSeries settings = TimeSeriesBuckets.getSettings(type);
+        DBCursor cursor = mongoDBFactory.getDB().getCollection(DocumentUtils.getCollectionName(type))
+                .find(TimeSeriesBuckets.rangeQuery(seriesKey, from.getTime(), to.getTime(), settings));
+        return TimeSeriesBuckets.unpack(cursor, from.getTime(), to.getTime(), settings).stream()
+                .map(event -> convert(event, type, false))
+                .collect(Collectors.toList());
     }
 
     /**
@@ -303,7 +1029,7 @@ public class JMingoTemplate {
         DBCursor cursor = mongoDBFactory.getDB().getCollection(collectionName).find();
         while (cursor.hasNext()) {
             DBObject object = cursor.next();
-            T item = converterService.lookupConverter(type).convert(type, object);
+            T item = convert(object, type);
             result.add(item);
         }
         return result;
@@ -321,7 +1047,11 @@ public class JMingoTemplate {
     }
 
     /**
-     * Finds document by id.
+     * Finds document by id. If second-level cache is enabled for the document type, see {@link EntityCache},
+     * then documents found by id are cached in the type region. If off-heap cache is configured for documents
+     * found by id then the raw document is cached off-heap and converted on every call.
+     * If a unit of work is bound to the current thread then the lookup is performed within the unit of work,
+     * see {@link #findById(Object, Class, UnitOfWork)}.
      *
      * @param id   the id value
      * @param type the document type
@@ -329,13 +1059,327 @@ public class JMingoTemplate {
      * @return document
      */
     public <T> T findById(Object id, Class<T> type) {
+        return findById(id, type, UnitOfWork.current());
+    }
+
+    /**
+     * Finds document by id within the unit of work. If the document has been already loaded within the unit of work
+     * then the same instance is returned. Ids of the type registered in the unit of work as required are resolved
+     * together with the given id through the caches of lookups by id, ids that aren't cached are loaded using
+     * a single query.
+     *
+     * @param id         the id value
+     * @param type       the document type
+     * @param unitOfWork the unit of work, can be null
+     * @param <T>        type of document
+     * @return document
+     */
+    public <T> T findById(Object id, Class<T> type, UnitOfWork unitOfWork) {
+        DocumentUtils.assertDocument(type);
+        if (unitOfWork == null || id == null) {
+            return doFindById(id, type);
+        }
+        String collectionName = DocumentUtils.getCollectionName(type);
+        // documents loaded before the collection was changed through the template are evicted
+        unitOfWork.sync(collectionName, getCollectionVersion(collectionName));
+        if (unitOfWork.contains(type, id)) {
+            return unitOfWork.get(type, id);
+        }
+        Set<Object> ids = Sets.newLinkedHashSet(unitOfWork.drainRequired(type));
+        ids.add(id);
+        if (ids.size() > 1) {
+            Map<Object, T> documents = doFindByIds(ids, type);
+            ids.forEach(currentId -> unitOfWork.put(type, currentId, documents.get(currentId)));
+            return unitOfWork.get(type, id);
+        }
+        T result = doFindById(id, type);
+        unitOfWork.put(type, id, result);
+        return result;
+    }
+
+    /**
+     * Finds document by id asynchronously. If batching is enabled then the lookup is performed together
+     * with concurrent lookups of the type using a single query, caches and unit of work aren't used in this case,
+     * otherwise the lookup is performed by {@link #findById(Object, Class)} in the calling thread.
+     *
+     * @param id   the id value
+     * @param type the document type
+     * @param <T>  type of document
+     * @return the future of the document, the future is completed with null if there is no document with the id
+     */
+    public <T> CompletableFuture<T> findByIdAsync(Object id, Class<T> type) {
         DocumentUtils.assertDocument(type);
-        Criteria criteria = Criteria.whereId(id);
-        return findOne(criteria, type);
+        BatchLoader<Object, DBObject> batchLoader = getBatchLoader(type, DocumentUtils.getCollectionName(type));
+        if (batchLoader == null || id == null) {
+            return CompletableFuture.completedFuture(findById(id, type));
+        }
+        return batchLoader.load(id).thenApply(source -> convert(source, type));
+    }
+
+    /**
+     * Finds documents by ids. Large sets of ids are split into chunks that are queried in parallel.
+     *
+     * @param ids  the ids to find
+     * @param type the document type
+     * @param <T>  type of document
+     * @return map: key - id, value - document. map preserves order of the given ids and doesn't contain
+     * ids that don't match any document
+     */
+    public <T> Map<Object, T> findByIds(Collection<?> ids, Class<T> type) {
+        return findByIds(ids, type, null);
+    }
+
+    /**
+     * Finds documents by ids and returns only fields specified in the projection.
+     * Large sets of ids are split into chunks that are queried in parallel.
+     *
+     * @param ids        the ids to find
+     * @param type       the document type
+     * @param projection the fields to return, all fields are returned if null. '_id' field cannot be excluded
+     * @param <T>        type of document
+     * @return map: key - id, value - document. map preserves order of the given ids and doesn't contain
+     * ids that don't match any document
+     */
+    public <T> Map<Object, T> findByIds(Collection<?> ids, Class<T> type, DBObject projection) {
+        Validate.notNull(ids, "ids cannot be null");
+        DocumentUtils.assertDocument(type);
+        String collectionName = DocumentUtils.getCollectionName(type);
+        List<Object> candidates = ids.stream()
+                .filter(id -> id != null && !isAbsent(type, collectionName, ID_FIELD, id))
+                .collect(Collectors.toList());
+        Map<Object, DBObject> sources = findByIds(candidates, collectionName, projection);
+        Map<Object, T> result = Maps.newLinkedHashMap();
+        for (Object id : ids) {
+            DBObject source = sources.get(id);
+            if (source != null && !result.containsKey(id)) {
+                result.put(id, convert(source, type, projection == null));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds documents by ids, see {@link #findByIds(Collection, Class)}.
+     *
+     * @param ids  the ids to find
+     * @param type the document type
+     * @param <T>  type of document
+     * @return list of documents in order of the given ids, ids that don't match any document are skipped
+     */
+    public <T> List<T> findByIdsOrdered(Collection<?> ids, Class<T> type) {
+        Map<Object, T> documents = findByIds(ids, type);
+        List<T> result = new ArrayList<>(ids.size());
+        for (Object id : ids) {
+            T document = documents.get(id);
+            if (document != null) {
+                result.add(document);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether a document with the id exists. If bloom filter of ids is enabled for the document type,
+     * see {@link org.jmingo.document.annotation.BloomFilter}, then absent documents are mostly detected without
+     * a round trip to the database.
+     *
+     * @param id   the id value
+     * @param type the document type
+     * @return true if the document exists, otherwise false
+     */
+    public boolean exists(Object id, Class<?> type) {
+        return exists(ID_FIELD, id, type);
+    }
+
+    /**
+     * Checks whether a document with the value of the field exists. Bloom filter of the document type
+     * is used if the filter is built for the field.
+     *
+     * @param field the field name
+     * @param value the field value
+     * @param type  the document type
+     * @return true if the document exists, otherwise false
+     */
+    public boolean exists(String field, Object value, Class<?> type) {
+        Validate.notBlank(field, "field cannot be null or empty");
+        DocumentUtils.assertDocument(type);
+        String collectionName = DocumentUtils.getCollectionName(type);
+        if (isAbsent(type, collectionName, field, value)) {
+            return false;
+        }
+        return mongoDBFactory.getDB().getCollection(collectionName)
+                .findOne(new BasicDBObject(field, value), new BasicDBObject(ID_FIELD, 1)) != null;
+    }
+
+    private <T> T doFindById(Object id, Class<T> type) {
+        String collectionName = DocumentUtils.getCollectionName(type);
+        Function<DBObject, T> converter = source -> convert(source, type);
+        if (id == null) {
+            return converter.apply(findOne(buildQuery(Criteria.whereId(null)), collectionName));
+        }
+        if (isAbsent(type, collectionName, ID_FIELD, id)) {
+            return null;
+        }
+        EntityCache entityCache = cacheManager.getEntityCache();
+        if (entityCache.isCached(type)) {
+            return entityCache.get(type, id, () -> findById(id, type, collectionName), converter);
+        }
+        return converter.apply(findById(id, type, collectionName));
+    }
+
+    /**
+     * Finds documents by ids through the same caches as {@link #doFindById(Object, Class)}, ids that aren't cached
+     * are loaded with a single query.
+     *
+     * @return map: key - id, value - the document, ids that don't match any document are missing or mapped to null
+     */
+    private <T> Map<Object, T> doFindByIds(Collection<Object> ids, Class<T> type) {
+        String collectionName = DocumentUtils.getCollectionName(type);
+        Function<DBObject, T> converter = source -> convert(source, type);
+        List<Object> candidates = ids.stream()
+                .filter(id -> !isAbsent(type, collectionName, ID_FIELD, id))
+                .collect(Collectors.toList());
+        EntityCache entityCache = cacheManager.getEntityCache();
+        if (entityCache.isCached(type)) {
+            return entityCache.getAll(type, candidates, missing -> loadByIds(missing, collectionName), converter);
+        }
+        Map<Object, T> result = Maps.newHashMap();
+        loadByIds(candidates, collectionName).forEach((id, source) -> result.put(id, converter.apply(source)));
+        return result;
+    }
+
+    /**
+     * Loads raw documents by ids through the off-heap cache of lookups by id if it's enabled.
+     */
+    private Map<Object, DBObject> loadByIds(List<Object> ids, String collectionName) {
+        OffHeapResultCache offHeapResultCache = cacheManager.getOffHeapResultCache();
+        long ttl = cacheManager.getCachingConfig().getOffHeapFindByIdTtl();
+        if (offHeapResultCache == null || ttl == 0) {
+            return findByIds(ids, collectionName, null);
+        }
+        return offHeapResultCache.getAll(ids, collectionName, ttl, missing -> findByIds(missing, collectionName, null));
+    }
+
+    /**
+     * Finds raw documents by ids, the first chunk of ids is queried in the calling thread.
+     *
+     * @return map: key - the given id, value - raw document, ids that don't match any document are missing
+     */
+    private Map<Object, DBObject> findByIds(Collection<?> ids, String collectionName, DBObject projection) {
+        Validate.isTrue(projection == null || !isExcluded(projection.get(ID_FIELD)),
+                "'_id' field cannot be excluded from projection");
+        List<Object> distinctIds = ids.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        if (distinctIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        List<List<Object>> chunks = Lists.partition(distinctIds, FIND_BY_IDS_CHUNK_SIZE);
+        List<CompletableFuture<Map<Object, DBObject>>> futures = chunks.subList(1, chunks.size()).stream()
+                .map(chunk -> CompletableFuture.supplyAsync(() -> findChunk(chunk, collectionName, projection),
+                        readExecutor))
+                .collect(Collectors.toList());
+        Map<Object, DBObject> result = findChunk(chunks.get(0), collectionName, projection);
+        for (CompletableFuture<Map<Object, DBObject>> future : futures) {
+            result.putAll(join(future));
+        }
+        // numbers of different types match the same _id, e.g. 1 matches NumberLong(1), but aren't equal in java
+        Map<Object, DBObject> sources = Maps.newHashMapWithExpectedSize(distinctIds.size());
+        for (Object id : distinctIds) {
+            DBObject source = result.get(MongoUtil.normalize(id));
+            if (source != null) {
+                sources.put(id, source);
+            }
+        }
+        return sources;
+    }
+
+    /**
+     * Finds raw documents of the chunk of ids.
+     *
+     * @return map: key - normalized '_id' of raw document, see {@link MongoUtil#normalize(Object)},
+     * value - raw document
+     */
+    private Map<Object, DBObject> findChunk(List<Object> ids, String collectionName, DBObject projection) {
+        DBObject query = new BasicDBObject(ID_FIELD, new BasicDBObject("$in", ids));
+        Map<Object, DBObject> result = Maps.newHashMap();
+        for (DBObject source : mongoDBFactory.getDB().getCollection(collectionName).find(query, projection)) {
+            // id is taken from raw document because the document type may not contain id field
+            result.put(MongoUtil.normalize(source.get(ID_FIELD)), source);
+        }
+        return result;
+    }
+
+    private static boolean isExcluded(Object projectionValue) {
+        return Boolean.FALSE.equals(projectionValue)
+                || (projectionValue instanceof Number && ((Number) projectionValue).intValue() == 0);
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    private static ExecutorService createReadExecutor() {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(parallelism, parallelism,
+                READ_THREAD_KEEP_ALIVE, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("jmingo-read-%d").setDaemon(true).build());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private <T> T convert(DBObject source, Class<T> type) {
+        return convert(source, type, true);
+    }
+
+    /**
+     * Converts the source to the document type.
+     *
+     * @param complete false if the source contains only projected fields, such documents aren't tracked
+     */
+    private <T> T convert(DBObject source, Class<T> type, boolean complete) {
+        if (source == null) {
+            return null;
+        }
+        T result = converterService.lookupConverter(type).convert(type, source);
+        if (complete && result != null && ChangeTracker.isTracked(result.getClass())) {
+            // snapshot is taken from the converted object to be comparable with the marshalled object on update
+            changeTracker.track(result, toDocument(result));
+        }
+        return result;
+    }
+
+    private DBObject findById(Object id, Class<?> type, String collectionName) {
+        OffHeapResultCache offHeapResultCache = cacheManager.getOffHeapResultCache();
+        long ttl = cacheManager.getCachingConfig().getOffHeapFindByIdTtl();
+        if (offHeapResultCache == null || ttl == 0) {
+            return loadById(id, type, collectionName);
+        }
+        return offHeapResultCache.get(id, collectionName, ttl, () -> loadById(id, type, collectionName),
+                Function.identity());
+    }
+
+    /**
+     * Loads raw document by id from the database, the lookup is batched with concurrent lookups of the type
+     * if batching is enabled.
+     */
+    private DBObject loadById(Object id, Class<?> type, String collectionName) {
+        BatchLoader<Object, DBObject> batchLoader = getBatchLoader(type, collectionName);
+        if (batchLoader == null) {
+            return findOne(buildQuery(Criteria.whereId(id)), collectionName);
+        }
+        return join(batchLoader.load(id));
+    }
+
+    private BatchLoader<Object, DBObject> getBatchLoader(Class<?> type, String collectionName) {
+        return cacheManager.getBatchLoader(type, ids -> findByIds(ids, collectionName, null));
     }
 
     /**
      * Finds first matched document which satisfies the given criteria.
+     * Criteria created by {@link Criteria#whereId(Object)} is performed as {@link #findById(Object, Class)}.
      *
      * @param criteria the criteria to find document in the collection
      * @param type     the document type
@@ -343,17 +1387,23 @@ public class JMingoTemplate {
      */
     public <T> T findOne(Criteria criteria, Class<T> type) {
         Validate.notNull(criteria, "criteria to find-one operation cannot be null or empty");
+        if (criteria.isIdCriteria()) {
+            return findById(criteria.getId(), type);
+        }
         T result = null;
         DocumentUtils.assertDocument(type);
-        DBObject query = buildQuery(criteria);
-        DBCursor cursor = mongoDBFactory.getDB().getCollection(DocumentUtils.getCollectionName(type)).find(query);
-        if (cursor.hasNext()) {
-            DBObject dbObject = cursor.iterator().next();
-            result = converterService.lookupConverter(type).convert(type, dbObject);
+        DBObject dbObject = findOne(buildQuery(criteria), DocumentUtils.getCollectionName(type));
+        if (dbObject != null) {
+            result = convert(dbObject, type);
         }
         return result;
     }
 
+    private DBObject findOne(DBObject query, String collectionName) {
+        DBCursor cursor = mongoDBFactory.getDB().getCollection(collectionName).find(query);
+        return cursor.hasNext() ? cursor.iterator().next() : null;
+    }
+
     /**
      * Finds documents which satisfies given criteria.
      *
@@ -369,7 +1419,7 @@ public class JMingoTemplate {
         DBCursor cursor = mongoDBFactory.getDB().getCollection(DocumentUtils.getCollectionName(type)).find(query);
         while (cursor.hasNext()) {
             DBObject object = cursor.next();
-            T item = converterService.lookupConverter(type).convert(type, object);
+            T item = convert(object, type);
             result.add(item);
         }
         return result;
@@ -385,6 +1435,19 @@ public class JMingoTemplate {
         return remove(object, DocumentUtils.getCollectionName(object));
     }
 
+    /**
+     * Removes the object from the collection by id with the write concern of the profile.
+     *
+     * @param object     the object to remove
+     * @param durability the durability profile of the write
+     */
+    public WriteResult remove(Object object, DurabilityProfile durability) {
+        DocumentUtils.assertDocument(object);
+        Validate.notNull(durability, "durability profile cannot be null");
+        return remove(buildQuery(Criteria.whereId(DocumentUtils.getIdValue(object))),
+                DocumentUtils.getCollectionName(object), durability);
+    }
+
     /**
      * Removes the object from the collection by document id.
      *
@@ -397,7 +1460,7 @@ public class JMingoTemplate {
         Object idValue = DocumentUtils.getIdValue(object);
         Criteria criteria = Criteria.whereId(idValue);
         DBObject query = buildQuery(criteria);
-        return remove(query, collection);
+        return remove(query, collection, getDurabilityProfile(object.getClass()));
     }
 
     /**
@@ -408,9 +1471,29 @@ public class JMingoTemplate {
      * @return result of operation
      */
     public WriteResult remove(DBObject query, String collectionName) {
+        return remove(query, collectionName, getDurabilityProfiles().getDefault());
+    }
+
+    /**
+     * Removes all documents from the collection that satisfies the given query criteria with the write concern
+     * of the profile.
+     *
+     * @param query          the query that specifies criteria used to remove documents
+     * @param collectionName the collection name
+     * @param durability     the durability profile of the write
+     * @return result of operation
+     */
+    public WriteResult remove(DBObject query, String collectionName, DurabilityProfile durability) {
         Validate.notNull(query, "remove query cannot be null or empty");
         Validate.notBlank(collectionName, "collectionName cannot be null or empty");
-        return mongoDBFactory.getDB().getCollection(collectionName).remove(query);
+        Validate.notNull(durability, "durability profile cannot be null");
+        cacheManager.getBloomFilters(collectionName).forEach(CollectionBloomFilter::markStale);
+        try {
+            return write(durability, () -> mongoDBFactory.getDB().getCollection(collectionName)
+                    .remove(query, durability.getWriteConcern()));
+        } finally {
+            invalidate(collectionName, getId(query));
+        }
     }
 
     /**
@@ -421,9 +1504,23 @@ public class JMingoTemplate {
      * @return result of operation
      */
     public <T> WriteResult remove(Criteria criteria, Class<T> documentClass) {
+        DocumentUtils.assertDocument(documentClass);
+        return remove(criteria, documentClass, getDurabilityProfile(documentClass));
+    }
+
+    /**
+     * Removes documents that satisfy the criteria from the collection that is used to store the instances
+     * of documentClass with the write concern of the profile.
+     *
+     * @param criteria      the query criteria
+     * @param documentClass the document class
+     * @param durability    the durability profile of the write
+     * @return result of operation
+     */
+    public <T> WriteResult remove(Criteria criteria, Class<T> documentClass, DurabilityProfile durability) {
         DocumentUtils.assertDocument(documentClass);
         DBObject query = buildQuery(criteria);
-        return remove(query, DocumentUtils.getCollectionName(documentClass));
+        return remove(query, DocumentUtils.getCollectionName(documentClass), durability);
     }
 
     /**
@@ -435,7 +1532,7 @@ public class JMingoTemplate {
     public <T> WriteResult removeAll(Class<T> documentClass) {
         DocumentUtils.assertDocument(documentClass);
         DBObject query = buildQuery(Criteria.empty());
-        return remove(query, DocumentUtils.getCollectionName(documentClass));
+        return remove(query, DocumentUtils.getCollectionName(documentClass), getDurabilityProfile(documentClass));
     }
 
     /**
@@ -488,7 +1585,116 @@ public class JMingoTemplate {
         return queryExecutor.queryForList(queryName, type);
     }
 
-    private DBObject buildQuery(Criteria criteria) {
+    /**
+     * Checks bloom filter of the document type.
+     *
+     * @return true if there is definitely no document with the value of the field, otherwise false
+     */
+    private boolean isAbsent(Class<?> type, String collectionName, String field, Object value) {
+        CollectionBloomFilter filter = cacheManager.getBloomFilter(type,
+                (filterField, consumer) -> scan(collectionName, filterField, consumer));
+        return value != null && filter != null && filter.getField().equals(field) && !filter.mightContain(value);
+    }
+
+    private void scan(String collectionName, String field, Consumer<Object> consumer) {
+        try (DBCursor cursor = mongoDBFactory.getDB().getCollection(collectionName)
+                .find(new BasicDBObject(), new BasicDBObject(field, 1)).batchSize(SCAN_BATCH_SIZE)) {
+            for (DBObject source : cursor) {
+                consumer.accept(source.get(field));
+            }
+        }
+    }
+
+    /**
+     * Puts values of the filter fields that can be stored by the update in bloom filters of the collection.
+     * A filter is invalidated until the next build if the values cannot be determined.
+     */
+    private void updateBloomFilters(DBObject update, DBObject query, String collectionName, boolean upsert) {
+        for (CollectionBloomFilter filter : cacheManager.getBloomFilters(collectionName)) {
+            String field = filter.getField();
+            List<Object> values = Lists.newArrayList();
+            boolean known = true;
+            if (update.keySet().stream().noneMatch(key -> key.startsWith("$"))) {
+                // replacement document
+                values.add(update.get(field));
+            } else {
+                for (String operator : update.keySet()) {
+                    Object modification = update.get(operator);
+                    if (!(modification instanceof DBObject)) {
+                        continue;
+                    }
+                    DBObject fields = (DBObject) modification;
+                    if ("$set".equals(operator) || "$setOnInsert".equals(operator)) {
+                        values.add(fields.get(field));
+                    } else if (fields.containsField(field)
+                            || ("$rename".equals(operator) && fields.toMap().containsValue(field))) {
+                        known = false;
+                    }
+                }
+            }
+            if (upsert) {
+                values.add(query.get(field));
+            }
+            values.removeIf(value -> value == null || value instanceof DBObject);
+            if (!known || (upsert && values.isEmpty() && ID_FIELD.equals(field))) {
+                filter.invalidate();
+            }
+            values.forEach(filter::put);
+        }
+    }
+
+    private void invalidate(String collectionName) {
+        invalidate(collectionName, null);
+    }
+
+    /**
+     * Invalidates caches of this node and publishes the invalidation to other nodes.
+     *
+     * @param collectionName the name of changed collection
+     * @param id             the id of changed document or null if changed documents are unknown
+     */
+    private void invalidate(String collectionName, Object id) {
+        cacheManager.invalidate(collectionName, id);
+        changeVersion(collectionName);
+    }
+
+    /**
+     * Invalidates caches of this node and publishes the invalidation to other nodes.
+     *
+     * @param collectionName the name of changed collection
+     * @param ids            the ids of changed documents
+     */
+    private void invalidate(String collectionName, Collection<?> ids) {
+        cacheManager.invalidate(collectionName, ids);
+        changeVersion(collectionName);
+    }
+
+    /**
+     * Increments version of the collection, units of work evict documents of the collection on the next lookup.
+     */
+    private void changeVersion(String collectionName) {
+        collectionVersions.computeIfAbsent(collectionName, key -> new AtomicLong()).incrementAndGet();
+    }
+
+    private long getCollectionVersion(String collectionName) {
+        AtomicLong version = collectionVersions.get(collectionName);
+        return version != null ? version.get() : 0;
+    }
+
+    /**
+     * Gets id of the document the query selects by _id equality.
+     *
+     * @return the id or null if the query selects documents by other conditions
+     */
+    private static Object getId(DBObject query) {
+        if (query.keySet().size() != 1) {
+            return null;
+        }
+        Object id = query.get(ID_FIELD);
+        return id instanceof DBObject || id instanceof Map ? null : id;
+    }
+
+    DBObject buildQuery(Criteria criteria) {
         return mongoBsonMarshaller.marshall(criteria.query(), criteria.getParameters());
     }
 
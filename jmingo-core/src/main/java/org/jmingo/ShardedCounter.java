@@ -0,0 +1,406 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo;
+
+import com.google.common.collect.Lists;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import net.jcip.annotations.ThreadSafe;
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counter that spreads increments over several shard documents to avoid contention of concurrent writers
+ * on a single document. An increment applies $inc to a randomly chosen shard, the value of the counter is
+ * the sum of shards.
+ * <p>
+ * Shard documents have the form {@code {_id: "<name>:<shard>", counter: <name>, shard: <shard>, value: <value>}}
+ * and are created by the first increment. The collection should be used only for counters, writes of counters
+ * don't invalidate caches of the collection.
+ * <p>
+ * If the cache ttl is set, the value is cached and increments made through this instance are added to the cached
+ * value, increments made by other nodes become visible when the cached value expires.
+ * <p>
+ * {@link #compact()} folds shards into the first one to make reads cheaper, e.g. when a counter isn't hot anymore
+ * or the number of shards was decreased. The value of a shard is moved through a pending move marker:
+ * <ol>
+ * <li>a sequence number of the move is allocated in {@code sequences} of the first shard;</li>
+ * <li>the value is subtracted from the shard and recorded in the marker {@code move: {seq, amount}}
+ * with one atomic update;</li>
+ * <li>the amount is added to the first shard if {@code applied} sequence of the shard is lower than the sequence
+ * of the move, the sequence is recorded in the same update, so the amount is added once;</li>
+ * <li>the marker is removed and the shard is removed if it's empty.</li>
+ * </ol>
+ * A read counts amounts of markers that weren't applied to the first shard yet, so the value at rest is exact
+ * at every step and a compaction that stopped between steps is finished by the next one. A read gets the first
+ * shard before the others and checks that {@code applied} of the first shard didn't change while the others
+ * were read, otherwise the read is repeated, so a read concurrent with a move neither misses nor counts twice
+ * the moved amount.
+ */
+@ThreadSafe
+public class ShardedCounter {
+
+    static final String COUNTER_FIELD = "counter";
+    static final String SHARD_FIELD = "shard";
+    static final String VALUE_FIELD = "value";
+    static final String MOVE_FIELD = "move";
+    static final String SEQUENCES_FIELD = "sequences";
+    static final String APPLIED_FIELD = "applied";
+    static final String SEQ_FIELD = "seq";
+    static final String AMOUNT_FIELD = "amount";
+    private static final String ID_FIELD = "_id";
+    /* reads repeated because of concurrent moves, the last read is returned as is */
+    private static final int MAX_READ_ATTEMPTS = 3;
+
+    private final JMingoTemplate template;
+    private final String collectionName;
+    private final String name;
+    private final ShardedCounterConfig config;
+
+    private volatile CachedValue cachedValue;
+
+    private final LongAdder incrementCount = new LongAdder();
+    private final LongAdder readCount = new LongAdder();
+    private final LongAdder cachedReadCount = new LongAdder();
+    private final LongAdder compactedCount = new LongAdder();
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShardedCounter.class);
+
+    /**
+     * Constructor with parameters, creates index on name of counter.
+     *
+     * @param template       the template to access the collection
+     * @param collectionName the collection of shard documents
+     * @param name           the counter name
+     * @param config         the counter settings
+     */
+    ShardedCounter(JMingoTemplate template, String collectionName, String name, ShardedCounterConfig config) {
+        Validate.notBlank(collectionName, "collectionName cannot be null or empty");
+        Validate.notBlank(name, "counter name cannot be null or empty");
+        Validate.notNull(config, "counter config cannot be null");
+        this.template = template;
+        this.collectionName = collectionName;
+        this.name = name;
+        this.config = config;
+        getCollection().createIndex(new BasicDBObject(COUNTER_FIELD, 1));
+    }
+
+    public String getCollectionName() {
+        return collectionName;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public ShardedCounterConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Increments the counter by one.
+     */
+    public void increment() {
+        increment(1);
+    }
+
+    /**
+     * Adds the delta to the counter, the delta is applied to a random shard in one round trip.
+     *
+     * @param delta the value to add, can be negative
+     */
+    public void increment(long delta) {
+        int shard = ThreadLocalRandom.current().nextInt(config.getShards());
+        getCollection().update(new BasicDBObject(ID_FIELD, shardId(name, shard)), incrementOf(shard, delta),
+                true, false);
+        incrementCount.increment();
+        CachedValue cached = cachedValue;
+        if (cached != null) {
+            cached.value.addAndGet(delta);
+        }
+    }
+
+    /**
+     * Gets value of the counter, the value is cached if the cache ttl is set.
+     *
+     * @return sum of shards
+     */
+    public long get() {
+        CachedValue cached = cachedValue;
+        if (cached != null && System.currentTimeMillis() < cached.expiresAt) {
+            cachedReadCount.increment();
+            return cached.value.get();
+        }
+        long value = sum();
+        if (config.getCacheTtl() > 0) {
+            cachedValue = new CachedValue(value, System.currentTimeMillis() + config.getCacheTtl());
+        }
+        return value;
+    }
+
+    /**
+     * Folds all shards into the first one, the value of each shard is moved to the first shard and empty shards
+     * are removed. The value of the counter doesn't change and concurrent increments aren't lost. Moves left
+     * unfinished by a failed compaction are finished, so the compaction can be retried.
+     *
+     * @return the number of folded shards
+     */
+    public int compact() {
+        DBCollection collection = getCollection();
+        DBObject firstShard = new BasicDBObject(ID_FIELD, shardId(name, 0));
+        // the first shard has to exist to add moved values to it without upsert
+        collection.update(firstShard, new BasicDBObject("$setOnInsert", new BasicDBObject(COUNTER_FIELD, name)
+                .append(SHARD_FIELD, 0).append(VALUE_FIELD, 0L)), true, false);
+        int folded = 0;
+        DBObject query = new BasicDBObject(COUNTER_FIELD, name).append(SHARD_FIELD, new BasicDBObject("$gt", 0));
+        try (DBCursor cursor = collection.find(query)) {
+            while (cursor.hasNext()) {
+                DBObject shard = cursor.next();
+                Object id = shard.get(ID_FIELD);
+                int shardNumber = (int) toLong(shard.get(SHARD_FIELD));
+                DBObject move = (DBObject) shard.get(MOVE_FIELD);
+                if (move == null) {
+                    long value = toLong(shard.get(VALUE_FIELD));
+                    if (value != 0) {
+                        // sequences of moves of the shard grow even if the shard is removed and created again
+                        DBObject sequences = (DBObject) collection.findAndModify(firstShard, null, null, false,
+                                new BasicDBObject("$inc", new BasicDBObject(SEQUENCES_FIELD + "." + shardNumber, 1L)),
+                                true, false).get(SEQUENCES_FIELD);
+                        move = new BasicDBObject(SEQ_FIELD, toLong(sequences.get(String.valueOf(shardNumber))))
+                                .append(AMOUNT_FIELD, value);
+                        // a concurrent compaction has started the move if the shard has the marker
+                        if (collection.findAndModify(new BasicDBObject(ID_FIELD, id)
+                                        .append(MOVE_FIELD, new BasicDBObject("$exists", false)),
+                                null, null, false, startMove(move), true, false) == null) {
+                            continue;
+                        }
+                    }
+                }
+                if (move != null) {
+                    collection.update(applyMoveQuery(shardId(name, 0), shardNumber, move),
+                            applyMove(shardNumber, move), false, false);
+                    collection.update(new BasicDBObject(ID_FIELD, id)
+                                    .append(MOVE_FIELD + "." + SEQ_FIELD, move.get(SEQ_FIELD)),
+                            new BasicDBObject("$unset", new BasicDBObject(MOVE_FIELD, "")), false, false);
+                }
+                // an increment that comes after removal creates the shard again
+                collection.remove(new BasicDBObject(ID_FIELD, id).append(VALUE_FIELD, 0)
+                        .append(MOVE_FIELD, new BasicDBObject("$exists", false)));
+                folded++;
+            }
+        }
+        compactedCount.add(folded);
+        LOGGER.debug("{} shards of counter '{}' were folded", folded, name);
+        return folded;
+    }
+
+    /**
+     * Creates update that subtracts the amount of the marker from the shard and records the marker.
+     *
+     * @param move the marker
+     * @return update of the moved shard
+     */
+    static DBObject startMove(DBObject move) {
+        return new BasicDBObject("$inc", new BasicDBObject(VALUE_FIELD, -toLong(move.get(AMOUNT_FIELD))))
+                .append("$set", new BasicDBObject(MOVE_FIELD, move));
+    }
+
+    /**
+     * Creates query that matches the first shard if the move wasn't applied to it yet.
+     *
+     * @param firstShardId the id of the first shard
+     * @param shard        the number of moved shard
+     * @param move         the marker
+     * @return query of the first shard
+     */
+    static DBObject applyMoveQuery(String firstShardId, int shard, DBObject move) {
+        return new BasicDBObject(ID_FIELD, firstShardId).append(APPLIED_FIELD + "." + shard,
+                new BasicDBObject("$not", new BasicDBObject("$gte", move.get(SEQ_FIELD))));
+    }
+
+    /**
+     * Creates update that adds the amount of the marker to the first shard and records the sequence of the move.
+     *
+     * @param shard the number of moved shard
+     * @param move  the marker
+     * @return update of the first shard
+     */
+    static DBObject applyMove(int shard, DBObject move) {
+        return new BasicDBObject("$inc", new BasicDBObject(VALUE_FIELD, toLong(move.get(AMOUNT_FIELD))))
+                .append("$set", new BasicDBObject(APPLIED_FIELD + "." + shard, move.get(SEQ_FIELD)));
+    }
+
+    /**
+     * Drops the cached value, the next read computes the value.
+     */
+    public void invalidate() {
+        cachedValue = null;
+    }
+
+    /**
+     * Gets the number of increments made through this instance.
+     *
+     * @return increment count
+     */
+    public long getIncrementCount() {
+        return incrementCount.sum();
+    }
+
+    /**
+     * Gets the number of reads that computed the value.
+     *
+     * @return read count
+     */
+    public long getReadCount() {
+        return readCount.sum();
+    }
+
+    /**
+     * Gets the number of reads served by the cached value.
+     *
+     * @return cached read count
+     */
+    public long getCachedReadCount() {
+        return cachedReadCount.sum();
+    }
+
+    /**
+     * Gets the number of shards folded by compactions.
+     *
+     * @return compacted count
+     */
+    public long getCompactedCount() {
+        return compactedCount.sum();
+    }
+
+    private long sum() {
+        readCount.increment();
+        DBCollection collection = getCollection();
+        DBObject firstShardQuery = new BasicDBObject(ID_FIELD, shardId(name, 0));
+        DBObject otherShardsQuery = new BasicDBObject(COUNTER_FIELD, name)
+                .append(SHARD_FIELD, new BasicDBObject("$gt", 0));
+        for (int attempt = 1; ; attempt++) {
+            List<DBObject> shards = Lists.newArrayList();
+            // the first shard is read first, so a move applied after it is still counted by the marker
+            DBObject firstShard = collection.findOne(firstShardQuery);
+            if (firstShard != null) {
+                shards.add(firstShard);
+            }
+            try (DBCursor cursor = collection.find(otherShardsQuery)) {
+                while (cursor.hasNext()) {
+                    shards.add(cursor.next());
+                }
+            }
+            // a move applied while the other shards were read can have its marker removed before the read
+            DBObject current = collection.findOne(firstShardQuery, new BasicDBObject(APPLIED_FIELD, 1));
+            if (appliedTotal(firstShard) == appliedTotal(current) || attempt == MAX_READ_ATTEMPTS) {
+                return sum(shards);
+            }
+        }
+    }
+
+    /**
+     * Gets the total of sequences of moves applied to the first shard, the total grows with each applied move.
+     *
+     * @param firstShard the first shard document or null if it doesn't exist
+     * @return total of applied sequences
+     */
+    static long appliedTotal(DBObject firstShard) {
+        DBObject applied = firstShard != null ? (DBObject) firstShard.get(APPLIED_FIELD) : null;
+        long total = 0;
+        if (applied != null) {
+            for (String shard : applied.keySet()) {
+                total += toLong(applied.get(shard));
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Computes value of the counter from shard documents, amounts of pending moves that weren't added
+     * to the first shard yet are counted.
+     *
+     * @param shards the shard documents of the counter
+     * @return value of the counter
+     */
+    static long sum(Collection<DBObject> shards) {
+        long value = 0;
+        DBObject applied = null;
+        for (DBObject shard : shards) {
+            value += toLong(shard.get(VALUE_FIELD));
+            if (toLong(shard.get(SHARD_FIELD)) == 0) {
+                applied = (DBObject) shard.get(APPLIED_FIELD);
+            }
+        }
+        for (DBObject shard : shards) {
+            DBObject move = (DBObject) shard.get(MOVE_FIELD);
+            if (move != null) {
+                Object appliedSeq = applied != null ? applied.get(String.valueOf(toLong(shard.get(SHARD_FIELD))))
+                        : null;
+                if (toLong(move.get(SEQ_FIELD)) > toLong(appliedSeq)) {
+                    value += toLong(move.get(AMOUNT_FIELD));
+                }
+            }
+        }
+        return value;
+    }
+
+    private DBObject incrementOf(int shard, long delta) {
+        return new BasicDBObject("$inc", new BasicDBObject(VALUE_FIELD, delta))
+                .append("$setOnInsert", new BasicDBObject(COUNTER_FIELD, name).append(SHARD_FIELD, shard));
+    }
+
+    private DBCollection getCollection() {
+        return template.getDB().getCollection(collectionName);
+    }
+
+    static String shardId(String name, int shard) {
+        return name + ":" + shard;
+    }
+
+    private static long toLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+
+    private static final class CachedValue {
+        private final AtomicLong value;
+        private final long expiresAt;
+
+        private CachedValue(long value, long expiresAt) {
+            this.value = new AtomicLong(value);
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("collectionName", collectionName)
+                .append("name", name)
+                .append("config", config)
+                .toString();
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Settings of {@link ShardedCounter}. Immutable.
+ */
+public class ShardedCounterConfig {
+
+    public static final int DEF_SHARDS = 16;
+
+    private final int shards;
+    private final long cacheTtl;
+    private final long compactInterval;
+
+    private ShardedCounterConfig(Builder builder) {
+        this.shards = builder.shards;
+        this.cacheTtl = builder.cacheTtl;
+        this.compactInterval = builder.compactInterval;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Gets number of shard documents increments are spread over.
+     *
+     * @return number of shards
+     */
+    public int getShards() {
+        return shards;
+    }
+
+    /**
+     * Gets time in milliseconds the total value is cached for.
+     *
+     * @return cache ttl in milliseconds, 0 if the value is computed on every read
+     */
+    public long getCacheTtl() {
+        return cacheTtl;
+    }
+
+    /**
+     * Gets interval between compactions in milliseconds.
+     *
+     * @return compaction interval in milliseconds, 0 if shards aren't compacted periodically
+     */
+    public long getCompactInterval() {
+        return compactInterval;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("shards", shards)
+                .append("cacheTtl", cacheTtl)
+                .append("compactInterval", compactInterval)
+                .toString();
+    }
+
+    public static class Builder {
+        private int shards = DEF_SHARDS;
+        private long cacheTtl;
+        private long compactInterval;
+
+        public Builder shards(int val) {
+            Validate.isTrue(val > 0, "number of shards must be gt 0");
+            this.shards = val;
+            return this;
+        }
+
+        public Builder cacheTtl(long duration, TimeUnit unit) {
+            Validate.isTrue(duration >= 0, "cache ttl cannot be negative");
+            this.cacheTtl = unit.toMillis(duration);
+            return this;
+        }
+
+        public Builder compactInterval(long duration, TimeUnit unit) {
+            Validate.isTrue(duration >= 0, "compaction interval cannot be negative");
+            this.compactInterval = unit.toMillis(duration);
+            return this;
+        }
+
+        public ShardedCounterConfig build() {
+            return new ShardedCounterConfig(this);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo;
+
+import com.google.common.collect.Lists;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+import org.jmingo.document.annotation.TimeSeries;
+import org.jmingo.exceptions.JMingoException;
+
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Builds bucket documents of time series, see {@link TimeSeries}. A bucket has the form
+ * {@code {_id: <id>, series: <series key>, start: <window start>, count: <number of events>, events: [<event>, ...]}}.
+ * An event is appended by an upsert of the bucket of its series and window that isn't full yet, when all buckets
+ * of the window are full the upsert creates a new one.
+ */
+final class TimeSeriesBuckets {
+
+    static final String SERIES_FIELD = "series";
+    static final String START_FIELD = "start";
+    static final String COUNT_FIELD = "count";
+    static final String EVENTS_FIELD = "events";
+
+    private TimeSeriesBuckets() {
+        throw new UnsupportedOperationException("not allowed to create instances of this class");
+    }
+
+    /**
+     * Gets time series settings of the type.
+     *
+     * @param type the event type
+     * @return time series settings
+     * @throws JMingoException if the type isn't annotated with {@link TimeSeries}
+     */
+    static TimeSeries getSettings(Class<?> type) {
+        TimeSeries timeSeries = type.getAnnotation(TimeSeries.class);
+        if (timeSeries == null) {
+            throw new JMingoException("[class:" + type.getName() + "] is not time series because is not annotated "
+                    + "with @TimeSeries annotation.");
+        }
+        Validate.notBlank(timeSeries.timeField(), "time field of time series cannot be empty");
+        Validate.isTrue(timeSeries.bucketWindow() > 0, "bucket window must be gt 0");
+        Validate.isTrue(timeSeries.maxEvents() > 0, "maximum number of events in bucket must be gt 0");
+        return timeSeries;
+    }
+
+    /**
+     * Gets series key of the marshalled event.
+     *
+     * @return the series key or null if the series field isn't specified
+     */
+    static Object getSeriesKey(DBObject event, TimeSeries settings) {
+        return StringUtils.isEmpty(settings.seriesField()) ? null : event.get(settings.seriesField());
+    }
+
+    /**
+     * Gets time of the marshalled event.
+     *
+     * @return time in milliseconds
+     * @throws JMingoException if the time field is absent or isn't a date or a number
+     */
+    static long getTime(DBObject event, TimeSeries settings) {
+        Object time = event.get(settings.timeField());
+        if (time instanceof Date) {
+            return ((Date) time).getTime();
+        } else if (time instanceof Number) {
+            return ((Number) time).longValue();
+        }
+        throw new JMingoException("time field '" + settings.timeField() + "' of event must be a date or a number: "
+                + time);
+    }
+
+    /**
+     * Gets start of the window the time falls in.
+     */
+    static long windowStart(long time, TimeSeries settings) {
+        return Math.floorDiv(time, settings.bucketWindow()) * settings.bucketWindow();
+    }
+
+    /**
+     * Creates query that selects a bucket of the event with free space.
+     *
+     * @param event    the marshalled event
+     * @param settings the time series settings
+     * @return bucket query
+     */
+    static DBObject bucketQuery(DBObject event, TimeSeries settings) {
+        return new BasicDBObject(SERIES_FIELD, getSeriesKey(event, settings))
+                .append(START_FIELD, new Date(windowStart(getTime(event, settings), settings)))
+                .append(COUNT_FIELD, new BasicDBObject("$lt", settings.maxEvents()));
+    }
+
+    /**
+     * Creates update that appends the event to a bucket, series and window start of a new bucket are taken
+     * from the query.
+     *
+     * @param event the marshalled event
+     * @return bucket update
+     */
+    static DBObject bucketUpdate(DBObject event) {
+        return new BasicDBObject("$push", new BasicDBObject(EVENTS_FIELD, event))
+                .append("$inc", new BasicDBObject(COUNT_FIELD, 1));
+    }
+
+    /**
+     * Creates query that selects buckets that can contain events of the series within the time range.
+     *
+     * @param seriesKey the series key, null if the series field isn't specified
+     * @param from      the start of the range, inclusive
+     * @param to        the end of the range, exclusive
+     * @param settings  the time series settings
+     * @return buckets query
+     */
+    static DBObject rangeQuery(Object seriesKey, long from, long to, TimeSeries settings) {
+        return new BasicDBObject(SERIES_FIELD, seriesKey)
+                .append(START_FIELD, new BasicDBObject("$gte", new Date(windowStart(from, settings)))
+                        .append("$lt", new Date(to)));
+    }
+
+    /**
+     * Extracts events within the time range from buckets.
+     *
+     * @param buckets  the bucket documents
+     * @param from     the start of the range, inclusive
+     * @param to       the end of the range, exclusive
+     * @param settings the time series settings
+     * @return marshalled events ordered by time
+     */
+    static List<DBObject> unpack(Iterable<DBObject> buckets, long from, long to, TimeSeries settings) {
+        List<DBObject> events = Lists.newArrayList();
+        for (DBObject bucket : buckets) {
+            Object bucketEvents = bucket.get(EVENTS_FIELD);
+            if (!(bucketEvents instanceof List)) {
+                continue;
+            }
+            for (Object event : (List<?>) bucketEvents) {
+                if (event instanceof DBObject) {
+                    long time = getTime((DBObject) event, settings);
+                    if (time >= from && time < to) {
+                        events.add((DBObject) event);
+                    }
+                }
+            }
+        }
+        // the sort is stable, events with the same time keep order of insertion
+        events.sort(Comparator.comparingLong(event -> getTime(event, settings)));
+        return events;
+    }
+}
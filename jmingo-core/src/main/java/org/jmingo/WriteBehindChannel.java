@@ -0,0 +1,514 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+import org.apache.commons.lang3.Validate;
+import org.jmingo.exceptions.JMingoException;
+import org.jmingo.mongo.DurabilityProfile;
+import org.jmingo.util.DocumentUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind channel of a collection for writes that don't need to be durable immediately.
+ * Writes are accepted into a bounded buffer and are written in bulk by a dedicated flusher thread
+ * when the number of buffered writes reaches the batch size or the oldest buffered write is older than
+ * the flush interval. Repeated updates of the same document are coalesced when possible: replacements override
+ * previous updates, $set and $unset of the same fields override each other, $inc of the same fields are summed.
+ * <p>
+ * Writes are performed in the order they were accepted except that a coalesced update takes the position
+ * of the first update of the document. A failed write is logged and skipped, following writes are performed.
+ * Buffered writes are lost if the application stops without {@link #close()}.
+ */
+@ThreadSafe
+public class WriteBehindChannel {
+
+    private final JMingoTemplate template;
+    private final String collectionName;
+    private final WriteBehindConfig config;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition flushNeeded = lock.newCondition();
+    /* key - id of updated document or unique key of insert */
+    @GuardedBy("lock")
+    private Map<Object, PendingWrite> pending = Maps.newLinkedHashMap();
+    @GuardedBy("lock")
+    private int pendingCount;
+    @GuardedBy("lock")
+    private long oldestWriteTime;
+    @GuardedBy("lock")
+    private boolean closed;
+    /* serializes flushes of the flusher thread and callers of flush() to keep order of writes */
+    private final Object flushMonitor = new Object();
+    private final ExecutorService flusher;
+
+    private final LongAdder writtenCount = new LongAdder();
+    private final LongAdder coalescedCount = new LongAdder();
+    private final LongAdder droppedCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+
+    private static final String ID_FIELD = "_id";
+    private static final Set<String> MERGEABLE_OPERATORS = Sets.newHashSet("$set", "$unset", "$inc");
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehindChannel.class);
+
+    /**
+     * Constructor with parameters, starts the flusher thread.
+     *
+     * @param template       the template to perform writes
+     * @param collectionName the collection name
+     * @param config         the channel settings
+     */
+    WriteBehindChannel(JMingoTemplate template, String collectionName, WriteBehindConfig config) {
+        Validate.notBlank(collectionName, "collectionName cannot be null or empty");
+        Validate.notNull(config, "write-behind config cannot be null");
+        this.template = template;
+        this.collectionName = collectionName;
+        this.config = config;
+        this.flusher = Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setNameFormat("jmingo-write-behind-%d").setDaemon(true).build());
+        this.flusher.execute(this::runFlusher);
+    }
+
+    public String getCollectionName() {
+        return collectionName;
+    }
+
+    public WriteBehindConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Accepts insert of the object.
+     *
+     * @param objectToInsert the object to insert
+     * @return true if the write was accepted, false if it was dropped because the buffer is full
+     * @throws JMingoException if the buffer is full and the overflow policy is FAIL
+     */
+    public boolean insert(Object objectToInsert) {
+        DBObject document = template.toInsertDocument(objectToInsert);
+        return accept(new Object(), new PendingWrite(null, document));
+    }
+
+    /**
+     * Accepts replacement of the document with the object, the document is selected by id of the object.
+     * Previous buffered updates of the document are discarded.
+     *
+     * @param objectToUpdate the object to replace document
+     * @return true if the write was accepted, false if it was dropped because the buffer is full
+     * @throws JMingoException if the buffer is full and the overflow policy is FAIL
+     */
+    public boolean update(Object objectToUpdate) {
+        Validate.notNull(objectToUpdate, "object to update cannot be null");
+        Object id = DocumentUtils.getIdValue(objectToUpdate);
+        Validate.notNull(id, "object to update must have id");
+        return update(id, template.toDocument(objectToUpdate));
+    }
+
+    /**
+     * Accepts update of the document with the id.
+     *
+     * @param id     the document id
+     * @param update the modifications to apply or the replacement document
+     * @return true if the write was accepted, false if it was dropped because the buffer is full
+     * @throws JMingoException if the buffer is full and the overflow policy is FAIL
+     */
+    public boolean update(Object id, DBObject update) {
+        Validate.notNull(id, "id cannot be null");
+        Validate.notNull(update, "update cannot be null");
+        return accept(id, new PendingWrite(id, update));
+    }
+
+    private boolean accept(Object key, PendingWrite write) {
+        lock.lock();
+        try {
+            Validate.validState(!closed, "write-behind channel of collection '%s' is closed", collectionName);
+            PendingWrite current = pending.get(key);
+            if (current != null && current.coalesce(write.updates.get(0))) {
+                coalescedCount.increment();
+                return true;
+            }
+            while (pendingCount >= config.getCapacity()) {
+                switch (config.getOverflowPolicy()) {
+                    case DROP:
+                        droppedCount.increment();
+                        return false;
+                    case FAIL:
+                        throw new JMingoException("write-behind buffer of collection '" + collectionName
+                                + "' is full");
+                    default:
+                        flushNeeded.signal();
+                        notFull.awaitUninterruptibly();
+                        Validate.validState(!closed, "write-behind channel of collection '%s' is closed",
+                                collectionName);
+                }
+            }
+            // the document could be changed while the caller was waiting
+            current = pending.get(key);
+            if (current != null) {
+                current.updates.add(write.updates.get(0));
+            } else {
+                pending.put(key, write);
+            }
+            if (pendingCount++ == 0) {
+                oldestWriteTime = System.nanoTime();
+                flushNeeded.signal();
+            } else if (pendingCount >= config.getBatchSize()) {
+                flushNeeded.signal();
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes all buffered writes, waits until the writes are performed.
+     */
+    public void flush() {
+        synchronized (flushMonitor) {
+            List<WriteOperation> operations = drain();
+            if (!operations.isEmpty()) {
+                write(operations);
+            }
+        }
+    }
+
+    /**
+     * Stops accepting writes, writes all buffered writes and stops the flusher thread.
+     * Is called by {@link JMingoTemplate#shutdown()}.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            flushNeeded.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        flusher.shutdown();
+        flush();
+    }
+
+    public boolean isClosed() {
+        lock.lock();
+        try {
+            return closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of buffered writes.
+     *
+     * @return the number of buffered writes
+     */
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            return pendingCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of performed writes, coalesced updates are counted once.
+     *
+     * @return written count
+     */
+    public long getWrittenCount() {
+        return writtenCount.sum();
+    }
+
+    /**
+     * Gets the number of updates that were merged into buffered updates of the same document.
+     *
+     * @return coalesced count
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.sum();
+    }
+
+    /**
+     * Gets the number of writes dropped because the buffer was full.
+     *
+     * @return dropped count
+     */
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    /**
+     * Gets the number of writes that failed.
+     *
+     * @return failed count
+     */
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    private void runFlusher() {
+        while (awaitFlush()) {
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                LOGGER.warn("failed to flush write-behind buffer of collection: " + collectionName, e);
+            }
+        }
+    }
+
+    /**
+     * Waits until buffered writes should be flushed.
+     *
+     * @return false if the channel is closed
+     */
+    private boolean awaitFlush() {
+        lock.lock();
+        try {
+            long flushInterval = TimeUnit.MILLISECONDS.toNanos(config.getFlushInterval());
+            while (!closed) {
+                if (pendingCount == 0) {
+                    flushNeeded.await();
+                } else if (pendingCount >= config.getBatchSize()) {
+                    return true;
+                } else {
+                    long remaining = oldestWriteTime + flushInterval - System.nanoTime();
+                    if (remaining <= 0) {
+                        return true;
+                    }
+                    flushNeeded.awaitNanos(remaining);
+                }
+            }
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes all buffered writes and releases space in the buffer.
+     */
+    private List<WriteOperation> drain() {
+        Map<Object, PendingWrite> writes;
+        lock.lock();
+        try {
+            if (pendingCount == 0) {
+                return Lists.newArrayList();
+            }
+            writes = pending;
+            pending = Maps.newLinkedHashMap();
+            pendingCount = 0;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        List<WriteOperation> operations = Lists.newArrayList();
+        DurabilityProfile durability = config.getDurability() != null
+                ? config.getDurability()
+                : template.getDurabilityProfiles().getDefault();
+        for (PendingWrite write : writes.values()) {
+            if (write.id == null) {
+                operations.add(WriteOperation.insert(collectionName, write.updates.get(0), durability));
+            } else {
+                for (DBObject update : write.updates) {
+                    operations.add(WriteOperation.update(collectionName, update,
+                            new BasicDBObject(ID_FIELD, write.id), false, false, durability));
+                }
+            }
+        }
+        return operations;
+    }
+
+    /**
+     * Performs the writes in order, a failed write is skipped.
+     */
+    private void write(List<WriteOperation> operations) {
+        List<WriteOperation> remaining = operations;
+        while (!remaining.isEmpty()) {
+            BulkResult result;
+            try {
+                result = template.execute(remaining, true);
+            } catch (RuntimeException e) {
+                failedCount.add(remaining.size());
+                LOGGER.warn(remaining.size() + " buffered write(s) to collection '" + collectionName
+                        + "' failed", e);
+                return;
+            }
+            if (!result.hasErrors()) {
+                writtenCount.add(remaining.size());
+                return;
+            }
+            // ordered write stops at the first failed write
+            BulkResult.BulkError error = result.getErrors().get(0);
+            writtenCount.add(error.getIndex());
+            failedCount.increment();
+            LOGGER.warn("buffered write to collection '{}' failed: {}", collectionName, error.getMessage());
+            remaining = remaining.subList(error.getIndex() + 1, remaining.size());
+        }
+    }
+
+    /**
+     * Merges two updates of the same document.
+     *
+     * @param previous the previous update
+     * @param next     the next update
+     * @return merged update or null if the updates cannot be merged
+     */
+    static DBObject merge(DBObject previous, DBObject next) {
+        if (!isOperatorUpdate(next)) {
+            // replacement overrides previous updates
+            return next;
+        }
+        if (!isOperatorUpdate(previous)
+                || !MERGEABLE_OPERATORS.containsAll(previous.keySet())
+                || !MERGEABLE_OPERATORS.containsAll(next.keySet())) {
+            return null;
+        }
+        Map<String, String> operators = Maps.newHashMap();
+        Map<String, Map<String, Object>> merged = Maps.newLinkedHashMap();
+        for (DBObject update : new DBObject[]{previous, next}) {
+            for (String operator : update.keySet()) {
+                if (!(update.get(operator) instanceof DBObject)) {
+                    return null;
+                }
+                DBObject fields = (DBObject) update.get(operator);
+                for (String field : fields.keySet()) {
+                    if (!mergeField(operators, merged, operator, field, fields.get(field))) {
+                        return null;
+                    }
+                }
+            }
+        }
+        BasicDBObject result = new BasicDBObject();
+        merged.forEach((operator, fields) -> {
+            // fields overridden by another operator leave the operator empty, servers reject empty operators
+            if (!fields.isEmpty()) {
+                result.put(operator, new BasicDBObject(fields));
+            }
+        });
+        return result;
+    }
+
+    private static boolean mergeField(Map<String, String> operators, Map<String, Map<String, Object>> merged,
+                                      String operator, String field, Object value) {
+        for (Map.Entry<String, String> entry : operators.entrySet()) {
+            String other = entry.getKey();
+            boolean overlaps = other.startsWith(field + ".") || field.startsWith(other + ".");
+            if (overlaps) {
+                // updates of a field and its subfield conflict
+                return false;
+            }
+        }
+        String previousOperator = operators.get(field);
+        if (previousOperator == null || !previousOperator.equals("$inc") && !operator.equals("$inc")) {
+            // $set and $unset of the same field override each other
+            if (previousOperator != null) {
+                merged.get(previousOperator).remove(field);
+            }
+            operators.put(field, operator);
+            merged.computeIfAbsent(operator, key -> Maps.newLinkedHashMap()).put(field, value);
+            return true;
+        }
+        if (previousOperator.equals("$inc") && operator.equals("$inc")) {
+            Object sum = add(merged.get(operator).get(field), value);
+            if (sum == null) {
+                return false;
+            }
+            merged.get(operator).put(field, sum);
+            return true;
+        }
+        return false;
+    }
+
+    private static Object add(Object left, Object right) {
+        if (left instanceof Integer && right instanceof Integer) {
+            long sum = (long) (Integer) left + (Integer) right;
+            return sum == (int) sum ? (Object) (int) sum : (Object) sum;
+        }
+        if ((left instanceof Integer || left instanceof Long) && (right instanceof Integer || right instanceof Long)) {
+            return ((Number) left).longValue() + ((Number) right).longValue();
+        }
+        if (left instanceof Number && right instanceof Number) {
+            return ((Number) left).doubleValue() + ((Number) right).doubleValue();
+        }
+        return null;
+    }
+
+    private static boolean isOperatorUpdate(DBObject update) {
+        return !update.keySet().isEmpty() && update.keySet().stream().allMatch(key -> key.startsWith("$"));
+    }
+
+    /**
+     * Buffered insert or updates of a document.
+     */
+    private static final class PendingWrite {
+        /* id of updated document, null for insert */
+        private final Object id;
+        /* the document to insert or updates that cannot be merged */
+        private final List<DBObject> updates = Lists.newArrayList();
+
+        private PendingWrite(Object id, DBObject document) {
+            this.id = id;
+            this.updates.add(document);
+        }
+
+        /**
+         * Merges the update into the last buffered update of the document.
+         *
+         * @return true if the update was merged
+         */
+        private boolean coalesce(DBObject update) {
+            if (id == null) {
+                return false;
+            }
+            int last = updates.size() - 1;
+            DBObject merged = merge(updates.get(last), update);
+            if (merged == null) {
+                return false;
+            }
+            updates.set(last, merged);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.jmingo.mongo.DurabilityProfile;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Settings of {@link WriteBehindChannel}. Immutable.
+ */
+public class WriteBehindConfig {
+
+    public static final int DEF_CAPACITY = 10000;
+    public static final int DEF_BATCH_SIZE = 500;
+    /* default maximum time in milliseconds a write is buffered */
+    public static final long DEF_FLUSH_INTERVAL = 1000;
+
+    private final int capacity;
+    private final int batchSize;
+    private final long flushInterval;
+    private final OverflowPolicy overflowPolicy;
+    /* profile of flushed writes, if null then the default profile is used */
+    private final DurabilityProfile durability;
+
+    /**
+     * Defines what happens with a write when the buffer is full.
+     */
+    public enum OverflowPolicy {
+        /* the caller waits until buffered writes are flushed */
+        BLOCK,
+        /* the write is dropped */
+        DROP,
+        /* the write is rejected with an exception */
+        FAIL
+    }
+
+    private WriteBehindConfig(Builder builder) {
+        this.capacity = builder.capacity;
+        this.batchSize = builder.batchSize;
+        this.flushInterval = builder.flushInterval;
+        this.overflowPolicy = builder.overflowPolicy;
+        this.durability = builder.durability;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Gets maximum number of buffered writes.
+     *
+     * @return capacity of the buffer
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets number of buffered writes that triggers a flush.
+     *
+     * @return batch size
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Gets maximum time a write is buffered in milliseconds.
+     *
+     * @return flush interval in milliseconds
+     */
+    public long getFlushInterval() {
+        return flushInterval;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Gets durability profile of flushed writes.
+     *
+     * @return the profile or null if writes use the default profile
+     */
+    public DurabilityProfile getDurability() {
+        return durability;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("capacity", capacity)
+                .append("batchSize", batchSize)
+                .append("flushInterval", flushInterval)
+                .append("overflowPolicy", overflowPolicy)
+                .append("durability", durability != null ? durability.getName() : null)
+                .toString();
+    }
+
+    public static class Builder {
+        private int capacity = DEF_CAPACITY;
+        private int batchSize = DEF_BATCH_SIZE;
+        private long flushInterval = DEF_FLUSH_INTERVAL;
+        private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+        private DurabilityProfile durability;
+
+        public Builder capacity(int val) {
+            Validate.isTrue(val > 0, "capacity must be gt 0");
+            this.capacity = val;
+            return this;
+        }
+
+        public Builder batchSize(int val) {
+            Validate.isTrue(val > 0, "batch size must be gt 0");
+            this.batchSize = val;
+            return this;
+        }
+
+        public Builder flushInterval(long duration, TimeUnit unit) {
+            Validate.isTrue(duration > 0, "flush interval must be gt 0");
+            this.flushInterval = unit.toMillis(duration);
+            return this;
+        }
+
+        public Builder overflowPolicy(OverflowPolicy val) {
+            Validate.notNull(val, "overflow policy cannot be null");
+            this.overflowPolicy = val;
+            return this;
+        }
+
+        public Builder durability(DurabilityProfile val) {
+            Validate.notNull(val, "durability profile cannot be null");
+            this.durability = val;
+            return this;
+        }
+
+        public WriteBehindConfig build() {
+            Validate.isTrue(batchSize <= capacity, "batch size cannot be gt capacity");
+            return new WriteBehindConfig(this);
+        }
+    }
+}
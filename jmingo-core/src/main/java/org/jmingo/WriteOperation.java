@@ -0,0 +1,149 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo;
+
+import com.mongodb.BulkUpdateRequestBuilder;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.BulkWriteRequestBuilder;
+import com.mongodb.DBObject;
+import org.apache.commons.lang3.Validate;
+import org.jmingo.mongo.DurabilityProfile;
+import org.jmingo.util.MongoUtil;
+
+/**
+ * Single write of a bulk write, contains marshalled documents. Immutable.
+ */
+final class WriteOperation {
+
+    enum Type {
+        INSERT, UPDATE, REMOVE
+    }
+
+    private final Type type;
+    private final String collectionName;
+    /* the document to insert or the modifications to apply */
+    private final DBObject document;
+    private final DBObject query;
+    private final boolean upsert;
+    private final boolean multi;
+    private final DurabilityProfile durability;
+
+    private WriteOperation(Type type, String collectionName, DBObject document, DBObject query,
+                           boolean upsert, boolean multi, DurabilityProfile durability) {
+        Validate.notBlank(collectionName, "collectionName cannot be null or empty");
+        Validate.notNull(durability, "durability profile cannot be null");
+        this.type = type;
+        this.collectionName = collectionName;
+        this.document = document;
+        this.query = query;
+        this.upsert = upsert;
+        this.multi = multi;
+        this.durability = durability;
+    }
+
+    static WriteOperation insert(String collectionName, DBObject document, DurabilityProfile durability) {
+        Validate.notNull(document, "object to insert cannot be null");
+        return new WriteOperation(Type.INSERT, collectionName, document, null, false, false, durability);
+    }
+
+    static WriteOperation update(String collectionName, DBObject update, DBObject query, boolean upsert,
+                                 boolean multi, DurabilityProfile durability) {
+        Validate.notNull(update, "object to update cannot be null");
+        Validate.notNull(query, "update query cannot be null");
+        Validate.isTrue(!multi || !isReplacement(update), "multi update requires update operators");
+        return new WriteOperation(Type.UPDATE, collectionName, update, query, upsert, multi, durability);
+    }
+
+    static WriteOperation remove(String collectionName, DBObject query, DurabilityProfile durability) {
+        Validate.notNull(query, "remove query cannot be null");
+        return new WriteOperation(Type.REMOVE, collectionName, null, query, false, true, durability);
+    }
+
+    Type getType() {
+        return type;
+    }
+
+    String getCollectionName() {
+        return collectionName;
+    }
+
+    DBObject getDocument() {
+        return document;
+    }
+
+    DBObject getQuery() {
+        return query;
+    }
+
+    boolean isUpsert() {
+        return upsert;
+    }
+
+    DurabilityProfile getDurability() {
+        return durability;
+    }
+
+    /**
+     * Estimates size of the operation in a message to the server.
+     *
+     * @return estimated size in bytes
+     */
+    int estimateSize() {
+        return (document != null ? MongoUtil.estimateSize(document) : 0)
+                + (query != null ? MongoUtil.estimateSize(query) : 0);
+    }
+
+    /**
+     * Adds the operation to the bulk write.
+     *
+     * @param operation the bulk write
+     */
+    void addTo(BulkWriteOperation operation) {
+        switch (type) {
+            case INSERT:
+                operation.insert(document);
+                break;
+            case UPDATE:
+                BulkWriteRequestBuilder request = operation.find(query);
+                if (upsert) {
+                    BulkUpdateRequestBuilder upsertRequest = request.upsert();
+                    if (isReplacement(document)) {
+                        upsertRequest.replaceOne(document);
+                    } else if (multi) {
+                        upsertRequest.update(document);
+                    } else {
+                        upsertRequest.updateOne(document);
+                    }
+                } else if (isReplacement(document)) {
+                    request.replaceOne(document);
+                } else if (multi) {
+                    request.update(document);
+                } else {
+                    request.updateOne(document);
+                }
+                break;
+            case REMOVE:
+                operation.find(query).remove();
+                break;
+            default:
+                throw new UnsupportedOperationException("unsupported operation type: " + type);
+        }
+    }
+
+    private static boolean isReplacement(DBObject update) {
+        return update.keySet().stream().noneMatch(key -> key.startsWith("$"));
+    }
+}
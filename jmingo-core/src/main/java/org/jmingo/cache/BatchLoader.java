@@ -0,0 +1,204 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.cache;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Collects loads of single keys and performs them with a single batch call.
+ * <p>
+ * A batch is dispatched when the window elapses after the first key of the batch was requested or, in the thread
+ * that has requested the last key, when the batch reaches the maximum size. A key that is requested several times
+ * within the same batch is loaded once. A key that is missing in the result of the batch call is completed with null.
+ * If the batch call fails then all loads of the batch are completed with the exception.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+@ThreadSafe
+public class BatchLoader<K, V> {
+
+    private final Function<Set<K>, Map<K, V>> batchFunction;
+    private final long window;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService scheduler;
+
+    private final Lock lock = new ReentrantLock();
+    @GuardedBy("lock")
+    private Map<K, CompletableFuture<V>> pending = new LinkedHashMap<>();
+    /* number of batches taken for dispatch, is used to skip scheduled dispatch of a batch that is already taken */
+    @GuardedBy("lock")
+    private long batchNumber;
+
+    private final Histogram batchSizes = new Histogram();
+    private final Histogram latencies = new Histogram();
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchLoader.class);
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param batchFunction the function that loads values of the given keys, returns map keyed by the given keys,
+     *                      keys without value are missing
+     * @param window        the time to collect keys of a batch
+     * @param unit          the time unit of window
+     * @param maxBatchSize  the maximum number of keys in a batch
+     * @param scheduler     the scheduler to dispatch batches when the window elapses
+     */
+    public BatchLoader(Function<Set<K>, Map<K, V>> batchFunction, long window, TimeUnit unit, int maxBatchSize,
+                       ScheduledExecutorService scheduler) {
+        Validate.notNull(batchFunction, "batch function cannot be null");
+        Validate.isTrue(window >= 0, "window cannot be negative");
+        Validate.notNull(unit, "time unit cannot be null");
+        Validate.isTrue(maxBatchSize > 0, "max batch size must be gt 0");
+        Validate.notNull(scheduler, "scheduler cannot be null");
+        this.batchFunction = batchFunction;
+        this.window = unit.toNanos(window);
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Requests value of the key, the value is loaded with the next batch.
+     *
+     * @param key the key to load
+     * @return the future that is completed when the batch is loaded
+     */
+    public CompletableFuture<V> load(K key) {
+        Validate.notNull(key, "key cannot be null");
+        Map<K, CompletableFuture<V>> batch = null;
+        CompletableFuture<V> result;
+        long scheduledBatch = -1;
+        lock.lock();
+        try {
+            result = pending.get(key);
+            if (result == null) {
+                result = new CompletableFuture<>();
+                pending.put(key, result);
+                if (pending.size() >= maxBatchSize) {
+                    batch = takePending();
+                } else if (pending.size() == 1) {
+                    scheduledBatch = batchNumber;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (batch != null) {
+            dispatch(batch);
+        } else if (scheduledBatch >= 0) {
+            schedule(scheduledBatch);
+        }
+        return result;
+    }
+
+    /**
+     * Dispatches the current batch immediately in the calling thread.
+     */
+    public void flush() {
+        Map<K, CompletableFuture<V>> batch;
+        lock.lock();
+        try {
+            batch = takePending();
+        } finally {
+            lock.unlock();
+        }
+        dispatch(batch);
+    }
+
+    /**
+     * Gets histogram of the number of keys in dispatched batches.
+     *
+     * @return batch size histogram
+     */
+    public Histogram getBatchSizes() {
+        return batchSizes;
+    }
+
+    /**
+     * Gets histogram of the time spent by batch calls in microseconds.
+     *
+     * @return batch latency histogram
+     */
+    public Histogram getLatencies() {
+        return latencies;
+    }
+
+    private void schedule(long number) {
+        try {
+            scheduler.schedule(() -> flush(number), window, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            LOGGER.debug("scheduler rejected the batch, dispatch in the calling thread");
+            flush(number);
+        }
+    }
+
+    private void flush(long number) {
+        Map<K, CompletableFuture<V>> batch = null;
+        lock.lock();
+        try {
+            if (batchNumber == number) {
+                batch = takePending();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (batch != null) {
+            dispatch(batch);
+        }
+    }
+
+    @GuardedBy("lock")
+    private Map<K, CompletableFuture<V>> takePending() {
+        Map<K, CompletableFuture<V>> batch = pending;
+        pending = new LinkedHashMap<>();
+        batchNumber++;
+        return batch;
+    }
+
+    private void dispatch(Map<K, CompletableFuture<V>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long startTime = System.nanoTime();
+        try {
+            Map<K, V> values = batchFunction.apply(Collections.unmodifiableSet(batch.keySet()));
+            batch.forEach((key, future) -> future.complete(values.get(key)));
+        } catch (RuntimeException | Error e) {
+            LOGGER.debug("batch of {} keys failed", batch.size(), e);
+            batch.values().forEach(future -> future.completeExceptionally(e));
+        } finally {
+            batchSizes.record(batch.size());
+            latencies.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime));
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.cache;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache settings of a named query, see &lt;cache/&gt; element in query.xsd schema. Immutable.
+ */
+public class CacheConfig {
+
+    public static final int DEF_MAX_SIZE = 1000;
+
+    private final long ttl;
+    private final int maxSize;
+    private final long refreshAhead;
+    private final long maxStaleness;
+    private final boolean offHeap;
+    private final boolean persistent;
+    private final boolean shared;
+
+    private CacheConfig(Builder builder) {
+        this.ttl = builder.ttl;
+        this.maxSize = builder.maxSize;
+        this.refreshAhead = builder.refreshAhead;
+        this.maxStaleness = builder.maxStaleness;
+        this.offHeap = builder.offHeap;
+        this.persistent = builder.persistent;
+        this.shared = builder.shared;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Gets time to live of cached entries in milliseconds.
+     *
+     * @return time to live in milliseconds
+     */
+    public long getTtl() {
+        return ttl;
+    }
+
+    /**
+     * Gets maximum number of cached results.
+     *
+     * @return maximum number of cached results
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Gets period before expiration of an entry in milliseconds, an entry accessed within this period is
+     * recomputed in background while callers keep getting the current value.
+     *
+     * @return refresh-ahead period in milliseconds, 0 if refresh-ahead is disabled
+     */
+    public long getRefreshAhead() {
+        return refreshAhead;
+    }
+
+    /**
+     * Gets time in milliseconds during which an expired entry still can be returned while it's being refreshed.
+     *
+     * @return maximum staleness in milliseconds
+     */
+    public long getMaxStaleness() {
+        return maxStaleness;
+    }
+
+    /**
+     * Checks whether refresh-ahead is enabled.
+     *
+     * @return true if entries are refreshed in background before they expire
+     */
+    public boolean isRefreshAhead() {
+        return refreshAhead > 0;
+    }
+
+    /**
+     * Checks whether results are cached as raw BSON in off-heap cache, see {@link OffHeapResultCache}.
+     *
+     * @return true if results are cached off-heap
+     */
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    /**
+     * Checks whether results are stored in the snapshot to warm up caches after restart, see {@link WarmStartCache}.
+     *
+     * @return true if results are stored in the snapshot
+     */
+    public boolean isPersistent() {
+        return persistent;
+    }
+
+    /**
+     * Checks whether results are shared between application nodes, see {@link SharedResultCache}.
+     *
+     * @return true if results are stored in the shared cache
+     */
+    public boolean isShared() {
+        return shared;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CacheConfig)) {
+            return false;
+        }
+        CacheConfig that = (CacheConfig) o;
+        return new EqualsBuilder()
+                .append(ttl, that.ttl)
+                .append(maxSize, that.maxSize)
+                .append(refreshAhead, that.refreshAhead)
+                .append(maxStaleness, that.maxStaleness)
+                .append(offHeap, that.offHeap)
+                .append(persistent, that.persistent)
+                .append(shared, that.shared)
+                .isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder()
+                .append(ttl)
+                .append(maxSize)
+                .append(refreshAhead)
+                .append(maxStaleness)
+                .append(offHeap)
+                .append(persistent)
+                .append(shared)
+                .toHashCode();
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("ttl", ttl)
+                .append("maxSize", maxSize)
+                .append("refreshAhead", refreshAhead)
+                .append("maxStaleness", maxStaleness)
+                .append("offHeap", offHeap)
+                .append("persistent", persistent)
+                .append("shared", shared)
+                .toString();
+    }
+
+    public static class Builder {
+        private long ttl;
+        private int maxSize = DEF_MAX_SIZE;
+        private long refreshAhead;
+        private long maxStaleness;
+        private boolean offHeap;
+        private boolean persistent;
+        private boolean shared;
+
+        public Builder ttl(long duration, TimeUnit unit) {
+            Validate.isTrue(duration > 0, "cache ttl must be gt 0");
+            this.ttl = unit.toMillis(duration);
+            return this;
+        }
+
+        public Builder maxSize(int val) {
+            Validate.isTrue(val > 0, "cache max size must be gt 0");
+            this.maxSize = val;
+            return this;
+        }
+
+        public Builder refreshAhead(long duration, TimeUnit unit) {
+            Validate.isTrue(duration >= 0, "cache refresh-ahead cannot be negative");
+            this.refreshAhead = unit.toMillis(duration);
+            return this;
+        }
+
+        public Builder maxStaleness(long duration, TimeUnit unit) {
+            Validate.isTrue(duration >= 0, "cache max-staleness cannot be negative");
+            this.maxStaleness = unit.toMillis(duration);
+            return this;
+        }
+
+        public Builder offHeap(boolean val) {
+            this.offHeap = val;
+            return this;
+        }
+
+        public Builder persistent(boolean val) {
+            this.persistent = val;
+            return this;
+        }
+
+        public Builder shared(boolean val) {
+            this.shared = val;
+            return this;
+        }
+
+        public CacheConfig build() {
+            Validate.isTrue(ttl > 0, "cache ttl is required");
+            Validate.isTrue(refreshAhead < ttl, "cache refresh-ahead must be lt ttl");
+            Validate.isTrue(maxStaleness == 0 || refreshAhead > 0, "cache max-staleness requires refresh-ahead");
+            Validate.isTrue(!(offHeap && refreshAhead > 0), "refresh-ahead isn't supported for off-heap cache");
+            return new CacheConfig(this);
+        }
+    }
+}
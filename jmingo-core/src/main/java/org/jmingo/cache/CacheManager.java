@@ -0,0 +1,540 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.cache;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mongodb.DBObject;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+import org.jmingo.config.CachingConfig;
+import org.jmingo.document.annotation.BloomFilter;
+import org.jmingo.util.DocumentUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Holds caches of the context and keeps them consistent with the writes
+ * performed through {@link org.jmingo.JMingoTemplate}.
+ */
+public class CacheManager {
+
+    private final CachingConfig cachingConfig;
+    private final QueryResultCache queryResultCache;
+    private final EntityCache entityCache = new EntityCache();
+    private final CollectionCache collectionCache = new CollectionCache();
+    private final PrefetchCache prefetchCache;
+    /* off-heap cache of raw results, null if off-heap cache is disabled */
+    private final OffHeapResultCache offHeapResultCache;
+    /* executor to refresh cached results in background, null if the executor isn't managed by this instance */
+    private final ExecutorService refreshExecutor;
+    /* snapshot of results of persistent queries, null if the snapshot is disabled */
+    private final WarmStartCache warmStartCache;
+    private ScheduledExecutorService snapshotScheduler;
+    /* cache of results shared between application nodes, null if the shared cache is disabled */
+    private final SharedResultCache sharedResultCache;
+    /* propagates invalidations to other application nodes, null if the bus isn't connected */
+    private volatile InvalidationBus invalidationBus;
+    /* coalesces identical concurrent queries, null if single-flight is disabled */
+    private final SingleFlight singleFlight;
+    /* dispatches batches of lookups by id, null if batching is disabled */
+    private final ScheduledExecutorService batchScheduler;
+    private final ConcurrentMap<Class<?>, BatchLoader<Object, DBObject>> batchLoaders = Maps.newConcurrentMap();
+    private final ConcurrentMap<Class<?>, CollectionBloomFilter> bloomFilters = Maps.newConcurrentMap();
+    /* builds bloom filters, is created with the first filter */
+    private ScheduledExecutorService bloomFilterScheduler;
+    private final ConcurrentMap<String, MaterializedView> materializedViews = Maps.newConcurrentMap();
+    /* refreshes materialized views, is created with the first view */
+    private ScheduledExecutorService materializedViewScheduler;
+
+    private static final long REFRESH_THREAD_KEEP_ALIVE = 60;
+    private static final String ID_FIELD = "_id";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheManager.class);
+
+    /**
+     * Default constructor.
+     */
+    public CacheManager() {
+        this(CachingConfig.builder().build());
+    }
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param cachingConfig the caching config
+     */
+    public CacheManager(CachingConfig cachingConfig) {
+        this(cachingConfig, null);
+    }
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param cachingConfig     the caching config
+     * @param sharedResultCache the cache of results shared between application nodes, can be null
+     */
+    public CacheManager(CachingConfig cachingConfig, SharedResultCache sharedResultCache) {
+        int refreshConcurrency = cachingConfig.getRefreshConcurrency();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(refreshConcurrency, refreshConcurrency,
+                REFRESH_THREAD_KEEP_ALIVE, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("jmingo-cache-refresh-%d").setDaemon(true).build());
+        executor.allowCoreThreadTimeOut(true);
+        this.cachingConfig = cachingConfig;
+        this.refreshExecutor = executor;
+        this.prefetchCache = new PrefetchCache(cachingConfig.getPrefetchConcurrency());
+        this.queryResultCache = new QueryResultCache(Ticker.systemTicker(), executor, refreshConcurrency);
+        this.offHeapResultCache = cachingConfig.isOffHeapEnabled()
+                ? new OffHeapResultCache(cachingConfig.getOffHeapCapacity(), cachingConfig.getOffHeapSlabSize(),
+                cachingConfig.isOffHeapCompression())
+                : null;
+        this.warmStartCache = cachingConfig.isSnapshotEnabled()
+                ? new WarmStartCache(Paths.get(cachingConfig.getSnapshotPath()))
+                : null;
+        this.sharedResultCache = sharedResultCache;
+        this.singleFlight = cachingConfig.isSingleFlight()
+                ? new SingleFlight(cachingConfig.getSingleFlightTimeout(), TimeUnit.MILLISECONDS)
+                : null;
+        this.batchScheduler = cachingConfig.isBatching()
+                ? Executors.newScheduledThreadPool(Runtime.getRuntime().availableProcessors(),
+                new ThreadFactoryBuilder().setNameFormat("jmingo-batch-%d").setDaemon(true).build())
+                : null;
+    }
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param queryResultCache the cache of named query results
+     */
+    public CacheManager(QueryResultCache queryResultCache) {
+        this.cachingConfig = CachingConfig.builder().build();
+        this.queryResultCache = queryResultCache;
+        this.prefetchCache = new PrefetchCache(cachingConfig.getPrefetchConcurrency());
+        this.refreshExecutor = null;
+        this.offHeapResultCache = null;
+        this.warmStartCache = null;
+        this.sharedResultCache = null;
+        this.singleFlight = null;
+        this.batchScheduler = null;
+    }
+
+    /**
+     * Gets caching config.
+     *
+     * @return caching config
+     */
+    public CachingConfig getCachingConfig() {
+        return cachingConfig;
+    }
+
+    /**
+     * Gets cache of named query results.
+     *
+     * @return cache of named query results
+     */
+    public QueryResultCache getQueryResultCache() {
+        return queryResultCache;
+    }
+
+    /**
+     * Gets second-level cache of documents found by id.
+     *
+     * @return cache of documents found by id
+     */
+    public EntityCache getEntityCache() {
+        return entityCache;
+    }
+
+    /**
+     * Gets in-memory snapshots of fully cached collections.
+     *
+     * @return collection cache
+     */
+    public CollectionCache getCollectionCache() {
+        return collectionCache;
+    }
+
+    /**
+     * Gets cache of prefetched next pages of paginated queries.
+     *
+     * @return prefetch cache
+     */
+    public PrefetchCache getPrefetchCache() {
+        return prefetchCache;
+    }
+
+    /**
+     * Gets cache of results shared between application nodes.
+     *
+     * @return shared cache or null if the shared cache is disabled
+     */
+    public SharedResultCache getSharedResultCache() {
+        return sharedResultCache;
+    }
+
+    /**
+     * Gets off-heap cache of raw query results.
+     *
+     * @return off-heap cache or null if off-heap cache is disabled
+     */
+    public OffHeapResultCache getOffHeapResultCache() {
+        return offHeapResultCache;
+    }
+
+    /**
+     * Gets snapshot of results of persistent queries.
+     *
+     * @return snapshot or null if the snapshot is disabled
+     */
+    public WarmStartCache getWarmStartCache() {
+        return warmStartCache;
+    }
+
+    /**
+     * Gets single-flight that coalesces identical concurrent queries.
+     *
+     * @return single-flight or null if single-flight is disabled
+     */
+    public SingleFlight getSingleFlight() {
+        return singleFlight;
+    }
+
+    /**
+     * Gets or creates loader that batches lookups of documents of the type by id.
+     *
+     * @param type          the document type
+     * @param batchFunction the function that finds raw documents by ids, returns map: key - id, value - document
+     * @return batch loader or null if batching is disabled
+     */
+    public BatchLoader<Object, DBObject> getBatchLoader(Class<?> type,
+                                                        Function<Set<Object>, Map<Object, DBObject>> batchFunction) {
+        if (batchScheduler == null) {
+            return null;
+        }
+        return batchLoaders.computeIfAbsent(type, key -> new BatchLoader<>(batchFunction,
+                cachingConfig.getBatchWindow(), TimeUnit.MILLISECONDS, cachingConfig.getMaxBatchSize(),
+                batchScheduler));
+    }
+
+    /**
+     * Gets loaders that batch lookups by id created so far, e.g. to collect batch size and latency histograms.
+     *
+     * @return immutable map: key - document type, value - batch loader
+     */
+    public Map<Class<?>, BatchLoader<Object, DBObject>> getBatchLoaders() {
+        return ImmutableMap.copyOf(batchLoaders);
+    }
+
+    /**
+     * Gets or creates bloom filter of the document type, see {@link BloomFilter}. A new filter is built immediately
+     * in background and then is rebuilt periodically.
+     *
+     * @param type    the document type
+     * @param scanner the scanner that accepts name of the filter field and passes values of the field of all
+     *                documents to the given consumer
+     * @return bloom filter or null if the document type has no bloom filter
+     */
+    public CollectionBloomFilter getBloomFilter(Class<?> type, BiConsumer<String, Consumer<Object>> scanner) {
+        BloomFilter settings = type.getAnnotation(BloomFilter.class);
+        if (settings == null) {
+            return null;
+        }
+        return bloomFilters.computeIfAbsent(type, key -> {
+            CollectionBloomFilter filter = new CollectionBloomFilter(settings.field(), settings.expectedInsertions(),
+                    settings.fpp());
+            getBloomFilterScheduler().scheduleWithFixedDelay(() -> buildBloomFilter(key, filter, scanner),
+                    0, settings.rebuildInterval(), TimeUnit.SECONDS);
+            return filter;
+        });
+    }
+
+    /**
+     * Gets bloom filters created so far, e.g. to report false positive rate and memory of filters.
+     *
+     * @return immutable map: key - document type, value - bloom filter
+     */
+    public Map<Class<?>, CollectionBloomFilter> getBloomFilters() {
+        return ImmutableMap.copyOf(bloomFilters);
+    }
+
+    /**
+     * Gets bloom filters of document types stored in the collection.
+     *
+     * @param collectionName the collection name
+     * @return list of bloom filters, empty list if there are no bloom filters for the collection
+     */
+    public List<CollectionBloomFilter> getBloomFilters(String collectionName) {
+        List<CollectionBloomFilter> result = Lists.newArrayList();
+        bloomFilters.forEach((type, filter) -> {
+            if (StringUtils.equals(DocumentUtils.getCollectionName(type), collectionName)) {
+                result.add(filter);
+            }
+        });
+        return result;
+    }
+
+    private synchronized ScheduledExecutorService getBloomFilterScheduler() {
+        if (bloomFilterScheduler == null) {
+            bloomFilterScheduler = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("jmingo-bloom-filter-%d").setDaemon(true).build());
+        }
+        return bloomFilterScheduler;
+    }
+
+    private void buildBloomFilter(Class<?> type, CollectionBloomFilter filter,
+                                  BiConsumer<String, Consumer<Object>> scanner) {
+        try {
+            filter.build(consumer -> scanner.accept(filter.getField(), consumer));
+        } catch (RuntimeException e) {
+            LOGGER.warn("failed to build bloom filter of document type: " + type.getName(), e);
+        }
+    }
+
+    /**
+     * Gets or creates materialized view of the aggregation query. A new view is materialized immediately
+     * in background and then is refreshed periodically. Settings of the view are taken when the view is created,
+     * the pipeline is built by the materializer on every refresh.
+     *
+     * @param queryName    the composite id of the query
+     * @param config       the view settings
+     * @param materializer performs the pipeline into the shadow collection and renames it to the view collection
+     * @return materialized view
+     */
+    public MaterializedView getMaterializedView(String queryName, MaterializedViewConfig config,
+                                                Consumer<MaterializedView> materializer) {
+        return materializedViews.computeIfAbsent(queryName, key -> {
+            MaterializedView view = new MaterializedView(key, config);
+            getMaterializedViewScheduler().scheduleWithFixedDelay(() -> refreshMaterializedView(view, materializer),
+                    0, config.getRefreshInterval(), TimeUnit.MILLISECONDS);
+            return view;
+        });
+    }
+
+    /**
+     * Gets materialized views created so far, e.g. to report staleness and refresh duration of views.
+     *
+     * @return immutable map: key - query composite id, value - materialized view
+     */
+    public Map<String, MaterializedView> getMaterializedViews() {
+        return ImmutableMap.copyOf(materializedViews);
+    }
+
+    private synchronized ScheduledExecutorService getMaterializedViewScheduler() {
+        if (materializedViewScheduler == null) {
+            materializedViewScheduler = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("jmingo-materialized-view-%d").setDaemon(true).build());
+        }
+        return materializedViewScheduler;
+    }
+
+    private void refreshMaterializedView(MaterializedView view, Consumer<MaterializedView> materializer) {
+        try {
+            view.refresh(materializer);
+            LOGGER.debug("materialized view '{}' was refreshed in {} ms", view.getViewName(),
+                    view.getLastRefreshDuration());
+        } catch (RuntimeException e) {
+            LOGGER.warn("failed to refresh materialized view of query: " + view.getQueryName(), e);
+        }
+    }
+
+    /**
+     * Loads the snapshot of results of persistent queries and starts periodic writes of the snapshot.
+     * Does nothing if the snapshot is disabled.
+     *
+     * @param checksumResolver the function that returns current checksum of the query set by query composite id
+     */
+    public synchronized void restore(Function<String, String> checksumResolver) {
+        if (warmStartCache == null || snapshotScheduler != null) {
+            return;
+        }
+        warmStartCache.load(checksumResolver);
+        snapshotScheduler = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("jmingo-cache-snapshot-%d").setDaemon(true).build());
+        long interval = cachingConfig.getSnapshotInterval();
+        snapshotScheduler.scheduleWithFixedDelay(this::writeSnapshot, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private void writeSnapshot() {
+        try {
+            warmStartCache.write();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("failed to write snapshot: " + warmStartCache.getPath(), e);
+        }
+    }
+
+    /**
+     * Connects caches to the invalidation bus: writes of this node are published to other nodes and
+     * local caches are invalidated by writes of other nodes.
+     *
+     * @param bus the invalidation bus
+     */
+    public synchronized void connect(InvalidationBus bus) {
+        Validate.validState(invalidationBus == null, "invalidation bus is already connected");
+        bus.start(this::evict);
+        invalidationBus = bus;
+    }
+
+    /**
+     * Gets the invalidation bus.
+     *
+     * @return invalidation bus or null if the bus isn't connected
+     */
+    public InvalidationBus getInvalidationBus() {
+        return invalidationBus;
+    }
+
+    /**
+     * Notifies caches that documents in the collection were changed.
+     *
+     * @param collectionName the name of changed collection
+     */
+    public void invalidate(String collectionName) {
+        invalidate(collectionName, null);
+    }
+
+    /**
+     * Notifies caches that the document in the collection was changed.
+     * Results of queries are invalidated for the whole collection anyway.
+     *
+     * @param collectionName the name of changed collection
+     * @param id             the id of changed document or null if changed documents are unknown
+     */
+    public void invalidate(String collectionName, Object id) {
+        invalidate(collectionName, id != null ? Collections.singleton(id) : null);
+    }
+
+    /**
+     * Notifies caches that the documents in the collection were changed.
+     * Results of queries are invalidated for the whole collection anyway.
+     *
+     * @param collectionName the name of changed collection
+     * @param ids            the ids of changed documents or null if changed documents are unknown
+     */
+    public void invalidate(String collectionName, Collection<?> ids) {
+        evictLocal(collectionName, ids);
+        if (sharedResultCache != null) {
+            sharedResultCache.invalidate(collectionName);
+        }
+        InvalidationBus bus = invalidationBus;
+        if (bus != null) {
+            if (ids != null) {
+                ids.forEach(id -> bus.publish(collectionName, id));
+            } else {
+                bus.publish(collectionName, null);
+            }
+        }
+    }
+
+    /**
+     * Applies invalidation record received from another node.
+     */
+    private void evict(String collectionName, Object id) {
+        if (collectionName == null) {
+            // records were lost
+            queryResultCache.invalidateAll();
+            entityCache.invalidateAll();
+            collectionCache.invalidateAll();
+            prefetchCache.invalidateAll();
+            if (offHeapResultCache != null) {
+                offHeapResultCache.invalidateAll();
+            }
+            if (warmStartCache != null) {
+                warmStartCache.invalidateAll();
+            }
+            bloomFilters.values().forEach(CollectionBloomFilter::invalidate);
+            return;
+        }
+        evictLocal(collectionName, id != null ? Collections.singleton(id) : null);
+        for (CollectionBloomFilter filter : getBloomFilters(collectionName)) {
+            if (id != null && ID_FIELD.equals(filter.getField())) {
+                filter.put(id);
+            } else {
+                // values written by another node are unknown
+                filter.invalidate();
+            }
+        }
+    }
+
+    private void evictLocal(String collectionName, Collection<?> ids) {
+        queryResultCache.invalidate(collectionName);
+        if (ids != null) {
+            ids.forEach(id -> entityCache.invalidate(collectionName, id));
+        } else {
+            entityCache.invalidate(collectionName);
+        }
+        collectionCache.invalidate(collectionName);
+        prefetchCache.invalidate(collectionName);
+        if (offHeapResultCache != null) {
+            offHeapResultCache.invalidate(collectionName);
+        }
+        if (warmStartCache != null) {
+            warmStartCache.invalidate(collectionName);
+        }
+    }
+
+    /**
+     * Releases resources held by caches. Is called when jmingo context is being closed.
+     */
+    public synchronized void shutdown() {
+        if (invalidationBus != null) {
+            invalidationBus.shutdown();
+        }
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+        }
+        if (batchScheduler != null) {
+            batchScheduler.shutdownNow();
+        }
+        if (bloomFilterScheduler != null) {
+            bloomFilterScheduler.shutdownNow();
+        }
+        if (materializedViewScheduler != null) {
+            materializedViewScheduler.shutdownNow();
+        }
+        if (snapshotScheduler != null) {
+            snapshotScheduler.shutdownNow();
+            writeSnapshot();
+        }
+        queryResultCache.invalidateAll();
+        entityCache.invalidateAll();
+        collectionCache.shutdown();
+        prefetchCache.shutdown();
+        if (offHeapResultCache != null) {
+            offHeapResultCache.invalidateAll();
+        }
+    }
+}
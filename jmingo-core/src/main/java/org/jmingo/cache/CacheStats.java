@@ -0,0 +1,102 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.cache;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * Statistics about the performance of a cache.
+ * This class is immutable and can be shared between threads without any synchronization.
+ */
+public class CacheStats {
+
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param hitCount      the number of times lookup methods have returned a cached value
+     * @param missCount     the number of times lookup methods have not found a cached value
+     * @param evictionCount the number of times an entry has been evicted or has expired
+     */
+    public CacheStats(long hitCount, long missCount, long evictionCount) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+    }
+
+    /**
+     * Creates empty statistics.
+     *
+     * @return empty statistics
+     */
+    public static CacheStats empty() {
+        return new CacheStats(0, 0, 0);
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Gets the number of times lookup methods have been called.
+     *
+     * @return the sum of hits and misses
+     */
+    public long getRequestCount() {
+        return hitCount + missCount;
+    }
+
+    /**
+     * Gets the ratio of cache requests which were hits.
+     *
+     * @return hit rate, 1.0 if there were no requests
+     */
+    public double getHitRate() {
+        long requestCount = getRequestCount();
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+
+    /**
+     * Sums this statistics with the given one.
+     *
+     * @param other the statistics to add
+     * @return new instance that contains sum of both statistics
+     */
+    public CacheStats plus(CacheStats other) {
+        return new CacheStats(hitCount + other.hitCount, missCount + other.missCount,
+                evictionCount + other.evictionCount);
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("hitCount", hitCount)
+                .append("missCount", missCount)
+                .append("evictionCount", evictionCount)
+                .toString();
+    }
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.cache;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.mongodb.DBObject;
+import net.jcip.annotations.Immutable;
+import org.apache.commons.lang3.Validate;
+import org.jmingo.util.MongoUtil;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+
+/**
+ * Immutable in-memory snapshot of the whole collection. Queries are evaluated locally by {@link DocumentMatcher},
+ * equality and $in conditions on indexed top-level fields are resolved by hash indexes instead of full scan.
+ * Documents are returned in natural order of the snapshot and are shared between callers, so they must not be
+ * modified.
+ */
+@Immutable
+public class CachedCollection {
+
+    private final List<DBObject> documents;
+    /* key - field, value - multimap: key - normalized field value, value - position of the document */
+    private final Map<String, ListMultimap<Object, Integer>> indexes;
+    private final long loadTime;
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param documents     the documents of the collection
+     * @param indexedFields the fields to build indexes
+     */
+    public CachedCollection(List<DBObject> documents, Set<String> indexedFields) {
+        Validate.notNull(documents, "documents cannot be null");
+        Validate.notNull(indexedFields, "indexed fields cannot be null");
+        this.documents = ImmutableList.copyOf(documents);
+        ImmutableMap.Builder<String, ListMultimap<Object, Integer>> builder = ImmutableMap.builder();
+        for (String field : indexedFields) {
+            builder.put(field, buildIndex(field));
+        }
+        this.indexes = builder.build();
+        this.loadTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Checks whether the query can be evaluated against the snapshot.
+     *
+     * @param query the query
+     * @return true if the query uses only supported operators, otherwise false
+     */
+    public static boolean supports(DBObject query) {
+        return DocumentMatcher.isSupported(query);
+    }
+
+    /**
+     * Finds documents that satisfy the query, the query must be supported.
+     *
+     * @param query the query
+     * @param limit maximum number of documents to return, 0 means no limit
+     * @return immutable list of found documents
+     */
+    public List<DBObject> find(DBObject query, int limit) {
+        Validate.isTrue(limit >= 0, "limit cannot be negative");
+        Iterable<Integer> candidates = getCandidates(query);
+        ImmutableList.Builder<DBObject> result = ImmutableList.builder();
+        int found = 0;
+        if (candidates == null) {
+            for (DBObject document : documents) {
+                if (DocumentMatcher.matches(query, document)) {
+                    result.add(document);
+                    if (++found == limit) {
+                        break;
+                    }
+                }
+            }
+        } else {
+            for (Integer position : candidates) {
+                DBObject document = documents.get(position);
+                if (DocumentMatcher.matches(query, document)) {
+                    result.add(document);
+                    if (++found == limit) {
+                        break;
+                    }
+                }
+            }
+        }
+        return result.build();
+    }
+
+    /**
+     * Gets number of documents in the snapshot.
+     *
+     * @return number of documents
+     */
+    public int size() {
+        return documents.size();
+    }
+
+    /**
+     * Gets time when the snapshot was loaded.
+     *
+     * @return time in milliseconds
+     */
+    public long getLoadTime() {
+        return loadTime;
+    }
+
+    /**
+     * Gets positions of documents that may satisfy the query using the first applicable index.
+     *
+     * @return positions in natural order or null if no index can be used
+     */
+    private Iterable<Integer> getCandidates(DBObject query) {
+        for (String field : query.keySet()) {
+            ListMultimap<Object, Integer> index = indexes.get(field);
+            if (index == null) {
+                continue;
+            }
+            Object condition = query.get(field);
+            Object value = DocumentMatcher.getEqualityValue(condition);
+            if (value != null) {
+                return index.get(MongoUtil.normalize(value));
+            }
+            List<?> values = DocumentMatcher.getInValues(condition);
+            if (values != null && !values.contains(null)) {
+                SortedSet<Integer> positions = Sets.newTreeSet();
+                values.forEach(item -> positions.addAll(index.get(MongoUtil.normalize(item))));
+                return positions;
+            }
+        }
+        return null;
+    }
+
+    private ListMultimap<Object, Integer> buildIndex(String field) {
+        ListMultimap<Object, Integer> index = ArrayListMultimap.create();
+        for (int position = 0; position < documents.size(); position++) {
+            // the field is resolved the same way as by the matcher, so the index finds every matching document
+            List<Object> values = Lists.newArrayList();
+            for (Object value : DocumentMatcher.resolve(documents.get(position), field)) {
+                if (value instanceof List) {
+                    values.addAll((List<?>) value);
+                } else {
+                    values.add(value);
+                }
+            }
+            // the same value can occur in array several times
+            for (Object item : Sets.newLinkedHashSet(Lists.transform(values, MongoUtil::normalize))) {
+                if (item != null) {
+                    index.put(item, position);
+                }
+            }
+        }
+        return index;
+    }
+}
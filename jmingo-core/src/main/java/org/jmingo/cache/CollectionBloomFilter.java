@@ -0,0 +1,278 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.cache;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Bloom filter of values of a unique field of documents in a collection. The filter never answers that
+ * a value is absent if a document with the value was stored through {@link org.jmingo.JMingoTemplate}
+ * or was seen by the last build, while a positive answer means that the document may exist.
+ * <p>
+ * Values of removed documents cannot be deleted from the filter, they are shed when the filter is rebuilt.
+ * The filter isn't ready until the first build is completed or after {@link #invalidate()} until the next build,
+ * in this case every value is reported as possibly present. Values are compared by their string representation.
+ */
+@ThreadSafe
+public class CollectionBloomFilter {
+
+    private static final Funnel<Object> FUNNEL = (value, into) -> into.putString(String.valueOf(value),
+            StandardCharsets.UTF_8);
+
+    private final String field;
+    private final int expectedInsertions;
+    private final double fpp;
+
+    @GuardedBy("this")
+    private BloomFilter<Object> current;
+    /* filter that is being built, receives all values put during the build */
+    @GuardedBy("this")
+    private BloomFilter<Object> next;
+    @GuardedBy("this")
+    private boolean ready;
+    /* incremented on invalidation, a build started before invalidation doesn't make the filter ready */
+    @GuardedBy("this")
+    private long generation;
+    @GuardedBy("this")
+    private long insertionCount;
+
+    private final LongAdder staleCount = new LongAdder();
+    private final LongAdder negativeCount = new LongAdder();
+    private final LongAdder positiveCount = new LongAdder();
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CollectionBloomFilter.class);
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param field              the name of the unique field
+     * @param expectedInsertions the expected number of documents in the collection
+     * @param fpp                the desired false positive probability
+     */
+    public CollectionBloomFilter(String field, int expectedInsertions, double fpp) {
+        Validate.notBlank(field, "field cannot be blank");
+        Validate.isTrue(expectedInsertions > 0, "expected insertions must be gt 0");
+        Validate.isTrue(fpp > 0 && fpp < 1, "fpp must be in range (0, 1)");
+        this.field = field;
+        this.expectedInsertions = expectedInsertions;
+        this.fpp = fpp;
+        this.current = create();
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    /**
+     * Checks whether a document with the value may exist.
+     *
+     * @param value the value of the field
+     * @return false if there is definitely no document with the value, otherwise true
+     */
+    public boolean mightContain(Object value) {
+        boolean result;
+        synchronized (this) {
+            result = !ready || current.mightContain(value);
+        }
+        if (result) {
+            positiveCount.increment();
+        } else {
+            negativeCount.increment();
+        }
+        return result;
+    }
+
+    /**
+     * Puts value of the stored document. Should be called before the document is stored.
+     *
+     * @param value the value of the field
+     */
+    public synchronized void put(Object value) {
+        if (value == null) {
+            return;
+        }
+        current.put(value);
+        if (next != null) {
+            next.put(value);
+        }
+        insertionCount++;
+    }
+
+    /**
+     * Notifies the filter that documents were removed, values of removed documents remain until the next build.
+     */
+    public void markStale() {
+        staleCount.increment();
+    }
+
+    /**
+     * Makes the filter not ready until the next build, is called if documents with unknown values could be stored.
+     */
+    public synchronized void invalidate() {
+        ready = false;
+        generation++;
+    }
+
+    /**
+     * Clears the filter, is called when the collection was dropped.
+     */
+    public synchronized void clear() {
+        current = create();
+        if (next != null) {
+            next = create();
+        }
+        insertionCount = 0;
+        staleCount.reset();
+        ready = true;
+    }
+
+    /**
+     * Builds the filter from scratch. Values put while the build is in progress are kept.
+     *
+     * @param scanner the scanner that passes values of all documents of the collection to the given consumer
+     */
+    public void build(Consumer<Consumer<Object>> scanner) {
+        long buildGeneration;
+        synchronized (this) {
+            Validate.validState(next == null, "filter is already being built");
+            next = create();
+            buildGeneration = generation;
+        }
+        long[] scanned = new long[1];
+        try {
+            scanner.accept(value -> {
+                if (value != null) {
+                    synchronized (this) {
+                        next.put(value);
+                    }
+                    scanned[0]++;
+                }
+            });
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                next = null;
+            }
+            throw e;
+        }
+        synchronized (this) {
+            current = next;
+            next = null;
+            insertionCount = scanned[0];
+            staleCount.reset();
+            ready = generation == buildGeneration;
+        }
+        LOGGER.debug("bloom filter of field '{}' is built, {} values", field, scanned[0]);
+    }
+
+    public synchronized boolean isReady() {
+        return ready;
+    }
+
+    public int getExpectedInsertions() {
+        return expectedInsertions;
+    }
+
+    public double getFpp() {
+        return fpp;
+    }
+
+    /**
+     * Gets false positive probability estimated for values put in the filter so far.
+     *
+     * @return the estimated false positive probability
+     */
+    public synchronized double getExpectedFpp() {
+        return current.expectedFpp();
+    }
+
+    /**
+     * Gets number of values put in the filter since the last build including the values seen by the build.
+     *
+     * @return number of values
+     */
+    public synchronized long getInsertionCount() {
+        return insertionCount;
+    }
+
+    /**
+     * Gets number of times documents were removed since the last build.
+     *
+     * @return number of removals
+     */
+    public long getStaleCount() {
+        return staleCount.sum();
+    }
+
+    /**
+     * Gets number of lookups answered that the document is absent.
+     *
+     * @return number of negative answers
+     */
+    public long getNegativeCount() {
+        return negativeCount.sum();
+    }
+
+    /**
+     * Gets number of lookups answered that the document may exist.
+     *
+     * @return number of positive answers
+     */
+    public long getPositiveCount() {
+        return positiveCount.sum();
+    }
+
+    /**
+     * Gets memory used by the bit array of the filter.
+     *
+     * @return size in bytes
+     */
+    public long getMemorySize() {
+        // optimal number of bits, see BloomFilter.create
+        long bits = (long) (-expectedInsertions * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        return (bits + Long.SIZE - 1) / Long.SIZE * Long.BYTES;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("field", field)
+                .append("ready", isReady())
+                .append("expectedInsertions", expectedInsertions)
+                .append("fpp", fpp)
+                .append("expectedFpp", getExpectedFpp())
+                .append("memorySize", getMemorySize())
+                .append("insertionCount", getInsertionCount())
+                .append("staleCount", getStaleCount())
+                .append("negativeCount", getNegativeCount())
+                .append("positiveCount", getPositiveCount())
+                .toString();
+    }
+
+    private BloomFilter<Object> create() {
+        return BloomFilter.create(FUNNEL, expectedInsertions, fpp);
+    }
+}
@@ -0,0 +1,193 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.cache;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mongodb.DBObject;
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Holds in-memory snapshots of fully cached collections, see {@link CollectionCacheConfig}.
+ * A snapshot is loaded with the first query, is reloaded in background with configured interval and
+ * is dropped after any write to the collection, so the next query loads actual snapshot.
+ */
+@ThreadSafe
+public class CollectionCache {
+
+    private final ConcurrentMap<String, Entry> entries = Maps.newConcurrentMap();
+
+    @GuardedBy("this")
+    private ScheduledExecutorService scheduler;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CollectionCache.class);
+
+    /**
+     * Gets snapshot of the collection, loads it if the collection isn't loaded yet or was changed.
+     *
+     * @param collectionName the collection name
+     * @param config         the snapshot settings
+     * @param loader         the loader of all documents of the collection
+     * @return snapshot of the collection
+     */
+    public CachedCollection get(String collectionName, CollectionCacheConfig config,
+                                Supplier<List<DBObject>> loader) {
+        Validate.notBlank(collectionName, "collection name cannot be blank");
+        Validate.notNull(config, "collection cache config cannot be null");
+        Validate.notNull(loader, "loader cannot be null");
+        Entry entry = entries.compute(collectionName, (name, current) -> {
+            if (current != null && current.config.equals(config)) {
+                return current;
+            }
+            if (current != null) {
+                // query set was reloaded with new settings
+                current.cancel();
+            }
+            return new Entry(collectionName, config, loader);
+        });
+        return entry.get();
+    }
+
+    /**
+     * Drops snapshot of the collection, the next query loads actual documents.
+     *
+     * @param collectionName the collection name
+     */
+    public void invalidate(String collectionName) {
+        Entry entry = entries.get(collectionName);
+        if (entry != null) {
+            entry.invalidate();
+        }
+    }
+
+    /**
+     * Drops snapshots of all collections.
+     */
+    public void invalidateAll() {
+        entries.values().forEach(Entry::invalidate);
+    }
+
+    /**
+     * Gets loaded snapshots.
+     *
+     * @return immutable map: key - collection name, value - snapshot
+     */
+    public Map<String, CachedCollection> getCachedCollections() {
+        ImmutableMap.Builder<String, CachedCollection> builder = ImmutableMap.builder();
+        entries.forEach((name, entry) -> {
+            CachedCollection collection = entry.collection;
+            if (collection != null) {
+                builder.put(name, collection);
+            }
+        });
+        return builder.build();
+    }
+
+    /**
+     * Stops background reloads and drops all snapshots.
+     */
+    public synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        entries.clear();
+    }
+
+    private synchronized ScheduledExecutorService getScheduler() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("jmingo-collection-cache-%d").setDaemon(true).build());
+        }
+        return scheduler;
+    }
+
+    private final class Entry {
+        private final String collectionName;
+        private final CollectionCacheConfig config;
+        private final Supplier<List<DBObject>> loader;
+        /* is incremented on every write to the collection to discard snapshots loaded concurrently with writes */
+        private final AtomicLong generation = new AtomicLong();
+        private final ScheduledFuture<?> refresh;
+        private volatile CachedCollection collection;
+
+        private Entry(String collectionName, CollectionCacheConfig config, Supplier<List<DBObject>> loader) {
+            this.collectionName = collectionName;
+            this.config = config;
+            this.loader = loader;
+            long interval = config.getRefreshInterval();
+            this.refresh = getScheduler().scheduleWithFixedDelay(this::refresh, interval, interval,
+                    TimeUnit.MILLISECONDS);
+        }
+
+        private CachedCollection get() {
+            CachedCollection current = collection;
+            if (current != null) {
+                return current;
+            }
+            synchronized (this) {
+                current = collection;
+                return current != null ? current : load();
+            }
+        }
+
+        private CachedCollection load() {
+            long loadGeneration = generation.get();
+            CachedCollection loaded = new CachedCollection(loader.get(), config.getIndexedFields());
+            synchronized (this) {
+                if (generation.get() == loadGeneration) {
+                    collection = loaded;
+                }
+            }
+            LOGGER.debug("collection '{}' was loaded in memory, documents: {}", collectionName, loaded.size());
+            return loaded;
+        }
+
+        private void refresh() {
+            try {
+                load();
+            } catch (RuntimeException e) {
+                // keep the current snapshot, the next attempt is performed after refresh interval
+                LOGGER.warn("failed to reload collection: " + collectionName, e);
+            }
+        }
+
+        private void invalidate() {
+            synchronized (this) {
+                generation.incrementAndGet();
+                collection = null;
+            }
+        }
+
+        private void cancel() {
+            refresh.cancel(false);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.cache;
+
+import com.google.common.collect.ImmutableSet;
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Settings of in-memory snapshot of the whole collection, see &lt;cacheCollection/&gt; element in query.xsd schema.
+ * Immutable.
+ */
+public class CollectionCacheConfig {
+
+    /* default refresh interval in seconds */
+    public static final int DEF_REFRESH_INTERVAL = 300;
+
+    private final long refreshInterval;
+    private final Set<String> indexedFields;
+
+    private CollectionCacheConfig(Builder builder) {
+        this.refreshInterval = builder.refreshInterval;
+        this.indexedFields = builder.indexedFields.build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Gets interval between reloads of the snapshot in milliseconds.
+     *
+     * @return refresh interval in milliseconds
+     */
+    public long getRefreshInterval() {
+        return refreshInterval;
+    }
+
+    /**
+     * Gets fields that have secondary hash indexes in the snapshot.
+     *
+     * @return immutable set of field names
+     */
+    public Set<String> getIndexedFields() {
+        return indexedFields;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CollectionCacheConfig)) {
+            return false;
+        }
+        CollectionCacheConfig that = (CollectionCacheConfig) o;
+        return new EqualsBuilder()
+                .append(refreshInterval, that.refreshInterval)
+                .append(indexedFields, that.indexedFields)
+                .isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder()
+                .append(refreshInterval)
+                .append(indexedFields)
+                .toHashCode();
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("refreshInterval", refreshInterval)
+                .append("indexedFields", indexedFields)
+                .toString();
+    }
+
+    public static class Builder {
+        private long refreshInterval = TimeUnit.SECONDS.toMillis(DEF_REFRESH_INTERVAL);
+        private ImmutableSet.Builder<String> indexedFields = ImmutableSet.builder();
+
+        public Builder refreshInterval(long duration, TimeUnit unit) {
+            Validate.isTrue(duration > 0, "collection cache refresh interval must be gt 0");
+            this.refreshInterval = unit.toMillis(duration);
+            return this;
+        }
+
+        public Builder index(String field) {
+            Validate.notBlank(field, "indexed field cannot be blank");
+            this.indexedFields.add(field);
+            return this;
+        }
+
+        public CollectionCacheConfig build() {
+            return new CollectionCacheConfig(this);
+        }
+    }
+}
@@ -0,0 +1,331 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.cache;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.mongodb.DBObject;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Evaluates mongo query against a document in memory. Supports the common subset of the query language:
+ * equality, $eq, $in, $gt, $gte, $lt, $lte, $exists, $and and $or, use {@link #isSupported(DBObject)}
+ * to check that a query can be evaluated. Fields are resolved by dot notation through embedded documents
+ * and arrays, a condition on an array field is satisfied if it's satisfied by any element of the array.
+ */
+final class DocumentMatcher {
+
+    private static final String EQ = "$eq";
+    private static final String IN = "$in";
+    private static final String GT = "$gt";
+    private static final String GTE = "$gte";
+    private static final String LT = "$lt";
+    private static final String LTE = "$lte";
+    private static final String EXISTS = "$exists";
+    private static final String AND = "$and";
+    private static final String OR = "$or";
+
+    private static final Set<String> FIELD_OPERATORS = ImmutableSet.of(EQ, IN, GT, GTE, LT, LTE, EXISTS);
+
+    private DocumentMatcher() {
+        throw new UnsupportedOperationException("util class");
+    }
+
+    /**
+     * Checks whether the query can be evaluated in memory.
+     *
+     * @param query the query
+     * @return true if the query uses only supported operators, otherwise false
+     */
+    static boolean isSupported(DBObject query) {
+        if (query instanceof List) {
+            return false;
+        }
+        for (String key : query.keySet()) {
+            Object condition = query.get(key);
+            if (AND.equals(key) || OR.equals(key)) {
+                if (!(condition instanceof List) || ((List<?>) condition).isEmpty()) {
+                    return false;
+                }
+                for (Object clause : (List<?>) condition) {
+                    if (!(clause instanceof DBObject) || !isSupported((DBObject) clause)) {
+                        return false;
+                    }
+                }
+            } else if (key.startsWith("$") || !isSupportedPath(key) || !isSupportedCondition(condition)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the document satisfies the query, the query must be supported.
+     *
+     * @param query    the query
+     * @param document the document
+     * @return true if the document satisfies the query, otherwise false
+     */
+    static boolean matches(DBObject query, DBObject document) {
+        for (String key : query.keySet()) {
+            Object condition = query.get(key);
+            if (AND.equals(key)) {
+                for (Object clause : (List<?>) condition) {
+                    if (!matches((DBObject) clause, document)) {
+                        return false;
+                    }
+                }
+            } else if (OR.equals(key)) {
+                boolean matched = false;
+                for (Object clause : (List<?>) condition) {
+                    if (matches((DBObject) clause, document)) {
+                        matched = true;
+                        break;
+                    }
+                }
+                if (!matched) {
+                    return false;
+                }
+            } else if (!matchesField(resolve(document, key), condition)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets value of the condition if the condition is equality with a scalar value.
+     *
+     * @param condition the condition of a field
+     * @return the value or null if the condition isn't equality or the value isn't scalar
+     */
+    static Object getEqualityValue(Object condition) {
+        if (isOperatorObject(condition)) {
+            DBObject operators = (DBObject) condition;
+            return operators.keySet().size() == 1 && operators.containsField(EQ)
+                    ? getEqualityValue(operators.get(EQ)) : null;
+        }
+        return condition instanceof DBObject ? null : condition;
+    }
+
+    /**
+     * Gets values of $in operator of the condition.
+     *
+     * @param condition the condition of a field
+     * @return the values or null if the condition isn't single $in operator
+     */
+    static List<?> getInValues(Object condition) {
+        if (isOperatorObject(condition)) {
+            DBObject operators = (DBObject) condition;
+            if (operators.keySet().size() == 1 && operators.get(IN) instanceof List) {
+                return (List<?>) operators.get(IN);
+            }
+        }
+        return null;
+    }
+
+    private static boolean isSupportedPath(String path) {
+        for (String part : StringUtils.split(path, '.')) {
+            if (StringUtils.isNumeric(part)) {
+                // positional access to array elements
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSupportedCondition(Object condition) {
+        if (isOperatorObject(condition)) {
+            DBObject operators = (DBObject) condition;
+            for (String operator : operators.keySet()) {
+                Object operand = operators.get(operator);
+                if (!FIELD_OPERATORS.contains(operator) || (IN.equals(operator) && !(operand instanceof List))
+                        || (!IN.equals(operator) && !EXISTS.equals(operator) && !isScalar(operand))) {
+                    return false;
+                }
+                if (IN.equals(operator) && !((List<?>) operand).stream().allMatch(DocumentMatcher::isScalar)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        // embedded documents are compared by fields order in mongodb, regular expressions aren't supported
+        return isScalar(condition);
+    }
+
+    private static boolean isScalar(Object value) {
+        return !(value instanceof DBObject) && !(value instanceof java.util.Map)
+                && !(value instanceof java.util.regex.Pattern) && !(value instanceof List);
+    }
+
+    private static boolean isOperatorObject(Object condition) {
+        if (!(condition instanceof DBObject) || condition instanceof List) {
+            return false;
+        }
+        Set<String> keys = ((DBObject) condition).keySet();
+        return !keys.isEmpty() && keys.stream().allMatch(key -> key.startsWith("$"));
+    }
+
+    private static boolean matchesField(List<Object> values, Object condition) {
+        if (!isOperatorObject(condition)) {
+            return matchesEquality(values, condition);
+        }
+        DBObject operators = (DBObject) condition;
+        for (String operator : operators.keySet()) {
+            Object operand = operators.get(operator);
+            boolean matched;
+            switch (operator) {
+                case EQ:
+                    matched = matchesEquality(values, operand);
+                    break;
+                case IN:
+                    matched = ((List<?>) operand).stream().anyMatch(item -> matchesEquality(values, item));
+                    break;
+                case EXISTS:
+                    matched = values.isEmpty() != isTruthy(operand);
+                    break;
+                default:
+                    matched = matchesComparison(values, operator, operand);
+            }
+            if (!matched) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matchesEquality(List<Object> values, Object expected) {
+        if (expected == null && values.isEmpty()) {
+            return true;
+        }
+        for (Object value : values) {
+            if (isEqual(value, expected)) {
+                return true;
+            }
+            if (value instanceof List) {
+                for (Object item : (List<?>) value) {
+                    if (isEqual(item, expected)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean matchesComparison(List<Object> values, String operator, Object operand) {
+        for (Object value : values) {
+            List<?> items = value instanceof List ? (List<?>) value : Lists.newArrayList(value);
+            for (Object item : items) {
+                Integer result = compare(item, operand);
+                if (result != null && satisfies(operator, result)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean satisfies(String operator, int comparison) {
+        switch (operator) {
+            case GT:
+                return comparison > 0;
+            case GTE:
+                return comparison >= 0;
+            case LT:
+                return comparison < 0;
+            default:
+                return comparison <= 0;
+        }
+    }
+
+    private static boolean isEqual(Object value, Object expected) {
+        if (value instanceof Number && expected instanceof Number) {
+            return compareNumbers((Number) value, (Number) expected) == 0;
+        }
+        return Objects.equals(value, expected);
+    }
+
+    /**
+     * Compares values of the same kind.
+     *
+     * @return result of comparison or null if the values cannot be compared
+     */
+    @SuppressWarnings("unchecked")
+    private static Integer compare(Object value, Object operand) {
+        if (value instanceof Number && operand instanceof Number) {
+            return compareNumbers((Number) value, (Number) operand);
+        }
+        if (value != null && operand != null && value.getClass().equals(operand.getClass())
+                && value instanceof Comparable) {
+            return ((Comparable<Object>) value).compareTo(operand);
+        }
+        return null;
+    }
+
+    private static int compareNumbers(Number left, Number right) {
+        if (isIntegral(left) && isIntegral(right)) {
+            return Long.compare(left.longValue(), right.longValue());
+        }
+        return Double.compare(left.doubleValue(), right.doubleValue());
+    }
+
+    private static boolean isIntegral(Number number) {
+        return number instanceof Long || number instanceof Integer || number instanceof Short
+                || number instanceof Byte;
+    }
+
+    private static boolean isTruthy(Object operand) {
+        if (operand instanceof Boolean) {
+            return (Boolean) operand;
+        }
+        if (operand instanceof Number) {
+            return ((Number) operand).doubleValue() != 0;
+        }
+        return operand != null;
+    }
+
+    /**
+     * Resolves values of the field by dot notation, arrays on the path are expanded.
+     *
+     * @return list of values, empty list if the field is missing
+     */
+    static List<Object> resolve(DBObject document, String path) {
+        List<Object> values = Lists.newArrayList();
+        resolve(document, StringUtils.split(path, '.'), 0, values);
+        return values;
+    }
+
+    private static void resolve(Object current, String[] path, int index, List<Object> values) {
+        if (index == path.length) {
+            values.add(current);
+            return;
+        }
+        if (current instanceof List) {
+            for (Object item : (List<?>) current) {
+                if (item instanceof DBObject && !(item instanceof List)) {
+                    resolve(item, path, index, values);
+                }
+            }
+        } else if (current instanceof DBObject && ((DBObject) current).containsField(path[index])) {
+            resolve(((DBObject) current).get(path[index]), path, index + 1, values);
+        }
+    }
+}
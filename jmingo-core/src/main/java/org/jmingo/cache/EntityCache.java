@@ -0,0 +1,252 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.cache;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.mongodb.DBObject;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+import org.jmingo.document.annotation.Document;
+import org.jmingo.util.DocumentUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Second-level cache of documents found by id. Each document type has own region with settings taken from
+ * {@link Document} annotation, documents are cached only if {@link Document#cacheTtl()} is positive.
+ * <p>
+ * Raw documents are cached and converted to the requested type on every hit, so every caller gets its own
+ * instance and cached documents cannot be changed through returned objects. Ids that don't match any document
+ * are cached as well unless {@link Document#cacheMisses()} is false.
+ * <p>
+ * Documents are invalidated per collection, see {@link #invalidate(String)}, a document that was loaded concurrently
+ * with invalidation isn't cached.
+ */
+public class EntityCache {
+
+    private static final Object NULL_VALUE = new Object();
+
+    private final ConcurrentMap<Class<?>, Region> regions = Maps.newConcurrentMap();
+    private final Ticker ticker;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EntityCache.class);
+
+    /**
+     * Default constructor.
+     */
+    public EntityCache() {
+        this(Ticker.systemTicker());
+    }
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param ticker the time source used to expire entries
+     */
+    public EntityCache(Ticker ticker) {
+        Validate.notNull(ticker, "ticker cannot be null");
+        this.ticker = ticker;
+    }
+
+    /**
+     * Checks whether documents of the type are cached.
+     *
+     * @param type the document type
+     * @return true if documents of the type are cached, otherwise false
+     */
+    public boolean isCached(Class<?> type) {
+        Document document = type.getAnnotation(Document.class);
+        return document != null && document.cacheTtl() > 0;
+    }
+
+    /**
+     * Gets cached document or loads the document and puts it in the cache.
+     *
+     * @param type      the document type
+     * @param id        the document id
+     * @param loader    the loader to find raw document if there is no cached document
+     * @param converter the converter of raw document to the type, is applied on every call
+     * @param <T>       the type of document
+     * @return the document or null if there is no document with the id
+     */
+    public <T> T get(Class<T> type, Object id, Supplier<DBObject> loader, Function<DBObject, T> converter) {
+        Validate.notNull(type, "document type cannot be null");
+        Validate.notNull(id, "document id cannot be null");
+        Validate.isTrue(isCached(type), "documents of type '%s' aren't cached", type.getName());
+        Region region = getRegion(type);
+        Object cached = region.cache.getIfPresent(id);
+        if (cached != null) {
+            LOGGER.debug("cache hit: {}#{}", type.getName(), id);
+            return cached != NULL_VALUE ? converter.apply((DBObject) cached) : null;
+        }
+        long generation = region.generation.get();
+        DBObject source = loader.get();
+        if (source != null || region.cacheMisses) {
+            put(region, id, source != null ? source : NULL_VALUE, generation);
+        }
+        return source != null ? converter.apply(source) : null;
+    }
+
+    /**
+     * Gets cached documents and loads documents that aren't cached with a single call of the loader.
+     *
+     * @param type      the document type
+     * @param ids       the document ids
+     * @param loader    the loader to find raw documents by ids that aren't cached, returns map: key - id,
+     *                  value - raw document
+     * @param converter the converter of raw document to the type, is applied on every call
+     * @param <T>       the type of document
+     * @return map: key - id, value - the document or null if there is no document with the id
+     */
+    public <T> Map<Object, T> getAll(Class<T> type, Collection<?> ids,
+                                     Function<List<Object>, Map<Object, DBObject>> loader,
+                                     Function<DBObject, T> converter) {
+        Validate.notNull(type, "document type cannot be null");
+        Validate.notNull(ids, "document ids cannot be null");
+        Validate.isTrue(isCached(type), "documents of type '%s' aren't cached", type.getName());
+        Region region = getRegion(type);
+        Map<Object, T> result = Maps.newLinkedHashMap();
+        List<Object> missing = Lists.newArrayList();
+        for (Object id : ids) {
+            Object cached = region.cache.getIfPresent(id);
+            if (cached != null) {
+                result.put(id, cached != NULL_VALUE ? converter.apply((DBObject) cached) : null);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            long generation = region.generation.get();
+            Map<Object, DBObject> sources = loader.apply(missing);
+            for (Object id : missing) {
+                DBObject source = sources.get(id);
+                if (source != null || region.cacheMisses) {
+                    put(region, id, source != null ? source : NULL_VALUE, generation);
+                }
+                result.put(id, source != null ? converter.apply(source) : null);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Discards cached documents of all types stored in the collection.
+     *
+     * @param collectionName the collection name
+     */
+    public void invalidate(String collectionName) {
+        regions.values().forEach(region -> {
+            if (StringUtils.equals(region.collectionName, collectionName)) {
+                region.invalidateAll();
+            }
+        });
+    }
+
+    /**
+     * Discards cached document with the id of all types stored in the collection.
+     *
+     * @param collectionName the collection name
+     * @param id             the document id
+     */
+    public void invalidate(String collectionName, Object id) {
+        regions.values().forEach(region -> {
+            if (StringUtils.equals(region.collectionName, collectionName)) {
+                // documents loaded concurrently with the write can be stale
+                region.generation.incrementAndGet();
+                region.cache.invalidate(id);
+            }
+        });
+    }
+
+    /**
+     * Discards all cached documents.
+     */
+    public void invalidateAll() {
+        regions.values().forEach(Region::invalidateAll);
+    }
+
+    /**
+     * Gets statistics summarized for all document types.
+     *
+     * @return cache statistics
+     */
+    public CacheStats stats() {
+        CacheStats stats = CacheStats.empty();
+        for (Region region : regions.values()) {
+            stats = stats.plus(region.cache.stats());
+        }
+        return stats;
+    }
+
+    /**
+     * Gets statistics of the document type.
+     *
+     * @param type the document type
+     * @return cache statistics, empty statistics if documents of the type haven't been cached yet
+     */
+    public CacheStats stats(Class<?> type) {
+        Region region = regions.get(type);
+        return region != null ? region.cache.stats() : CacheStats.empty();
+    }
+
+    private void put(Region region, Object id, Object value, long generation) {
+        if (region.generation.get() == generation) {
+            region.cache.put(id, value);
+            if (region.generation.get() != generation) {
+                // invalidated while the document was being put in the cache
+                region.cache.invalidate(id);
+            }
+        }
+    }
+
+    private Region getRegion(Class<?> type) {
+        return regions.computeIfAbsent(type, key -> {
+            LOGGER.debug("create cache region for document type: '{}'", key.getName());
+            return new Region(key, ticker);
+        });
+    }
+
+    private static final class Region {
+        private final String collectionName;
+        private final boolean cacheMisses;
+        private final TinyLfuCache<Object, Object> cache;
+        private final AtomicLong generation = new AtomicLong();
+
+        private Region(Class<?> type, Ticker ticker) {
+            Document document = type.getAnnotation(Document.class);
+            this.collectionName = DocumentUtils.getCollectionName(type);
+            this.cacheMisses = document.cacheMisses();
+            this.cache = new TinyLfuCache<>(document.cacheMaxSize(), document.cacheTtl(), TimeUnit.MILLISECONDS,
+                    ticker);
+        }
+
+        private void invalidateAll() {
+            generation.incrementAndGet();
+            cache.invalidateAll();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.cache;
+
+import net.jcip.annotations.ThreadSafe;
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of non-negative values with power of two buckets. A value v is counted in the bucket i such that
+ * 2^(i-1) &lt;= v &lt; 2^i, zero is counted in the bucket 0, thus percentiles are estimated with precision of factor 2.
+ */
+@ThreadSafe
+public class Histogram {
+
+    private static final int BUCKETS = Long.SIZE + 1;
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Default constructor.
+     */
+    public Histogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records the value.
+     *
+     * @param value the value to record
+     */
+    public void record(long value) {
+        Validate.isTrue(value >= 0, "value cannot be negative");
+        counts[Long.SIZE - Long.numberOfLeadingZeros(value)].increment();
+        sum.add(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : counts) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Gets the mean of recorded values.
+     *
+     * @return the mean or 0 if no values were recorded
+     */
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) sum.sum() / count;
+    }
+
+    /**
+     * Gets an estimate of the percentile, the upper bound of the bucket that contains the percentile.
+     *
+     * @param percentile the percentile in range (0, 100]
+     * @return an estimate of the percentile, 0 if no values were recorded
+     */
+    public long getPercentile(double percentile) {
+        Validate.isTrue(percentile > 0 && percentile <= 100, "percentile must be in range (0, 100]");
+        long count = getCount();
+        long threshold = (long) Math.ceil(count * percentile / 100);
+        long accumulated = 0;
+        for (int i = 0; i < BUCKETS && count > 0; i++) {
+            accumulated += counts[i].sum();
+            if (accumulated >= threshold) {
+                return Math.min(i < Long.SIZE ? (1L << i) - 1 : Long.MAX_VALUE, getMax());
+            }
+        }
+        return getMax();
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("count", getCount())
+                .append("mean", getMean())
+                .append("p50", getPercentile(50))
+                .append("p99", getPercentile(99))
+                .append("max", getMax())
+                .toString();
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.cache;
+
+import com.google.common.collect.Maps;
+import com.mongodb.DBObject;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-process implementation of {@link SharedResultCache}, can be shared by several contexts in tests
+ * instead of mongo collection. Stored results are returned as is without copying.
+ */
+public class InMemorySharedResultCache extends SharedResultCache {
+
+    private final ConcurrentMap<String, Entry> entries = Maps.newConcurrentMap();
+    /* key - result key, value - the lock */
+    private final ConcurrentMap<String, Lock> locks = Maps.newConcurrentMap();
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param lockTimeout the maximum time a caller holds the compute lock
+     * @param unit        the time unit of lock timeout
+     */
+    public InMemorySharedResultCache(long lockTimeout, TimeUnit unit) {
+        super(lockTimeout, unit);
+    }
+
+    @Override
+    protected DBObject find(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expirationTime <= System.currentTimeMillis()) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.value;
+    }
+
+    @Override
+    protected void store(String key, String collectionName, DBObject value, long ttl) {
+        entries.put(key, new Entry(collectionName, value, System.currentTimeMillis() + ttl));
+    }
+
+    @Override
+    protected boolean tryLock(String key, String owner, long lockTimeout) {
+        long now = System.currentTimeMillis();
+        AtomicBoolean acquired = new AtomicBoolean();
+        locks.compute(key, (lockKey, lock) -> {
+            if (lock != null && lock.expirationTime > now) {
+                return lock;
+            }
+            acquired.set(true);
+            return new Lock(owner, now + lockTimeout);
+        });
+        return acquired.get();
+    }
+
+    @Override
+    protected void unlock(String key, String owner) {
+        locks.computeIfPresent(key, (lockKey, lock) -> lock.owner.equals(owner) ? null : lock);
+    }
+
+    @Override
+    public void invalidate(String collectionName) {
+        entries.values().removeIf(entry -> entry.collectionName.equals(collectionName));
+    }
+
+    /**
+     * Gets number of stored results including expired ones.
+     *
+     * @return number of results
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private static final class Lock {
+        private final String owner;
+        private final long expirationTime;
+
+        private Lock(String owner, long expirationTime) {
+            this.owner = owner;
+            this.expirationTime = expirationTime;
+        }
+    }
+
+    private static final class Entry {
+        private final String collectionName;
+        private final DBObject value;
+        private final long expirationTime;
+
+        private Entry(String collectionName, DBObject value, long expirationTime) {
+            this.collectionName = collectionName;
+            this.value = value;
+            this.expirationTime = expirationTime;
+        }
+    }
+}
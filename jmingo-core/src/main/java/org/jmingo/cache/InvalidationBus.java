@@ -0,0 +1,345 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.cache;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.Bytes;
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Propagates invalidations of local caches between application nodes through a capped collection.
+ * Writes are published as compact records: collection name and id of the changed document if it's known.
+ * Records published within the batch window are written as one document:
+ * {n: node id, r: [{c: collection name, i: document id}, ...]}. Every node tails the collection with tailable
+ * await-data cursor and passes records of other nodes to the listener. Capped collections and tailable cursors
+ * don't require replica set. The node remembers the last received document and resumes after it when the cursor
+ * is reopened, if the document was overwritten in the meantime then records were lost and the listener is
+ * notified that all collections were changed.
+ */
+@ThreadSafe
+public class InvalidationBus {
+
+    public static final String NODE_FIELD = "n";
+    public static final String RECORDS_FIELD = "r";
+    public static final String COLLECTION_FIELD = "c";
+    public static final String ID_FIELD = "i";
+
+    private static final String DOCUMENT_ID_FIELD = "_id";
+    /* ids of a collection are replaced by a record of the whole collection when the batch has more ids */
+    private static final int MAX_BATCH_IDS = 1000;
+    private static final long RETRY_INTERVAL = 1000;
+
+    private final DBCollection dbCollection;
+    private final long batchWindow;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ScheduledExecutorService publisher;
+    private final ExecutorService tailer;
+
+    /* key - collection name, value - ids of changed documents or null if the whole collection was changed */
+    @GuardedBy("this")
+    private Map<String, Set<Object>> pending = Maps.newLinkedHashMap();
+    @GuardedBy("this")
+    private BiConsumer<String, Object> listener;
+    private volatile boolean running;
+    /* id of the last received document */
+    private volatile Object position;
+
+    private final LongAdder publishedCount = new LongAdder();
+    private final LongAdder batchCount = new LongAdder();
+    private final LongAdder receivedCount = new LongAdder();
+    private final LongAdder lossCount = new LongAdder();
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InvalidationBus.class);
+
+    /**
+     * Constructor with parameters. Creates the capped collection if it doesn't exist.
+     *
+     * @param db             the database
+     * @param collectionName the name of the capped collection
+     * @param size           the size of the capped collection in bytes
+     * @param batchWindow    the time to collect records of a batch
+     * @param unit           the time unit of batch window
+     */
+    public InvalidationBus(DB db, String collectionName, long size, long batchWindow, TimeUnit unit) {
+        Validate.notNull(db, "db cannot be null");
+        Validate.notBlank(collectionName, "collection name cannot be blank");
+        Validate.isTrue(size > 0, "capped collection size must be gt 0");
+        Validate.isTrue(batchWindow >= 0, "batch window cannot be negative");
+        this.dbCollection = getCappedCollection(db, collectionName, size);
+        this.batchWindow = unit.toMillis(batchWindow);
+        this.publisher = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("jmingo-invalidation-publisher-%d").setDaemon(true).build());
+        this.tailer = Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setNameFormat("jmingo-invalidation-tailer-%d").setDaemon(true).build());
+    }
+
+    /**
+     * Starts to receive records of other nodes published after this moment.
+     *
+     * @param listener accepts collection name and document id, the id is null if the whole collection was changed,
+     *                 both are null if records were lost and all collections should be considered changed
+     */
+    public synchronized void start(BiConsumer<String, Object> listener) {
+        Validate.notNull(listener, "listener cannot be null");
+        Validate.validState(this.listener == null, "invalidation bus is already started");
+        this.listener = listener;
+        this.position = getLastPosition();
+        this.running = true;
+        tailer.execute(this::tail);
+    }
+
+    /**
+     * Publishes the record within the next batch.
+     *
+     * @param collectionName the name of changed collection
+     * @param id             the id of changed document or null if the changed documents are unknown
+     */
+    public void publish(String collectionName, Object id) {
+        Validate.notBlank(collectionName, "collection name cannot be blank");
+        boolean first;
+        synchronized (this) {
+            first = pending.isEmpty();
+            if (id == null) {
+                pending.put(collectionName, null);
+            } else if (!pending.containsKey(collectionName)) {
+                pending.put(collectionName, Sets.newLinkedHashSet(Collections.singleton(id)));
+            } else {
+                Set<Object> ids = pending.get(collectionName);
+                if (ids != null && ids.add(id) && ids.size() > MAX_BATCH_IDS) {
+                    pending.put(collectionName, null);
+                }
+            }
+        }
+        if (first) {
+            if (batchWindow == 0) {
+                flush();
+            } else {
+                publisher.schedule(this::flush, batchWindow, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Writes pending records to the capped collection.
+     */
+    public void flush() {
+        Map<String, Set<Object>> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = Maps.newLinkedHashMap();
+        }
+        BasicDBList records = new BasicDBList();
+        batch.forEach((collectionName, ids) -> {
+            if (ids == null) {
+                records.add(new BasicDBObject(COLLECTION_FIELD, collectionName));
+            } else {
+                ids.forEach(id -> records.add(new BasicDBObject(COLLECTION_FIELD, collectionName).append(ID_FIELD, id)));
+            }
+        });
+        try {
+            dbCollection.insert(new BasicDBObject(NODE_FIELD, nodeId).append(RECORDS_FIELD, records));
+            publishedCount.add(records.size());
+            batchCount.increment();
+        } catch (MongoException e) {
+            // caches of other nodes stay stale until entries expire
+            LOGGER.warn("failed to publish " + records.size() + " invalidation records", e);
+        }
+    }
+
+    /**
+     * Stops receiving records, publishes pending records.
+     */
+    public void shutdown() {
+        running = false;
+        publisher.shutdownNow();
+        tailer.shutdownNow();
+        flush();
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Gets id of the last received document of the capped collection.
+     *
+     * @return the position or null if nothing was received
+     */
+    public Object getPosition() {
+        return position;
+    }
+
+    public long getPublishedCount() {
+        return publishedCount.sum();
+    }
+
+    public long getBatchCount() {
+        return batchCount.sum();
+    }
+
+    public long getReceivedCount() {
+        return receivedCount.sum();
+    }
+
+    /**
+     * Gets number of times records were overwritten in the capped collection before they were received.
+     *
+     * @return loss count
+     */
+    public long getLossCount() {
+        return lossCount.sum();
+    }
+
+    private void tail() {
+        while (running) {
+            try {
+                follow();
+            } catch (MongoException e) {
+                if (running) {
+                    LOGGER.warn("failed to receive invalidation records, retry in " + RETRY_INTERVAL + " ms", e);
+                }
+            }
+            try {
+                // the cursor is dead if the collection is empty
+                Thread.sleep(RETRY_INTERVAL);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Tails the capped collection in natural order starting after the current position.
+     * Ids of documents are generated by different nodes, so they aren't ordered and cannot be used in the query.
+     */
+    private void follow() {
+        Object resumeFrom = position;
+        long skipLimit = 0;
+        if (resumeFrom != null) {
+            if (dbCollection.findOne(new BasicDBObject(DOCUMENT_ID_FIELD, resumeFrom)) == null) {
+                lose();
+                resumeFrom = getLastPosition();
+                position = resumeFrom;
+            }
+            skipLimit = dbCollection.count();
+        }
+        DBCursor cursor = dbCollection.find()
+                .addOption(Bytes.QUERYOPTION_TAILABLE)
+                .addOption(Bytes.QUERYOPTION_AWAITDATA);
+        try {
+            boolean resumed = resumeFrom == null;
+            long skipped = 0;
+            while (running && cursor.hasNext()) {
+                DBObject batch = cursor.next();
+                Object id = batch.get(DOCUMENT_ID_FIELD);
+                if (!resumed) {
+                    if (id.equals(resumeFrom)) {
+                        resumed = true;
+                        continue;
+                    }
+                    if (++skipped <= skipLimit) {
+                        continue;
+                    }
+                    // the position was overwritten while the collection was being scanned
+                    lose();
+                    resumed = true;
+                }
+                position = id;
+                receive(batch);
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private void receive(DBObject batch) {
+        if (nodeId.equals(batch.get(NODE_FIELD))) {
+            // caches of this node were invalidated by the write
+            return;
+        }
+        BiConsumer<String, Object> currentListener = getListener();
+        try {
+            for (Object item : (List<?>) batch.get(RECORDS_FIELD)) {
+                DBObject record = (DBObject) item;
+                currentListener.accept((String) record.get(COLLECTION_FIELD), record.get(ID_FIELD));
+                receivedCount.increment();
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warn("failed to apply invalidation records: " + batch, e);
+        }
+    }
+
+    private void lose() {
+        LOGGER.warn("invalidation records were overwritten in the capped collection: '{}' before they were " +
+                "received, all local caches are invalidated", dbCollection.getName());
+        lossCount.increment();
+        getListener().accept(null, null);
+    }
+
+    private synchronized BiConsumer<String, Object> getListener() {
+        return listener;
+    }
+
+    private Object getLastPosition() {
+        DBCursor cursor = dbCollection.find().sort(new BasicDBObject("$natural", -1)).limit(1);
+        try {
+            return cursor.hasNext() ? cursor.next().get(DOCUMENT_ID_FIELD) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static DBCollection getCappedCollection(DB db, String collectionName, long size) {
+        if (!db.collectionExists(collectionName)) {
+            try {
+                db.createCollection(collectionName, new BasicDBObject("capped", true).append("size", size));
+            } catch (MongoException e) {
+                // the collection was created by another node
+                LOGGER.debug("capped collection '{}' wasn't created: {}", collectionName, e.getMessage());
+            }
+        }
+        return db.getCollection(collectionName);
+    }
+}
@@ -0,0 +1,179 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.cache;
+
+import com.google.common.base.Stopwatch;
+import net.jcip.annotations.ThreadSafe;
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Materialized result of an aggregation query. The pipeline is periodically performed into the shadow collection,
+ * with $out stage on servers 2.6 and newer or with batched inserts on older servers, then the shadow collection
+ * is renamed to the view collection, so readers always see complete result.
+ * Also provides metrics of the view: refresh interval, staleness and duration of the last refresh.
+ */
+@ThreadSafe
+public class MaterializedView {
+
+    private final String queryName;
+    private final String viewName;
+    private final String shadowName;
+    private final MaterializedViewConfig config;
+    /* 0 if the view wasn't materialized yet */
+    private volatile long lastRefreshTime;
+    private volatile long lastRefreshDuration;
+    private final AtomicLong refreshCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+
+    private static final String VIEW_SUFFIX = ".view";
+    private static final String SHADOW_SUFFIX = ".view.tmp";
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param queryName the composite id of the materialized query
+     * @param config    the view settings
+     */
+    public MaterializedView(String queryName, MaterializedViewConfig config) {
+        Validate.notBlank(queryName, "query name cannot be blank");
+        Validate.notNull(config, "materialized view config cannot be null");
+        this.queryName = queryName;
+        this.viewName = queryName + VIEW_SUFFIX;
+        this.shadowName = queryName + SHADOW_SUFFIX;
+        this.config = config;
+    }
+
+    /**
+     * Gets composite id of the materialized query.
+     *
+     * @return query composite id
+     */
+    public String getQueryName() {
+        return queryName;
+    }
+
+    /**
+     * Gets name of the collection that contains materialized result.
+     *
+     * @return view collection name
+     */
+    public String getViewName() {
+        return viewName;
+    }
+
+    /**
+     * Gets name of the collection the pipeline writes to before it's renamed to the view collection.
+     *
+     * @return shadow collection name
+     */
+    public String getShadowName() {
+        return shadowName;
+    }
+
+    public MaterializedViewConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Checks whether the view can be queried instead of the source collection.
+     *
+     * @return true if the view was materialized and isn't older than max staleness, otherwise false
+     */
+    public boolean isAvailable() {
+        return lastRefreshTime > 0 && (config.getMaxStaleness() == 0 || getStaleness() <= config.getMaxStaleness());
+    }
+
+    /**
+     * Materializes the view, concurrent refreshes are performed one by one.
+     *
+     * @param materializer performs the pipeline into the shadow collection and renames it to the view collection
+     */
+    public synchronized void refresh(Consumer<MaterializedView> materializer) {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        try {
+            materializer.accept(this);
+        } catch (RuntimeException e) {
+            failureCount.incrementAndGet();
+            throw e;
+        }
+        lastRefreshDuration = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+        lastRefreshTime = System.currentTimeMillis();
+        refreshCount.incrementAndGet();
+    }
+
+    /**
+     * Gets interval between refreshes.
+     *
+     * @return refresh interval in milliseconds
+     */
+    public long getRefreshInterval() {
+        return config.getRefreshInterval();
+    }
+
+    /**
+     * Gets age of the materialized result.
+     *
+     * @return time since the last successful refresh in milliseconds, -1 if the view wasn't materialized yet
+     */
+    public long getStaleness() {
+        long refreshTime = lastRefreshTime;
+        return refreshTime > 0 ? System.currentTimeMillis() - refreshTime : -1;
+    }
+
+    /**
+     * Gets time when the view was refreshed last time.
+     *
+     * @return time in milliseconds, 0 if the view wasn't materialized yet
+     */
+    public long getLastRefreshTime() {
+        return lastRefreshTime;
+    }
+
+    /**
+     * Gets duration of the last successful refresh.
+     *
+     * @return duration in milliseconds
+     */
+    public long getLastRefreshDuration() {
+        return lastRefreshDuration;
+    }
+
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("queryName", queryName)
+                .append("viewName", viewName)
+                .append("refreshInterval", getRefreshInterval())
+                .append("staleness", getStaleness())
+                .append("lastRefreshDuration", lastRefreshDuration)
+                .append("refreshCount", refreshCount)
+                .append("failureCount", failureCount)
+                .toString();
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.cache;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Settings of materialized aggregation query, see &lt;materialize/&gt; element in query.xsd schema. Immutable.
+ */
+public class MaterializedViewConfig {
+
+    private final long refreshInterval;
+    private final long maxStaleness;
+
+    private MaterializedViewConfig(Builder builder) {
+        this.refreshInterval = builder.refreshInterval;
+        this.maxStaleness = builder.maxStaleness;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Gets interval between refreshes of the materialized collection in milliseconds.
+     *
+     * @return refresh interval in milliseconds
+     */
+    public long getRefreshInterval() {
+        return refreshInterval;
+    }
+
+    /**
+     * Gets maximum age of the materialized collection in milliseconds, older collection isn't used
+     * and the query is performed against the source collection until the next successful refresh.
+     *
+     * @return max staleness in milliseconds, 0 if age of the materialized collection isn't limited
+     */
+    public long getMaxStaleness() {
+        return maxStaleness;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MaterializedViewConfig)) {
+            return false;
+        }
+        MaterializedViewConfig that = (MaterializedViewConfig) o;
+        return new EqualsBuilder()
+                .append(refreshInterval, that.refreshInterval)
+                .append(maxStaleness, that.maxStaleness)
+                .isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder()
+                .append(refreshInterval)
+                .append(maxStaleness)
+                .toHashCode();
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("refreshInterval", refreshInterval)
+                .append("maxStaleness", maxStaleness)
+                .toString();
+    }
+
+    public static class Builder {
+        private long refreshInterval;
+        private long maxStaleness;
+
+        public Builder refreshInterval(long duration, TimeUnit unit) {
+            Validate.isTrue(duration > 0, "materialized view refresh interval must be gt 0");
+            this.refreshInterval = unit.toMillis(duration);
+            return this;
+        }
+
+        public Builder maxStaleness(long duration, TimeUnit unit) {
+            Validate.isTrue(duration >= 0, "materialized view max staleness cannot be negative");
+            this.maxStaleness = unit.toMillis(duration);
+            return this;
+        }
+
+        public MaterializedViewConfig build() {
+            Validate.isTrue(refreshInterval > 0, "materialized view refresh interval is required");
+            Validate.isTrue(maxStaleness == 0 || maxStaleness >= refreshInterval,
+                    "materialized view max staleness must be ge refresh interval");
+            return new MaterializedViewConfig(this);
+        }
+    }
+}
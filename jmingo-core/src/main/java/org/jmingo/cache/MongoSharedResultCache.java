@@ -0,0 +1,106 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.cache;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import com.mongodb.WriteConcern;
+import org.apache.commons.lang3.Validate;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implementation of {@link SharedResultCache} that stores results in a mongo collection.
+ * Document format: {_id: key, collection: source collection, value: result, expireAt: expiration time}.
+ * Compute locks are documents with '{@value #LOCK_PREFIX}' prefix in _id, a lock is acquired by upsert that
+ * matches only expired lock, so the upsert of a held lock fails with duplicate key error. A lock document keeps
+ * the token of its owner in {@value #OWNER_FIELD} field and is removed only by the owner.
+ * Expired documents are removed by TTL index on {@value #EXPIRE_AT_FIELD} field that should be created with
+ * expireAfterSeconds = 0, also the index on {@value #COLLECTION_FIELD} field is used for invalidation.
+ */
+public class MongoSharedResultCache extends SharedResultCache {
+
+    public static final String COLLECTION_FIELD = "collection";
+    public static final String VALUE_FIELD = "value";
+    public static final String EXPIRE_AT_FIELD = "expireAt";
+    public static final String LOCK_PREFIX = "lock:";
+    public static final String OWNER_FIELD = "owner";
+
+    private static final String ID_FIELD = "_id";
+
+    private final DBCollection dbCollection;
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param dbCollection the collection to store results
+     * @param lockTimeout  the maximum time a node holds the compute lock
+     * @param unit         the time unit of lock timeout
+     */
+    public MongoSharedResultCache(DBCollection dbCollection, long lockTimeout, TimeUnit unit) {
+        super(lockTimeout, unit);
+        Validate.notNull(dbCollection, "dbCollection cannot be null");
+        this.dbCollection = dbCollection;
+    }
+
+    @Override
+    protected DBObject find(String key) {
+        DBObject entry = dbCollection.findOne(new BasicDBObject(ID_FIELD, key)
+                        // TTL monitor removes expired documents periodically, not at expiration time
+                        .append(EXPIRE_AT_FIELD, new BasicDBObject("$gt", new Date())),
+                new BasicDBObject(VALUE_FIELD, 1));
+        return entry != null ? (DBObject) entry.get(VALUE_FIELD) : null;
+    }
+
+    @Override
+    protected void store(String key, String collectionName, DBObject value, long ttl) {
+        dbCollection.update(new BasicDBObject(ID_FIELD, key), new BasicDBObject(ID_FIELD, key)
+                        .append(COLLECTION_FIELD, collectionName)
+                        .append(VALUE_FIELD, value)
+                        .append(EXPIRE_AT_FIELD, new Date(System.currentTimeMillis() + ttl)),
+                true, false);
+    }
+
+    @Override
+    protected boolean tryLock(String key, String owner, long lockTimeout) {
+        Date now = new Date();
+        try {
+            dbCollection.update(new BasicDBObject(ID_FIELD, LOCK_PREFIX + key)
+                            .append(EXPIRE_AT_FIELD, new BasicDBObject("$lt", now)),
+                    new BasicDBObject("$set", new BasicDBObject(EXPIRE_AT_FIELD,
+                            new Date(now.getTime() + lockTimeout)).append(OWNER_FIELD, owner)),
+                    true, false, WriteConcern.ACKNOWLEDGED);
+            return true;
+        } catch (MongoException.DuplicateKey e) {
+            // the lock is held by another node
+            return false;
+        }
+    }
+
+    @Override
+    protected void unlock(String key, String owner) {
+        // the expired lock could be taken by another node
+        dbCollection.remove(new BasicDBObject(ID_FIELD, LOCK_PREFIX + key).append(OWNER_FIELD, owner));
+    }
+
+    @Override
+    public void invalidate(String collectionName) {
+        dbCollection.remove(new BasicDBObject(COLLECTION_FIELD, collectionName));
+    }
+}
@@ -0,0 +1,403 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.cache;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.Maps;
+import net.jcip.annotations.ThreadSafe;
+import org.apache.commons.lang3.Validate;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Cache that stores values as byte arrays in off-heap memory, see {@link SlabAllocator}.
+ * Only keys and a compact index of primitive arrays are kept on the heap, so the cache doesn't
+ * increase GC pauses regardless of the number of stored bytes.
+ * <p>
+ * Each size class of the allocator has own LRU list, a new value evicts the least recently used entries
+ * of the same class. If the class has nothing to evict then a slab of another class is emptied and reassigned.
+ * Values larger than the slab size aren't cached.
+ * <p>
+ * Values are optionally compressed with {@link Deflater}, a value is stored compressed only if
+ * it's at least {@link #COMPRESSION_THRESHOLD} bytes and the compressed form is smaller.
+ *
+ * @param <K> the type of keys
+ */
+@ThreadSafe
+public class OffHeapCache<K> {
+
+    public static final int DEF_SLAB_SIZE = 1024 * 1024;
+    public static final int COMPRESSION_THRESHOLD = 512;
+
+    private static final int NIL = -1;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final SlabAllocator allocator;
+    private final boolean compression;
+    private final Ticker ticker;
+
+    /* key -> entry slot */
+    private final Map<K, Integer> index = Maps.newHashMap();
+    // entry slots, a slot is reused after the entry is removed
+    private Object[] keys = new Object[16];
+    private long[] addresses = new long[16];
+    private int[] lengths = new int[16];
+    private int[] rawLengths = new int[16];
+    private long[] expirationTimes = new long[16];
+    private int[] prev = new int[16];
+    private int[] next = new int[16];
+    private int[] freeSlots = new int[16];
+    private int freeSlotCount;
+    private int slotCount;
+    // LRU list per size class
+    private final int[] heads;
+    private final int[] tails;
+
+    private long dataBytes;
+    private long rawBytes;
+    private long usedBytes;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder rejectionCount = new LongAdder();
+    private final LongAdder slabReassignmentCount = new LongAdder();
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param capacity    the maximum number of off-heap bytes
+     * @param slabSize    the size of a slab in bytes, the maximum size of a stored value
+     * @param compression true to compress stored values
+     */
+    public OffHeapCache(long capacity, int slabSize, boolean compression) {
+        this(capacity, slabSize, compression, Ticker.systemTicker());
+    }
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param capacity    the maximum number of off-heap bytes
+     * @param slabSize    the size of a slab in bytes, the maximum size of a stored value
+     * @param compression true to compress stored values
+     * @param ticker      the time source used to expire entries
+     */
+    public OffHeapCache(long capacity, int slabSize, boolean compression, Ticker ticker) {
+        Validate.notNull(ticker, "ticker cannot be null");
+        this.allocator = new SlabAllocator(capacity, slabSize);
+        this.compression = compression;
+        this.ticker = ticker;
+        this.heads = new int[allocator.sizeClassCount()];
+        this.tails = new int[allocator.sizeClassCount()];
+        Arrays.fill(heads, NIL);
+        Arrays.fill(tails, NIL);
+    }
+
+    /**
+     * Gets the value associated with the key.
+     *
+     * @param key the key
+     * @return copy of the stored value or null if there is no value or the value has expired
+     */
+    public byte[] getIfPresent(K key) {
+        byte[] stored;
+        boolean compressed;
+        int rawLength;
+        lock.lock();
+        try {
+            Integer slot = index.get(key);
+            if (slot == null) {
+                missCount.increment();
+                return null;
+            }
+            if (expirationTimes[slot] <= ticker.read()) {
+                remove(slot);
+                evictionCount.increment();
+                missCount.increment();
+                return null;
+            }
+            int sizeClass = allocator.sizeClass(lengths[slot]);
+            unlink(slot, sizeClass);
+            linkLast(slot, sizeClass);
+            stored = allocator.read(addresses[slot], lengths[slot]);
+            rawLength = rawLengths[slot];
+            compressed = rawLength != lengths[slot];
+            hitCount.increment();
+        } finally {
+            lock.unlock();
+        }
+        return compressed ? decompress(stored, rawLength) : stored;
+    }
+
+    /**
+     * Associates the value with the key.
+     *
+     * @param key              the key
+     * @param value            the value
+     * @param expireAfterWrite the time after which the entry expires
+     * @param unit             the time unit of expireAfterWrite
+     * @return true if the value was stored, false if the value is too large
+     */
+    public boolean put(K key, byte[] value, long expireAfterWrite, TimeUnit unit) {
+        Validate.notNull(key, "key cannot be null");
+        Validate.notNull(value, "value cannot be null");
+        Validate.isTrue(expireAfterWrite > 0, "expireAfterWrite must be gt 0");
+        byte[] stored = value;
+        if (compression && value.length >= COMPRESSION_THRESHOLD) {
+            byte[] compressed = compress(value);
+            if (compressed.length < value.length) {
+                stored = compressed;
+            }
+        }
+        int sizeClass = allocator.sizeClass(stored.length);
+        lock.lock();
+        try {
+            Integer existing = index.remove(key);
+            if (existing != null) {
+                release(existing);
+            }
+            if (sizeClass < 0) {
+                rejectionCount.increment();
+                return false;
+            }
+            long address = allocate(sizeClass);
+            if (address == SlabAllocator.NO_ADDRESS) {
+                rejectionCount.increment();
+                return false;
+            }
+            allocator.write(address, stored);
+            int slot = newSlot();
+            keys[slot] = key;
+            addresses[slot] = address;
+            lengths[slot] = stored.length;
+            rawLengths[slot] = value.length;
+            expirationTimes[slot] = ticker.read() + unit.toNanos(expireAfterWrite);
+            linkLast(slot, sizeClass);
+            index.put(key, slot);
+            dataBytes += stored.length;
+            rawBytes += value.length;
+            usedBytes += allocator.chunkSize(sizeClass);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Discards the value associated with the key.
+     *
+     * @param key the key
+     */
+    public void invalidate(K key) {
+        lock.lock();
+        try {
+            Integer slot = index.remove(key);
+            if (slot != null) {
+                release(slot);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Discards all values, allocated slabs are kept for reuse.
+     */
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            for (Integer slot : index.values()) {
+                release(slot);
+            }
+            index.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets number of entries in the cache, expired entries which haven't been removed yet are included.
+     *
+     * @return number of entries
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return index.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets statistics of the cache.
+     *
+     * @return statistics
+     */
+    public OffHeapCacheStats stats() {
+        lock.lock();
+        try {
+            return OffHeapCacheStats.builder()
+                    .cacheStats(new CacheStats(hitCount.sum(), missCount.sum(), evictionCount.sum()))
+                    .rejectionCount(rejectionCount.sum())
+                    .slabReassignmentCount(slabReassignmentCount.sum())
+                    .entryCount(index.size())
+                    .capacity(allocator.capacity())
+                    .allocatedBytes(allocator.allocatedBytes())
+                    .usedBytes(usedBytes)
+                    .freeBytes(allocator.freeBytes())
+                    .dataBytes(dataBytes)
+                    .rawBytes(rawBytes)
+                    .build();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long allocate(int sizeClass) {
+        long address = allocator.allocate(sizeClass);
+        if (address != SlabAllocator.NO_ADDRESS) {
+            return address;
+        }
+        // evict LRU entry of the same class, its chunk can be reused
+        int eldest = heads[sizeClass];
+        if (eldest != NIL) {
+            index.remove(keys[eldest]);
+            release(eldest);
+            evictionCount.increment();
+            return allocator.allocate(sizeClass);
+        }
+        // the class has no memory at all, take a slab from another class
+        int slab = allocator.selectVictimSlab(sizeClass);
+        if (slab < 0) {
+            return SlabAllocator.NO_ADDRESS;
+        }
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (keys[slot] != null && SlabAllocator.slab(addresses[slot]) == slab) {
+                index.remove(keys[slot]);
+                release(slot);
+                evictionCount.increment();
+            }
+        }
+        allocator.reassign(slab, sizeClass);
+        slabReassignmentCount.increment();
+        return allocator.allocate(sizeClass);
+    }
+
+    /**
+     * Releases memory of the entry. The entry must be removed from the index by the caller.
+     */
+    private void release(int slot) {
+        int sizeClass = allocator.sizeClass(lengths[slot]);
+        unlink(slot, sizeClass);
+        allocator.free(addresses[slot]);
+        dataBytes -= lengths[slot];
+        rawBytes -= rawLengths[slot];
+        usedBytes -= allocator.chunkSize(sizeClass);
+        keys[slot] = null;
+        if (freeSlotCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlotCount * 2);
+        }
+        freeSlots[freeSlotCount++] = slot;
+    }
+
+    private void remove(int slot) {
+        index.remove(keys[slot]);
+        release(slot);
+    }
+
+    private int newSlot() {
+        if (freeSlotCount > 0) {
+            return freeSlots[--freeSlotCount];
+        }
+        if (slotCount == keys.length) {
+            int capacity = slotCount * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            addresses = Arrays.copyOf(addresses, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            rawLengths = Arrays.copyOf(rawLengths, capacity);
+            expirationTimes = Arrays.copyOf(expirationTimes, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+            next = Arrays.copyOf(next, capacity);
+        }
+        return slotCount++;
+    }
+
+    private void linkLast(int slot, int sizeClass) {
+        prev[slot] = tails[sizeClass];
+        next[slot] = NIL;
+        if (tails[sizeClass] == NIL) {
+            heads[sizeClass] = slot;
+        } else {
+            next[tails[sizeClass]] = slot;
+        }
+        tails[sizeClass] = slot;
+    }
+
+    private void unlink(int slot, int sizeClass) {
+        if (prev[slot] == NIL) {
+            heads[sizeClass] = next[slot];
+        } else {
+            next[prev[slot]] = next[slot];
+        }
+        if (next[slot] == NIL) {
+            tails[sizeClass] = prev[slot];
+        } else {
+            prev[next[slot]] = prev[slot];
+        }
+    }
+
+    private static byte[] compress(byte[] value) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(value);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(value.length / 2);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] decompress(byte[] value, int rawLength) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(value);
+            byte[] raw = new byte[rawLength];
+            int length = 0;
+            while (length < rawLength && !inflater.finished()) {
+                length += inflater.inflate(raw, length, rawLength - length);
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("corrupted off-heap cache entry", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
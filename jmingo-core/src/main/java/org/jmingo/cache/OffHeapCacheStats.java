@@ -0,0 +1,241 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.cache;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * Statistics of {@link OffHeapCache}: usage of the cache and the state of off-heap memory.
+ * This class is immutable and can be shared between threads without any synchronization.
+ */
+public class OffHeapCacheStats {
+
+    private final CacheStats cacheStats;
+    private final long rejectionCount;
+    private final long slabReassignmentCount;
+    private final int entryCount;
+    private final long capacity;
+    private final long allocatedBytes;
+    private final long usedBytes;
+    private final long freeBytes;
+    private final long dataBytes;
+    private final long rawBytes;
+
+    private OffHeapCacheStats(Builder builder) {
+        this.cacheStats = builder.cacheStats;
+        this.rejectionCount = builder.rejectionCount;
+        this.slabReassignmentCount = builder.slabReassignmentCount;
+        this.entryCount = builder.entryCount;
+        this.capacity = builder.capacity;
+        this.allocatedBytes = builder.allocatedBytes;
+        this.usedBytes = builder.usedBytes;
+        this.freeBytes = builder.freeBytes;
+        this.dataBytes = builder.dataBytes;
+        this.rawBytes = builder.rawBytes;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Gets hit, miss and eviction counts.
+     *
+     * @return cache statistics
+     */
+    public CacheStats getCacheStats() {
+        return cacheStats;
+    }
+
+    /**
+     * Gets the number of values that weren't stored because they are too large or there was no memory.
+     *
+     * @return rejection count
+     */
+    public long getRejectionCount() {
+        return rejectionCount;
+    }
+
+    /**
+     * Gets the number of times a slab was taken from one size class and given to another.
+     *
+     * @return slab reassignment count
+     */
+    public long getSlabReassignmentCount() {
+        return slabReassignmentCount;
+    }
+
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Gets the maximum number of off-heap bytes.
+     *
+     * @return capacity in bytes
+     */
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the number of bytes in allocated slabs.
+     *
+     * @return allocated bytes
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * Gets the number of bytes in chunks occupied by entries.
+     *
+     * @return used bytes
+     */
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Gets the number of bytes in allocated slabs available for new entries.
+     *
+     * @return free bytes
+     */
+    public long getFreeBytes() {
+        return freeBytes;
+    }
+
+    /**
+     * Gets the number of stored bytes, after compression.
+     *
+     * @return stored bytes
+     */
+    public long getDataBytes() {
+        return dataBytes;
+    }
+
+    /**
+     * Gets the number of bytes of stored values before compression.
+     *
+     * @return raw bytes
+     */
+    public long getRawBytes() {
+        return rawBytes;
+    }
+
+    /**
+     * Gets the share of allocated memory that is neither free nor occupied by data: unused tails of chunks
+     * and slabs.
+     *
+     * @return fragmentation ratio between 0 and 1
+     */
+    public double getFragmentation() {
+        long occupied = allocatedBytes - freeBytes;
+        return occupied <= 0 ? 0 : 1 - (double) dataBytes / occupied;
+    }
+
+    /**
+     * Gets the ratio of stored bytes to raw bytes.
+     *
+     * @return compression ratio, 1.0 if nothing is stored or values aren't compressed
+     */
+    public double getCompressionRatio() {
+        return rawBytes == 0 ? 1.0 : (double) dataBytes / rawBytes;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("cacheStats", cacheStats)
+                .append("rejectionCount", rejectionCount)
+                .append("slabReassignmentCount", slabReassignmentCount)
+                .append("entryCount", entryCount)
+                .append("capacity", capacity)
+                .append("allocatedBytes", allocatedBytes)
+                .append("usedBytes", usedBytes)
+                .append("freeBytes", freeBytes)
+                .append("dataBytes", dataBytes)
+                .append("rawBytes", rawBytes)
+                .toString();
+    }
+
+    public static class Builder {
+        private CacheStats cacheStats = CacheStats.empty();
+        private long rejectionCount;
+        private long slabReassignmentCount;
+        private int entryCount;
+        private long capacity;
+        private long allocatedBytes;
+        private long usedBytes;
+        private long freeBytes;
+        private long dataBytes;
+        private long rawBytes;
+
+        public Builder cacheStats(CacheStats val) {
+            this.cacheStats = val;
+            return this;
+        }
+
+        public Builder rejectionCount(long val) {
+            this.rejectionCount = val;
+            return this;
+        }
+
+        public Builder slabReassignmentCount(long val) {
+            this.slabReassignmentCount = val;
+            return this;
+        }
+
+        public Builder entryCount(int val) {
+            this.entryCount = val;
+            return this;
+        }
+
+        public Builder capacity(long val) {
+            this.capacity = val;
+            return this;
+        }
+
+        public Builder allocatedBytes(long val) {
+            this.allocatedBytes = val;
+            return this;
+        }
+
+        public Builder usedBytes(long val) {
+            this.usedBytes = val;
+            return this;
+        }
+
+        public Builder freeBytes(long val) {
+            this.freeBytes = val;
+            return this;
+        }
+
+        public Builder dataBytes(long val) {
+            this.dataBytes = val;
+            return this;
+        }
+
+        public Builder rawBytes(long val) {
+            this.rawBytes = val;
+            return this;
+        }
+
+        public OffHeapCacheStats build() {
+            return new OffHeapCacheStats(this);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.cache;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.DefaultDBDecoder;
+import com.mongodb.DefaultDBEncoder;
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Cache of raw query results stored as BSON in off-heap memory, see {@link OffHeapCache}.
+ * Results are kept in the form they were read from mongo and are converted to objects on every hit,
+ * so cached results are never shared between callers.
+ * <p>
+ * Results are invalidated per collection: keys include a generation of the collection that is incremented
+ * on {@link #invalidate(String)}, so stale entries become unreachable and are evicted as least recently used.
+ */
+public class OffHeapResultCache {
+
+    private static final String VALUE_FIELD = "v";
+
+    private final OffHeapCache<Object> cache;
+    private final ConcurrentMap<String, AtomicLong> generations = Maps.newConcurrentMap();
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OffHeapResultCache.class);
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param capacity    the maximum number of off-heap bytes
+     * @param slabSize    the size of a slab in bytes, the maximum size of a stored result
+     * @param compression true to compress stored results
+     */
+    public OffHeapResultCache(long capacity, int slabSize, boolean compression) {
+        this(new OffHeapCache<>(capacity, slabSize, compression));
+    }
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param cache the cache to store encoded results
+     */
+    public OffHeapResultCache(OffHeapCache<Object> cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Gets cached result for the key or loads the result and puts it in the cache.
+     *
+     * @param key            the key of the result, must be unique within the collection
+     * @param collectionName the name of the collection the result was read from
+     * @param ttl            the time to live of the result in milliseconds
+     * @param loader         the loader to read raw result from mongo if there is no cached result
+     * @param converter      the converter of a raw result, is called with null if the loader has returned null
+     * @param <R>            the type of converted result
+     * @return the converted result
+     */
+    public <R> R get(Object key, String collectionName, long ttl, Supplier<DBObject> loader,
+                     Function<DBObject, R> converter) {
+        Validate.notNull(key, "cache key cannot be null");
+        Validate.notBlank(collectionName, "collection name cannot be blank");
+        Key cacheKey = new Key(collectionName, generation(collectionName).get(), key);
+        byte[] bytes = cache.getIfPresent(cacheKey);
+        if (bytes != null) {
+            LOGGER.debug("off-heap cache hit: {}", cacheKey);
+            return converter.apply(decode(bytes));
+        }
+        DBObject result = loader.get();
+        store(cacheKey, result, ttl);
+        return converter.apply(result);
+    }
+
+    /**
+     * Gets cached results for the keys and loads results that aren't cached with a single call of the loader.
+     *
+     * @param keys           the keys of results, must be unique within the collection
+     * @param collectionName the name of the collection the results were read from
+     * @param ttl            the time to live of results in milliseconds
+     * @param loader         the loader to read raw results from mongo for keys that aren't cached, returns map:
+     *                       key - the key, value - raw result, keys without result are missing
+     * @return map: key - the key, value - raw result or null if there is no result
+     */
+    public Map<Object, DBObject> getAll(Collection<?> keys, String collectionName, long ttl,
+                                        Function<List<Object>, Map<Object, DBObject>> loader) {
+        Validate.notNull(keys, "cache keys cannot be null");
+        Validate.notBlank(collectionName, "collection name cannot be blank");
+        long generation = generation(collectionName).get();
+        Map<Object, DBObject> result = Maps.newLinkedHashMap();
+        List<Object> missing = Lists.newArrayList();
+        for (Object key : keys) {
+            byte[] bytes = cache.getIfPresent(new Key(collectionName, generation, key));
+            if (bytes != null) {
+                result.put(key, decode(bytes));
+            } else {
+                missing.add(key);
+            }
+        }
+        if (!missing.isEmpty()) {
+            Map<Object, DBObject> loaded = loader.apply(missing);
+            for (Object key : missing) {
+                DBObject value = loaded.get(key);
+                store(new Key(collectionName, generation, key), value, ttl);
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Discards cached results of the collection.
+     *
+     * @param collectionName the collection name
+     */
+    public void invalidate(String collectionName) {
+        generation(collectionName).incrementAndGet();
+    }
+
+    /**
+     * Discards all cached results.
+     */
+    public void invalidateAll() {
+        generations.values().forEach(AtomicLong::incrementAndGet);
+        cache.invalidateAll();
+    }
+
+    /**
+     * Gets statistics of the cache.
+     *
+     * @return statistics
+     */
+    public OffHeapCacheStats stats() {
+        return cache.stats();
+    }
+
+    private AtomicLong generation(String collectionName) {
+        AtomicLong generation = generations.get(collectionName);
+        if (generation == null) {
+            generation = generations.computeIfAbsent(collectionName, name -> new AtomicLong());
+        }
+        return generation;
+    }
+
+    private void store(Key key, DBObject result, long ttl) {
+        byte[] bytes;
+        try {
+            // wrap the result to store null results and lists as BSON documents
+            bytes = new DefaultDBEncoder().encode(new BasicDBObject(VALUE_FIELD, result));
+        } catch (RuntimeException e) {
+            LOGGER.warn("failed to encode result, result isn't cached: " + key, e);
+            return;
+        }
+        if (!cache.put(key, bytes, ttl, TimeUnit.MILLISECONDS)) {
+            LOGGER.debug("result isn't cached, size: {} bytes, key: {}", bytes.length, key);
+        }
+    }
+
+    private static DBObject decode(byte[] bytes) {
+        DBObject wrapper = new DefaultDBDecoder().decode(bytes, (DBCollection) null);
+        return (DBObject) wrapper.get(VALUE_FIELD);
+    }
+
+    private static final class Key {
+        private final String collectionName;
+        private final long generation;
+        private final Object key;
+        private final int hashCode;
+
+        private Key(String collectionName, long generation, Object key) {
+            this.collectionName = collectionName;
+            this.generation = generation;
+            this.key = key;
+            this.hashCode = new HashCodeBuilder()
+                    .append(collectionName)
+                    .append(generation)
+                    .append(key)
+                    .toHashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) o;
+            return new EqualsBuilder()
+                    .append(generation, that.generation)
+                    .append(collectionName, that.collectionName)
+                    .append(key, that.key)
+                    .isEquals();
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public String toString() {
+            return new ToStringBuilder(this)
+                    .append("collectionName", collectionName)
+                    .append("generation", generation)
+                    .append("key", key)
+                    .toString();
+        }
+    }
+}
@@ -0,0 +1,238 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.cache;
+
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import net.jcip.annotations.ThreadSafe;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+import org.jmingo.util.QueryUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Short-lived cache of speculatively fetched next pages of paginated queries. After a page is served
+ * the next page is fetched in background and kept until it's requested or expires; a prefetched page is
+ * served only once. The number of concurrent prefetches is bounded, prefetches above the bound are dropped.
+ * Prefetched pages are dropped when the source collection is changed.
+ */
+@ThreadSafe
+public class PrefetchCache {
+
+    private final ConcurrentMap<QueryCacheKey, Entry> entries = Maps.newConcurrentMap();
+    private final ThreadPoolExecutor executor;
+    private final int maxEntries;
+    private final LongAdder prefetchCount = new LongAdder();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+
+    public static final int DEF_MAX_ENTRIES = 1000;
+
+    private static final long THREAD_KEEP_ALIVE = 60;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PrefetchCache.class);
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param concurrency the maximum number of concurrent prefetches
+     */
+    public PrefetchCache(int concurrency) {
+        this(concurrency, DEF_MAX_ENTRIES);
+    }
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param concurrency the maximum number of concurrent prefetches
+     * @param maxEntries  the maximum number of prefetched pages
+     */
+    public PrefetchCache(int concurrency, int maxEntries) {
+        Validate.isTrue(concurrency > 0, "prefetch concurrency must be gt 0");
+        Validate.isTrue(maxEntries > 0, "max entries must be gt 0");
+        this.maxEntries = maxEntries;
+        this.executor = new ThreadPoolExecutor(concurrency, concurrency, THREAD_KEEP_ALIVE, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(concurrency),
+                new ThreadFactoryBuilder().setNameFormat("jmingo-prefetch-%d").setDaemon(true).build());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Takes the prefetched page, the page is removed from the cache. Waits if the page is being fetched.
+     *
+     * @param key the key of the page
+     * @return prefetched page or null if the page wasn't prefetched, is expired or failed to fetch
+     */
+    public Object take(QueryCacheKey key) {
+        Entry entry = entries.remove(key);
+        if (entry == null || entry.isExpired(System.currentTimeMillis())) {
+            missCount.increment();
+            return null;
+        }
+        try {
+            Object value = entry.future.join();
+            if (value != null) {
+                hitCount.increment();
+                return value;
+            }
+        } catch (RuntimeException e) {
+            LOGGER.debug("failed to prefetch page of query: '{}': {}", key.getCompositeId(), e.getMessage());
+        }
+        missCount.increment();
+        return null;
+    }
+
+    /**
+     * Fetches the page in background unless the page is already prefetched or the concurrency limit is reached.
+     *
+     * @param key      the key of the page
+     * @param ttl      the time to keep the page in milliseconds
+     * @param supplier fetches the page
+     */
+    public void prefetch(QueryCacheKey key, long ttl, Supplier<Object> supplier) {
+        long now = System.currentTimeMillis();
+        if (entries.size() >= maxEntries) {
+            entries.values().removeIf(entry -> entry.isExpired(now));
+            if (entries.size() >= maxEntries) {
+                rejectedCount.increment();
+                return;
+            }
+        }
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        Entry entry = new Entry(future, now + ttl);
+        Entry current = entries.putIfAbsent(key, entry);
+        if (current != null && !current.isExpired(now)) {
+            return;
+        }
+        if (current != null && !entries.replace(key, current, entry)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(supplier.get());
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+            prefetchCount.increment();
+        } catch (RejectedExecutionException e) {
+            entries.remove(key, entry);
+            rejectedCount.increment();
+        }
+    }
+
+    /**
+     * Drops prefetched pages of queries to the collection.
+     *
+     * @param collectionName the collection name
+     */
+    public void invalidate(String collectionName) {
+        entries.keySet().removeIf(key ->
+                StringUtils.equals(QueryUtils.getCollectionName(key.getCompositeId()), collectionName));
+    }
+
+    /**
+     * Drops all prefetched pages.
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * Stops background prefetches and drops all prefetched pages.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the number of started prefetches.
+     *
+     * @return prefetch count
+     */
+    public long getPrefetchCount() {
+        return prefetchCount.sum();
+    }
+
+    /**
+     * Gets the number of pages served from the cache.
+     *
+     * @return hit count
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Gets the number of requested pages that weren't prefetched.
+     *
+     * @return miss count
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Gets the number of prefetches dropped because of the concurrency or size limit.
+     *
+     * @return rejected count
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * Gets the ratio of pages served from the cache to all requested pages of queries with prefetch.
+     *
+     * @return hit rate or 0 if no pages were requested
+     */
+    public double getHitRate() {
+        long hits = hitCount.sum();
+        long total = hits + missCount.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    private static final class Entry {
+        private final CompletableFuture<Object> future;
+        private final long expirationTime;
+
+        private Entry(CompletableFuture<Object> future, long expirationTime) {
+            this.future = future;
+            this.expirationTime = expirationTime;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expirationTime;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.cache;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Settings of speculative prefetch of the next page of a paginated query, see &lt;prefetch/&gt; element
+ * in query.xsd schema. Immutable.
+ */
+public class PrefetchConfig {
+
+    public static final String DEF_SKIP_PARAMETER = "skip";
+    public static final String DEF_LIMIT_PARAMETER = "limit";
+    /* default time in seconds a prefetched page is kept */
+    public static final int DEF_TTL = 30;
+
+    private final String skipParameter;
+    private final String limitParameter;
+    private final long ttl;
+
+    private PrefetchConfig(Builder builder) {
+        this.skipParameter = builder.skipParameter;
+        this.limitParameter = builder.limitParameter;
+        this.ttl = builder.ttl;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Gets name of the query parameter that contains number of skipped documents.
+     *
+     * @return skip parameter name
+     */
+    public String getSkipParameter() {
+        return skipParameter;
+    }
+
+    /**
+     * Gets name of the query parameter that contains page size.
+     *
+     * @return limit parameter name
+     */
+    public String getLimitParameter() {
+        return limitParameter;
+    }
+
+    /**
+     * Gets time a prefetched page is kept in milliseconds.
+     *
+     * @return time to live in milliseconds
+     */
+    public long getTtl() {
+        return ttl;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PrefetchConfig)) {
+            return false;
+        }
+        PrefetchConfig that = (PrefetchConfig) o;
+        return new EqualsBuilder()
+                .append(skipParameter, that.skipParameter)
+                .append(limitParameter, that.limitParameter)
+                .append(ttl, that.ttl)
+                .isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder()
+                .append(skipParameter)
+                .append(limitParameter)
+                .append(ttl)
+                .toHashCode();
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("skipParameter", skipParameter)
+                .append("limitParameter", limitParameter)
+                .append("ttl", ttl)
+                .toString();
+    }
+
+    public static class Builder {
+        private String skipParameter = DEF_SKIP_PARAMETER;
+        private String limitParameter = DEF_LIMIT_PARAMETER;
+        private long ttl = TimeUnit.SECONDS.toMillis(DEF_TTL);
+
+        public Builder skipParameter(String val) {
+            Validate.notBlank(val, "skip parameter cannot be blank");
+            this.skipParameter = val;
+            return this;
+        }
+
+        public Builder limitParameter(String val) {
+            Validate.notBlank(val, "limit parameter cannot be blank");
+            this.limitParameter = val;
+            return this;
+        }
+
+        public Builder ttl(long duration, TimeUnit unit) {
+            Validate.isTrue(duration > 0, "prefetch ttl must be gt 0");
+            this.ttl = unit.toMillis(duration);
+            return this;
+        }
+
+        public PrefetchConfig build() {
+            return new PrefetchConfig(this);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.cache;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Key of a cached named query result. Consists of the query composite id, normalized query parameters,
+ * the type of result objects and the kind of result (single object or list). Immutable.
+ * <p>
+ * Parameters are normalized so that logically equal parameters produce equal keys: maps are sorted by key,
+ * arrays are turned into lists and collections are copied.
+ */
+public class QueryCacheKey {
+
+    private final String compositeId;
+    private final Map<String, Object> parameters;
+    private final Class<?> type;
+    private final boolean list;
+    private final int hashCode;
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param compositeId the query composite id
+     * @param parameters  the query parameters, can be null
+     * @param type        the type of result objects
+     * @param list        true if the result is a list of objects
+     */
+    public QueryCacheKey(String compositeId, Map<String, Object> parameters, Class<?> type, boolean list) {
+        Validate.notBlank(compositeId, "composite id cannot be null or empty");
+        Validate.notNull(type, "type cannot be null");
+        this.compositeId = compositeId;
+        this.parameters = normalize(parameters);
+        this.type = type;
+        this.list = list;
+        this.hashCode = Objects.hash(compositeId, this.parameters, type, list);
+    }
+
+    public String getCompositeId() {
+        return compositeId;
+    }
+
+    /**
+     * Gets normalized parameters.
+     *
+     * @return unmodifiable sorted map of parameters
+     */
+    public Map<String, Object> getParameters() {
+        return parameters;
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    public boolean isList() {
+        return list;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof QueryCacheKey)) {
+            return false;
+        }
+        QueryCacheKey that = (QueryCacheKey) o;
+        return hashCode == that.hashCode
+                && list == that.list
+                && compositeId.equals(that.compositeId)
+                && type.equals(that.type)
+                && parameters.equals(that.parameters);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("compositeId", compositeId)
+                .append("parameters", parameters)
+                .append("type", type)
+                .append("list", list)
+                .toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> normalize(Map<String, Object> source) {
+        if (source == null || source.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return (Map<String, Object>) normalizeValue(source);
+    }
+
+    private static Object normalizeValue(Object value) {
+        if (value instanceof Map) {
+            Map<String, Object> sorted = new TreeMap<>();
+            ((Map<?, ?>) value).forEach((key, val) -> sorted.put(String.valueOf(key), normalizeValue(val)));
+            return Collections.unmodifiableMap(sorted);
+        }
+        if (value instanceof Set) {
+            Set<Object> set = new HashSet<>();
+            ((Set<?>) value).forEach(item -> set.add(normalizeValue(item)));
+            return Collections.unmodifiableSet(set);
+        }
+        if (value instanceof Collection) {
+            List<Object> items = new ArrayList<>();
+            ((Collection<?>) value).forEach(item -> items.add(normalizeValue(item)));
+            return Collections.unmodifiableList(items);
+        }
+        if (value != null && value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            List<Object> items = new ArrayList<>(length);
+            for (int i = 0; i < length; i++) {
+                items.add(normalizeValue(Array.get(value, i)));
+            }
+            return Collections.unmodifiableList(items);
+        }
+        return value;
+    }
+}
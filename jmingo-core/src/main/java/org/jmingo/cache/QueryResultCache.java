@@ -0,0 +1,326 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.cache;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+import org.jmingo.util.QueryUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Cache of named query results. Each cached query has own region with settings from {@link CacheConfig},
+ * regions are created lazily and recreated if settings of the query were changed, for instance when
+ * query set was reloaded.
+ * <p>
+ * Results of queries are invalidated per collection, all regions of queries that use the collection are
+ * cleared when {@link #invalidate(String)} is called. A result that was loaded concurrently
+ * with invalidation isn't cached.
+ * <p>
+ * Lists are copied when put in the cache and when returned from the cache, however the list items are shared.
+ * <p>
+ * If refresh-ahead is enabled for a query (see {@link CacheConfig#getRefreshAhead()}) then an entry that is accessed
+ * close to its expiration is recomputed using the refresh executor while callers keep getting the current value.
+ * An expired entry is returned as well until max-staleness is exceeded. Number of refreshes running at the same time
+ * is limited, a refresh that cannot be started because of the limit is skipped and is tried again on the next access.
+ */
+public class QueryResultCache {
+
+    private static final Object NULL_VALUE = new Object();
+
+    private final ConcurrentMap<String, Region> regions = Maps.newConcurrentMap();
+    private final Ticker ticker;
+    private final Executor refreshExecutor;
+    private final Semaphore refreshPermits;
+
+    public static final int DEF_MAX_CONCURRENT_REFRESHES = 2;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueryResultCache.class);
+
+    /**
+     * Default constructor. Refreshes are performed in the thread that has accessed an entry.
+     */
+    public QueryResultCache() {
+        this(Ticker.systemTicker());
+    }
+
+    /**
+     * Constructor with parameters. Refreshes are performed in the thread that has accessed an entry.
+     *
+     * @param ticker the time source used to expire entries
+     */
+    public QueryResultCache(Ticker ticker) {
+        this(ticker, Runnable::run, DEF_MAX_CONCURRENT_REFRESHES);
+    }
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param ticker                 the time source used to expire entries
+     * @param refreshExecutor        the executor to refresh entries in background
+     * @param maxConcurrentRefreshes the maximum number of refreshes running at the same time
+     */
+    public QueryResultCache(Ticker ticker, Executor refreshExecutor, int maxConcurrentRefreshes) {
+        Validate.notNull(ticker, "ticker cannot be null");
+        Validate.notNull(refreshExecutor, "refresh executor cannot be null");
+        Validate.isTrue(maxConcurrentRefreshes > 0, "max concurrent refreshes must be gt 0");
+        this.ticker = ticker;
+        this.refreshExecutor = refreshExecutor;
+        this.refreshPermits = new Semaphore(maxConcurrentRefreshes);
+    }
+
+    /**
+     * Gets cached result for the key or loads the result and puts it in the cache.
+     *
+     * @param key    the cache key
+     * @param config the cache settings of the query
+     * @param loader the loader to perform the query if there is no cached result
+     * @param <R>    the type of result
+     * @return the query result
+     */
+    @SuppressWarnings("unchecked")
+    public <R> R get(QueryCacheKey key, CacheConfig config, Supplier<R> loader) {
+        Validate.notNull(key, "cache key cannot be null");
+        Validate.notNull(config, "cache config cannot be null");
+        Region region = getRegion(key.getCompositeId(), config);
+        CachedResult cached = region.cache.getIfPresent(key);
+        if (cached != null) {
+            LOGGER.debug("cache hit: {}", key);
+            if (region.refreshAfter > 0 && ticker.read() - cached.loadTime >= region.refreshAfter) {
+                scheduleRefresh(region, key, loader);
+            }
+            return (R) fromCache(cached.value);
+        }
+        long generation = region.generation.get();
+        long loadTime = ticker.read();
+        R result = loader.get();
+        put(region, key, new CachedResult(toCache(result), loadTime), generation);
+        return result;
+    }
+
+    /**
+     * Discards cached results of all queries that use the given collection.
+     *
+     * @param collectionName the collection name
+     */
+    public void invalidate(String collectionName) {
+        regions.values().forEach(region -> {
+            if (StringUtils.equals(region.collectionName, collectionName)) {
+                region.invalidateAll();
+            }
+        });
+    }
+
+    /**
+     * Discards all cached results.
+     */
+    public void invalidateAll() {
+        regions.values().forEach(Region::invalidateAll);
+    }
+
+    /**
+     * Gets statistics summarized for all cached queries.
+     *
+     * @return cache statistics
+     */
+    public CacheStats stats() {
+        CacheStats stats = CacheStats.empty();
+        for (Region region : regions.values()) {
+            stats = stats.plus(region.cache.stats());
+        }
+        return stats;
+    }
+
+    /**
+     * Gets statistics of the query.
+     *
+     * @param compositeId the query composite id
+     * @return cache statistics, empty statistics if the query hasn't been cached yet
+     */
+    public CacheStats stats(String compositeId) {
+        Region region = regions.get(compositeId);
+        return region != null ? region.cache.stats() : CacheStats.empty();
+    }
+
+    /**
+     * Gets refresh statistics summarized for all cached queries.
+     *
+     * @return refresh statistics
+     */
+    public RefreshStats refreshStats() {
+        RefreshStats stats = RefreshStats.empty();
+        for (Region region : regions.values()) {
+            stats = stats.plus(region.refreshStats());
+        }
+        return stats;
+    }
+
+    /**
+     * Gets refresh statistics of the query.
+     *
+     * @param compositeId the query composite id
+     * @return refresh statistics, empty statistics if the query hasn't been cached yet
+     */
+    public RefreshStats refreshStats(String compositeId) {
+        Region region = regions.get(compositeId);
+        return region != null ? region.refreshStats() : RefreshStats.empty();
+    }
+
+    private void put(Region region, QueryCacheKey key, CachedResult result, long generation) {
+        if (region.generation.get() == generation) {
+            region.cache.put(key, result);
+            if (region.generation.get() != generation) {
+                // invalidated while the result was being put in the cache
+                region.cache.invalidate(key);
+            }
+        }
+    }
+
+    private void scheduleRefresh(Region region, QueryCacheKey key, Supplier<?> loader) {
+        if (!region.refreshing.add(key)) {
+            // the entry is already being refreshed
+            return;
+        }
+        if (!refreshPermits.tryAcquire()) {
+            region.refreshing.remove(key);
+            region.skippedCount.increment();
+            LOGGER.debug("refresh is skipped, too many concurrent refreshes: {}", key);
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> refresh(region, key, loader));
+        } catch (RejectedExecutionException e) {
+            region.refreshing.remove(key);
+            refreshPermits.release();
+            region.skippedCount.increment();
+            LOGGER.debug("refresh is skipped, executor rejected the task: {}", key);
+        }
+    }
+
+    private void refresh(Region region, QueryCacheKey key, Supplier<?> loader) {
+        long generation = region.generation.get();
+        long startTime = ticker.read();
+        try {
+            Object result = loader.get();
+            put(region, key, new CachedResult(toCache(result), startTime), generation);
+            region.refreshCount.increment();
+        } catch (RuntimeException e) {
+            region.failureCount.increment();
+            LOGGER.warn("failed to refresh cached result: " + key, e);
+        } finally {
+            region.refreshTime.add(ticker.read() - startTime);
+            region.refreshing.remove(key);
+            refreshPermits.release();
+        }
+    }
+
+    private Region getRegion(String compositeId, CacheConfig config) {
+        Region region = regions.get(compositeId);
+        if (region == null || !region.config.equals(config)) {
+            region = regions.compute(compositeId, (id, current) -> {
+                if (current != null && current.config.equals(config)) {
+                    return current;
+                }
+                LOGGER.debug("create cache region for query: '{}', config: {}", id, config);
+                return new Region(id, config, ticker);
+            });
+        }
+        return region;
+    }
+
+    private static Object toCache(Object result) {
+        if (result == null) {
+            return NULL_VALUE;
+        }
+        if (result instanceof List) {
+            return Collections.unmodifiableList(new ArrayList<>((List<?>) result));
+        }
+        return result;
+    }
+
+    private static Object fromCache(Object cached) {
+        if (cached == NULL_VALUE) {
+            return null;
+        }
+        if (cached instanceof List) {
+            return new ArrayList<>((List<?>) cached);
+        }
+        return cached;
+    }
+
+    private static final class CachedResult {
+        private final Object value;
+        private final long loadTime;
+
+        private CachedResult(Object value, long loadTime) {
+            this.value = value;
+            this.loadTime = loadTime;
+        }
+    }
+
+    private static final class Region {
+        private final CacheConfig config;
+        private final String collectionName;
+        private final TinyLfuCache<QueryCacheKey, CachedResult> cache;
+        private final AtomicLong generation = new AtomicLong();
+        /* age of an entry in nanoseconds after which the entry is refreshed on access, 0 if refresh is disabled */
+        private final long refreshAfter;
+        private final Set<QueryCacheKey> refreshing = Sets.newConcurrentHashSet();
+        private final LongAdder refreshCount = new LongAdder();
+        private final LongAdder failureCount = new LongAdder();
+        private final LongAdder skippedCount = new LongAdder();
+        private final LongAdder refreshTime = new LongAdder();
+
+        private Region(String compositeId, CacheConfig config, Ticker ticker) {
+            this.config = config;
+            this.collectionName = QueryUtils.getCollectionName(compositeId);
+            if (config.isRefreshAhead()) {
+                this.refreshAfter = TimeUnit.MILLISECONDS.toNanos(config.getTtl() - config.getRefreshAhead());
+                // expired entries are kept in the cache until max-staleness is exceeded
+                this.cache = new TinyLfuCache<>(config.getMaxSize(), config.getTtl() + config.getMaxStaleness(),
+                        TimeUnit.MILLISECONDS, ticker);
+            } else {
+                this.refreshAfter = 0;
+                this.cache = new TinyLfuCache<>(config.getMaxSize(), config.getTtl(), TimeUnit.MILLISECONDS, ticker);
+            }
+        }
+
+        private RefreshStats refreshStats() {
+            return new RefreshStats(refreshCount.sum(), failureCount.sum(), skippedCount.sum(), refreshTime.sum());
+        }
+
+        private void invalidateAll() {
+            generation.incrementAndGet();
+            cache.invalidateAll();
+        }
+    }
+}
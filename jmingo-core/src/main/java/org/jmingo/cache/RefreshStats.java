@@ -0,0 +1,109 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.cache;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statistics about background refreshes of cached results, see {@link CacheConfig#getRefreshAhead()}.
+ * This class is immutable and can be shared between threads without any synchronization.
+ */
+public class RefreshStats {
+
+    private final long refreshCount;
+    private final long failureCount;
+    private final long skippedCount;
+    private final long totalRefreshTime;
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param refreshCount     the number of completed refreshes
+     * @param failureCount     the number of refreshes failed with an exception
+     * @param skippedCount     the number of refreshes that weren't started because of the concurrency limit
+     * @param totalRefreshTime the total time spent to refresh entries in nanoseconds
+     */
+    public RefreshStats(long refreshCount, long failureCount, long skippedCount, long totalRefreshTime) {
+        this.refreshCount = refreshCount;
+        this.failureCount = failureCount;
+        this.skippedCount = skippedCount;
+        this.totalRefreshTime = totalRefreshTime;
+    }
+
+    /**
+     * Creates empty statistics.
+     *
+     * @return empty statistics
+     */
+    public static RefreshStats empty() {
+        return new RefreshStats(0, 0, 0, 0);
+    }
+
+    public long getRefreshCount() {
+        return refreshCount;
+    }
+
+    public long getFailureCount() {
+        return failureCount;
+    }
+
+    public long getSkippedCount() {
+        return skippedCount;
+    }
+
+    /**
+     * Gets the total time spent to refresh entries, failed refreshes are included.
+     *
+     * @return total refresh time in nanoseconds
+     */
+    public long getTotalRefreshTime() {
+        return totalRefreshTime;
+    }
+
+    /**
+     * Gets the average time spent to refresh an entry.
+     *
+     * @param unit the time unit of the result
+     * @return average refresh time, 0 if there were no refreshes
+     */
+    public double getAverageRefreshTime(TimeUnit unit) {
+        long count = refreshCount + failureCount;
+        return count == 0 ? 0 : (double) totalRefreshTime / count / unit.toNanos(1);
+    }
+
+    /**
+     * Sums this statistics with the given one.
+     *
+     * @param other the statistics to add
+     * @return new instance that contains sum of both statistics
+     */
+    public RefreshStats plus(RefreshStats other) {
+        return new RefreshStats(refreshCount + other.refreshCount, failureCount + other.failureCount,
+                skippedCount + other.skippedCount, totalRefreshTime + other.totalRefreshTime);
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("refreshCount", refreshCount)
+                .append("failureCount", failureCount)
+                .append("skippedCount", skippedCount)
+                .append("totalRefreshTime", totalRefreshTime)
+                .toString();
+    }
+}
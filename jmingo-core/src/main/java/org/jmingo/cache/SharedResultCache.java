@@ -0,0 +1,274 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.cache;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.util.JSON;
+import net.jcip.annotations.ThreadSafe;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Cache of raw query results shared between application nodes, is used as the second level behind local caches,
+ * so an expensive result is computed once per cluster. Only one node computes a missing result: the node that
+ * acquires the compute lock of the key computes and stores the result while other nodes poll the cache until
+ * the result is stored or the lock timeout elapses, then they compute the result themselves.
+ * A result computed concurrently with a write to the source collection can outlive the invalidation
+ * caused by the write until it expires. Failures of the shared cache never fail the query: they are logged and
+ * the result is computed locally or returned without being stored.
+ */
+@ThreadSafe
+public abstract class SharedResultCache {
+
+    private final long lockTimeout;
+    private final long pollInterval;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder waitCount = new LongAdder();
+    private final LongAdder lockTimeoutCount = new LongAdder();
+    private final LongAdder errorCount = new LongAdder();
+
+    private static final long MAX_POLL_INTERVAL = 100;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedResultCache.class);
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param lockTimeout the maximum time a node holds the compute lock
+     * @param unit        the time unit of lock timeout
+     */
+    protected SharedResultCache(long lockTimeout, TimeUnit unit) {
+        Validate.isTrue(lockTimeout > 0, "lock timeout must be gt 0");
+        this.lockTimeout = unit.toMillis(lockTimeout);
+        this.pollInterval = Math.max(1, Math.min(MAX_POLL_INTERVAL, this.lockTimeout / 10));
+    }
+
+    /**
+     * Builds key of the query result that is the same on all nodes that have the same query set.
+     *
+     * @param compositeId the query composite id
+     * @param parameters  the query parameters
+     * @param list        true if the result is a list
+     * @param checksum    the checksum of the query set, results of changed queries aren't shared
+     * @return key or null if the parameters cannot be serialized
+     */
+    public static String key(String compositeId, Map<String, Object> parameters, boolean list, String checksum) {
+        QueryCacheKey cacheKey = new QueryCacheKey(compositeId, parameters, DBObject.class, list);
+        try {
+            // normalized parameters are sorted, so the same parameters give the same key
+            String source = JSON.serialize(new BasicDBObject("checksum", checksum)
+                    .append("list", list)
+                    .append("params", cacheKey.getParameters()));
+            return compositeId + ":" + Hashing.sha256().hashString(source, Charsets.UTF_8);
+        } catch (RuntimeException e) {
+            LOGGER.debug("parameters of query: '{}' cannot be serialized: {}", compositeId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Gets the result from the shared cache or computes and stores it if this node acquires the compute lock.
+     *
+     * @param key            the result key
+     * @param collectionName the source collection of the result
+     * @param ttl            the time to live of the result in milliseconds
+     * @param loader         computes the result
+     * @return the result
+     */
+    public DBObject get(String key, String collectionName, long ttl, Supplier<DBObject> loader) {
+        DBObject value;
+        try {
+            value = find(key);
+        } catch (RuntimeException e) {
+            onError("find", key, e);
+            return loader.get();
+        }
+        if (value != null) {
+            hitCount.increment();
+            return value;
+        }
+        missCount.increment();
+        long deadline = System.currentTimeMillis() + lockTimeout;
+        boolean waited = false;
+        while (true) {
+            // identifies this acquire, so a lock that expired and was taken by another node isn't released
+            String owner = UUID.randomUUID().toString();
+            boolean locked;
+            try {
+                locked = tryLock(key, owner, lockTimeout);
+            } catch (RuntimeException e) {
+                onError("lock", key, e);
+                return loader.get();
+            }
+            if (locked) {
+                try {
+                    return compute(key, collectionName, ttl, loader);
+                } finally {
+                    try {
+                        unlock(key, owner);
+                    } catch (RuntimeException e) {
+                        // the lock expires after the timeout
+                        onError("unlock", key, e);
+                    }
+                }
+            }
+            if (!waited) {
+                waited = true;
+                waitCount.increment();
+            }
+            try {
+                Thread.sleep(pollInterval);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return loader.get();
+            }
+            try {
+                value = find(key);
+            } catch (RuntimeException e) {
+                onError("find", key, e);
+                return loader.get();
+            }
+            if (value != null) {
+                return value;
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                lockTimeoutCount.increment();
+                LOGGER.debug("result with key: '{}' wasn't computed by another node in {} ms", key, lockTimeout);
+                return loader.get();
+            }
+        }
+    }
+
+    /**
+     * Computes the result under the compute lock and stores it.
+     */
+    private DBObject compute(String key, String collectionName, long ttl, Supplier<DBObject> loader) {
+        DBObject value;
+        try {
+            // the result could be stored by another node between the miss and the lock
+            value = find(key);
+        } catch (RuntimeException e) {
+            onError("find", key, e);
+            return loader.get();
+        }
+        if (value == null) {
+            value = loader.get();
+            if (value != null) {
+                try {
+                    store(key, collectionName, value, ttl);
+                } catch (RuntimeException e) {
+                    // e.g. the result exceeds the max document size, the computed result is still returned
+                    onError("store", key, e);
+                }
+            }
+        }
+        return value;
+    }
+
+    private void onError(String operation, String key, RuntimeException e) {
+        errorCount.increment();
+        LOGGER.warn("failed to " + operation + " result with key: '" + key + "' in shared cache", e);
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Gets number of misses that waited for the result computed by another node.
+     *
+     * @return wait count
+     */
+    public long getWaitCount() {
+        return waitCount.sum();
+    }
+
+    /**
+     * Gets number of waits that ended by lock timeout, the result was computed locally in this case.
+     *
+     * @return lock timeout count
+     */
+    public long getLockTimeoutCount() {
+        return lockTimeoutCount.sum();
+    }
+
+    /**
+     * Gets number of failed operations of the shared cache, the queries were served without the shared cache.
+     *
+     * @return error count
+     */
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    /**
+     * Finds result that isn't expired.
+     *
+     * @param key the result key
+     * @return the result or null if there is no result
+     */
+    protected abstract DBObject find(String key);
+
+    /**
+     * Stores the result, replaces the existing result.
+     *
+     * @param key            the result key
+     * @param collectionName the source collection of the result
+     * @param value          the result
+     * @param ttl            the time to live of the result in milliseconds
+     */
+    protected abstract void store(String key, String collectionName, DBObject value, long ttl);
+
+    /**
+     * Acquires compute lock of the key if the lock isn't held or is expired.
+     *
+     * @param key         the result key
+     * @param owner       the unique token of the acquire
+     * @param lockTimeout the time in milliseconds after which the lock expires
+     * @return true if the lock was acquired, otherwise false
+     */
+    protected abstract boolean tryLock(String key, String owner, long lockTimeout);
+
+    /**
+     * Releases compute lock of the key if it is still held by the owner.
+     *
+     * @param key   the result key
+     * @param owner the token the lock was acquired with
+     */
+    protected abstract void unlock(String key, String owner);
+
+    /**
+     * Removes results of the collection.
+     *
+     * @param collectionName the name of changed collection
+     */
+    public abstract void invalidate(String collectionName);
+}
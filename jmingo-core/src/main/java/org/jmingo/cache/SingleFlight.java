@@ -0,0 +1,138 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.cache;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Maps;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces identical concurrent calls: the first call with a key performs the execution and calls with the same key
+ * that arrive while the execution is in flight wait for it and get its result or its exception.
+ * <p>
+ * A waiting call gives up after the timeout and performs the execution itself, so a slow execution delays
+ * coalesced calls by at most the timeout. Lists are copied for every waiting call, however the list items are shared.
+ */
+public class SingleFlight {
+
+    private final ConcurrentMap<Object, CompletableFuture<Object>> calls = Maps.newConcurrentMap();
+    private final long timeout;
+
+    private final LongAdder executionCount = new LongAdder();
+    private final LongAdder coalescedCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SingleFlight.class);
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param timeout the maximum time a call waits for the in-flight execution
+     * @param unit    the time unit of timeout
+     */
+    public SingleFlight(long timeout, TimeUnit unit) {
+        Validate.isTrue(timeout > 0, "timeout must be gt 0");
+        Validate.notNull(unit, "time unit cannot be null");
+        this.timeout = unit.toNanos(timeout);
+    }
+
+    /**
+     * Performs the execution or waits for the in-flight execution with the same key.
+     *
+     * @param key      the key that identifies identical calls
+     * @param supplier the execution
+     * @param <R>      the type of result
+     * @return the result of the execution
+     */
+    @SuppressWarnings("unchecked")
+    public <R> R execute(Object key, Supplier<R> supplier) {
+        Validate.notNull(key, "key cannot be null");
+        CompletableFuture<Object> call = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = calls.putIfAbsent(key, call);
+        if (inFlight == null) {
+            executionCount.increment();
+            try {
+                R result = supplier.get();
+                call.complete(result);
+                return result;
+            } catch (RuntimeException | Error e) {
+                call.completeExceptionally(e);
+                throw e;
+            } finally {
+                calls.remove(key, call);
+            }
+        }
+        coalescedCount.increment();
+        try {
+            return (R) copy(inFlight.get(timeout, TimeUnit.NANOSECONDS));
+        } catch (TimeoutException e) {
+            timeoutCount.increment();
+            LOGGER.debug("timeout exceeded while waiting for in-flight execution: {}", key);
+            return supplier.get();
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.propagate(e);
+        }
+    }
+
+    /**
+     * Gets number of executions performed by first calls.
+     *
+     * @return number of executions
+     */
+    public long getExecutionCount() {
+        return executionCount.sum();
+    }
+
+    /**
+     * Gets number of calls that have waited for an in-flight execution including the calls that have timed out.
+     *
+     * @return number of coalesced calls
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.sum();
+    }
+
+    /**
+     * Gets number of coalesced calls that have timed out and performed the execution themselves.
+     *
+     * @return number of timed out calls
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    private static Object copy(Object result) {
+        if (result instanceof List) {
+            return new ArrayList<>((List<?>) result);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,295 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.cache;
+
+import org.apache.commons.lang3.Validate;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+/**
+ * Allocates chunks of memory in direct {@link ByteBuffer} slabs. Memory is split in slabs of the same size,
+ * a slab is assigned to a size class when it's allocated and is carved into chunks of that class.
+ * Chunk sizes of the classes grow by {@link #GROWTH_FACTOR}, so a stored value wastes less than 25% of its chunk.
+ * Chunks are carved from the last slab of a class on demand, only released chunks are kept in free lists.
+ * <p>
+ * A chunk is addressed by a long value: slab index in the high 32 bits and offset in the low 32 bits.
+ * <p>
+ * This class isn't thread safe, access must be guarded by the owner.
+ */
+final class SlabAllocator {
+
+    static final int MIN_CHUNK_SIZE = 64;
+    static final double GROWTH_FACTOR = 1.25;
+    static final long NO_ADDRESS = -1;
+
+    private final int slabSize;
+    private final int maxSlabs;
+    private final int[] chunkSizes;
+    private final ByteBuffer[] slabs;
+    /* size class of each allocated slab */
+    private final int[] slabClasses;
+    private final int[] slabCounts;
+    private final LongStack[] freeChunks;
+    /* slab and offset from which the next chunk of a class is carved, -1 if the class has no slab to carve */
+    private final int[] carveSlabs;
+    private final int[] carveOffsets;
+    private int slabCount;
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param capacity the maximum number of bytes to allocate
+     * @param slabSize the size of a slab in bytes, is the maximum size of a chunk
+     */
+    SlabAllocator(long capacity, int slabSize) {
+        Validate.isTrue(slabSize >= MIN_CHUNK_SIZE, "slab size must be gte " + MIN_CHUNK_SIZE);
+        Validate.isTrue(capacity >= slabSize, "capacity must be gte slab size");
+        Validate.isTrue(capacity / slabSize <= Integer.MAX_VALUE, "too many slabs, increase slab size");
+        this.slabSize = slabSize;
+        this.maxSlabs = (int) (capacity / slabSize);
+        this.chunkSizes = chunkSizes(slabSize);
+        this.slabs = new ByteBuffer[maxSlabs];
+        this.slabClasses = new int[maxSlabs];
+        this.slabCounts = new int[chunkSizes.length];
+        this.freeChunks = new LongStack[chunkSizes.length];
+        this.carveSlabs = new int[chunkSizes.length];
+        this.carveOffsets = new int[chunkSizes.length];
+        Arrays.fill(carveSlabs, -1);
+        for (int sizeClass = 0; sizeClass < chunkSizes.length; sizeClass++) {
+            freeChunks[sizeClass] = new LongStack();
+        }
+    }
+
+    private static int[] chunkSizes(int slabSize) {
+        int[] sizes = new int[128];
+        int count = 0;
+        int size = MIN_CHUNK_SIZE;
+        while (size < slabSize) {
+            sizes[count++] = size;
+            // keep chunks aligned to 8 bytes
+            size = Math.max(size + 8, (int) (size * GROWTH_FACTOR) + 7 & ~7);
+        }
+        sizes[count++] = slabSize;
+        return Arrays.copyOf(sizes, count);
+    }
+
+    /**
+     * Gets size class that fits the given number of bytes.
+     *
+     * @param size the number of bytes
+     * @return the size class or -1 if the size exceeds the slab size
+     */
+    int sizeClass(int size) {
+        if (size > slabSize) {
+            return -1;
+        }
+        int index = Arrays.binarySearch(chunkSizes, size);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    int chunkSize(int sizeClass) {
+        return chunkSizes[sizeClass];
+    }
+
+    int sizeClassCount() {
+        return chunkSizes.length;
+    }
+
+    /**
+     * Allocates a chunk of the size class.
+     *
+     * @param sizeClass the size class
+     * @return address of the chunk or {@link #NO_ADDRESS} if there is no free chunk and no memory for a new slab
+     */
+    long allocate(int sizeClass) {
+        LongStack free = freeChunks[sizeClass];
+        if (!free.isEmpty()) {
+            return free.pop();
+        }
+        if (carveSlabs[sizeClass] < 0) {
+            if (slabCount == maxSlabs) {
+                return NO_ADDRESS;
+            }
+            int slab = slabCount++;
+            slabs[slab] = ByteBuffer.allocateDirect(slabSize);
+            assign(slab, sizeClass);
+        }
+        return carve(sizeClass);
+    }
+
+    private long carve(int sizeClass) {
+        int chunkSize = chunkSizes[sizeClass];
+        long address = address(carveSlabs[sizeClass], carveOffsets[sizeClass]);
+        carveOffsets[sizeClass] += chunkSize;
+        if (carveOffsets[sizeClass] + chunkSize > slabSize) {
+            carveSlabs[sizeClass] = -1;
+        }
+        return address;
+    }
+
+    /**
+     * Returns the chunk to the free list of its size class.
+     *
+     * @param address the chunk address
+     */
+    void free(long address) {
+        freeChunks[slabClasses[slab(address)]].push(address);
+    }
+
+    /**
+     * Selects a slab to give to another size class when there is no memory for a new slab.
+     * The slab is taken from the class that owns the most slabs.
+     *
+     * @param sizeClass the size class that needs a slab
+     * @return the slab index or -1 if no slab can be reassigned
+     */
+    int selectVictimSlab(int sizeClass) {
+        int victimClass = -1;
+        for (int candidate = 0; candidate < slabCounts.length; candidate++) {
+            if (candidate != sizeClass && slabCounts[candidate] > 0
+                    && (victimClass < 0 || slabCounts[candidate] > slabCounts[victimClass])) {
+                victimClass = candidate;
+            }
+        }
+        if (victimClass < 0) {
+            return -1;
+        }
+        for (int slab = slabCount - 1; slab >= 0; slab--) {
+            if (slabClasses[slab] == victimClass) {
+                return slab;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Moves the slab to another size class. All chunks of the slab must be free.
+     *
+     * @param slab      the slab index
+     * @param sizeClass the new size class
+     */
+    void reassign(int slab, int sizeClass) {
+        int oldClass = slabClasses[slab];
+        freeChunks[oldClass].removeIf(address -> slab(address) == slab);
+        if (carveSlabs[oldClass] == slab) {
+            carveSlabs[oldClass] = -1;
+        }
+        slabCounts[oldClass]--;
+        assign(slab, sizeClass);
+    }
+
+    private void assign(int slab, int sizeClass) {
+        slabClasses[slab] = sizeClass;
+        slabCounts[sizeClass]++;
+        // free chunks of the class are used up, otherwise a new slab wouldn't be needed
+        carveSlabs[sizeClass] = slab;
+        carveOffsets[sizeClass] = 0;
+    }
+
+    void write(long address, byte[] value) {
+        ByteBuffer buffer = slabs[slab(address)].duplicate();
+        buffer.position(offset(address));
+        buffer.put(value);
+    }
+
+    byte[] read(long address, int length) {
+        ByteBuffer buffer = slabs[slab(address)].duplicate();
+        buffer.position(offset(address));
+        byte[] value = new byte[length];
+        buffer.get(value);
+        return value;
+    }
+
+    /**
+     * Gets number of bytes in allocated slabs.
+     *
+     * @return allocated bytes
+     */
+    long allocatedBytes() {
+        return (long) slabCount * slabSize;
+    }
+
+    /**
+     * Gets number of bytes in free chunks and not carved space of allocated slabs.
+     *
+     * @return free bytes
+     */
+    long freeBytes() {
+        long bytes = 0;
+        for (int sizeClass = 0; sizeClass < chunkSizes.length; sizeClass++) {
+            bytes += (long) freeChunks[sizeClass].size() * chunkSizes[sizeClass];
+            if (carveSlabs[sizeClass] >= 0) {
+                bytes += slabSize - carveOffsets[sizeClass];
+            }
+        }
+        return bytes;
+    }
+
+    long capacity() {
+        return (long) maxSlabs * slabSize;
+    }
+
+    static int slab(long address) {
+        return (int) (address >>> 32);
+    }
+
+    private static int offset(long address) {
+        return (int) address;
+    }
+
+    private static long address(int slab, int offset) {
+        return (long) slab << 32 | offset;
+    }
+
+    /**
+     * Growable stack of primitive longs.
+     */
+    private static final class LongStack {
+        private long[] values = new long[16];
+        private int size;
+
+        void push(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long pop() {
+            return values[--size];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void removeIf(LongPredicate predicate) {
+            int retained = 0;
+            for (int i = 0; i < size; i++) {
+                if (!predicate.test(values[i])) {
+                    values[retained++] = values[i];
+                }
+            }
+            size = retained;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.cache;
+
+import com.google.common.base.Ticker;
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+import org.apache.commons.lang3.Validate;
+
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded cache with W-TinyLFU eviction policy and expiration after write.
+ * <p>
+ * New entries are placed in a small LRU admission window. An entry evicted from the window competes with
+ * the least recently used entry of the main space and the one that has been used more frequently,
+ * according to {@link FrequencySketch}, is retained. Thus a burst of one-time lookups cannot flush
+ * frequently used entries out of the cache.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+@ThreadSafe
+public class TinyLfuCache<K, V> {
+
+    private static final int WINDOW_PERCENT = 1;
+
+    private final int windowMaximum;
+    private final int mainMaximum;
+    private final long expireAfterWriteNanos;
+    private final Ticker ticker;
+
+    private final Lock lock = new ReentrantLock();
+
+    @GuardedBy("lock")
+    private final FrequencySketch sketch;
+    @GuardedBy("lock")
+    private final LinkedHashMap<K, Entry<V>> window = new LinkedHashMap<>(16, 0.75f, true);
+    @GuardedBy("lock")
+    private final LinkedHashMap<K, Entry<V>> main = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param maximumSize      the maximum number of entries
+     * @param expireAfterWrite the time after which an entry expires, entries never expire if value isn't positive
+     * @param unit             the time unit of expireAfterWrite
+     */
+    public TinyLfuCache(int maximumSize, long expireAfterWrite, TimeUnit unit) {
+        this(maximumSize, expireAfterWrite, unit, Ticker.systemTicker());
+    }
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param maximumSize      the maximum number of entries
+     * @param expireAfterWrite the time after which an entry expires, entries never expire if value isn't positive
+     * @param unit             the time unit of expireAfterWrite
+     * @param ticker           the time source
+     */
+    public TinyLfuCache(int maximumSize, long expireAfterWrite, TimeUnit unit, Ticker ticker) {
+        Validate.isTrue(maximumSize > 0, "maximum size must be gt 0");
+        Validate.notNull(unit, "time unit cannot be null");
+        Validate.notNull(ticker, "ticker cannot be null");
+        this.windowMaximum = Math.max(1, maximumSize * WINDOW_PERCENT / 100);
+        this.mainMaximum = maximumSize - windowMaximum;
+        this.expireAfterWriteNanos = unit.toNanos(expireAfterWrite);
+        this.ticker = ticker;
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    /**
+     * Gets value associated with the key.
+     *
+     * @param key the key
+     * @return the value or null if there is no value or it has expired
+     */
+    public V getIfPresent(K key) {
+        Validate.notNull(key, "key cannot be null");
+        lock.lock();
+        try {
+            sketch.increment(key);
+            Entry<V> entry = window.get(key);
+            if (entry == null) {
+                entry = main.get(key);
+            }
+            if (entry == null) {
+                missCount.increment();
+                return null;
+            }
+            if (isExpired(entry)) {
+                removeEntry(key);
+                evictionCount.increment();
+                missCount.increment();
+                return null;
+            }
+            hitCount.increment();
+            return entry.value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Associates the value with the key. The new entry can be rejected right away if the cache is full
+     * and the entry that would be evicted has been used more frequently.
+     *
+     * @param key   the key
+     * @param value the value
+     */
+    public void put(K key, V value) {
+        Validate.notNull(key, "key cannot be null");
+        Validate.notNull(value, "value cannot be null");
+        Entry<V> entry = new Entry<>(value, ticker.read());
+        lock.lock();
+        try {
+            sketch.increment(key);
+            if (main.containsKey(key)) {
+                main.put(key, entry);
+                return;
+            }
+            window.put(key, entry);
+            if (window.size() > windowMaximum) {
+                Map.Entry<K, Entry<V>> candidate = pollEldest(window);
+                admit(candidate.getKey(), candidate.getValue());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Discards the value for the key.
+     *
+     * @param key the key
+     */
+    public void invalidate(K key) {
+        lock.lock();
+        try {
+            removeEntry(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Discards all entries in the cache.
+     */
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            window.clear();
+            main.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of entries in the cache including expired entries that haven't been cleaned up yet.
+     *
+     * @return the number of entries
+     */
+    public long size() {
+        lock.lock();
+        try {
+            return window.size() + main.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets snapshot of cache statistics.
+     *
+     * @return cache statistics
+     */
+    public CacheStats stats() {
+        return new CacheStats(hitCount.sum(), missCount.sum(), evictionCount.sum());
+    }
+
+    @GuardedBy("lock")
+    private void admit(K candidateKey, Entry<V> candidate) {
+        if (main.size() < mainMaximum) {
+            main.put(candidateKey, candidate);
+            return;
+        }
+        evictionCount.increment();
+        if (mainMaximum == 0) {
+            return;
+        }
+        Map.Entry<K, Entry<V>> victim = main.entrySet().iterator().next();
+        if (isExpired(victim.getValue())
+                || sketch.frequency(candidateKey) > sketch.frequency(victim.getKey())) {
+            main.remove(victim.getKey());
+            main.put(candidateKey, candidate);
+        }
+    }
+
+    @GuardedBy("lock")
+    private void removeEntry(Object key) {
+        if (window.remove(key) == null) {
+            main.remove(key);
+        }
+    }
+
+    private boolean isExpired(Entry<V> entry) {
+        return expireAfterWriteNanos > 0 && ticker.read() - entry.writeTime >= expireAfterWriteNanos;
+    }
+
+    private static <K, V> Map.Entry<K, V> pollEldest(LinkedHashMap<K, V> map) {
+        Iterator<Map.Entry<K, V>> iterator = map.entrySet().iterator();
+        Map.Entry<K, V> eldest = new AbstractMap.SimpleImmutableEntry<>(iterator.next());
+        iterator.remove();
+        return eldest;
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long writeTime;
+
+        private Entry(V value, long writeTime) {
+            this.value = value;
+            this.writeTime = writeTime;
+        }
+    }
+}
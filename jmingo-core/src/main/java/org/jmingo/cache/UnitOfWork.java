@@ -0,0 +1,237 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.cache;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import net.jcip.annotations.NotThreadSafe;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+import org.jmingo.util.DocumentUtils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Request-scoped identity map. Within a unit of work {@link org.jmingo.JMingoTemplate} returns the same instance
+ * for the same document type and id instead of loading and converting the document again.
+ * <p>
+ * A unit of work is either bound to the current thread, see {@link #begin()}, or created with {@link #create()}
+ * and passed to the template explicitly. It's supposed to be used in try-with-resources statement:
+ * <pre>
+ * try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+ *     unitOfWork.require(User.class, reviewerIds);
+ *     // first call loads all required users with a single query
+ *     User user = template.findById(userId, User.class);
+ * }
+ * </pre>
+ * Ids registered with {@link #require(Class, Collection)} are resolved together on the next lookup of the type.
+ * Documents of a collection are evicted on the next lookup of the collection after the collection is changed through
+ * the template, this applies to both bound and explicitly passed units of work, see {@link #sync(String, long)}.
+ * <p>
+ * Eviction is triggered by any write to the collection made through the template, including writes of other threads
+ * and other units of work. The identity guarantee holds only between writes: after eviction a lookup returns a new
+ * instance, so a unit of work can hand out two different instances for the same id and instances obtained before
+ * the write aren't refreshed. Documents are evicted to never serve state older than the writes of this node.
+ */
+@NotThreadSafe
+public class UnitOfWork implements AutoCloseable {
+
+    private static final ThreadLocal<UnitOfWork> CURRENT = new ThreadLocal<>();
+    private static final Object NULL_VALUE = new Object();
+
+    private final Map<Class<?>, Map<Object, Object>> documents = Maps.newHashMap();
+    private final Map<Class<?>, Set<Object>> required = Maps.newHashMap();
+    /* key - collection name, value - version of the collection documents were loaded at */
+    private final Map<String, Long> versions = Maps.newHashMap();
+    private final boolean bound;
+    /* unit of work that was bound to the thread before this one, restored on close */
+    private final UnitOfWork previous;
+    private boolean closed;
+
+    private UnitOfWork(boolean bound, UnitOfWork previous) {
+        this.bound = bound;
+        this.previous = previous;
+    }
+
+    /**
+     * Creates unit of work and binds it to the current thread until it's closed.
+     *
+     * @return new unit of work
+     */
+    public static UnitOfWork begin() {
+        UnitOfWork unitOfWork = new UnitOfWork(true, CURRENT.get());
+        CURRENT.set(unitOfWork);
+        return unitOfWork;
+    }
+
+    /**
+     * Creates unit of work that isn't bound to any thread and should be passed to the template explicitly.
+     *
+     * @return new unit of work
+     */
+    public static UnitOfWork create() {
+        return new UnitOfWork(false, null);
+    }
+
+    /**
+     * Gets unit of work bound to the current thread.
+     *
+     * @return current unit of work or null if there is no unit of work bound to the current thread
+     */
+    public static UnitOfWork current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Registers ids of documents that will be needed, the ids are loaded together on the next lookup of the type.
+     *
+     * @param type the document type
+     * @param ids  the document ids
+     * @return current unit of work
+     */
+    public UnitOfWork require(Class<?> type, Object... ids) {
+        return require(type, Arrays.asList(ids));
+    }
+
+    /**
+     * Registers ids of documents that will be needed, the ids are loaded together on the next lookup of the type.
+     *
+     * @param type the document type
+     * @param ids  the document ids
+     * @return current unit of work
+     */
+    public UnitOfWork require(Class<?> type, Collection<?> ids) {
+        assertOpen();
+        DocumentUtils.assertDocument(type);
+        Map<Object, Object> loaded = documents.getOrDefault(type, Collections.emptyMap());
+        Set<Object> requiredIds = required.computeIfAbsent(type, key -> Sets.newLinkedHashSet());
+        ids.forEach(id -> {
+            if (id != null && !loaded.containsKey(id)) {
+                requiredIds.add(id);
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Checks whether the document was loaded within the unit of work.
+     *
+     * @param type the document type
+     * @param id   the document id
+     * @return true if the document was loaded including the case when there is no document with the id
+     */
+    public boolean contains(Class<?> type, Object id) {
+        assertOpen();
+        return documents.getOrDefault(type, Collections.emptyMap()).containsKey(id);
+    }
+
+    /**
+     * Gets document loaded within the unit of work.
+     *
+     * @param type the document type
+     * @param id   the document id
+     * @param <T>  the type of document
+     * @return the document or null if the document wasn't loaded or there is no document with the id
+     */
+    public <T> T get(Class<T> type, Object id) {
+        assertOpen();
+        Object document = documents.getOrDefault(type, Collections.emptyMap()).get(id);
+        return document != null && document != NULL_VALUE ? type.cast(document) : null;
+    }
+
+    /**
+     * Puts loaded document in the unit of work.
+     *
+     * @param type     the document type
+     * @param id       the document id
+     * @param document the document or null if there is no document with the id
+     */
+    public void put(Class<?> type, Object id, Object document) {
+        assertOpen();
+        Validate.notNull(id, "document id cannot be null");
+        documents.computeIfAbsent(type, key -> Maps.newHashMap()).put(id, document != null ? document : NULL_VALUE);
+        Set<Object> requiredIds = required.get(type);
+        if (requiredIds != null) {
+            requiredIds.remove(id);
+        }
+    }
+
+    /**
+     * Gets and clears ids of documents of the type that were registered as required but haven't been loaded yet.
+     *
+     * @param type the document type
+     * @return required ids
+     */
+    public Set<Object> drainRequired(Class<?> type) {
+        assertOpen();
+        Set<Object> requiredIds = required.remove(type);
+        return requiredIds != null ? requiredIds : Collections.emptySet();
+    }
+
+    /**
+     * Evicts documents of all types stored in the collection.
+     *
+     * @param collectionName the collection name
+     */
+    public void evict(String collectionName) {
+        documents.keySet().removeIf(type -> StringUtils.equals(DocumentUtils.getCollectionName(type), collectionName));
+    }
+
+    /**
+     * Evicts documents of the collection if the collection was changed since the previous sync, by any thread.
+     * Is called by the template before documents of the collection are looked up, see the class description
+     * for effect on identity of returned instances.
+     *
+     * @param collectionName the collection name
+     * @param version        the number of changes of the collection made through the template
+     */
+    public void sync(String collectionName, long version) {
+        assertOpen();
+        Long previousVersion = versions.put(collectionName, version);
+        if (previousVersion != null && previousVersion != version) {
+            evict(collectionName);
+        }
+    }
+
+    /**
+     * Closes the unit of work and unbinds it from the current thread.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        documents.clear();
+        required.clear();
+        versions.clear();
+        if (bound && CURRENT.get() == this) {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    private void assertOpen() {
+        Validate.validState(!closed, "unit of work is closed");
+    }
+}
@@ -0,0 +1,346 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.cache;
+
+import com.google.common.collect.Maps;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.DefaultDBDecoder;
+import com.mongodb.DefaultDBEncoder;
+import com.mongodb.util.JSON;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+import org.jmingo.util.QueryUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Persistent snapshot of raw results of named queries to warm up caches after restart.
+ * Results are kept as BSON in memory and are periodically written to a file by {@link #write()},
+ * the file is memory-mapped by {@link #load(Function)} when jmingo context is created.
+ * <p>
+ * Entries are snapshot by query composite id and parameters, each entry holds checksum of the query set
+ * at the moment the result was stored. Restored entries of changed query sets are discarded.
+ * A restored entry is returned only once: it serves the first load of the query after restart,
+ * next loads go to mongo and replace the entry.
+ * <p>
+ * File format: magic, version, number of entries, then entries: composite id, key, checksum,
+ * expiration time in epoch millis and the result; strings and the result are prefixed with length.
+ */
+public class WarmStartCache {
+
+    private static final int MAGIC = 0x4A4D5753;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final String VALUE_FIELD = "v";
+
+    private final Path path;
+    private final ConcurrentMap<String, Entry> entries = Maps.newConcurrentMap();
+    private final AtomicLong modCount = new AtomicLong();
+    private volatile long writtenModCount;
+
+    private final LongAdder restoredCount = new LongAdder();
+    private final LongAdder discardedCount = new LongAdder();
+    private final LongAdder hitCount = new LongAdder();
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WarmStartCache.class);
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param path the path of the snapshot file
+     */
+    public WarmStartCache(Path path) {
+        Validate.notNull(path, "snapshot path cannot be null");
+        this.path = path;
+    }
+
+    /**
+     * Gets result restored from the snapshot. Returns null if there is no restored result for the query
+     * with given parameters, the result was already returned or the query set was changed.
+     *
+     * @param compositeId the query composite id
+     * @param parameters  the query parameters
+     * @param list        true if the result is a list of documents
+     * @param checksum    the current checksum of the query set
+     * @return raw result or null
+     */
+    public DBObject get(String compositeId, Map<String, Object> parameters, boolean list, String checksum) {
+        String key = key(compositeId, parameters, list);
+        Entry entry = key != null ? entries.get(key) : null;
+        if (entry == null || !entry.restored || !StringUtils.equals(entry.checksum, checksum)
+                || entry.expirationTime <= System.currentTimeMillis()) {
+            return null;
+        }
+        synchronized (entry) {
+            if (!entry.restored) {
+                return null;
+            }
+            entry.restored = false;
+        }
+        hitCount.increment();
+        return decode(entry.value);
+    }
+
+    /**
+     * Stores the result to be written in the next snapshot.
+     *
+     * @param compositeId the query composite id
+     * @param parameters  the query parameters
+     * @param list        true if the result is a list of documents
+     * @param checksum    the current checksum of the query set
+     * @param result      the raw result
+     * @param ttl         the time in milliseconds during which the result can be restored
+     */
+    public void put(String compositeId, Map<String, Object> parameters, boolean list, String checksum,
+                    DBObject result, long ttl) {
+        String key = key(compositeId, parameters, list);
+        if (key == null || checksum == null) {
+            return;
+        }
+        ByteBuffer value;
+        try {
+            value = ByteBuffer.wrap(new DefaultDBEncoder().encode(new BasicDBObject(VALUE_FIELD, result)));
+        } catch (RuntimeException e) {
+            LOGGER.warn("failed to encode result of query: '" + compositeId + "', result isn't stored in snapshot", e);
+            return;
+        }
+        entries.put(key, new Entry(compositeId, checksum, System.currentTimeMillis() + ttl, value, false));
+        modCount.incrementAndGet();
+    }
+
+    /**
+     * Discards stored results of all queries that use the given collection.
+     *
+     * @param collectionName the collection name
+     */
+    public void invalidate(String collectionName) {
+        if (entries.values().removeIf(entry -> StringUtils.equals(entry.collectionName, collectionName))) {
+            modCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Discards all stored results.
+     */
+    public void invalidateAll() {
+        entries.clear();
+        modCount.incrementAndGet();
+    }
+
+    /**
+     * Loads the snapshot file if it exists. Entries that have expired or whose query set checksum differs
+     * from the current one are discarded. A corrupted file is ignored.
+     *
+     * @param checksumResolver the function that returns current checksum of the query set by query composite id
+     */
+    public void load(Function<String, String> checksumResolver) {
+        if (!Files.exists(path)) {
+            LOGGER.debug("snapshot: '{}' doesn't exist", path);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                LOGGER.warn("snapshot: '{}' has unsupported format and is ignored", path);
+                return;
+            }
+            long now = System.currentTimeMillis();
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                String compositeId = readString(buffer);
+                String key = readString(buffer);
+                String checksum = readString(buffer);
+                long expirationTime = buffer.getLong();
+                int length = buffer.getInt();
+                ByteBuffer value = buffer.slice();
+                value.limit(length);
+                buffer.position(buffer.position() + length);
+                if (expirationTime > now && StringUtils.equals(checksum, checksumResolver.apply(compositeId))) {
+                    entries.putIfAbsent(key, new Entry(compositeId, checksum, expirationTime, value, true));
+                    restoredCount.increment();
+                } else {
+                    discardedCount.increment();
+                }
+            }
+            LOGGER.info("snapshot: '{}' was loaded, restored entries: {}, discarded entries: {}",
+                    path, restoredCount.sum(), discardedCount.sum());
+        } catch (IOException | RuntimeException e) {
+            entries.clear();
+            LOGGER.warn("failed to load snapshot: '" + path + "', snapshot is ignored", e);
+        }
+    }
+
+    /**
+     * Writes the snapshot if results were changed since the last write. The file is replaced atomically.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public synchronized void write() throws IOException {
+        long currentModCount = modCount.get();
+        if (currentModCount == writtenModCount) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<Map.Entry<String, Entry>> snapshot = entries.entrySet().stream()
+                .filter(entry -> entry.getValue().expirationTime > now)
+                .collect(Collectors.toList());
+        long size = HEADER_SIZE;
+        for (Map.Entry<String, Entry> entry : snapshot) {
+            size += entry.getValue().size(entry.getKey());
+        }
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tmp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                buffer.putInt(MAGIC).putInt(VERSION).putInt(snapshot.size());
+                for (Map.Entry<String, Entry> entry : snapshot) {
+                    Entry value = entry.getValue();
+                    writeString(buffer, value.compositeId);
+                    writeString(buffer, entry.getKey());
+                    writeString(buffer, value.checksum);
+                    buffer.putLong(value.expirationTime);
+                    buffer.putInt(value.value.remaining());
+                    buffer.put(value.value.duplicate());
+                }
+                buffer.force();
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        writtenModCount = currentModCount;
+        LOGGER.debug("snapshot: '{}' was written, entries: {}, bytes: {}", path, snapshot.size(), size);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the number of entries restored from the snapshot file.
+     *
+     * @return restored count
+     */
+    public long getRestoredCount() {
+        return restoredCount.sum();
+    }
+
+    /**
+     * Gets the number of entries of the snapshot file that were expired or belonged to changed query sets.
+     *
+     * @return discarded count
+     */
+    public long getDiscardedCount() {
+        return discardedCount.sum();
+    }
+
+    /**
+     * Gets the number of results returned from restored entries.
+     *
+     * @return hit count
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    private static String key(String compositeId, Map<String, Object> parameters, boolean list) {
+        QueryCacheKey cacheKey = new QueryCacheKey(compositeId, parameters, DBObject.class, list);
+        try {
+            // normalized parameters are sorted, so the same parameters give the same key
+            return JSON.serialize(new BasicDBObject("query", compositeId)
+                    .append("list", list)
+                    .append("params", cacheKey.getParameters()));
+        } catch (RuntimeException e) {
+            LOGGER.debug("parameters of query: '{}' cannot be serialized: {}", compositeId, e.getMessage());
+            return null;
+        }
+    }
+
+    private static DBObject decode(ByteBuffer value) {
+        byte[] bytes = new byte[value.remaining()];
+        value.duplicate().get(bytes);
+        DBObject wrapper = new DefaultDBDecoder().decode(bytes, (DBCollection) null);
+        return (DBObject) wrapper.get(VALUE_FIELD);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static final class Entry {
+        private final String compositeId;
+        private final String collectionName;
+        private final String checksum;
+        private final long expirationTime;
+        /* encoded result, a slice of the mapped file for restored entries */
+        private final ByteBuffer value;
+        private volatile boolean restored;
+
+        private Entry(String compositeId, String checksum, long expirationTime, ByteBuffer value, boolean restored) {
+            this.compositeId = compositeId;
+            this.collectionName = QueryUtils.getCollectionName(compositeId);
+            this.checksum = checksum;
+            this.expirationTime = expirationTime;
+            this.value = value;
+            this.restored = restored;
+        }
+
+        private long size(String key) {
+            return 4L + utf8Length(compositeId) + 4 + utf8Length(key) + 4 + utf8Length(checksum)
+                    + 8 + 4 + value.remaining();
+        }
+
+        private static int utf8Length(String value) {
+            return value.getBytes(StandardCharsets.UTF_8).length;
+        }
+    }
+}
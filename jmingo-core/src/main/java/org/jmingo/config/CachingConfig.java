@@ -0,0 +1,416 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.config;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.jmingo.cache.OffHeapCache;
+import org.jmingo.cache.QueryResultCache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contains properties of the caches of jmingo context, see &lt;caching/&gt; element in context.xsd schema.
+ */
+public class CachingConfig {
+
+    public static final int DEF_REFRESH_CONCURRENCY = QueryResultCache.DEF_MAX_CONCURRENT_REFRESHES;
+    /* default snapshot interval in seconds */
+    public static final int DEF_SNAPSHOT_INTERVAL = 300;
+    /* default time in milliseconds a coalesced call waits for the shared execution */
+    public static final long DEF_SINGLE_FLIGHT_TIMEOUT = 5000;
+    /* default time in milliseconds to collect ids of a batch */
+    public static final long DEF_BATCH_WINDOW = 2;
+    public static final int DEF_MAX_BATCH_SIZE = 100;
+    public static final String DEF_SHARED_CACHE_COLLECTION = "jmingo.cache";
+    /* default time in milliseconds a node computes a shared result while other nodes wait for it */
+    public static final long DEF_SHARED_CACHE_LOCK_TIMEOUT = 30000;
+    public static final String DEF_INVALIDATION_BUS_COLLECTION = "jmingo.invalidations";
+    /* default size of the capped collection of invalidation records in bytes */
+    public static final long DEF_INVALIDATION_BUS_SIZE = 1024 * 1024;
+    /* default time in milliseconds to collect invalidation records of a batch */
+    public static final long DEF_INVALIDATION_BUS_BATCH_WINDOW = 10;
+    public static final int DEF_PREFETCH_CONCURRENCY = 2;
+
+    private final int refreshConcurrency;
+    private final int prefetchConcurrency;
+    private final long offHeapCapacity;
+    private final int offHeapSlabSize;
+    private final boolean offHeapCompression;
+    private final long offHeapFindByIdTtl;
+    private final String snapshotPath;
+    private final long snapshotInterval;
+    private final boolean singleFlight;
+    private final long singleFlightTimeout;
+    private final boolean batching;
+    private final long batchWindow;
+    private final int maxBatchSize;
+    private final String sharedCacheCollection;
+    private final long sharedCacheLockTimeout;
+    private final String invalidationBusCollection;
+    private final long invalidationBusSize;
+    private final long invalidationBusBatchWindow;
+
+    private CachingConfig(Builder builder) {
+        this.refreshConcurrency = builder.refreshConcurrency;
+        this.prefetchConcurrency = builder.prefetchConcurrency;
+        this.offHeapCapacity = builder.offHeapCapacity;
+        this.offHeapSlabSize = builder.offHeapSlabSize;
+        this.offHeapCompression = builder.offHeapCompression;
+        this.offHeapFindByIdTtl = builder.offHeapFindByIdTtl;
+        this.snapshotPath = builder.snapshotPath;
+        this.snapshotInterval = builder.snapshotInterval;
+        this.singleFlight = builder.singleFlight;
+        this.singleFlightTimeout = builder.singleFlightTimeout;
+        this.batching = builder.batching;
+        this.batchWindow = builder.batchWindow;
+        this.maxBatchSize = builder.maxBatchSize;
+        this.sharedCacheCollection = builder.sharedCacheCollection;
+        this.sharedCacheLockTimeout = builder.sharedCacheLockTimeout;
+        this.invalidationBusCollection = builder.invalidationBusCollection;
+        this.invalidationBusSize = builder.invalidationBusSize;
+        this.invalidationBusBatchWindow = builder.invalidationBusBatchWindow;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Gets maximum number of cached query results that can be refreshed in background at the same time.
+     *
+     * @return maximum number of concurrent refreshes
+     */
+    public int getRefreshConcurrency() {
+        return refreshConcurrency;
+    }
+
+    /**
+     * Gets maximum number of next pages of paginated queries that can be prefetched in background at the same time.
+     *
+     * @return maximum number of concurrent prefetches
+     */
+    public int getPrefetchConcurrency() {
+        return prefetchConcurrency;
+    }
+
+    /**
+     * Gets capacity of off-heap cache in bytes.
+     *
+     * @return capacity in bytes, 0 if off-heap cache is disabled
+     */
+    public long getOffHeapCapacity() {
+        return offHeapCapacity;
+    }
+
+    /**
+     * Gets size of slabs of off-heap memory in bytes, larger results aren't cached off-heap.
+     *
+     * @return slab size in bytes
+     */
+    public int getOffHeapSlabSize() {
+        return offHeapSlabSize;
+    }
+
+    public boolean isOffHeapCompression() {
+        return offHeapCompression;
+    }
+
+    /**
+     * Gets time to live of documents found by id in off-heap cache in milliseconds.
+     *
+     * @return time to live in milliseconds, 0 if documents found by id aren't cached
+     */
+    public long getOffHeapFindByIdTtl() {
+        return offHeapFindByIdTtl;
+    }
+
+    public boolean isOffHeapEnabled() {
+        return offHeapCapacity > 0;
+    }
+
+    /**
+     * Gets path of the snapshot file with results of persistent queries.
+     *
+     * @return snapshot path, null if the snapshot is disabled
+     */
+    public String getSnapshotPath() {
+        return snapshotPath;
+    }
+
+    /**
+     * Gets interval between writes of the snapshot in milliseconds.
+     *
+     * @return snapshot interval in milliseconds
+     */
+    public long getSnapshotInterval() {
+        return snapshotInterval;
+    }
+
+    public boolean isSnapshotEnabled() {
+        return snapshotPath != null;
+    }
+
+    /**
+     * Whether identical concurrent named queries share one in-flight execution.
+     *
+     * @return true if single-flight is enabled, otherwise false
+     */
+    public boolean isSingleFlight() {
+        return singleFlight;
+    }
+
+    /**
+     * Gets maximum time in milliseconds a coalesced call waits for the shared execution.
+     *
+     * @return single-flight timeout in milliseconds
+     */
+    public long getSingleFlightTimeout() {
+        return singleFlightTimeout;
+    }
+
+    /**
+     * Whether concurrent lookups of documents by id are batched into a single query.
+     *
+     * @return true if batching is enabled, otherwise false
+     */
+    public boolean isBatching() {
+        return batching;
+    }
+
+    /**
+     * Gets time in milliseconds to collect ids of a batch.
+     *
+     * @return batch window in milliseconds
+     */
+    public long getBatchWindow() {
+        return batchWindow;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Gets name of the collection that stores query results shared between application nodes.
+     *
+     * @return collection name, null if the shared cache is disabled
+     */
+    public String getSharedCacheCollection() {
+        return sharedCacheCollection;
+    }
+
+    /**
+     * Gets maximum time in milliseconds a node holds the compute lock of a shared result,
+     * other nodes wait for the result during this time.
+     *
+     * @return lock timeout in milliseconds
+     */
+    public long getSharedCacheLockTimeout() {
+        return sharedCacheLockTimeout;
+    }
+
+    public boolean isSharedCacheEnabled() {
+        return sharedCacheCollection != null;
+    }
+
+    /**
+     * Gets name of the capped collection that propagates invalidations between application nodes.
+     *
+     * @return collection name, null if the invalidation bus is disabled
+     */
+    public String getInvalidationBusCollection() {
+        return invalidationBusCollection;
+    }
+
+    /**
+     * Gets size of the capped collection of invalidation records in bytes.
+     *
+     * @return size in bytes
+     */
+    public long getInvalidationBusSize() {
+        return invalidationBusSize;
+    }
+
+    /**
+     * Gets time in milliseconds to collect invalidation records of a batch.
+     *
+     * @return batch window in milliseconds
+     */
+    public long getInvalidationBusBatchWindow() {
+        return invalidationBusBatchWindow;
+    }
+
+    public boolean isInvalidationBusEnabled() {
+        return invalidationBusCollection != null;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("refreshConcurrency", refreshConcurrency)
+                .append("prefetchConcurrency", prefetchConcurrency)
+                .append("offHeapCapacity", offHeapCapacity)
+                .append("offHeapSlabSize", offHeapSlabSize)
+                .append("offHeapCompression", offHeapCompression)
+                .append("offHeapFindByIdTtl", offHeapFindByIdTtl)
+                .append("snapshotPath", snapshotPath)
+                .append("snapshotInterval", snapshotInterval)
+                .append("singleFlight", singleFlight)
+                .append("singleFlightTimeout", singleFlightTimeout)
+                .append("batching", batching)
+                .append("batchWindow", batchWindow)
+                .append("maxBatchSize", maxBatchSize)
+                .append("sharedCacheCollection", sharedCacheCollection)
+                .append("sharedCacheLockTimeout", sharedCacheLockTimeout)
+                .append("invalidationBusCollection", invalidationBusCollection)
+                .append("invalidationBusSize", invalidationBusSize)
+                .append("invalidationBusBatchWindow", invalidationBusBatchWindow)
+                .toString();
+    }
+
+    public static class Builder {
+        private int refreshConcurrency = DEF_REFRESH_CONCURRENCY;
+        private int prefetchConcurrency = DEF_PREFETCH_CONCURRENCY;
+        private long offHeapCapacity;
+        private int offHeapSlabSize = OffHeapCache.DEF_SLAB_SIZE;
+        private boolean offHeapCompression;
+        private long offHeapFindByIdTtl;
+        private String snapshotPath;
+        private long snapshotInterval = TimeUnit.SECONDS.toMillis(DEF_SNAPSHOT_INTERVAL);
+        private boolean singleFlight;
+        private long singleFlightTimeout = DEF_SINGLE_FLIGHT_TIMEOUT;
+        private boolean batching;
+        private long batchWindow = DEF_BATCH_WINDOW;
+        private int maxBatchSize = DEF_MAX_BATCH_SIZE;
+        private String sharedCacheCollection;
+        private long sharedCacheLockTimeout = DEF_SHARED_CACHE_LOCK_TIMEOUT;
+        private String invalidationBusCollection;
+        private long invalidationBusSize = DEF_INVALIDATION_BUS_SIZE;
+        private long invalidationBusBatchWindow = DEF_INVALIDATION_BUS_BATCH_WINDOW;
+
+        public Builder refreshConcurrency(int val) {
+            Validate.isTrue(val > 0, "refresh concurrency must be gt 0");
+            this.refreshConcurrency = val;
+            return this;
+        }
+
+        public Builder prefetchConcurrency(int val) {
+            Validate.isTrue(val > 0, "prefetch concurrency must be gt 0");
+            this.prefetchConcurrency = val;
+            return this;
+        }
+
+        public Builder offHeapCapacity(long val) {
+            Validate.isTrue(val >= 0, "off-heap capacity cannot be negative");
+            this.offHeapCapacity = val;
+            return this;
+        }
+
+        public Builder offHeapSlabSize(int val) {
+            Validate.isTrue(val > 0, "off-heap slab size must be gt 0");
+            this.offHeapSlabSize = val;
+            return this;
+        }
+
+        public Builder offHeapCompression(boolean val) {
+            this.offHeapCompression = val;
+            return this;
+        }
+
+        public Builder offHeapFindByIdTtl(long duration, TimeUnit unit) {
+            Validate.isTrue(duration >= 0, "off-heap findById ttl cannot be negative");
+            this.offHeapFindByIdTtl = unit.toMillis(duration);
+            return this;
+        }
+
+        public Builder snapshotPath(String val) {
+            Validate.notBlank(val, "snapshot path cannot be blank");
+            this.snapshotPath = val;
+            return this;
+        }
+
+        public Builder snapshotInterval(long duration, TimeUnit unit) {
+            Validate.isTrue(duration > 0, "snapshot interval must be gt 0");
+            this.snapshotInterval = unit.toMillis(duration);
+            return this;
+        }
+
+        public Builder singleFlight(boolean val) {
+            this.singleFlight = val;
+            return this;
+        }
+
+        public Builder singleFlightTimeout(long duration, TimeUnit unit) {
+            Validate.isTrue(duration > 0, "single-flight timeout must be gt 0");
+            this.singleFlightTimeout = unit.toMillis(duration);
+            return this;
+        }
+
+        public Builder batching(boolean val) {
+            this.batching = val;
+            return this;
+        }
+
+        public Builder batchWindow(long duration, TimeUnit unit) {
+            Validate.isTrue(duration >= 0, "batch window cannot be negative");
+            this.batchWindow = unit.toMillis(duration);
+            return this;
+        }
+
+        public Builder maxBatchSize(int val) {
+            Validate.isTrue(val > 0, "max batch size must be gt 0");
+            this.maxBatchSize = val;
+            return this;
+        }
+
+        public Builder sharedCacheCollection(String val) {
+            Validate.notBlank(val, "shared cache collection cannot be blank");
+            this.sharedCacheCollection = val;
+            return this;
+        }
+
+        public Builder sharedCacheLockTimeout(long duration, TimeUnit unit) {
+            Validate.isTrue(duration > 0, "shared cache lock timeout must be gt 0");
+            this.sharedCacheLockTimeout = unit.toMillis(duration);
+            return this;
+        }
+
+        public Builder invalidationBusCollection(String val) {
+            Validate.notBlank(val, "invalidation bus collection cannot be blank");
+            this.invalidationBusCollection = val;
+            return this;
+        }
+
+        public Builder invalidationBusSize(long val) {
+            Validate.isTrue(val > 0, "invalidation bus size must be gt 0");
+            this.invalidationBusSize = val;
+            return this;
+        }
+
+        public Builder invalidationBusBatchWindow(long duration, TimeUnit unit) {
+            Validate.isTrue(duration >= 0, "invalidation bus batch window cannot be negative");
+            this.invalidationBusBatchWindow = unit.toMillis(duration);
+            return this;
+        }
+
+        public CachingConfig build() {
+            Validate.isTrue(offHeapCapacity == 0 || offHeapCapacity >= offHeapSlabSize,
+                    "off-heap capacity must be gte slab size");
+            return new CachingConfig(this);
+        }
+    }
+}
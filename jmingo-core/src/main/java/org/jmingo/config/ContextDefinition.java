@@ -26,6 +26,8 @@ public class ContextDefinition {
 
     private MongoConfig mongoConfig;
 
+    private CachingConfig cachingConfig = CachingConfig.builder().build();
+
     /* default converter class */
     private String defaultConverter;
     /* package to scan for converters */
@@ -122,6 +124,24 @@ public class ContextDefinition {
         this.mongoConfig = mongoConfig;
     }
 
+    /**
+     * Gets caching config.
+     *
+     * @return caching config
+     */
+    public CachingConfig getCachingConfig() {
+        return cachingConfig;
+    }
+
+    /**
+     * Sets caching config.
+     *
+     * @param cachingConfig the caching config
+     */
+    public void setCachingConfig(CachingConfig cachingConfig) {
+        this.cachingConfig = cachingConfig;
+    }
+
     @Override
     public String toString() {
         return new ToStringBuilder(this)
@@ -129,6 +149,7 @@ public class ContextDefinition {
                 .append("querySetConfiguration", querySetConfig)
                 .append("defaultConverter", defaultConverter)
                 .append("converterPackageScan", converterPackageScan)
+                .append("cachingConfig", cachingConfig)
                 .toString();
     }
 }
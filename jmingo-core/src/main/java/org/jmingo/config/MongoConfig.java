@@ -18,6 +18,7 @@ package org.jmingo.config;
 import com.mongodb.ServerAddress;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -34,6 +35,8 @@ public class MongoConfig {
     private final String writeConcern;
 
     private Map<String, String> options;
+    /* key - profile name, value - write concern name */
+    private final Map<String, String> durabilityProfiles;
 
     private MongoConfig() {
         throw new UnsupportedOperationException("private constructor, use builder instead");
@@ -63,12 +66,22 @@ public class MongoConfig {
         return options;
     }
 
+    /**
+     * Gets declared durability profiles, see {@link org.jmingo.mongo.DurabilityProfile}.
+     *
+     * @return write concern names, key - profile name
+     */
+    public Map<String, String> getDurabilityProfiles() {
+        return durabilityProfiles;
+    }
+
     public MongoConfig(Builder builder) {
         this.databaseHost = builder.databaseHost;
         this.databasePort = builder.databasePort;
         this.dbName = builder.dbName;
         this.options = builder.options;
         this.writeConcern = builder.writeConcern;
+        this.durabilityProfiles = builder.durabilityProfiles;
     }
 
     public static class Builder {
@@ -77,6 +90,7 @@ public class MongoConfig {
         private String dbName;
         private String writeConcern;
         private Map<String, String> options = new HashMap<>();
+        private Map<String, String> durabilityProfiles = new LinkedHashMap<>();
 
         public Builder dbHost(String host) {
             this.databaseHost = host;
@@ -111,6 +125,11 @@ public class MongoConfig {
             options.put(name, val);
         }
 
+        public Builder durabilityProfile(String name, String writeConcern) {
+            durabilityProfiles.put(name, writeConcern);
+            return this;
+        }
+
         public MongoConfig build() {
             return new MongoConfig(this);
         }
@@ -18,6 +18,11 @@ package org.jmingo.context;
 import com.mongodb.Mongo;
 import org.apache.commons.lang3.StringUtils;
 import org.jmingo.JMingoTemplate;
+import org.jmingo.cache.CacheManager;
+import org.jmingo.cache.InvalidationBus;
+import org.jmingo.cache.MongoSharedResultCache;
+import org.jmingo.cache.SharedResultCache;
+import org.jmingo.config.CachingConfig;
 import org.jmingo.config.ContextDefinition;
 import org.jmingo.document.id.generator.factory.DefaultIdGeneratorFactory;
 import org.jmingo.document.id.generator.factory.IdGeneratorFactory;
@@ -29,6 +34,7 @@ import org.jmingo.executor.MongoQueryExecutor;
 import org.jmingo.executor.QueryExecutor;
 import org.jmingo.mapping.convert.ConverterService;
 import org.jmingo.mongo.MongoDBFactory;
+import org.jmingo.mongo.index.Index;
 import org.jmingo.parser.Parser;
 import org.jmingo.parser.xml.dom.ParserFactory;
 import org.jmingo.query.QueryManager;
@@ -36,6 +42,8 @@ import org.jmingo.util.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.TimeUnit;
+
 import static org.jmingo.parser.xml.dom.ParserFactory.ParseComponent.CONTEXT;
 
 /**
@@ -53,6 +61,7 @@ public class Context {
     private IdGeneratorFactory idGeneratorFactory = new DefaultIdGeneratorFactory();
     private MongoDBFactory mongoDBFactory;
     private QueryExecutor queryExecutor;
+    private CacheManager cacheManager;
     private JMingoTemplate JMingoTemplate;
 
     private static final String CONTEXT_PATH_ERROR = "path to context configuration cannot be empty or null";
@@ -159,6 +168,15 @@ public class Context {
         return queryExecutor;
     }
 
+    /**
+     * Gets cache manager. Contains caches of query results, see &lt;cache/&gt; element of query.xsd schema.
+     *
+     * @return cache manager
+     */
+    public CacheManager getCacheManager() {
+        return cacheManager;
+    }
+
     /**
      * Gets jmingo template. Template contains methods to perform CRUD
      * operations and also user queries that are defined in xml files.
@@ -180,6 +198,9 @@ public class Context {
     public void shutdown() throws ShutdownException {
         try {
             queryManager.shutdown();
+            // buffered writes invalidate caches, so the template is closed first
+            JMingoTemplate.shutdown();
+            cacheManager.shutdown();
         } catch (RuntimeException e) {
             throw new ShutdownException(e);
         }
@@ -203,14 +224,45 @@ public class Context {
             mongoDBFactory = mongo != null ? new MongoDBFactory(contextDefinition.getMongoConfig(), mongo)
                     : new MongoDBFactory(contextDefinition.getMongoConfig());
             createElEngine();
-            queryExecutor = new MongoQueryExecutor(mongoDBFactory, queryManager, elEngine, converterService);
-            JMingoTemplate = new JMingoTemplate(queryExecutor, mongoDBFactory, converterService, idGeneratorFactory);
+            CachingConfig cachingConfig = contextDefinition.getCachingConfig();
+            SharedResultCache sharedResultCache = cachingConfig.isSharedCacheEnabled()
+                    ? new MongoSharedResultCache(mongoDBFactory.getDB().getCollection(
+                    cachingConfig.getSharedCacheCollection()), cachingConfig.getSharedCacheLockTimeout(),
+                    TimeUnit.MILLISECONDS)
+                    : null;
+            cacheManager = new CacheManager(cachingConfig, sharedResultCache);
+            if (cachingConfig.isInvalidationBusEnabled()) {
+                cacheManager.connect(new InvalidationBus(mongoDBFactory.getDB(),
+                        cachingConfig.getInvalidationBusCollection(), cachingConfig.getInvalidationBusSize(),
+                        cachingConfig.getInvalidationBusBatchWindow(), TimeUnit.MILLISECONDS));
+            }
+            cacheManager.restore(queryManager::getChecksum);
+            queryExecutor = new MongoQueryExecutor(mongoDBFactory, queryManager, elEngine, converterService,
+                    cacheManager);
+            JMingoTemplate = new JMingoTemplate(queryExecutor, mongoDBFactory, converterService, idGeneratorFactory,
+                    cacheManager);
+            if (cachingConfig.isSharedCacheEnabled()) {
+                createSharedCacheIndexes(cachingConfig.getSharedCacheCollection());
+            }
         } catch (Throwable e) {
             throw new ContextInitializationException(e);
         }
 
     }
 
+    /**
+     * Creates TTL index to remove expired shared results and index to remove results by source collection.
+     */
+    private void createSharedCacheIndexes(String collectionName) {
+        JMingoTemplate.ensureIndex(collectionName, Index.builder()
+                .key(MongoSharedResultCache.EXPIRE_AT_FIELD)
+                .expireAfterSeconds(0)
+                .build());
+        JMingoTemplate.ensureIndex(collectionName, Index.builder()
+                .key(MongoSharedResultCache.COLLECTION_FIELD)
+                .build());
+    }
+
     /**
      * Parses xml file which managing by schema: context.xsd and creates {@link org.jmingo.config.ContextDefinition} object.
      */
@@ -0,0 +1,62 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.document.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Enables client-side Bloom filter of values of the unique field of the document, see
+ * {@link org.jmingo.cache.CollectionBloomFilter}. The filter allows to answer that a document is absent
+ * without a round trip to the database.
+ */
+@Retention(RUNTIME)
+@Target(ElementType.TYPE)
+@Inherited
+public @interface BloomFilter {
+
+    /**
+     * Name of the unique top-level field of the document in the collection.
+     *
+     * @return the field name
+     */
+    String field() default "_id";
+
+    /**
+     * Expected number of documents in the collection, determines memory used by the filter.
+     *
+     * @return the expected number of documents
+     */
+    int expectedInsertions() default 1000000;
+
+    /**
+     * Desired false positive probability, must be in range (0, 1).
+     *
+     * @return the false positive probability
+     */
+    double fpp() default 0.01;
+
+    /**
+     * Interval in seconds between rebuilds of the filter that shed values of removed documents.
+     *
+     * @return the rebuild interval in seconds
+     */
+    long rebuildInterval() default 3600;
+}
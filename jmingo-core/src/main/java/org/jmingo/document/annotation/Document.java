@@ -36,4 +36,34 @@ public @interface Document {
      * @return the collection name
      */
     String collectionName() default "";
+
+    /**
+     * Time in milliseconds after which a document cached by id expires, see {@link org.jmingo.cache.EntityCache}.
+     * Documents aren't cached if the value isn't positive.
+     *
+     * @return the time to live of cached documents
+     */
+    long cacheTtl() default 0;
+
+    /**
+     * Maximum number of documents of the type cached by id.
+     *
+     * @return the maximum number of cached documents
+     */
+    int cacheMaxSize() default 1000;
+
+    /**
+     * Whether ids that don't match any document are cached as well.
+     *
+     * @return true if misses are cached, otherwise false
+     */
+    boolean cacheMisses() default true;
+
+    /**
+     * Name of durability profile declared in the context, writes of documents of the type use the write concern
+     * of the profile, see {@link org.jmingo.mongo.DurabilityProfile}. Empty value means the default profile.
+     *
+     * @return the durability profile name
+     */
+    String durability() default "";
 }
@@ -0,0 +1,64 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.document.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Marks the document as an event of a time series. Events written with
+ * {@link org.jmingo.JMingoTemplate#insertEvent(Object)} aren't stored as separate documents but are appended to
+ * bucket documents, one bucket holds events of one series within one time window up to the maximum number of events.
+ * Buckets are read back with {@link org.jmingo.JMingoTemplate#findEvents(Class, Object, java.util.Date, java.util.Date)}.
+ */
+@Retention(RUNTIME)
+@Target(ElementType.TYPE)
+@Inherited
+public @interface TimeSeries {
+
+    /**
+     * Name of the field of the marshalled event that contains event time, a date or milliseconds since epoch.
+     *
+     * @return the time field name
+     */
+    String timeField();
+
+    /**
+     * Name of the field of the marshalled event that identifies the series, e.g. sensor id.
+     * All events belong to one series if the field isn't specified.
+     *
+     * @return the series field name
+     */
+    String seriesField() default "";
+
+    /**
+     * Length of the time window of a bucket in milliseconds.
+     *
+     * @return the bucket window
+     */
+    long bucketWindow() default 3600000;
+
+    /**
+     * Maximum number of events in a bucket, next events of the window go to a new bucket.
+     *
+     * @return the maximum number of events in a bucket
+     */
+    int maxEvents() default 1000;
+}
@@ -0,0 +1,35 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.document.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Enables change tracking of the document, see {@link org.jmingo.ChangeTracker}. Documents loaded through
+ * {@link org.jmingo.JMingoTemplate} keep a snapshot of their marshalled form and an update of a loaded document
+ * by its id sends only changed fields instead of the whole document. An update of a document without changes
+ * sends $setOnInsert of the id that doesn't write anything without upsert.
+ */
+@Retention(RUNTIME)
+@Target(ElementType.TYPE)
+@Inherited
+public @interface TrackChanges {
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.exceptions;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.List;
+
+/**
+ * Thrown when some documents of a batch insert weren't inserted. Contains errors of failed documents
+ * mapped to positions of the objects in the inserted collection.
+ */
+public class BatchInsertException extends JMingoException {
+
+    private final int insertedCount;
+    private final List<InsertError> errors;
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param insertedCount the number of inserted documents
+     * @param errors        the errors of failed documents
+     */
+    public BatchInsertException(int insertedCount, List<InsertError> errors) {
+        super(errors.size() + " document(s) weren't inserted, " + insertedCount + " document(s) were inserted. " +
+                "first error: " + (errors.isEmpty() ? null : errors.get(0).getMessage()));
+        this.insertedCount = insertedCount;
+        this.errors = ImmutableList.copyOf(errors);
+    }
+
+    /**
+     * Gets the number of documents inserted before the insert stopped (ordered mode) or completed (unordered mode).
+     *
+     * @return the number of inserted documents
+     */
+    public int getInsertedCount() {
+        return insertedCount;
+    }
+
+    /**
+     * Gets errors of failed documents in order of positions.
+     *
+     * @return immutable list of errors
+     */
+    public List<InsertError> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Error of a document that wasn't inserted. Immutable.
+     */
+    public static class InsertError {
+        private final int index;
+        private final Object object;
+        private final int code;
+        private final String message;
+
+        /**
+         * Constructor with parameters.
+         *
+         * @param index   the position of the object in the inserted collection
+         * @param object  the object that wasn't inserted
+         * @param code    the server error code
+         * @param message the server error message
+         */
+        public InsertError(int index, Object object, int code, String message) {
+            this.index = index;
+            this.object = object;
+            this.code = code;
+            this.message = message;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public Object getObject() {
+            return object;
+        }
+
+        public int getCode() {
+            return code;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return new ToStringBuilder(this)
+                    .append("index", index)
+                    .append("code", code)
+                    .append("message", message)
+                    .toString();
+        }
+    }
+}
@@ -17,6 +17,20 @@ package org.jmingo.executor;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.jmingo.cache.CacheConfig;
+import org.jmingo.cache.CacheManager;
+import org.jmingo.cache.CachedCollection;
+import org.jmingo.cache.CollectionCacheConfig;
+import org.jmingo.cache.MaterializedView;
+import org.jmingo.cache.MaterializedViewConfig;
+import org.jmingo.cache.OffHeapResultCache;
+import org.jmingo.cache.PrefetchCache;
+import org.jmingo.cache.PrefetchConfig;
+import org.jmingo.cache.QueryCacheKey;
+import org.jmingo.cache.SharedResultCache;
+import org.jmingo.cache.SingleFlight;
+import org.jmingo.cache.WarmStartCache;
 import org.jmingo.el.api.ELEngine;
 import org.jmingo.mapping.convert.ConversionUtils;
 import org.jmingo.mapping.convert.Converter;
@@ -24,11 +38,14 @@ import org.jmingo.mapping.convert.ConverterService;
 import org.jmingo.mapping.marshall.JsonToDBObjectMarshaller;
 import org.jmingo.mapping.marshall.mongo.MongoBsonMarshallingFactory;
 import org.jmingo.mongo.MongoDBFactory;
+import org.jmingo.query.Query;
 import org.jmingo.query.QueryManager;
 import org.jmingo.query.QueryStatement;
 import org.jmingo.query.QueryType;
+import org.jmingo.util.QueryUtils;
 import com.mongodb.AggregationOutput;
 import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
 import com.mongodb.DB;
 import com.mongodb.DBCollection;
 import com.mongodb.DBCursor;
@@ -36,7 +53,9 @@ import com.mongodb.DBObject;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
+import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
@@ -54,6 +73,7 @@ public class MongoQueryExecutor extends AbstractQueryExecutor implements QueryEx
     private QueryManager queryManager;
     private ELEngine elEngine;
     private ConverterService converterService;
+    private CacheManager cacheManager;
     private Map<QueryType, QueryStrategy> queryStrategyMap =
             new ImmutableMap.Builder<QueryType, QueryStrategy>()
                     .put(QueryType.AGGREGATION, new AggregationQueryStrategy())
@@ -63,6 +83,8 @@ public class MongoQueryExecutor extends AbstractQueryExecutor implements QueryEx
     private static final JsonToDBObjectMarshaller JSON_TO_DB_OBJECT_MARSHALLER = new MongoBsonMarshallingFactory().createJsonToDbObjectMarshaller();
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MongoQueryExecutor.class);
+    /* number of documents inserted into the shadow collection per round trip if $out isn't supported */
+    private static final int MATERIALIZE_BATCH_SIZE = 1000;
 
     /**
      * Constructor to create mongo query executor.
@@ -74,10 +96,25 @@ public class MongoQueryExecutor extends AbstractQueryExecutor implements QueryEx
      */
     public MongoQueryExecutor(MongoDBFactory mongoDBFactory, QueryManager queryManager, ELEngine elEngine,
                               ConverterService converterService) {
+        this(mongoDBFactory, queryManager, elEngine, converterService, new CacheManager());
+    }
+
+    /**
+     * Constructor to create mongo query executor.
+     *
+     * @param mongoDBFactory   the mongodb factory
+     * @param queryManager     the query manager
+     * @param elEngine         the EL engine
+     * @param converterService the converter service
+     * @param cacheManager     the cache manager to cache results of queries that have cache settings
+     */
+    public MongoQueryExecutor(MongoDBFactory mongoDBFactory, QueryManager queryManager, ELEngine elEngine,
+                              ConverterService converterService, CacheManager cacheManager) {
         this.mongoDBFactory = mongoDBFactory;
         this.queryManager = queryManager;
         this.elEngine = elEngine;
         this.converterService = converterService;
+        this.cacheManager = cacheManager;
     }
 
 
@@ -87,7 +124,7 @@ public class MongoQueryExecutor extends AbstractQueryExecutor implements QueryEx
     @Override
     public <T> T queryForObject(String queryName, Class<T> type, Map<String, Object> parameters) {
         LOGGER.debug("queryForObject(queryName={}, type={}, parameters={})", queryName, type, parameters);
-        return doQuery(queryName, type, parameters, QueryStrategy::queryForObject);
+        return doQuery(queryName, type, parameters, false, QueryStrategy::queryForObject);
     }
 
     /**
@@ -101,7 +138,7 @@ public class MongoQueryExecutor extends AbstractQueryExecutor implements QueryEx
     @Override
     public <T> List<T> queryForList(String queryName, Class<T> type, Map<String, Object> parameters) {
         LOGGER.debug("queryForList(queryName={}, type={}, parameters={})", queryName, type, parameters);
-        return doQuery(queryName, type, parameters, QueryStrategy::<T>queryForList);
+        return doQuery(queryName, type, parameters, true, QueryStrategy::<T>queryForList);
     }
 
     @Override
@@ -109,10 +146,225 @@ public class MongoQueryExecutor extends AbstractQueryExecutor implements QueryEx
         return queryForList(queryName, type, ImmutableMap.<String, Object>of());
     }
 
-    private <S, R> R doQuery(String queryName, Class<S> type, Map<String, Object> parameters,
+    @SuppressWarnings("unchecked")
+    private <S, R> R doQuery(String queryName, Class<S> type, Map<String, Object> parameters, boolean list,
                              QueryCallback<S, R> queryCallback) {
         Validate.notEmpty(queryName, "query name cannot be null");
         Validate.notNull(type, "type cannot be null");
+        Query query = queryManager.lookupQuery(queryName);
+        if (query.getPrefetchConfig() == null || !list) {
+            return doQuery(query, queryName, type, parameters, list, queryCallback);
+        }
+        R result = (R) cacheManager.getPrefetchCache().take(new QueryCacheKey(queryName, parameters, type, true));
+        if (result == null) {
+            result = doQuery(query, queryName, type, parameters, true, queryCallback);
+        }
+        prefetchNextPage(query, queryName, type, parameters, result, queryCallback);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <S, R> R doQuery(Query query, String queryName, Class<S> type, Map<String, Object> parameters,
+                             boolean list, QueryCallback<S, R> queryCallback) {
+        if (query.getCollectionCacheConfig() != null && query.getQueryType() == QueryType.PLAIN) {
+            QueryStatement queryStatement = new QueryStatement(queryManager, elEngine, queryName, parameters);
+            DBObject condition = JSON_TO_DB_OBJECT_MARSHALLER.marshall(queryStatement.getPreparedQuery(),
+                    queryStatement.getParameters());
+            if (CachedCollection.supports(condition)) {
+                return (R) queryStrategyMap.get(QueryType.PLAIN).convert(
+                        findInCachedCollection(queryStatement.getCollectionName(),
+                                query.getCollectionCacheConfig(), condition, list),
+                        type, query.getConverterClass(), query.getConverterMethod(), list);
+            }
+            LOGGER.debug("query '{}' cannot be evaluated in memory and is sent to the database", queryName);
+        }
+        MaterializedViewConfig viewConfig = query.getMaterializedViewConfig();
+        if (viewConfig != null && MapUtils.isEmpty(parameters)) {
+            MaterializedView view = cacheManager.getMaterializedView(queryName, viewConfig, this::materialize);
+            if (view.isAvailable()) {
+                return (R) queryStrategyMap.get(QueryType.AGGREGATION).convert(findInView(view), type,
+                        query.getConverterClass(), query.getConverterMethod(), list);
+            }
+        }
+        CacheConfig cacheConfig = query.getCacheConfig();
+        QueryCacheKey cacheKey = new QueryCacheKey(queryName, parameters, type, list);
+        if (cacheConfig == null) {
+            return coalesce(cacheKey, () -> execute(queryName, type, parameters, queryCallback));
+        }
+        QueryStrategy queryStrategy = queryStrategyMap.get(query.getQueryType());
+        OffHeapResultCache offHeapResultCache = cacheManager.getOffHeapResultCache();
+        if (cacheConfig.isOffHeap() && offHeapResultCache != null) {
+            // raw result doesn't depend on the target type
+            QueryCacheKey rawKey = new QueryCacheKey(queryName, parameters, DBObject.class, list);
+            return (R) offHeapResultCache.get(rawKey, QueryUtils.getCollectionName(queryName), cacheConfig.getTtl(),
+                    () -> coalesce(rawKey, () -> find(queryStrategy, query, queryName, parameters, list)),
+                    source -> queryStrategy.convert(source, type, query.getConverterClass(),
+                            query.getConverterMethod(), list));
+        }
+        if ((cacheConfig.isPersistent() && cacheManager.getWarmStartCache() != null)
+                || (cacheConfig.isShared() && cacheManager.getSharedResultCache() != null)) {
+            return cacheManager.getQueryResultCache().get(cacheKey, cacheConfig,
+                    () -> coalesce(cacheKey, () -> (R) queryStrategy.convert(
+                            find(queryStrategy, query, queryName, parameters, list), type,
+                            query.getConverterClass(), query.getConverterMethod(), list)));
+        }
+        return cacheManager.getQueryResultCache().get(cacheKey, cacheConfig,
+                () -> coalesce(cacheKey, () -> execute(queryName, type, parameters, queryCallback)));
+    }
+
+    /**
+     * Fetches the page that follows the served one in background if the served page is full,
+     * so the request of the next page is served without a round trip to the database.
+     */
+    private <S, R> void prefetchNextPage(Query query, String queryName, Class<S> type, Map<String, Object> parameters,
+                                         R page, QueryCallback<S, R> queryCallback) {
+        PrefetchConfig config = query.getPrefetchConfig();
+        if (parameters == null || !(page instanceof List)) {
+            return;
+        }
+        Object skip = parameters.get(config.getSkipParameter());
+        Object limit = parameters.get(config.getLimitParameter());
+        if (!isInteger(skip) || !isInteger(limit)) {
+            return;
+        }
+        long limitValue = ((Number) limit).longValue();
+        if (limitValue <= 0 || ((List<?>) page).size() < limitValue) {
+            // the last page
+            return;
+        }
+        long nextSkip = ((Number) skip).longValue() + limitValue;
+        if (skip instanceof Integer && nextSkip > Integer.MAX_VALUE) {
+            return;
+        }
+        Map<String, Object> nextParameters = Maps.newHashMap(parameters);
+        // keep the type of the parameter, so the key of the next page is equal to the key of the request
+        nextParameters.put(config.getSkipParameter(), skip instanceof Integer ? (Object) (int) nextSkip : nextSkip);
+        PrefetchCache prefetchCache = cacheManager.getPrefetchCache();
+        prefetchCache.prefetch(new QueryCacheKey(queryName, nextParameters, type, true), config.getTtl(),
+                () -> doQuery(query, queryName, type, nextParameters, true, queryCallback));
+    }
+
+    private static boolean isInteger(Object value) {
+        return value instanceof Integer || value instanceof Long;
+    }
+
+    /**
+     * Evaluates the query against in-memory snapshot of the collection.
+     *
+     * @return raw result in the same form as {@link QueryStrategy#find} returns
+     */
+    private DBObject findInCachedCollection(String collectionName, CollectionCacheConfig config, DBObject condition,
+                                            boolean list) {
+        CachedCollection collection = cacheManager.getCollectionCache().get(collectionName, config, () -> {
+            List<DBObject> documents = Lists.newArrayList();
+            for (DBObject document : getDbCollection(collectionName).find()) {
+                documents.add(document);
+            }
+            return documents;
+        });
+        List<DBObject> found = collection.find(condition, list ? 0 : 1);
+        if (!list) {
+            return found.isEmpty() ? null : found.get(0);
+        }
+        BasicDBList result = new BasicDBList();
+        result.addAll(found);
+        return result;
+    }
+
+    /**
+     * Performs the pipeline of materialized query into the shadow collection and atomically replaces
+     * the view collection with the shadow one. Servers 2.6 and newer write the result with $out stage,
+     * older servers don't support $out, so the result is returned inline and inserted into the shadow collection
+     * in batches, in this case the result is limited by the maximum size of a document.
+     */
+    private void materialize(MaterializedView view) {
+        QueryStatement queryStatement = new QueryStatement(queryManager, elEngine, view.getQueryName(),
+                ImmutableMap.<String, Object>of());
+        BasicDBList pipeline = (BasicDBList) JSON_TO_DB_OBJECT_MARSHALLER.marshall(queryStatement.getPreparedQuery(),
+                queryStatement.getParameters());
+        DBCollection source = getDbCollection(queryStatement.getCollectionName());
+        if (mongoDBFactory.isServerVersionAtLeast(2, 6)) {
+            pipeline.add(new BasicDBObject("$out", view.getShadowName()));
+            performAggregationQuery(source, pipeline);
+        } else {
+            DBCollection shadow = getDbCollection(view.getShadowName());
+            shadow.drop();
+            // rename requires the collection to exist even if the result is empty
+            getDB().createCollection(view.getShadowName(), new BasicDBObject());
+            List<DBObject> batch = Lists.newArrayListWithCapacity(MATERIALIZE_BATCH_SIZE);
+            for (DBObject item : performAggregationQuery(source, pipeline).results()) {
+                batch.add(item);
+                if (batch.size() == MATERIALIZE_BATCH_SIZE) {
+                    shadow.insert(batch);
+                    batch = Lists.newArrayListWithCapacity(MATERIALIZE_BATCH_SIZE);
+                }
+            }
+            if (!batch.isEmpty()) {
+                shadow.insert(batch);
+            }
+        }
+        getDbCollection(view.getShadowName()).rename(view.getViewName(), true);
+    }
+
+    /**
+     * Reads materialized result in natural order, that is the order documents were written to the shadow collection.
+     *
+     * @return raw result in the same form as aggregation query returns
+     */
+    private DBObject findInView(MaterializedView view) {
+        BasicDBList result = new BasicDBList();
+        for (DBObject item : getDbCollection(view.getViewName()).find()) {
+            result.add(item);
+        }
+        return result;
+    }
+
+    /**
+     * Shares one in-flight execution between identical concurrent calls if single-flight is enabled.
+     */
+    private <R> R coalesce(QueryCacheKey key, Supplier<R> supplier) {
+        SingleFlight singleFlight = cacheManager.getSingleFlight();
+        return singleFlight != null ? singleFlight.execute(key, supplier) : supplier.get();
+    }
+
+    /**
+     * Finds raw result of the query. Results of shared queries are taken from the shared cache,
+     * so a result is computed once per cluster.
+     */
+    private DBObject find(QueryStrategy queryStrategy, Query query, String queryName, Map<String, Object> parameters,
+                          boolean list) {
+        SharedResultCache sharedResultCache = cacheManager.getSharedResultCache();
+        String sharedKey = sharedResultCache != null && query.getCacheConfig().isShared()
+                ? SharedResultCache.key(queryName, parameters, list, queryManager.getChecksum(queryName))
+                : null;
+        if (sharedKey == null) {
+            return load(queryStrategy, query, queryName, parameters, list);
+        }
+        return sharedResultCache.get(sharedKey, QueryUtils.getCollectionName(queryName),
+                query.getCacheConfig().getTtl(), () -> load(queryStrategy, query, queryName, parameters, list));
+    }
+
+    /**
+     * Loads raw result of the query. Results of persistent queries are taken from the snapshot
+     * on the first call after restart and are stored in the snapshot.
+     */
+    private DBObject load(QueryStrategy queryStrategy, Query query, String queryName, Map<String, Object> parameters,
+                          boolean list) {
+        WarmStartCache warmStartCache = cacheManager.getWarmStartCache();
+        if (warmStartCache == null || !query.getCacheConfig().isPersistent()) {
+            return queryStrategy.find(new QueryStatement(queryManager, elEngine, queryName, parameters), list);
+        }
+        String checksum = queryManager.getChecksum(queryName);
+        DBObject result = warmStartCache.get(queryName, parameters, list, checksum);
+        if (result == null) {
+            result = queryStrategy.find(new QueryStatement(queryManager, elEngine, queryName, parameters), list);
+            warmStartCache.put(queryName, parameters, list, checksum, result, query.getCacheConfig().getTtl());
+        }
+        return result;
+    }
+
+    private <S, R> R execute(String queryName, Class<S> type, Map<String, Object> parameters,
+                             QueryCallback<S, R> queryCallback) {
         QueryStatement queryStatement = new QueryStatement(queryManager, elEngine, queryName, parameters);
         QueryStrategy queryStrategy = queryStrategyMap.get(queryStatement.getQueryType());
         return queryCallback.query(queryStrategy, queryStatement, type);
@@ -144,6 +396,23 @@ public class MongoQueryExecutor extends AbstractQueryExecutor implements QueryEx
         abstract <T> List<T> queryForList(QueryStatement queryStatement, Class<T> type);
 
         abstract <T> T queryForObject(QueryStatement queryStatement, Class<T> type);
+
+        /**
+         * Performs the query and returns raw result that can be converted by {@link #convert}.
+         *
+         * @param queryStatement the query statement
+         * @param list           true to find all matched documents, false to find one
+         * @return raw result
+         */
+        abstract DBObject find(QueryStatement queryStatement, boolean list);
+
+        /**
+         * Converts raw result returned by {@link #find}.
+         *
+         * @return converted list if list is true, otherwise converted object
+         */
+        abstract <T> Object convert(DBObject source, Class<T> type, String converterClass, String converterMethod,
+                                    boolean list);
     }
 
     /**
@@ -172,6 +441,24 @@ public class MongoQueryExecutor extends AbstractQueryExecutor implements QueryEx
             BasicDBList result = getAsBasicDBList(aggregationOutput);
             return convertOne(type, result, queryStatement.getConverterClass(), queryStatement.getConverterMethod());
         }
+
+        @Override
+        DBObject find(QueryStatement queryStatement, boolean list) {
+            DBCollection dbCollection = getDbCollection(queryStatement.getCollectionName());
+            BasicDBList query = (BasicDBList) JSON_TO_DB_OBJECT_MARSHALLER.marshall(queryStatement.getPreparedQuery(),
+                    queryStatement.getParameters());
+            return getAsBasicDBList(performAggregationQuery(dbCollection, query));
+        }
+
+        @Override
+        <T> Object convert(DBObject source, Class<T> type, String converterClass, String converterMethod,
+                           boolean list) {
+            if (list) {
+                List<T> result = convertList(type, (BasicDBList) source, converterClass, converterMethod);
+                return result != null ? result : Lists.<T>newArrayList();
+            }
+            return convertOne(type, source, converterClass, converterMethod);
+        }
     }
 
     /**
@@ -198,6 +485,34 @@ public class MongoQueryExecutor extends AbstractQueryExecutor implements QueryEx
             DBObject result = dbCollection.findOne(query);
             return convertOne(type, result, queryStatement.getConverterClass(), queryStatement.getConverterMethod());
         }
+
+        @Override
+        DBObject find(QueryStatement queryStatement, boolean list) {
+            DBCollection dbCollection = getDbCollection(queryStatement.getCollectionName());
+            DBObject query = JSON_TO_DB_OBJECT_MARSHALLER.marshall(queryStatement.getPreparedQuery(),
+                    queryStatement.getParameters());
+            if (!list) {
+                return dbCollection.findOne(query);
+            }
+            BasicDBList result = new BasicDBList();
+            for (DBObject item : dbCollection.find(query)) {
+                result.add(item);
+            }
+            return result;
+        }
+
+        @Override
+        <T> Object convert(DBObject source, Class<T> type, String converterClass, String converterMethod,
+                           boolean list) {
+            if (list) {
+                List<T> result = Lists.newArrayList();
+                for (Object item : (BasicDBList) source) {
+                    result.add(convertOne(type, (DBObject) item, converterClass, converterMethod));
+                }
+                return result;
+            }
+            return convertOne(type, source, converterClass, converterMethod);
+        }
     }
 
     private <T> List<T> convertList(Class<T> type, DBCursor result, String converterClass, String converterMethod) {
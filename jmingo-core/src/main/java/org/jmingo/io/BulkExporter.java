@@ -0,0 +1,356 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.io;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mongodb.AggregationOptions;
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.Cursor;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.util.JSON;
+import net.jcip.annotations.ThreadSafe;
+import org.apache.commons.lang3.Validate;
+import org.jmingo.context.Context;
+import org.jmingo.el.api.ELEngine;
+import org.jmingo.exceptions.JMingoException;
+import org.jmingo.mapping.marshall.JsonToDBObjectMarshaller;
+import org.jmingo.mapping.marshall.mongo.MongoBsonMarshallingFactory;
+import org.jmingo.mongo.MongoDBFactory;
+import org.jmingo.query.Criteria;
+import org.jmingo.query.QueryManager;
+import org.jmingo.query.QueryStatement;
+import org.jmingo.query.QueryType;
+import org.jmingo.util.DocumentUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports documents of a collection, documents that satisfy a criteria or results of a named query into files
+ * with newline-delimited JSON documents, the format is read by {@link BulkImporter}. Documents are written
+ * from the cursor one by one, the memory usage doesn't depend on the number of documents.
+ * <p>
+ * If the number of parts is gt 1, the documents are split into ranges of _id of about the same size and the ranges
+ * are exported in parallel into separate files: 'users.json' is exported into 'users-part-0.json',
+ * 'users-part-1.json' and so on. Results of aggregation queries are always exported into one file.
+ */
+@ThreadSafe
+public class BulkExporter {
+
+    private static final String ID_FIELD = "_id";
+    private static final JsonToDBObjectMarshaller JSON_TO_DB_OBJECT_MARSHALLER =
+            new MongoBsonMarshallingFactory().createJsonToDbObjectMarshaller();
+
+    private final MongoDBFactory mongoDBFactory;
+    private final QueryManager queryManager;
+    private final ELEngine elEngine;
+    private final ExportConfig config;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BulkExporter.class);
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param mongoDBFactory the factory of db to read from
+     * @param queryManager   the query manager to look up named queries
+     * @param elEngine       the EL engine to build named queries
+     * @param config         the export settings
+     */
+    public BulkExporter(MongoDBFactory mongoDBFactory, QueryManager queryManager, ELEngine elEngine,
+                        ExportConfig config) {
+        Validate.notNull(mongoDBFactory, "mongoDBFactory cannot be null");
+        Validate.notNull(config, "export config cannot be null");
+        this.mongoDBFactory = mongoDBFactory;
+        this.queryManager = queryManager;
+        this.elEngine = elEngine;
+        this.config = config;
+    }
+
+    /**
+     * Creates exporter that uses db and queries of the context.
+     *
+     * @param context the jmingo context
+     * @param config  the export settings
+     */
+    public BulkExporter(Context context, ExportConfig config) {
+        this(context.getMongoDBFactory(), context.getQueryManager(), context.getElEngine(), config);
+    }
+
+    public ExportConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Exports all documents of the collection.
+     *
+     * @param collectionName the collection name
+     * @param file           the file to write
+     * @return export result
+     * @throws JMingoException if export failed
+     */
+    public ExportResult exportCollection(String collectionName, Path file) {
+        Validate.notBlank(collectionName, "collectionName cannot be null or empty");
+        return exportFind(collectionName, new BasicDBObject(), file);
+    }
+
+    /**
+     * Exports documents of the document type that satisfy the criteria.
+     *
+     * @param criteria     the criteria
+     * @param documentType the document type
+     * @param file         the file to write
+     * @return export result
+     * @throws JMingoException if export failed
+     */
+    public ExportResult export(Criteria criteria, Class<?> documentType, Path file) {
+        DocumentUtils.assertDocument(documentType);
+        return export(criteria, DocumentUtils.getCollectionName(documentType), file);
+    }
+
+    /**
+     * Exports documents of the collection that satisfy the criteria.
+     *
+     * @param criteria       the criteria
+     * @param collectionName the collection name
+     * @param file           the file to write
+     * @return export result
+     * @throws JMingoException if export failed
+     */
+    public ExportResult export(Criteria criteria, String collectionName, Path file) {
+        Validate.notNull(criteria, "criteria cannot be null");
+        Validate.notBlank(collectionName, "collectionName cannot be null or empty");
+        return exportFind(collectionName,
+                JSON_TO_DB_OBJECT_MARSHALLER.marshall(criteria.query(), criteria.getParameters()), file);
+    }
+
+    /**
+     * Exports results of the named query, plain or aggregation. Converters of the query aren't applied.
+     *
+     * @param queryName  the query name
+     * @param parameters the query parameters
+     * @param file       the file to write
+     * @return export result
+     * @throws JMingoException if export failed
+     */
+    public ExportResult exportQuery(String queryName, Map<String, Object> parameters, Path file) {
+        Validate.notNull(queryManager, "query manager is required to export named queries");
+        Map<String, Object> queryParameters = parameters != null ? parameters : Collections.emptyMap();
+        QueryStatement statement = new QueryStatement(queryManager, elEngine, queryName, queryParameters);
+        DBObject query = JSON_TO_DB_OBJECT_MARSHALLER.marshall(statement.getPreparedQuery(), queryParameters);
+        if (statement.getQueryType() != QueryType.AGGREGATION) {
+            return exportFind(statement.getCollectionName(), query, file);
+        }
+        List<DBObject> pipeline = Lists.newArrayList();
+        for (Object stage : (BasicDBList) query) {
+            pipeline.add((DBObject) stage);
+        }
+        DBObject projection = getProjection(config);
+        if (projection != null) {
+            pipeline.add(new BasicDBObject("$project", projection));
+        }
+        long start = System.currentTimeMillis();
+        AggregationOptions options = AggregationOptions.builder()
+                .outputMode(AggregationOptions.OutputMode.CURSOR)
+                .batchSize(config.getBatchSize())
+                .build();
+        long count;
+        try (Cursor cursor = getCollection(statement.getCollectionName()).aggregate(pipeline, options)) {
+            count = write(cursor, file, config);
+        }
+        return result(Collections.singletonList(file), count, start);
+    }
+
+    private ExportResult exportFind(String collectionName, DBObject query, Path file) {
+        long start = System.currentTimeMillis();
+        DBCollection collection = getCollection(collectionName);
+        List<Object> splitPoints = config.getParts() > 1
+                ? getSplitPoints(collection, query)
+                : Collections.emptyList();
+        if (splitPoints.isEmpty()) {
+            return result(Collections.singletonList(file), exportRange(collection, query, file), start);
+        }
+        int parts = splitPoints.size() + 1;
+        ExecutorService workers = Executors.newFixedThreadPool(parts,
+                new ThreadFactoryBuilder().setNameFormat("jmingo-export-%d").setDaemon(true).build());
+        try {
+            List<Path> files = Lists.newArrayList();
+            List<Future<Long>> futures = Lists.newArrayList();
+            for (int part = 0; part < parts; part++) {
+                Path partFile = getPartFile(file, part);
+                DBObject range = new BasicDBObject();
+                if (part > 0) {
+                    range.put("$gte", splitPoints.get(part - 1));
+                }
+                if (part < parts - 1) {
+                    range.put("$lt", splitPoints.get(part));
+                }
+                DBObject rangeQuery = query.keySet().isEmpty()
+                        ? new BasicDBObject(ID_FIELD, range)
+                        : new BasicDBObject("$and", Lists.newArrayList(query, new BasicDBObject(ID_FIELD, range)));
+                files.add(partFile);
+                futures.add(workers.submit(() -> exportRange(collection, rangeQuery, partFile)));
+            }
+            long count = 0;
+            for (Future<Long> future : futures) {
+                count += future.get();
+            }
+            return result(files, count, start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JMingoException("export of collection '" + collectionName + "' was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new JMingoException("failed to export collection '" + collectionName + "'", e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private long exportRange(DBCollection collection, DBObject query, Path file) {
+        try (DBCursor cursor = collection.find(query, getProjection(config)).batchSize(config.getBatchSize())) {
+            return write(cursor, file, config);
+        }
+    }
+
+    /**
+     * Finds values of _id that split documents that satisfy the query into parts of about the same size.
+     *
+     * @return ordered distinct split points, empty if the documents can't be split
+     */
+    private List<Object> getSplitPoints(DBCollection collection, DBObject query) {
+        return getSplitPoints(collection.count(query), config.getParts(), position -> {
+            try (DBCursor cursor = collection.find(query, new BasicDBObject(ID_FIELD, 1))
+                    .sort(new BasicDBObject(ID_FIELD, 1)).skip(position).limit(1)) {
+                return cursor.hasNext() ? cursor.next().get(ID_FIELD) : null;
+            }
+        });
+    }
+
+    /**
+     * Computes split points of documents ordered by _id.
+     *
+     * @param count        the number of documents
+     * @param parts        the number of parts
+     * @param idAtPosition the function that gets _id of the document at the position or null if there is no document
+     * @return ordered distinct split points, empty if the documents can't be split
+     */
+    static List<Object> getSplitPoints(long count, int parts, IntFunction<Object> idAtPosition) {
+        List<Object> splitPoints = Lists.newArrayList();
+        for (int part = 1; part < parts; part++) {
+            int position = (int) (count * part / parts);
+            if (position == 0) {
+                continue;
+            }
+            Object id = idAtPosition.apply(position);
+            // positions of small collections can point to the same document
+            if (id != null && (splitPoints.isEmpty() || !splitPoints.get(splitPoints.size() - 1).equals(id))) {
+                splitPoints.add(id);
+            }
+        }
+        return splitPoints;
+    }
+
+    /**
+     * Writes documents to the file as newline-delimited JSON.
+     *
+     * @return the number of written documents
+     */
+    static long write(Iterator<DBObject> documents, Path file, ExportConfig config) {
+        long count = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             Writer writer = createWriter(channel, config)) {
+            StringBuilder line = new StringBuilder();
+            while (documents.hasNext()) {
+                line.setLength(0);
+                JSON.serialize(documents.next(), line);
+                writer.append(line).append('\n');
+                count++;
+            }
+        } catch (IOException e) {
+            throw new JMingoException("failed to export to file " + file, e);
+        }
+        LOGGER.debug("{} documents were exported to file {}", count, file);
+        return count;
+    }
+
+    private static Writer createWriter(FileChannel channel, ExportConfig config) throws IOException {
+        OutputStream output = Channels.newOutputStream(channel);
+        if (config.isGzip()) {
+            output = new GZIPOutputStream(output, config.getBufferSize());
+        }
+        return new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), config.getBufferSize());
+    }
+
+    /**
+     * Creates projection of the fields to export.
+     *
+     * @return the projection or null to export all fields
+     */
+    static DBObject getProjection(ExportConfig config) {
+        if (config.getFields().isEmpty()) {
+            return null;
+        }
+        DBObject projection = new BasicDBObject();
+        config.getFields().forEach(field -> projection.put(field, 1));
+        return projection;
+    }
+
+    private DBCollection getCollection(String collectionName) {
+        return mongoDBFactory.getDB().getCollection(collectionName);
+    }
+
+    private ExportResult result(List<Path> files, long count, long start) {
+        ExportResult result = new ExportResult(files, count, System.currentTimeMillis() - start);
+        LOGGER.info("export completed: {}", result);
+        return result;
+    }
+
+    /**
+     * Gets file of the part, the part number is inserted before extensions: 'users.json.gz' - 'users-part-1.json.gz'.
+     */
+    static Path getPartFile(Path file, int part) {
+        String name = file.getFileName().toString();
+        int extension = name.indexOf('.', 1);
+        String partName = extension > 0
+                ? name.substring(0, extension) + "-part-" + part + name.substring(extension)
+                : name + "-part-" + part;
+        return file.resolveSibling(partName);
+    }
+}
@@ -0,0 +1,267 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.io;
+
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mongodb.DBObject;
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+import org.apache.commons.lang3.Validate;
+import org.jmingo.BulkOperations;
+import org.jmingo.BulkResult;
+import org.jmingo.JMingoTemplate;
+import org.jmingo.exceptions.JMingoException;
+import org.jmingo.mapping.marshall.BsonUnmarshaller;
+import org.jmingo.mapping.marshall.jackson.JacksonBsonMarshallingFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Imports documents from a file with newline-delimited JSON documents or a JSON array of documents, see
+ * {@link JsonRecordReader}. The file is parsed by the calling thread, documents are grouped in batches that are
+ * inserted by several workers in parallel, each batch takes one round trip. The number of batches in memory is
+ * limited by twice the number of workers so the memory usage doesn't depend on the file size.
+ * <p>
+ * If the document type is set, documents are converted to the type and ids are generated like on
+ * {@link JMingoTemplate#insert(Object)}, otherwise documents are inserted as is. Documents rejected by the server,
+ * e.g. because of duplicate key, are counted and skipped. If a batch fails entirely, the import stops and
+ * can be restarted from the offset of the last progress, see {@link ImportProgress#getOffset()}.
+ * <p>
+ * The offset advances only over contiguous written batches, batches after a failed one may be already written.
+ * A restart skips such records as duplicate keys only if records carry _id, records without _id get a new id
+ * on each run and are inserted again, so restarting is safe only for records that carry _id.
+ */
+@ThreadSafe
+public class BulkImporter {
+
+    private static final int DUPLICATE_KEY_ERROR = 11000;
+    private static final int DUPLICATE_KEY_UPDATE_ERROR = 11001;
+
+    private final ImportConfig config;
+    /* inserts a batch of records in unordered mode */
+    private final Function<List<DBObject>, BulkResult> inserter;
+    private final BsonUnmarshaller unmarshaller = new JacksonBsonMarshallingFactory().createUnmarshaller();
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BulkImporter.class);
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param template the template to insert documents
+     * @param config   the import settings
+     */
+    public BulkImporter(JMingoTemplate template, ImportConfig config) {
+        Validate.notNull(template, "template cannot be null");
+        Validate.notNull(config, "import config cannot be null");
+        this.config = config;
+        this.inserter = batch -> insert(template, batch);
+    }
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param config   the import settings
+     * @param inserter the function that inserts a batch of records and returns the result of the bulk write
+     */
+    BulkImporter(ImportConfig config, Function<List<DBObject>, BulkResult> inserter) {
+        Validate.notNull(config, "import config cannot be null");
+        Validate.notNull(inserter, "inserter cannot be null");
+        this.config = config;
+        this.inserter = inserter;
+    }
+
+    public ImportConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Imports documents from the file starting at the configured offset, waits until all documents are written.
+     *
+     * @param file the file to import
+     * @return final progress
+     * @throws JMingoException if the file can't be read or parsed or a batch failed, the message contains the offset
+     *                         to restart from, restarting is safe only for records that carry _id
+     */
+    public ImportProgress importFile(Path file) {
+        Validate.notNull(file, "file cannot be null");
+        ExecutorService workers = Executors.newFixedThreadPool(config.getWorkers(),
+                new ThreadFactoryBuilder().setNameFormat("jmingo-import-%d").setDaemon(true).build());
+        ImportRun run = null;
+        try (JsonRecordReader reader = new JsonRecordReader(file, config.getOffset())) {
+            run = new ImportRun(config.getOffset(), reader.size());
+            Semaphore inFlight = new Semaphore(config.getWorkers() * 2);
+            long sequence = 0;
+            List<DBObject> batch = new ArrayList<>(config.getBatchSize());
+            DBObject record;
+            while (run.failure.get() == null && (record = reader.next()) != null) {
+                batch.add(record);
+                run.readCount.increment();
+                if (batch.size() >= config.getBatchSize()) {
+                    submit(workers, inFlight, run, sequence++, batch, reader.getOffset());
+                    batch = new ArrayList<>(config.getBatchSize());
+                }
+            }
+            if (!batch.isEmpty() && run.failure.get() == null) {
+                submit(workers, inFlight, run, sequence, batch, reader.getOffset());
+            }
+        } catch (IOException | RuntimeException e) {
+            if (run == null) {
+                workers.shutdownNow();
+                throw new JMingoException("failed to import file " + file, e);
+            }
+            run.failure.compareAndSet(null, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            run.failure.compareAndSet(null, e);
+        } finally {
+            awaitTermination(workers);
+        }
+        ImportProgress progress = run.progress();
+        Throwable failure = run.failure.get();
+        if (failure != null) {
+            throw new JMingoException("import of file " + file + " failed, it can be restarted from offset "
+                    + progress.getOffset() + ", records after the offset may be already written, restarting is safe"
+                    + " only for records that carry _id", failure);
+        }
+        LOGGER.info("file {} was imported: {}", file, progress);
+        return progress;
+    }
+
+    private void submit(ExecutorService workers, Semaphore inFlight, ImportRun run, long sequence,
+                        List<DBObject> batch, long endOffset) throws InterruptedException {
+        inFlight.acquire();
+        try {
+            workers.execute(() -> {
+                try {
+                    insert(batch, run);
+                    run.complete(sequence, endOffset);
+                    if (config.getProgressListener() != null) {
+                        config.getProgressListener().accept(run.progress());
+                    }
+                } catch (RuntimeException e) {
+                    LOGGER.error("failed to insert batch of {} documents", batch.size(), e);
+                    run.failure.compareAndSet(null, e);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    private BulkResult insert(JMingoTemplate template, List<DBObject> batch) {
+        BulkOperations operations = template.bulkOps().ordered(false);
+        for (DBObject record : batch) {
+            Object document = config.getDocumentType() != null
+                    ? unmarshaller.unmarshall(config.getDocumentType(), record)
+                    : record;
+            operations.insert(document, config.getCollectionName());
+        }
+        return operations.execute();
+    }
+
+    private void insert(List<DBObject> batch, ImportRun run) {
+        BulkResult result = inserter.apply(batch);
+        run.insertedCount.add(result.getInsertedCount());
+        for (BulkResult.BulkError error : result.getErrors()) {
+            if (error.getCode() == DUPLICATE_KEY_ERROR || error.getCode() == DUPLICATE_KEY_UPDATE_ERROR) {
+                run.duplicateCount.increment();
+            } else {
+                LOGGER.warn("document wasn't imported: {}", error);
+                run.failedCount.increment();
+            }
+        }
+    }
+
+    private static void awaitTermination(ExecutorService workers) {
+        workers.shutdown();
+        try {
+            while (!workers.awaitTermination(1, TimeUnit.MINUTES)) {
+                LOGGER.debug("waiting for import workers to complete");
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * State of a single import.
+     */
+    static final class ImportRun {
+
+        private final long startOffset;
+        private final long fileSize;
+        private final long startTime = System.currentTimeMillis();
+        private final LongAdder readCount = new LongAdder();
+        private final LongAdder insertedCount = new LongAdder();
+        private final LongAdder duplicateCount = new LongAdder();
+        private final LongAdder failedCount = new LongAdder();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        /* key - sequence number of a completed batch, value - end offset of the batch */
+        @GuardedBy("this")
+        private final Map<Long, Long> completed = Maps.newHashMap();
+        @GuardedBy("this")
+        private long nextSequence;
+        /* all batches before the offset are written */
+        @GuardedBy("this")
+        private long offset;
+
+        ImportRun(long startOffset, long fileSize) {
+            this.startOffset = startOffset;
+            this.fileSize = fileSize;
+            this.offset = startOffset;
+        }
+
+        /**
+         * Marks the batch as written, the offset is advanced over contiguous written batches.
+         *
+         * @param sequence  the sequence number of the batch, batches are numbered from 0 in order of the file
+         * @param endOffset the offset after the last record of the batch
+         */
+        synchronized void complete(long sequence, long endOffset) {
+            completed.put(sequence, endOffset);
+            Long next;
+            while ((next = completed.remove(nextSequence)) != null) {
+                offset = next;
+                nextSequence++;
+            }
+        }
+
+        synchronized ImportProgress progress() {
+            return new ImportProgress(offset, fileSize, offset - startOffset, readCount.sum(),
+                    insertedCount.sum(), duplicateCount.sum(), failedCount.sum(),
+                    System.currentTimeMillis() - startTime);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.io;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Settings of {@link BulkExporter}. Immutable.
+ */
+public class ExportConfig {
+
+    public static final int DEF_BATCH_SIZE = 1000;
+    public static final int DEF_BUFFER_SIZE = 64 * 1024;
+
+    private final boolean gzip;
+    private final List<String> fields;
+    private final int parts;
+    private final int batchSize;
+    private final int bufferSize;
+
+    private ExportConfig(Builder builder) {
+        this.gzip = builder.gzip;
+        this.fields = builder.fields;
+        this.parts = builder.parts;
+        this.batchSize = builder.batchSize;
+        this.bufferSize = builder.bufferSize;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Whether files are compressed with gzip.
+     *
+     * @return true if files are compressed
+     */
+    public boolean isGzip() {
+        return gzip;
+    }
+
+    /**
+     * Gets exported fields.
+     *
+     * @return immutable list of fields, empty if all fields are exported
+     */
+    public List<String> getFields() {
+        return fields;
+    }
+
+    /**
+     * Gets number of _id ranges that are exported in parallel into separate part files.
+     * Results of aggregation queries are always exported into one file.
+     *
+     * @return number of parts
+     */
+    public int getParts() {
+        return parts;
+    }
+
+    /**
+     * Gets number of documents fetched from the server in one round trip.
+     *
+     * @return cursor batch size
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Gets size of the write buffer of a file.
+     *
+     * @return buffer size in bytes
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("gzip", gzip)
+                .append("fields", fields)
+                .append("parts", parts)
+                .append("batchSize", batchSize)
+                .append("bufferSize", bufferSize)
+                .toString();
+    }
+
+    public static class Builder {
+        private boolean gzip;
+        private List<String> fields = ImmutableList.of();
+        private int parts = 1;
+        private int batchSize = DEF_BATCH_SIZE;
+        private int bufferSize = DEF_BUFFER_SIZE;
+
+        public Builder gzip(boolean val) {
+            this.gzip = val;
+            return this;
+        }
+
+        public Builder fields(String... val) {
+            return fields(Arrays.asList(val));
+        }
+
+        public Builder fields(List<String> val) {
+            Validate.noNullElements(val, "fields cannot be null");
+            this.fields = ImmutableList.copyOf(val);
+            return this;
+        }
+
+        public Builder parts(int val) {
+            Validate.isTrue(val > 0, "number of parts must be gt 0");
+            this.parts = val;
+            return this;
+        }
+
+        public Builder batchSize(int val) {
+            Validate.isTrue(val > 0, "batch size must be gt 0");
+            this.batchSize = val;
+            return this;
+        }
+
+        public Builder bufferSize(int val) {
+            Validate.isTrue(val > 0, "buffer size must be gt 0");
+            this.bufferSize = val;
+            return this;
+        }
+
+        public ExportConfig build() {
+            return new ExportConfig(this);
+        }
+    }
+}
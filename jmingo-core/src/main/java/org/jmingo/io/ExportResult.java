@@ -0,0 +1,87 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.io;
+
+import com.google.common.collect.ImmutableList;
+import net.jcip.annotations.Immutable;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Result of an export. Immutable.
+ */
+@Immutable
+public class ExportResult {
+
+    private final List<Path> files;
+    private final long count;
+    private final long elapsedTime;
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param files       the written files
+     * @param count       the number of exported documents
+     * @param elapsedTime the duration of the export in milliseconds
+     */
+    public ExportResult(List<Path> files, long count, long elapsedTime) {
+        this.files = ImmutableList.copyOf(files);
+        this.count = count;
+        this.elapsedTime = elapsedTime;
+    }
+
+    /**
+     * Gets written files, one file per part.
+     *
+     * @return immutable list of files
+     */
+    public List<Path> getFiles() {
+        return files;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets duration of the export.
+     *
+     * @return elapsed time in milliseconds
+     */
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    /**
+     * Gets throughput of the export.
+     *
+     * @return exported documents per second
+     */
+    public double getDocumentsPerSecond() {
+        return elapsedTime > 0 ? count * 1000d / elapsedTime : 0;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("files", files)
+                .append("count", count)
+                .append("elapsedTime", elapsedTime)
+                .toString();
+    }
+}
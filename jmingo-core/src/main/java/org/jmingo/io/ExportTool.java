@@ -0,0 +1,160 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.io;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import org.apache.commons.lang3.StringUtils;
+import org.jmingo.context.Context;
+import org.jmingo.query.Criteria;
+import org.jmingo.util.PropertyUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+/**
+ * Command line entry point of {@link BulkExporter}.
+ * <pre>
+ * java org.jmingo.io.ExportTool --context context.xml --out users.json.gz --gzip
+ *     (--collection users [--criteria "{status: #status}"] | --query users.byStatus)
+ *     [--param status=ACTIVE] [--param age:int=30] [--fields name,email] [--parts 4] [--batch-size 1000]
+ * </pre>
+ * Parameters are strings unless a type is specified: int, long, double or boolean.
+ */
+public final class ExportTool {
+
+    private static final String USAGE = "usage: ExportTool --context <context.xml> --out <file> "
+            + "(--collection <name> [--criteria <query>] | --query <query name>) [--param <name>[:<type>]=<value>]... "
+            + "[--fields <field>,...] [--parts <n>] [--batch-size <n>] [--gzip]";
+
+    private static final Map<String, Class<?>> PARAMETER_TYPES = ImmutableMap.<String, Class<?>>builder()
+            .put("string", String.class)
+            .put("int", Integer.class)
+            .put("long", Long.class)
+            .put("double", Double.class)
+            .put("boolean", Boolean.class)
+            .build();
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExportTool.class);
+
+    private ExportTool() {
+        throw new UnsupportedOperationException("not allowed to create instances of this class");
+    }
+
+    public static void main(String[] args) {
+        try {
+            System.out.println(run(args));
+        } catch (IllegalArgumentException e) {
+            LOGGER.error("{}\n{}", e.getMessage(), USAGE);
+            System.exit(2);
+        } catch (RuntimeException e) {
+            LOGGER.error("export failed", e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Performs the export described by arguments of the command line.
+     *
+     * @param args the arguments
+     * @return export result
+     * @throws IllegalArgumentException if arguments are invalid
+     */
+    static ExportResult run(String[] args) {
+        Map<String, String> options = Maps.newHashMap();
+        Map<String, Object> parameters = Maps.newHashMap();
+        ExportConfig.Builder config = ExportConfig.builder();
+        for (int index = 0; index < args.length; index++) {
+            String option = args[index];
+            if ("--gzip".equals(option)) {
+                config.gzip(true);
+                continue;
+            }
+            if (!option.startsWith("--") || index + 1 >= args.length) {
+                throw new IllegalArgumentException("invalid option: " + option);
+            }
+            String value = args[++index];
+            switch (option) {
+                case "--param":
+                    addParameter(value, parameters);
+                    break;
+                case "--fields":
+                    config.fields(Splitter.on(',').trimResults().omitEmptyStrings().splitToList(value));
+                    break;
+                case "--parts":
+                    config.parts(Integer.parseInt(value));
+                    break;
+                case "--batch-size":
+                    config.batchSize(Integer.parseInt(value));
+                    break;
+                default:
+                    options.put(option.substring(2), value);
+            }
+        }
+        String contextPath = require(options, "context");
+        Path file = Paths.get(require(options, "out"));
+        if (options.containsKey("collection") == options.containsKey("query")) {
+            throw new IllegalArgumentException("either collection or query must be specified");
+        }
+        Context context = Context.create(contextPath);
+        try {
+            BulkExporter exporter = new BulkExporter(context, config.build());
+            if (options.containsKey("query")) {
+                return exporter.exportQuery(options.get("query"), parameters, file);
+            }
+            String collectionName = options.get("collection");
+            if (!options.containsKey("criteria")) {
+                return exporter.exportCollection(collectionName, file);
+            }
+            Criteria criteria = Criteria.where(options.get("criteria"));
+            parameters.forEach(criteria::with);
+            return exporter.export(criteria, collectionName, file);
+        } finally {
+            context.shutdown();
+        }
+    }
+
+    private static void addParameter(String parameter, Map<String, Object> parameters) {
+        int separator = parameter.indexOf('=');
+        if (separator <= 0) {
+            throw new IllegalArgumentException("invalid parameter: " + parameter);
+        }
+        String name = parameter.substring(0, separator);
+        String value = parameter.substring(separator + 1);
+        Class<?> type = String.class;
+        int typeSeparator = name.indexOf(':');
+        if (typeSeparator > 0) {
+            type = PARAMETER_TYPES.get(name.substring(typeSeparator + 1));
+            if (type == null) {
+                throw new IllegalArgumentException("unsupported parameter type: " + name.substring(typeSeparator + 1));
+            }
+            name = name.substring(0, typeSeparator);
+        }
+        parameters.put(name, PropertyUtils.transform(type, value));
+    }
+
+    private static String require(Map<String, String> options, String name) {
+        String value = options.get(name);
+        if (StringUtils.isBlank(value)) {
+            throw new IllegalArgumentException("option --" + name + " is required");
+        }
+        return value;
+    }
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.io;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.jmingo.util.DocumentUtils;
+
+import java.util.function.Consumer;
+
+/**
+ * Settings of {@link BulkImporter}. Immutable.
+ */
+public class ImportConfig {
+
+    public static final int DEF_BATCH_SIZE = 1000;
+    public static final int DEF_WORKERS = 4;
+
+    private final String collectionName;
+    private final Class<?> documentType;
+    private final int batchSize;
+    private final int workers;
+    private final long offset;
+    private final Consumer<ImportProgress> progressListener;
+
+    private ImportConfig(Builder builder) {
+        this.documentType = builder.documentType;
+        this.collectionName = StringUtils.isNotBlank(builder.collectionName)
+                ? builder.collectionName
+                : DocumentUtils.getCollectionName(builder.documentType);
+        this.batchSize = builder.batchSize;
+        this.workers = builder.workers;
+        this.offset = builder.offset;
+        this.progressListener = builder.progressListener;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public String getCollectionName() {
+        return collectionName;
+    }
+
+    /**
+     * Gets type of documents, records are converted to the type before insert.
+     *
+     * @return the document type or null if records are inserted as is
+     */
+    public Class<?> getDocumentType() {
+        return documentType;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Gets number of threads that insert batches in parallel.
+     *
+     * @return number of workers
+     */
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Gets position in the file to start from, e.g. offset of progress of a failed import.
+     *
+     * @return offset in bytes
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Gets listener that is notified after each inserted batch.
+     *
+     * @return progress listener or null
+     */
+    public Consumer<ImportProgress> getProgressListener() {
+        return progressListener;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("collectionName", collectionName)
+                .append("documentType", documentType)
+                .append("batchSize", batchSize)
+                .append("workers", workers)
+                .append("offset", offset)
+                .toString();
+    }
+
+    public static class Builder {
+        private String collectionName;
+        private Class<?> documentType;
+        private int batchSize = DEF_BATCH_SIZE;
+        private int workers = DEF_WORKERS;
+        private long offset;
+        private Consumer<ImportProgress> progressListener;
+
+        public Builder collectionName(String val) {
+            this.collectionName = val;
+            return this;
+        }
+
+        public Builder documentType(Class<?> val) {
+            Validate.notNull(val, "document type cannot be null");
+            DocumentUtils.assertDocument(val);
+            this.documentType = val;
+            return this;
+        }
+
+        public Builder batchSize(int val) {
+            Validate.isTrue(val > 0, "batch size must be gt 0");
+            this.batchSize = val;
+            return this;
+        }
+
+        public Builder workers(int val) {
+            Validate.isTrue(val > 0, "number of workers must be gt 0");
+            this.workers = val;
+            return this;
+        }
+
+        public Builder offset(long val) {
+            Validate.isTrue(val >= 0, "offset cannot be negative");
+            this.offset = val;
+            return this;
+        }
+
+        public Builder progressListener(Consumer<ImportProgress> val) {
+            this.progressListener = val;
+            return this;
+        }
+
+        public ImportConfig build() {
+            Validate.isTrue(StringUtils.isNotBlank(collectionName) || documentType != null,
+                    "collection name or document type is required");
+            return new ImportConfig(this);
+        }
+    }
+}
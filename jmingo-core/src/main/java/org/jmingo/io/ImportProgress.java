@@ -0,0 +1,144 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.io;
+
+import net.jcip.annotations.Immutable;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * Snapshot of progress of an import. Immutable.
+ */
+@Immutable
+public class ImportProgress {
+
+    private final long offset;
+    private final long fileSize;
+    private final long bytesProcessed;
+    private final long readCount;
+    private final long insertedCount;
+    private final long duplicateCount;
+    private final long failedCount;
+    private final long elapsedTime;
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param offset         the offset to restart the import from
+     * @param fileSize       the file size in bytes
+     * @param bytesProcessed      the number of bytes of written records since the start offset
+     * @param readCount      the number of read records
+     * @param insertedCount  the number of inserted records
+     * @param duplicateCount the number of records rejected because of duplicate key
+     * @param failedCount    the number of records rejected because of other errors
+     * @param elapsedTime    the time since start of the import in milliseconds
+     */
+    public ImportProgress(long offset, long fileSize, long bytesProcessed, long readCount, long insertedCount,
+                          long duplicateCount, long failedCount, long elapsedTime) {
+        this.offset = offset;
+        this.fileSize = fileSize;
+        this.bytesProcessed = bytesProcessed;
+        this.readCount = readCount;
+        this.insertedCount = insertedCount;
+        this.duplicateCount = duplicateCount;
+        this.failedCount = failedCount;
+        this.elapsedTime = elapsedTime;
+    }
+
+    /**
+     * Gets position in the file the import can be restarted from, all records before the position were written.
+     * Records after the position could be written as well and are rejected as duplicates on restart
+     * if they carry _id, records without _id are inserted again, so restarting is safe only for records with _id.
+     *
+     * @return offset in bytes
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public long getBytesProcessed() {
+        return bytesProcessed;
+    }
+
+    public long getReadCount() {
+        return readCount;
+    }
+
+    public long getInsertedCount() {
+        return insertedCount;
+    }
+
+    public long getDuplicateCount() {
+        return duplicateCount;
+    }
+
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    /**
+     * Gets time since start of the import.
+     *
+     * @return elapsed time in milliseconds
+     */
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    /**
+     * Gets throughput of the import.
+     *
+     * @return inserted records per second
+     */
+    public double getRecordsPerSecond() {
+        return elapsedTime > 0 ? insertedCount * 1000d / elapsedTime : 0;
+    }
+
+    /**
+     * Gets throughput of the import in bytes of the file.
+     *
+     * @return processed bytes per second
+     */
+    public double getBytesPerSecond() {
+        return elapsedTime > 0 ? bytesProcessed * 1000d / elapsedTime : 0;
+    }
+
+    /**
+     * Gets part of the file that is written.
+     *
+     * @return percentage from 0 to 100
+     */
+    public double getPercentage() {
+        return fileSize > 0 ? offset * 100d / fileSize : 100;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("offset", offset)
+                .append("fileSize", fileSize)
+                .append("readCount", readCount)
+                .append("insertedCount", insertedCount)
+                .append("duplicateCount", duplicateCount)
+                .append("failedCount", failedCount)
+                .append("elapsedTime", elapsedTime)
+                .append("recordsPerSecond", getRecordsPerSecond())
+                .toString();
+    }
+}
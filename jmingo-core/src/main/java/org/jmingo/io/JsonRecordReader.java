@@ -0,0 +1,236 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.io;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import net.jcip.annotations.NotThreadSafe;
+import org.bson.types.ObjectId;
+import org.jmingo.exceptions.JMingoException;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.OffsetDateTime;
+import java.util.Date;
+
+/**
+ * Reads documents one by one from a file that contains newline-delimited JSON documents or a JSON array of documents.
+ * The file is read through memory-mapped regions and parsed with the Jackson streaming parser, only the current
+ * document is kept in memory. Extended JSON values {"$oid": ...}, {"$date": ...} and {"$numberLong": ...} are
+ * converted to BSON types.
+ * <p>
+ * Reading can be started at the offset returned by {@link #getOffset()}, the offset is the position in the file
+ * right after the last read document.
+ */
+@NotThreadSafe
+class JsonRecordReader implements Closeable {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .enable(JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES)
+            .enable(JsonParser.Feature.ALLOW_SINGLE_QUOTES);
+    private static final byte[] ARRAY_START = "[".getBytes(StandardCharsets.US_ASCII);
+
+    private final FileChannel channel;
+    private final JsonParser parser;
+    private final boolean array;
+    /* position in the file that corresponds to the start of the parsed stream */
+    private final long base;
+    private long offset;
+    /* whether the start of array is read */
+    private boolean opened;
+    private boolean finished;
+
+    /**
+     * Opens the file and positions the reader at the offset.
+     *
+     * @param file   the file to read
+     * @param offset the position of a document or separator between documents
+     * @throws IOException if the file can't be read
+     */
+    JsonRecordReader(Path file, long offset) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long position = 0;
+            while (position < channel.size() && Character.isWhitespace(readByte(position))) {
+                position++;
+            }
+            this.array = position < channel.size() && readByte(position) == '[';
+            long start = offset;
+            InputStream input;
+            if (array && offset > 0) {
+                // the rest of array is parsed as a new array
+                while (start < channel.size() && isSeparator(readByte(start))) {
+                    start++;
+                }
+                input = new SequenceInputStream(new ByteArrayInputStream(ARRAY_START),
+                        new MappedInputStream(channel, start));
+                this.base = start - ARRAY_START.length;
+            } else {
+                input = new MappedInputStream(channel, start);
+                this.base = start;
+            }
+            this.offset = offset;
+            this.parser = JSON_FACTORY.createParser(input);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the next document.
+     *
+     * @return the document or null if there are no more documents
+     * @throws IOException     if the file can't be read
+     * @throws JMingoException if the file contains invalid JSON or not a document
+     */
+    DBObject next() throws IOException {
+        while (!finished) {
+            JsonToken token = parser.nextToken();
+            if (array && !opened && token == JsonToken.START_ARRAY) {
+                opened = true;
+            } else if (token == null || (array && token == JsonToken.END_ARRAY)) {
+                finished = true;
+            } else if (token == JsonToken.START_OBJECT) {
+                DBObject document = readObject();
+                offset = base + parser.getCurrentLocation().getByteOffset();
+                return document;
+            } else {
+                throw new JMingoException("expected document at offset "
+                        + (base + parser.getTokenLocation().getByteOffset()) + " but was " + token);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets position in the file right after the last read document, reading can be restarted from the position.
+     *
+     * @return offset in bytes
+     */
+    long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Gets size of the file.
+     *
+     * @return size in bytes
+     */
+    long size() throws IOException {
+        return channel.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            parser.close();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private DBObject readObject() throws IOException {
+        BasicDBObject document = new BasicDBObject();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            document.put(name, readValue());
+        }
+        return document;
+    }
+
+    private Object readValue() throws IOException {
+        switch (parser.getCurrentToken()) {
+            case START_OBJECT:
+                return toExtendedValue(readObject());
+            case START_ARRAY:
+                BasicDBList list = new BasicDBList();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    list.add(readValue());
+                }
+                return list;
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+                Number number = parser.getNumberValue();
+                // BSON doesn't have arbitrary precision integers
+                return number instanceof BigInteger ? number.doubleValue() : number;
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDoubleValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_EMBEDDED_OBJECT:
+                return parser.getEmbeddedObject();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Converts extended JSON representation of a BSON value.
+     *
+     * @return the BSON value or the object itself if it isn't an extended JSON value
+     */
+    static Object toExtendedValue(DBObject object) {
+        if (object.keySet().size() != 1) {
+            return object;
+        }
+        String key = object.keySet().iterator().next();
+        Object value = object.get(key);
+        if ("$oid".equals(key) && value instanceof String) {
+            return new ObjectId((String) value);
+        } else if ("$date".equals(key) && value instanceof Number) {
+            return new Date(((Number) value).longValue());
+        } else if ("$date".equals(key) && value instanceof String) {
+            return Date.from(OffsetDateTime.parse((String) value).toInstant());
+        } else if ("$date".equals(key) && value instanceof DBObject) {
+            // {"$date": {"$numberLong": "..."}}
+            Object millis = toExtendedValue((DBObject) value);
+            return millis instanceof Long ? new Date((Long) millis) : object;
+        } else if ("$numberLong".equals(key) && value instanceof String) {
+            return Long.parseLong((String) value);
+        }
+        return object;
+    }
+
+    private byte readByte(long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1);
+        if (channel.read(buffer, position) <= 0) {
+            throw new IOException("failed to read byte at position " + position);
+        }
+        return buffer.get(0);
+    }
+
+    private static boolean isSeparator(byte value) {
+        return value == ',' || Character.isWhitespace(value);
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.io;
+
+import net.jcip.annotations.NotThreadSafe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Input stream that reads the file channel through memory-mapped regions of fixed size, regions are mapped
+ * sequentially so the heap usage doesn't depend on the file size. Doesn't close the channel.
+ */
+@NotThreadSafe
+class MappedInputStream extends InputStream {
+
+    /* size of a mapped region */
+    static final int REGION_SIZE = 32 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    /* position of the next region in the file */
+    private long regionPosition;
+    private MappedByteBuffer region;
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param channel  the file channel
+     * @param position the position in the file to read from
+     * @throws IOException if the size of the file can't be read
+     */
+    MappedInputStream(FileChannel channel, long position) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+        this.regionPosition = Math.min(position, size);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureRegion()) {
+            return -1;
+        }
+        return region.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!ensureRegion()) {
+            return -1;
+        }
+        int count = Math.min(length, region.remaining());
+        region.get(buffer, offset, count);
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return region != null ? region.remaining() : 0;
+    }
+
+    /**
+     * Maps the next region if the current one is read.
+     *
+     * @return false if the end of the file is reached
+     */
+    private boolean ensureRegion() throws IOException {
+        if (region != null && region.hasRemaining()) {
+            return true;
+        }
+        if (regionPosition >= size) {
+            return false;
+        }
+        long regionSize = Math.min(REGION_SIZE, size - regionPosition);
+        region = channel.map(FileChannel.MapMode.READ_ONLY, regionPosition, regionSize);
+        regionPosition += regionSize;
+        return true;
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.mongo;
+
+import com.mongodb.WriteConcern;
+import net.jcip.annotations.ThreadSafe;
+import org.apache.commons.lang3.Validate;
+import org.jmingo.cache.Histogram;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Named write concern declared in the context, see &lt;durabilityProfiles/&gt; element in context.xsd schema.
+ * A profile is chosen for a document type with {@link org.jmingo.document.annotation.Document#durability()} or
+ * for a single write of {@link org.jmingo.JMingoTemplate}, writes without a profile use the default profile that has
+ * the write concern of the mongo instance. Latency of writes is recorded per profile.
+ */
+@ThreadSafe
+public class DurabilityProfile {
+
+    public static final String DEFAULT = "default";
+
+    private final String name;
+    private final WriteConcern writeConcern;
+    /* latency of writes in microseconds */
+    private final Histogram latency = new Histogram();
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param name         the profile name
+     * @param writeConcern the write concern of writes with the profile
+     */
+    public DurabilityProfile(String name, WriteConcern writeConcern) {
+        Validate.notBlank(name, "profile name cannot be null or empty");
+        Validate.notNull(writeConcern, "write concern cannot be null");
+        this.name = name;
+        this.writeConcern = writeConcern;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public WriteConcern getWriteConcern() {
+        return writeConcern;
+    }
+
+    /**
+     * Records latency of a write performed with the profile.
+     *
+     * @param nanos the duration of the write in nanoseconds
+     */
+    public void recordLatency(long nanos) {
+        latency.record(TimeUnit.NANOSECONDS.toMicros(Math.max(nanos, 0)));
+    }
+
+    /**
+     * Gets latency of writes performed with the profile.
+     *
+     * @return histogram of latency in microseconds
+     */
+    public Histogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public String toString() {
+        return "DurabilityProfile{" +
+                "name='" + name + '\'' +
+                ", writeConcern=" + writeConcern +
+                ", latency=" + latency +
+                '}';
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.mongo;
+
+import com.google.common.collect.ImmutableMap;
+import com.mongodb.WriteConcern;
+import net.jcip.annotations.Immutable;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+import org.jmingo.exceptions.JMingoException;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Registry of durability profiles of the context. Immutable.
+ */
+@Immutable
+public class DurabilityProfiles {
+
+    private final DurabilityProfile defaultProfile;
+    /* key - profile name, contains the default profile */
+    private final Map<String, DurabilityProfile> profiles;
+
+    /**
+     * Constructor with parameters.
+     *
+     * @param defaultWriteConcern the write concern of the default profile
+     * @param writeConcerns       the write concerns of declared profiles, key - profile name
+     */
+    public DurabilityProfiles(WriteConcern defaultWriteConcern, Map<String, WriteConcern> writeConcerns) {
+        Validate.notNull(writeConcerns, "write concerns cannot be null");
+        Validate.isTrue(!writeConcerns.containsKey(DurabilityProfile.DEFAULT),
+                "profile name '%s' is reserved", DurabilityProfile.DEFAULT);
+        this.defaultProfile = new DurabilityProfile(DurabilityProfile.DEFAULT,
+                defaultWriteConcern != null ? defaultWriteConcern : WriteConcern.ACKNOWLEDGED);
+        ImmutableMap.Builder<String, DurabilityProfile> builder = ImmutableMap.builder();
+        builder.put(DurabilityProfile.DEFAULT, defaultProfile);
+        writeConcerns.forEach((name, writeConcern) -> builder.put(name, new DurabilityProfile(name, writeConcern)));
+        this.profiles = builder.build();
+    }
+
+    public DurabilityProfile getDefault() {
+        return defaultProfile;
+    }
+
+    /**
+     * Gets profile by name.
+     *
+     * @param name the profile name, empty name means the default profile
+     * @return the profile
+     * @throws JMingoException if the profile isn't declared
+     */
+    public DurabilityProfile get(String name) {
+        if (StringUtils.isEmpty(name)) {
+            return defaultProfile;
+        }
+        DurabilityProfile profile = profiles.get(name);
+        if (profile == null) {
+            throw new JMingoException("durability profile '" + name + "' isn't declared, declared profiles: "
+                    + profiles.keySet());
+        }
+        return profile;
+    }
+
+    /**
+     * Gets all profiles including the default one, e.g. to report latency.
+     *
+     * @return immutable collection of profiles
+     */
+    public Collection<DurabilityProfile> getAll() {
+        return profiles.values();
+    }
+}
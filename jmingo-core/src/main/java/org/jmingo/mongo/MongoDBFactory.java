@@ -16,13 +16,17 @@
 package org.jmingo.mongo;
 
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.jmingo.config.MongoConfig;
 import org.jmingo.exceptions.MongoConfigurationException;
+import com.mongodb.CommandResult;
 import com.mongodb.DB;
 import com.mongodb.Mongo;
 import com.mongodb.MongoClient;
 import com.mongodb.MongoClientOptions;
+import com.mongodb.MongoException;
 import com.mongodb.ServerAddress;
 import com.mongodb.WriteConcern;
 import org.apache.commons.collections.MapUtils;
@@ -36,6 +40,7 @@ import org.slf4j.LoggerFactory;
 import java.lang.reflect.Method;
 import java.net.UnknownHostException;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -48,6 +53,9 @@ public class MongoDBFactory {
 
     private String dbName;
     private Mongo mongo;
+    private DurabilityProfiles durabilityProfiles;
+    /* version of the server, e.g. [2, 4, 3, 0], resolved on first use */
+    private volatile List<Integer> serverVersion;
     private static final Set<String> UNSUPPORTED_OPTIONS = Sets.newHashSet("dbDecoderFactory", "dbEncoderFactory");
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MongoDBFactory.class);
@@ -60,6 +68,7 @@ public class MongoDBFactory {
     public MongoDBFactory(MongoConfig config) {
         dbName = config.getDbName();
         mongo = create(config);
+        durabilityProfiles = createDurabilityProfiles(config);
     }
 
     /**
@@ -71,6 +80,7 @@ public class MongoDBFactory {
     public MongoDBFactory(MongoConfig config, Mongo mongo) {
         dbName = config.getDbName();
         this.mongo = mongo;
+        durabilityProfiles = createDurabilityProfiles(config);
     }
 
     /**
@@ -91,6 +101,72 @@ public class MongoDBFactory {
         return mongo;
     }
 
+    /**
+     * Checks whether version of the server is the given one or newer, e.g. to use features that old servers
+     * don't support. The version is requested with buildInfo command once it succeeds.
+     *
+     * @param major the major version
+     * @param minor the minor version
+     * @return true if the server version is equal to or greater than the given one, false if the version
+     * is lower or cannot be resolved
+     */
+    public boolean isServerVersionAtLeast(int major, int minor) {
+        List<Integer> version = getServerVersion();
+        if (version.size() < 2) {
+            return false;
+        }
+        return version.get(0) > major || (version.get(0) == major && version.get(1) >= minor);
+    }
+
+    private List<Integer> getServerVersion() {
+        List<Integer> version = serverVersion;
+        if (version == null) {
+            version = Lists.newArrayList();
+            try {
+                CommandResult buildInfo = getDB().command("buildInfo");
+                Object versionArray = buildInfo.get("versionArray");
+                if (buildInfo.ok() && versionArray instanceof List) {
+                    for (Object item : (List<?>) versionArray) {
+                        version.add(((Number) item).intValue());
+                    }
+                    LOGGER.debug("server version: {}", version);
+                    // only resolved version is cached, the command is retried by the next call after a failure
+                    serverVersion = version;
+                } else {
+                    LOGGER.warn("failed to resolve server version: {}", buildInfo.getErrorMessage());
+                }
+            } catch (MongoException e) {
+                LOGGER.warn("failed to resolve server version", e);
+            }
+        }
+        return version;
+    }
+
+    /**
+     * Gets durability profiles declared in the context.
+     *
+     * @return durability profiles, the default profile has the write concern of the mongo instance
+     */
+    public DurabilityProfiles getDurabilityProfiles() {
+        return durabilityProfiles;
+    }
+
+    private DurabilityProfiles createDurabilityProfiles(MongoConfig config) {
+        Map<String, WriteConcern> writeConcerns = Maps.newLinkedHashMap();
+        if (config.getDurabilityProfiles() != null) {
+            config.getDurabilityProfiles().forEach((name, writeConcernName) -> {
+                WriteConcern writeConcern = WriteConcern.valueOf(writeConcernName);
+                if (writeConcern == null) {
+                    throw new MongoConfigurationException("unknown write concern: '" + writeConcernName
+                            + "' of durability profile: '" + name + "'");
+                }
+                writeConcerns.put(name, writeConcern);
+            });
+        }
+        LOGGER.debug("durability profiles: {}", writeConcerns);
+        return new DurabilityProfiles(mongo.getWriteConcern(), writeConcerns);
+    }
+
     private Mongo create(MongoConfig config) {
         Mongo mongo;
         try {
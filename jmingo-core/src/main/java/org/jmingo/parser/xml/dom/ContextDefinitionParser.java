@@ -19,6 +19,8 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
+import org.jmingo.cache.OffHeapCache;
+import org.jmingo.config.CachingConfig;
 import org.jmingo.config.ContextDefinition;
 import org.jmingo.config.MongoConfig;
 import org.jmingo.config.QuerySetConfig;
@@ -40,11 +42,14 @@ import java.io.FileInputStream;
 import java.io.InputStream;
 import java.nio.file.Path;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import static org.jmingo.parser.xml.dom.DocumentBuilderFactoryCreator.createDocumentBuilderFactory;
 import static org.jmingo.parser.xml.dom.util.DomUtil.assertPositive;
 import static org.jmingo.parser.xml.dom.util.DomUtil.getAllChildNodes;
+import static org.jmingo.parser.xml.dom.util.DomUtil.getAttributeBoolean;
 import static org.jmingo.parser.xml.dom.util.DomUtil.getAttributeInt;
+import static org.jmingo.parser.xml.dom.util.DomUtil.getAttributeLong;
 import static org.jmingo.parser.xml.dom.util.DomUtil.getAttributeString;
 import static org.jmingo.parser.xml.dom.util.DomUtil.getFirstTagOccurrence;
 
@@ -78,6 +83,32 @@ public class ContextDefinitionParser implements Parser<ContextDefinition> {
     private static final String WRITE_CONCERN_ATTR = "writeConcern";
     private static final String OPTIONS_TAG = "options";
     private static final String OPTION_TAG = "option";
+    private static final String DURABILITY_PROFILE_TAG = "durabilityProfile";
+    private static final String DURABILITY_PROFILE_NAME_ATTR = "name";
+
+    private static final String CACHING_TAG = "caching";
+    private static final String CACHING_REFRESH_CONCURRENCY_ATTR = "refreshConcurrency";
+    private static final String CACHING_PREFETCH_CONCURRENCY_ATTR = "prefetchConcurrency";
+    private static final String OFF_HEAP_TAG = "offHeap";
+    private static final String OFF_HEAP_CAPACITY_ATTR = "capacity";
+    private static final String OFF_HEAP_SLAB_SIZE_ATTR = "slabSize";
+    private static final String OFF_HEAP_COMPRESSION_ATTR = "compression";
+    private static final String OFF_HEAP_FIND_BY_ID_TTL_ATTR = "findByIdTtl";
+    private static final String SNAPSHOT_TAG = "snapshot";
+    private static final String SNAPSHOT_PATH_ATTR = "path";
+    private static final String SNAPSHOT_INTERVAL_ATTR = "interval";
+    private static final String SINGLE_FLIGHT_TAG = "singleFlight";
+    private static final String SINGLE_FLIGHT_TIMEOUT_ATTR = "timeout";
+    private static final String BATCHING_TAG = "batching";
+    private static final String BATCHING_WINDOW_ATTR = "window";
+    private static final String BATCHING_MAX_BATCH_SIZE_ATTR = "maxBatchSize";
+    private static final String SHARED_CACHE_TAG = "sharedCache";
+    private static final String SHARED_CACHE_COLLECTION_ATTR = "collection";
+    private static final String SHARED_CACHE_LOCK_TIMEOUT_ATTR = "lockTimeout";
+    private static final String INVALIDATION_BUS_TAG = "invalidationBus";
+    private static final String INVALIDATION_BUS_COLLECTION_ATTR = "collection";
+    private static final String INVALIDATION_BUS_SIZE_ATTR = "size";
+    private static final String INVALIDATION_BUS_BATCH_WINDOW_ATTR = "batchWindow";
 
     /**
      * Constructor with parameters.
@@ -109,6 +140,7 @@ public class ContextDefinitionParser implements Parser<ContextDefinition> {
             contextDefinition.setMongoConfig(parseMongoTag(element));
             parseConvertersTag(contextDefinition, element);
             contextDefinition.setDefaultConverter(parseDefaultConverterTag(element));
+            contextDefinition.setCachingConfig(parseCachingTag(element));
         } catch(Exception e) {
             throw new JMingoParserException(e);
         }
@@ -182,6 +214,11 @@ public class ContextDefinitionParser implements Parser<ContextDefinition> {
                     }
                 });
             }
+            getAllChildNodes(mongoNode, DURABILITY_PROFILE_TAG).forEach(profileNode -> {
+                String name = getAttributeString(profileNode, DURABILITY_PROFILE_NAME_ATTR);
+                Validate.notBlank(name, "name of durability profile cannot be null or empty");
+                mongoConfigBuilder.durabilityProfile(name, getAttributeString(profileNode, WRITE_CONCERN_ATTR));
+            });
             mongoConfig = mongoConfigBuilder.build();
         } else {
             throw new JMingoParserException("<"+MONGO_TAG+"/>" + " is required");
@@ -205,4 +242,68 @@ public class ContextDefinitionParser implements Parser<ContextDefinition> {
         }
         return defaultConverter;
     }
+
+    /**
+     * Parse <caching/> tag.
+     *
+     * @param element element of XML document
+     * @return caching config, default config if xml doesn't contain <caching/> tag
+     */
+    private CachingConfig parseCachingTag(Element element) {
+        CachingConfig.Builder builder = CachingConfig.builder();
+        Node cachingNode = getFirstTagOccurrence(element, CACHING_TAG);
+        if (cachingNode != null) {
+            builder.refreshConcurrency(getAttributeInt(cachingNode, CACHING_REFRESH_CONCURRENCY_ATTR,
+                    CachingConfig.DEF_REFRESH_CONCURRENCY));
+            builder.prefetchConcurrency(getAttributeInt(cachingNode, CACHING_PREFETCH_CONCURRENCY_ATTR,
+                    CachingConfig.DEF_PREFETCH_CONCURRENCY));
+            Node offHeapNode = getFirstTagOccurrence((Element) cachingNode, OFF_HEAP_TAG);
+            if (offHeapNode != null) {
+                builder.offHeapCapacity(getAttributeLong(offHeapNode, OFF_HEAP_CAPACITY_ATTR, 0))
+                        .offHeapSlabSize(getAttributeInt(offHeapNode, OFF_HEAP_SLAB_SIZE_ATTR,
+                                OffHeapCache.DEF_SLAB_SIZE))
+                        .offHeapCompression(getAttributeBoolean(offHeapNode, OFF_HEAP_COMPRESSION_ATTR))
+                        .offHeapFindByIdTtl(getAttributeInt(offHeapNode, OFF_HEAP_FIND_BY_ID_TTL_ATTR, 0),
+                                TimeUnit.SECONDS);
+            }
+            Node snapshotNode = getFirstTagOccurrence((Element) cachingNode, SNAPSHOT_TAG);
+            if (snapshotNode != null) {
+                builder.snapshotPath(getAttributeString(snapshotNode, SNAPSHOT_PATH_ATTR))
+                        .snapshotInterval(getAttributeInt(snapshotNode, SNAPSHOT_INTERVAL_ATTR,
+                                CachingConfig.DEF_SNAPSHOT_INTERVAL), TimeUnit.SECONDS);
+            }
+            Node singleFlightNode = getFirstTagOccurrence((Element) cachingNode, SINGLE_FLIGHT_TAG);
+            if (singleFlightNode != null) {
+                builder.singleFlight(true)
+                        .singleFlightTimeout(getAttributeLong(singleFlightNode, SINGLE_FLIGHT_TIMEOUT_ATTR,
+                                CachingConfig.DEF_SINGLE_FLIGHT_TIMEOUT), TimeUnit.MILLISECONDS);
+            }
+            Node batchingNode = getFirstTagOccurrence((Element) cachingNode, BATCHING_TAG);
+            if (batchingNode != null) {
+                builder.batching(true)
+                        .batchWindow(getAttributeLong(batchingNode, BATCHING_WINDOW_ATTR,
+                                CachingConfig.DEF_BATCH_WINDOW), TimeUnit.MILLISECONDS)
+                        .maxBatchSize(getAttributeInt(batchingNode, BATCHING_MAX_BATCH_SIZE_ATTR,
+                                CachingConfig.DEF_MAX_BATCH_SIZE));
+            }
+            Node sharedCacheNode = getFirstTagOccurrence((Element) cachingNode, SHARED_CACHE_TAG);
+            if (sharedCacheNode != null) {
+                builder.sharedCacheCollection(getAttributeString(sharedCacheNode, SHARED_CACHE_COLLECTION_ATTR,
+                        CachingConfig.DEF_SHARED_CACHE_COLLECTION))
+                        .sharedCacheLockTimeout(getAttributeLong(sharedCacheNode, SHARED_CACHE_LOCK_TIMEOUT_ATTR,
+                                CachingConfig.DEF_SHARED_CACHE_LOCK_TIMEOUT), TimeUnit.MILLISECONDS);
+            }
+            Node invalidationBusNode = getFirstTagOccurrence((Element) cachingNode, INVALIDATION_BUS_TAG);
+            if (invalidationBusNode != null) {
+                builder.invalidationBusCollection(getAttributeString(invalidationBusNode,
+                        INVALIDATION_BUS_COLLECTION_ATTR, CachingConfig.DEF_INVALIDATION_BUS_COLLECTION))
+                        .invalidationBusSize(getAttributeLong(invalidationBusNode, INVALIDATION_BUS_SIZE_ATTR,
+                                CachingConfig.DEF_INVALIDATION_BUS_SIZE))
+                        .invalidationBusBatchWindow(getAttributeLong(invalidationBusNode,
+                                INVALIDATION_BUS_BATCH_WINDOW_ATTR, CachingConfig.DEF_INVALIDATION_BUS_BATCH_WINDOW),
+                                TimeUnit.MILLISECONDS);
+            }
+        }
+        return builder.build();
+    }
 }
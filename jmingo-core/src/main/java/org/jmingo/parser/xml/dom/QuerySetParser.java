@@ -15,7 +15,12 @@
  */
 package org.jmingo.parser.xml.dom;
 
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Sets;
+import org.jmingo.cache.CacheConfig;
+import org.jmingo.cache.CollectionCacheConfig;
+import org.jmingo.cache.MaterializedViewConfig;
+import org.jmingo.cache.PrefetchConfig;
 import org.jmingo.exceptions.JMingoParserException;
 import org.jmingo.parser.Parser;
 import org.jmingo.query.ConditionElement;
@@ -47,9 +52,11 @@ import java.io.InputStream;
 import java.nio.file.Path;
 import java.util.Collections;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import static org.jmingo.parser.xml.dom.DocumentBuilderFactoryCreator.createDocumentBuilderFactory;
 import static org.jmingo.parser.xml.dom.util.DomUtil.getAttributeBoolean;
+import static org.jmingo.parser.xml.dom.util.DomUtil.getAttributeInt;
 import static org.jmingo.parser.xml.dom.util.DomUtil.getAttributeString;
 import static org.jmingo.parser.xml.dom.util.DomUtil.getChildNodes;
 import static org.jmingo.parser.xml.dom.util.DomUtil.getFirstNecessaryTagOccurrence;
@@ -84,11 +91,33 @@ public class QuerySetParser implements Parser<QuerySet> {
     private static final String IF_TAG = "if";
     private static final String ELSE_IF_TAG = "elseIf";
     private static final String ELSE_TAG = "else";
+    private static final String CACHE_TAG = "cache";
+    private static final String CACHE_TTL_ATTR = "ttl";
+    private static final String CACHE_MAX_SIZE_ATTR = "max-size";
+    private static final String CACHE_REFRESH_AHEAD_ATTR = "refresh-ahead";
+    private static final String CACHE_MAX_STALENESS_ATTR = "max-staleness";
+    private static final String CACHE_OFF_HEAP_ATTR = "off-heap";
+    private static final String CACHE_PERSISTENT_ATTR = "persistent";
+    private static final String CACHE_SHARED_ATTR = "shared";
+    private static final String CACHE_COLLECTION_TAG = "cacheCollection";
+    private static final String MATERIALIZE_TAG = "materialize";
+    private static final String MATERIALIZE_REFRESH_ATTR = "refresh";
+    private static final String MATERIALIZE_MAX_STALENESS_ATTR = "max-staleness";
+    private static final String PREFETCH_TAG = "prefetch";
+    private static final String PREFETCH_SKIP_PARAM_ATTR = "skip-param";
+    private static final String PREFETCH_LIMIT_PARAM_ATTR = "limit-param";
+    private static final String PREFETCH_TTL_ATTR = "ttl";
+    private static final String CACHE_COLLECTION_REFRESH_ATTR = "refresh";
+    private static final String CACHE_COLLECTION_INDEXES_ATTR = "indexes";
 
     // messages
     private static final String INVALID_QUERY_ERROR_MSG = "invalid query with id: {}. Query: {}";
     private static final String CONVERTER_METHOD_DEFINITION_ERROR = "if converter class was defined then " +
             "converter method must be defined too. see query set : '{}', query: '{}'";
+    private static final String CACHE_REFRESH_AHEAD_ERROR = "refresh-ahead is supported only for aggregation " +
+            "queries. see query set : '{}', query: '{}'";
+    private static final String MATERIALIZE_ERROR = "materialize is supported only for aggregation " +
+            "queries. see query set : '{}', query: '{}'";
 
     /**
      * Constructor with parameters.
@@ -142,6 +171,31 @@ public class QuerySetParser implements Parser<QuerySet> {
         String collectionName = getAttributeString(configTag, COLLECTION_NAME_ATTR);
         Validate.notEmpty(collectionName, "collectionName cannot be null or empty");
         querySet.setCollectionName(collectionName);
+        querySet.setCollectionCacheConfig(parseCacheCollectionTag(configTag));
+    }
+
+    /**
+     * Parse <cacheCollection/> tag.
+     *
+     * @param configNode the config node
+     * @return snapshot settings or null if the tag isn't defined
+     */
+    private CollectionCacheConfig parseCacheCollectionTag(Node configNode) {
+        Node cacheNode = Iterables.tryFind(getChildNodes(configNode),
+                child -> CACHE_COLLECTION_TAG.equals(child.getNodeName())).orNull();
+        if (cacheNode == null) {
+            return null;
+        }
+        CollectionCacheConfig.Builder builder = CollectionCacheConfig.builder()
+                .refreshInterval(getAttributeInt(cacheNode, CACHE_COLLECTION_REFRESH_ATTR,
+                        CollectionCacheConfig.DEF_REFRESH_INTERVAL), TimeUnit.SECONDS);
+        String indexes = getAttributeString(cacheNode, CACHE_COLLECTION_INDEXES_ATTR, StringUtils.EMPTY);
+        for (String field : StringUtils.split(indexes, ',')) {
+            if (StringUtils.isNotBlank(field)) {
+                builder.index(field.trim());
+            }
+        }
+        return builder.build();
     }
 
     private void parseQueryFragments(Element root, QuerySet querySet) {
@@ -195,13 +249,18 @@ public class QuerySetParser implements Parser<QuerySet> {
         String queryId = getAttributeString(node, ID);
         builder.id(queryId);
         builder.collectionName(querySet.getCollectionName());
-        builder.queryType(QueryType.getByName(getAttributeString(node, TYPE_ATTR, QueryType.PLAIN.getName())));
+        QueryType queryType = QueryType.getByName(getAttributeString(node, TYPE_ATTR, QueryType.PLAIN.getName()));
+        builder.queryType(queryType);
         String converterClass = getAttributeString(node, CONVERTER_CLASS_ATTR);
         String converterMethod = getAttributeString(node, CONVERTER_METHOD_ATTR);
         validateConverter(converterClass, converterMethod, queryId, querySet);
         builder.converterClass(converterClass);
         builder.converterMethod(converterMethod);
         builder.escapeNullParameters(getAttributeBoolean(node, ESCAPE_NULL_PARAMETERS));
+        builder.cacheConfig(parseCacheTag(node, queryType, queryId, querySet));
+        builder.collectionCacheConfig(querySet.getCollectionCacheConfig());
+        builder.materializedViewConfig(parseMaterializeTag(node, queryType, queryId, querySet));
+        builder.prefetchConfig(parsePrefetchTag(node));
 
         getChildNodes(node).forEach(child -> {
             if (child.getNodeType() == Node.TEXT_NODE) {
@@ -258,6 +317,86 @@ public class QuerySetParser implements Parser<QuerySet> {
         return builder.build();
     }
 
+    /**
+     * Parse <cache/> tag.
+     *
+     * @param queryNode the query node
+     * @param queryType the query type
+     * @param queryId   the query id
+     * @param querySet  the query set to build detail information for exception message
+     * @return cache settings or null if the query doesn't have <cache/> tag
+     * @throws IllegalArgumentException if refresh-ahead is defined for a query that isn't aggregation
+     */
+    private CacheConfig parseCacheTag(Node queryNode, QueryType queryType, String queryId, QuerySet querySet) {
+        Node cacheNode = Iterables.tryFind(getChildNodes(queryNode),
+                child -> CACHE_TAG.equals(child.getNodeName())).orNull();
+        if (cacheNode == null) {
+            return null;
+        }
+        CacheConfig cacheConfig = CacheConfig.builder()
+                .ttl(getAttributeInt(cacheNode, CACHE_TTL_ATTR), TimeUnit.SECONDS)
+                .maxSize(getAttributeInt(cacheNode, CACHE_MAX_SIZE_ATTR, CacheConfig.DEF_MAX_SIZE))
+                .refreshAhead(getAttributeInt(cacheNode, CACHE_REFRESH_AHEAD_ATTR, 0), TimeUnit.SECONDS)
+                .maxStaleness(getAttributeInt(cacheNode, CACHE_MAX_STALENESS_ATTR, 0), TimeUnit.SECONDS)
+                .offHeap(getAttributeBoolean(cacheNode, CACHE_OFF_HEAP_ATTR))
+                .persistent(getAttributeBoolean(cacheNode, CACHE_PERSISTENT_ATTR))
+                .shared(getAttributeBoolean(cacheNode, CACHE_SHARED_ATTR))
+                .build();
+        if (cacheConfig.isRefreshAhead() && queryType != QueryType.AGGREGATION) {
+            throw new IllegalArgumentException(MessageFormatter.arrayFormat(CACHE_REFRESH_AHEAD_ERROR,
+                    new Object[]{querySet.getPath(), queryId}).getMessage());
+        }
+        return cacheConfig;
+    }
+
+    /**
+     * Parse <materialize/> tag.
+     *
+     * @param queryNode the query node
+     * @param queryType the query type
+     * @param queryId   the query id
+     * @param querySet  the query set to build detail information for exception message
+     * @return view settings or null if the query doesn't have <materialize/> tag
+     * @throws IllegalArgumentException if the query isn't aggregation
+     */
+    private MaterializedViewConfig parseMaterializeTag(Node queryNode, QueryType queryType, String queryId,
+                                                       QuerySet querySet) {
+        Node materializeNode = Iterables.tryFind(getChildNodes(queryNode),
+                child -> MATERIALIZE_TAG.equals(child.getNodeName())).orNull();
+        if (materializeNode == null) {
+            return null;
+        }
+        if (queryType != QueryType.AGGREGATION) {
+            throw new IllegalArgumentException(MessageFormatter.arrayFormat(MATERIALIZE_ERROR,
+                    new Object[]{querySet.getPath(), queryId}).getMessage());
+        }
+        return MaterializedViewConfig.builder()
+                .refreshInterval(getAttributeInt(materializeNode, MATERIALIZE_REFRESH_ATTR), TimeUnit.SECONDS)
+                .maxStaleness(getAttributeInt(materializeNode, MATERIALIZE_MAX_STALENESS_ATTR, 0), TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * Parse <prefetch/> tag.
+     *
+     * @param queryNode the query node
+     * @return prefetch settings or null if the query doesn't have <prefetch/> tag
+     */
+    private PrefetchConfig parsePrefetchTag(Node queryNode) {
+        Node prefetchNode = Iterables.tryFind(getChildNodes(queryNode),
+                child -> PREFETCH_TAG.equals(child.getNodeName())).orNull();
+        if (prefetchNode == null) {
+            return null;
+        }
+        return PrefetchConfig.builder()
+                .skipParameter(getAttributeString(prefetchNode, PREFETCH_SKIP_PARAM_ATTR,
+                        PrefetchConfig.DEF_SKIP_PARAMETER))
+                .limitParameter(getAttributeString(prefetchNode, PREFETCH_LIMIT_PARAM_ATTR,
+                        PrefetchConfig.DEF_LIMIT_PARAMETER))
+                .ttl(getAttributeInt(prefetchNode, PREFETCH_TTL_ATTR, PrefetchConfig.DEF_TTL), TimeUnit.SECONDS)
+                .build();
+    }
+
     private ConditionElement parseElseIfTag(Node elseIfNode) {
         String condition = getAttributeString(elseIfNode, CONDITION);
         final StringBuilder clause = new StringBuilder();
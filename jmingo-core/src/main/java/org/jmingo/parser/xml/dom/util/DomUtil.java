@@ -195,6 +195,25 @@ public class DomUtil {
         return value;
     }
 
+    /**
+     * Gets attribute by name.
+     *
+     * @param node          {@link Node}
+     * @param attributeName attribute name
+     * @return attribute value with type 'long'
+     */
+    public static long getAttributeLong(Node node, String attributeName, long deffVal) {
+        Validate.notNull(node, "getAttributeLong::node cannot be null");
+        long value;
+        Map<String, String> attrs;
+        if (node.hasAttributes() && (attrs = getAttributes(node)).containsKey(attributeName)) {
+            value = Long.parseLong(attrs.get(attributeName));
+        } else {
+            value = deffVal;
+        }
+        return value;
+    }
+
     /**
      * Gets attribute by name.
      *
@@ -32,6 +32,8 @@ public class Criteria {
     private Map<String, Object> parameters = Maps.newHashMap();
 
     private static final Criteria EMPTY_CRITERIA = new Criteria("{}");
+    private static final String ID_QUERY_TEMPLATE = "{'_id' : '#_id'}";
+    private static final String ID_PARAM = "_id";
 
     /**
      * Create criteria with query template.
@@ -59,7 +61,7 @@ public class Criteria {
      * @return criteria
      */
     public static Criteria whereId(Object id) {
-        return Criteria.where("{'_id' : '#_id'}").with("_id", id);
+        return Criteria.where(ID_QUERY_TEMPLATE).with(ID_PARAM, id);
     }
 
     /**
@@ -105,13 +107,22 @@ public class Criteria {
         return this;
     }
 
+    /**
+     * Specifies that an update should insert a new document if no documents satisfy current criteria.
+     *
+     * @return current criteria
+     */
+    public Criteria upsert() {
+        return upsert(true);
+    }
+
     /**
      * Set upsert field with value 'u'
      *
      * @param u the value to set
      * @return current criteria
      */
-    private Criteria upsert(boolean u) {
+    public Criteria upsert(boolean u) {
         upsert = u;
         return this;
     }
@@ -134,6 +145,24 @@ public class Criteria {
         return upsert;
     }
 
+    /**
+     * Checks whether the criteria was created by {@link #whereId(Object)} and has no other parameters.
+     *
+     * @return true if the criteria matches a document by id only, otherwise false
+     */
+    public boolean isIdCriteria() {
+        return ID_QUERY_TEMPLATE.equals(queryTemplate) && parameters.size() == 1 && parameters.containsKey(ID_PARAM);
+    }
+
+    /**
+     * Gets value of id parameter.
+     *
+     * @return the id or null if the criteria has no id parameter
+     */
+    public Object getId() {
+        return parameters.get(ID_PARAM);
+    }
+
     /**
      * Gets query.
      * @return query
@@ -0,0 +1,125 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.query;
+
+import com.mongodb.DBObject;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * Options of find-and-modify operation. Immutable.
+ */
+public class FindAndModifyOptions {
+
+    private static final FindAndModifyOptions DEFAULT = builder().build();
+
+    private final boolean returnNew;
+    private final boolean upsert;
+    private final DBObject sort;
+    private final DBObject fields;
+
+    private FindAndModifyOptions(Builder builder) {
+        this.returnNew = builder.returnNew;
+        this.upsert = builder.upsert;
+        this.sort = builder.sort;
+        this.fields = builder.fields;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Gets default options: the document before modification is returned, a document isn't inserted
+     * if no documents match.
+     *
+     * @return default options
+     */
+    public static FindAndModifyOptions defaults() {
+        return DEFAULT;
+    }
+
+    /**
+     * Checks whether the modified document is returned instead of the original one.
+     *
+     * @return true if the modified document is returned
+     */
+    public boolean isReturnNew() {
+        return returnNew;
+    }
+
+    public boolean isUpsert() {
+        return upsert;
+    }
+
+    /**
+     * Gets sort order that determines which document is modified if several documents match.
+     *
+     * @return sort order, can be null
+     */
+    public DBObject getSort() {
+        return sort;
+    }
+
+    /**
+     * Gets projection of the returned document.
+     *
+     * @return projection, can be null
+     */
+    public DBObject getFields() {
+        return fields;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("returnNew", returnNew)
+                .append("upsert", upsert)
+                .append("sort", sort)
+                .append("fields", fields)
+                .toString();
+    }
+
+    public static class Builder {
+        private boolean returnNew;
+        private boolean upsert;
+        private DBObject sort;
+        private DBObject fields;
+
+        public Builder returnNew(boolean val) {
+            this.returnNew = val;
+            return this;
+        }
+
+        public Builder upsert(boolean val) {
+            this.upsert = val;
+            return this;
+        }
+
+        public Builder sort(DBObject val) {
+            this.sort = val;
+            return this;
+        }
+
+        public Builder fields(DBObject val) {
+            this.fields = val;
+            return this;
+        }
+
+        public FindAndModifyOptions build() {
+            return new FindAndModifyOptions(this);
+        }
+    }
+}
@@ -21,6 +21,10 @@ import com.google.common.collect.Lists;
 import java.util.List;
 import java.util.Map;
 
+import org.jmingo.cache.CacheConfig;
+import org.jmingo.cache.CollectionCacheConfig;
+import org.jmingo.cache.MaterializedViewConfig;
+import org.jmingo.cache.PrefetchConfig;
 import org.jmingo.el.api.ELEngine;
 import org.jmingo.util.QueryUtils;
 import org.apache.commons.collections.CollectionUtils;
@@ -48,6 +52,14 @@ public class Query {
 
     private final List<QueryElement> queryElements;
 
+    private final CacheConfig cacheConfig;
+
+    private final CollectionCacheConfig collectionCacheConfig;
+
+    private final MaterializedViewConfig materializedViewConfig;
+
+    private final PrefetchConfig prefetchConfig;
+
     /**
      * Creates builder.
      *
@@ -65,6 +77,10 @@ public class Query {
         this.escapeNullParameters = builder.escapeNullParameters;
         this.queryType = builder.queryType;
         this.queryElements = ImmutableList.copyOf(builder.queryElements);
+        this.cacheConfig = builder.cacheConfig;
+        this.collectionCacheConfig = builder.collectionCacheConfig;
+        this.materializedViewConfig = builder.materializedViewConfig;
+        this.prefetchConfig = builder.prefetchConfig;
     }
 
     /**
@@ -139,6 +155,42 @@ public class Query {
         return queryElements;
     }
 
+    /**
+     * Gets cache settings.
+     *
+     * @return cache settings or null if results of the query shouldn't be cached
+     */
+    public CacheConfig getCacheConfig() {
+        return cacheConfig;
+    }
+
+    /**
+     * Gets settings of in-memory snapshot of the collection.
+     *
+     * @return snapshot settings or null if the query should be always sent to the database
+     */
+    public CollectionCacheConfig getCollectionCacheConfig() {
+        return collectionCacheConfig;
+    }
+
+    /**
+     * Gets settings of materialized view.
+     *
+     * @return view settings or null if the query isn't materialized
+     */
+    public MaterializedViewConfig getMaterializedViewConfig() {
+        return materializedViewConfig;
+    }
+
+    /**
+     * Gets settings of the next page prefetch.
+     *
+     * @return prefetch settings or null if next pages of the query aren't prefetched
+     */
+    public PrefetchConfig getPrefetchConfig() {
+        return prefetchConfig;
+    }
+
     /**
      * Creates string representation of query.
      *
@@ -166,6 +218,10 @@ public class Query {
         private boolean escapeNullParameters = false;
         private QueryType queryType = PLAIN;
         private List<QueryElement> queryElements = Lists.newArrayList();
+        private CacheConfig cacheConfig;
+        private CollectionCacheConfig collectionCacheConfig;
+        private MaterializedViewConfig materializedViewConfig;
+        private PrefetchConfig prefetchConfig;
 
         public Builder id(String val) {
             Validate.notBlank(val, "query id is required field and cannot be null");
@@ -200,6 +256,26 @@ public class Query {
             return this;
         }
 
+        public Builder cacheConfig(CacheConfig val) {
+            this.cacheConfig = val;
+            return this;
+        }
+
+        public Builder collectionCacheConfig(CollectionCacheConfig val) {
+            this.collectionCacheConfig = val;
+            return this;
+        }
+
+        public Builder materializedViewConfig(MaterializedViewConfig val) {
+            this.materializedViewConfig = val;
+            return this;
+        }
+
+        public Builder prefetchConfig(PrefetchConfig val) {
+            this.prefetchConfig = val;
+            return this;
+        }
+
         public Builder add(QueryElement queryEl) {
             queryElements.add(queryEl);
             return this;
@@ -154,6 +154,23 @@ public class QueryManager {
         return query;
     }
 
+    /**
+     * Gets checksum of the query set that contains the query.
+     *
+     * @param compositeId the query composite id
+     * @return checksum of the query set or null if query with specified composite id doesn't exist
+     */
+    public String getChecksum(String compositeId) {
+        for (AtomicReference<QuerySet> querySetRef : querySetRegistry) {
+            QuerySet querySet = querySetRef.get();
+            Query query = querySet.getQueryByCompositeId(compositeId);
+            if (query != null && query.getCompositeId().equals(compositeId)) {
+                return querySet.getChecksum();
+            }
+        }
+        return null;
+    }
+
     /**
      * This method is called when jmingo context is being closed.
      * The entry of this method contains actions to properly close all running within current manager services.
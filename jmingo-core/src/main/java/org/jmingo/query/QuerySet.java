@@ -22,6 +22,7 @@ import com.google.common.collect.Sets;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang3.Validate;
+import org.jmingo.cache.CollectionCacheConfig;
 
 import java.nio.file.Path;
 import java.util.List;
@@ -47,6 +48,8 @@ public class QuerySet {
 
     private String checksum;
 
+    private CollectionCacheConfig collectionCacheConfig;
+
     private static final String DUPLICATED_QUERY_ID = "duplicated query id: '{}'";
 
     /**
@@ -103,6 +106,24 @@ public class QuerySet {
         this.collectionName = collectionName;
     }
 
+    /**
+     * Gets settings of in-memory snapshot of the collection.
+     *
+     * @return snapshot settings or null if the collection shouldn't be cached
+     */
+    public CollectionCacheConfig getCollectionCacheConfig() {
+        return collectionCacheConfig;
+    }
+
+    /**
+     * Sets settings of in-memory snapshot of the collection.
+     *
+     * @param collectionCacheConfig the snapshot settings
+     */
+    public void setCollectionCacheConfig(CollectionCacheConfig collectionCacheConfig) {
+        this.collectionCacheConfig = collectionCacheConfig;
+    }
+
     /**
      * Gets queries.
      *
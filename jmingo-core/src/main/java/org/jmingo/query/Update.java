@@ -0,0 +1,198 @@
+/**
+ * Copyright 2013-2014 The JMingo Team
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jmingo.query;
+
+import com.google.common.collect.Lists;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Builder of an update with atomic field operators, is applied by the server without reading the document:
+ * <pre>
+ * jMingoTemplate.update(new Update().inc("views", 1).push("tags", "new"), Criteria.whereId(id), Post.class);
+ * </pre>
+ * Values are stored as is, so they should be types supported by the driver: primitives, strings, dates,
+ * collections, maps and {@link DBObject}.
+ */
+public class Update {
+
+    private final BasicDBObject updateObject = new BasicDBObject();
+
+    /**
+     * Increments the field by the amount, the field is created if it doesn't exist.
+     *
+     * @param field  the field name, can be a dotted path
+     * @param amount the amount, can be negative
+     * @return current update
+     */
+    public Update inc(String field, Number amount) {
+        Validate.notNull(amount, "amount cannot be null");
+        return add("$inc", field, amount);
+    }
+
+    /**
+     * Sets value of the field.
+     *
+     * @param field the field name, can be a dotted path
+     * @param value the value
+     * @return current update
+     */
+    public Update set(String field, Object value) {
+        return add("$set", field, value);
+    }
+
+    /**
+     * Sets value of the field only if the update inserts a document.
+     *
+     * @param field the field name, can be a dotted path
+     * @param value the value
+     * @return current update
+     */
+    public Update setOnInsert(String field, Object value) {
+        return add("$setOnInsert", field, value);
+    }
+
+    /**
+     * Removes the field.
+     *
+     * @param field the field name, can be a dotted path
+     * @return current update
+     */
+    public Update unset(String field) {
+        return add("$unset", field, "");
+    }
+
+    /**
+     * Appends the value to the array field.
+     *
+     * @param field the field name, can be a dotted path
+     * @param value the value to append
+     * @return current update
+     */
+    public Update push(String field, Object value) {
+        return add("$push", field, value);
+    }
+
+    /**
+     * Appends the values to the array field.
+     *
+     * @param field  the field name, can be a dotted path
+     * @param values the values to append
+     * @return current update
+     */
+    public Update pushAll(String field, Collection<?> values) {
+        Validate.notNull(values, "values cannot be null");
+        return add("$push", field, new BasicDBObject("$each", Lists.newArrayList(values)));
+    }
+
+    /**
+     * Appends the value to the array field unless the array already contains it.
+     *
+     * @param field the field name, can be a dotted path
+     * @param value the value to append
+     * @return current update
+     */
+    public Update addToSet(String field, Object value) {
+        return add("$addToSet", field, value);
+    }
+
+    /**
+     * Appends values to the array field, each value is appended unless the array already contains it.
+     *
+     * @param field  the field name, can be a dotted path
+     * @param values the values to append
+     * @return current update
+     */
+    public Update addToSet(String field, Object... values) {
+        return add("$addToSet", field, new BasicDBObject("$each", Arrays.asList(values)));
+    }
+
+    /**
+     * Removes all occurrences of the value from the array field.
+     *
+     * @param field the field name, can be a dotted path
+     * @param value the value or the condition to match elements to remove
+     * @return current update
+     */
+    public Update pull(String field, Object value) {
+        return add("$pull", field, value);
+    }
+
+    /**
+     * Sets the field to the value if the value is greater than the current value of the field.
+     *
+     * @param field the field name, can be a dotted path
+     * @param value the value
+     * @return current update
+     */
+    public Update max(String field, Object value) {
+        return add("$max", field, value);
+    }
+
+    /**
+     * Sets the field to the value if the value is less than the current value of the field.
+     *
+     * @param field the field name, can be a dotted path
+     * @param value the value
+     * @return current update
+     */
+    public Update min(String field, Object value) {
+        return add("$min", field, value);
+    }
+
+    /**
+     * Gets the update document.
+     *
+     * @return copy of the update document
+     */
+    public DBObject getUpdateObject() {
+        BasicDBObject result = new BasicDBObject();
+        updateObject.forEach((operator, fields) -> result.put(operator, new BasicDBObject(((DBObject) fields).toMap())));
+        return result;
+    }
+
+    /**
+     * Checks whether the update has no operators.
+     *
+     * @return true if no operators were added
+     */
+    public boolean isEmpty() {
+        return updateObject.isEmpty();
+    }
+
+    private Update add(String operator, String field, Object value) {
+        Validate.notBlank(field, "field cannot be null or empty");
+        DBObject fields = (DBObject) updateObject.get(operator);
+        if (fields == null) {
+            fields = new BasicDBObject();
+            updateObject.put(operator, fields);
+        }
+        fields.put(field, value);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("updateObject", updateObject)
+                .toString();
+    }
+}
@@ -16,6 +16,11 @@
 package org.jmingo.util;
 
 import com.mongodb.DBObject;
+import org.bson.types.ObjectId;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
 
 
 public final class MongoUtil {
@@ -35,4 +40,64 @@ public final class MongoUtil {
         return null;
     }
 
+    /**
+     * Normalizes the value for comparison by equality: numbers of different types are equal in mongodb if they
+     * have the same value, so integral numbers are converted to long and other numbers to double.
+     *
+     * @param value the value
+     * @return normalized value, values other than numbers are returned as is
+     */
+    public static Object normalize(Object value) {
+        if (value instanceof Number) {
+            double doubleValue = ((Number) value).doubleValue();
+            if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                return ((Number) value).longValue();
+            }
+            return doubleValue == Math.rint(doubleValue) && !Double.isInfinite(doubleValue)
+                    ? (Object) (long) doubleValue : (Object) doubleValue;
+        }
+        return value;
+    }
+
+    /**
+     * Estimates size of the value encoded in BSON without encoding it. The estimation is precise for documents
+     * of strings, numbers, booleans, dates and object ids, other values are estimated by their string form.
+     *
+     * @param value the value, can be a document, a map, a collection or a scalar
+     * @return estimated size in bytes
+     */
+    public static int estimateSize(Object value) {
+        if (value == null || value instanceof Boolean) {
+            return 1;
+        }
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return 4;
+        }
+        if (value instanceof Number || value instanceof Date) {
+            return 8;
+        }
+        if (value instanceof ObjectId) {
+            return 12;
+        }
+        if (value instanceof DBObject || value instanceof Map) {
+            Map<?, ?> map = value instanceof DBObject ? ((DBObject) value).toMap() : (Map<?, ?>) value;
+            // length and terminator of the document, type and terminator of each element
+            int size = 5;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                size += 2 + String.valueOf(entry.getKey()).length() + estimateSize(entry.getValue());
+            }
+            return size;
+        }
+        if (value instanceof Collection) {
+            int size = 5;
+            int index = 0;
+            for (Object element : (Collection<?>) value) {
+                size += 2 + String.valueOf(index++).length() + estimateSize(element);
+            }
+            return size;
+        }
+        // length and terminator of the string
+        return 5 + value.toString().length();
+    }
+
 }
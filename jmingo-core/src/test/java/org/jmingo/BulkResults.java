@@ -0,0 +1,66 @@
+package org.jmingo;
+
+import com.google.common.collect.ImmutableList;
+import com.mongodb.BulkWriteResult;
+import com.mongodb.BulkWriteUpsert;
+
+import java.util.List;
+
+/**
+ * Creates results of bulk writes for tests of components that perform bulk writes.
+ */
+public final class BulkResults {
+
+    private BulkResults() {
+    }
+
+    /**
+     * Creates result of inserts.
+     *
+     * @param insertedCount the number of inserted documents
+     * @param errors        the errors of documents that weren't inserted
+     * @return the result
+     */
+    public static BulkResult inserted(int insertedCount, BulkResult.BulkError... errors) {
+        BulkResult.Builder builder = BulkResult.builder().add(new BulkWriteResult() {
+            @Override
+            public boolean isAcknowledged() {
+                return true;
+            }
+
+            @Override
+            public int getInsertedCount() {
+                return insertedCount;
+            }
+
+            @Override
+            public int getMatchedCount() {
+                return 0;
+            }
+
+            @Override
+            public int getRemovedCount() {
+                return 0;
+            }
+
+            @Override
+            public boolean isModifiedCountAvailable() {
+                return true;
+            }
+
+            @Override
+            public int getModifiedCount() {
+                return 0;
+            }
+
+            @Override
+            public List<BulkWriteUpsert> getUpserts() {
+                return ImmutableList.of();
+            }
+        });
+        for (BulkResult.BulkError error : errors) {
+            builder.error(error.getIndex(), error.getCode(), error.getMessage());
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,55 @@
+package org.jmingo;
+
+import com.google.common.collect.Lists;
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit test for {@link ChangeTracker}.
+ */
+public class ChangeTrackerTest {
+
+    @Test
+    public void testDiff() {
+        DBObject previous = new BasicDBObject("_id", 1)
+                .append("name", "bob")
+                .append("nickname", "b")
+                .append("address", new BasicDBObject("city", "Paris").append("zip", "75001"))
+                .append("tags", list("a", "b"))
+                .append("roles", list("admin", "user"));
+        DBObject current = new BasicDBObject("_id", 1)
+                .append("name", "bob")
+                .append("address", new BasicDBObject("city", "Lyon").append("zip", "75001"))
+                .append("tags", list("a", "b", "c"))
+                .append("roles", list("user"))
+                .append("age", 30);
+        DBObject update = ChangeTracker.computeDiff(previous, current);
+        assertEquals(update.get("$set"), new BasicDBObject("address.city", "Lyon")
+                .append("roles", list("user"))
+                .append("age", 30));
+        assertEquals(update.get("$unset"), new BasicDBObject("nickname", ""));
+        assertEquals(update.get("$push"), new BasicDBObject("tags",
+                new BasicDBObject("$each", Lists.newArrayList("c"))));
+    }
+
+    @Test
+    public void testNoChanges() {
+        DBObject document = new BasicDBObject("_id", 1).append("address", new BasicDBObject("city", "Paris"));
+        DBObject copy = new BasicDBObject("_id", 1).append("address", new BasicDBObject("city", "Paris"));
+        assertTrue(ChangeTracker.computeDiff(document, copy).keySet().isEmpty());
+        assertEquals(ChangeTracker.noChange(copy), new BasicDBObject("$setOnInsert", new BasicDBObject("_id", 1)));
+        assertEquals(ChangeTracker.noChange(new BasicDBObject("_id", 1)),
+                new BasicDBObject("$setOnInsert", new BasicDBObject("_id", 1)));
+    }
+
+    private static BasicDBList list(Object... values) {
+        BasicDBList list = new BasicDBList();
+        list.addAll(Lists.newArrayList(values));
+        return list;
+    }
+}
@@ -0,0 +1,59 @@
+package org.jmingo;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.mongodb.BasicDBObject;
+import com.mongodb.WriteConcern;
+import org.jmingo.mongo.DurabilityProfile;
+import org.jmingo.mongo.DurabilityProfiles;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Unit test for grouping of bulk writes of {@link JMingoTemplate}.
+ */
+public class JMingoTemplateTest {
+
+    private final DurabilityProfiles profiles = new DurabilityProfiles(new WriteConcern(1),
+            ImmutableMap.of("audit", new WriteConcern(2)));
+
+    @Test
+    public void testOrderedGroupsKeepOrderOfMixedProfiles() {
+        List<WriteOperation> operations = getOperations();
+        assertEquals(JMingoTemplate.group(operations, true), Arrays.asList(
+                Arrays.asList(0, 1), Arrays.asList(2), Arrays.asList(3), Arrays.asList(4), Arrays.asList(5)));
+    }
+
+    @Test
+    public void testUnorderedGroupsJoinSameProfile() {
+        List<WriteOperation> operations = getOperations();
+        assertEquals(JMingoTemplate.group(operations, false), Arrays.asList(
+                Arrays.asList(0, 1, 3), Arrays.asList(2, 4), Arrays.asList(5)));
+    }
+
+    @Test
+    public void testNoOperations() {
+        assertEquals(JMingoTemplate.group(Lists.newArrayList(), true).size(), 0);
+        assertEquals(JMingoTemplate.group(Lists.newArrayList(), false).size(), 0);
+    }
+
+    /**
+     * Writes to one collection that alternate default and audit profiles, then a write to another collection.
+     */
+    private List<WriteOperation> getOperations() {
+        DurabilityProfile defaultProfile = profiles.getDefault();
+        DurabilityProfile audit = profiles.get("audit");
+        return Arrays.asList(
+                WriteOperation.insert("users", new BasicDBObject("n", 0), defaultProfile),
+                WriteOperation.insert("users", new BasicDBObject("n", 1), defaultProfile),
+                WriteOperation.update("users", new BasicDBObject("$set", new BasicDBObject("n", 2)),
+                        new BasicDBObject("n", 1), false, false, audit),
+                WriteOperation.remove("users", new BasicDBObject("n", 0), defaultProfile),
+                WriteOperation.insert("users", new BasicDBObject("n", 4), audit),
+                WriteOperation.insert("events", new BasicDBObject("n", 5), defaultProfile));
+    }
+}
@@ -0,0 +1,95 @@
+package org.jmingo;
+
+import com.google.common.collect.ImmutableList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Unit test for settings, shard ids and compaction steps of {@link ShardedCounter}.
+ */
+public class ShardedCounterTest {
+
+    @Test
+    public void testDefaultConfig() {
+        ShardedCounterConfig config = ShardedCounterConfig.builder().build();
+        assertEquals(config.getShards(), ShardedCounterConfig.DEF_SHARDS);
+        assertEquals(config.getCacheTtl(), 0);
+        assertEquals(config.getCompactInterval(), 0);
+    }
+
+    @Test
+    public void testConfig() {
+        ShardedCounterConfig config = ShardedCounterConfig.builder().shards(4)
+                .cacheTtl(2, TimeUnit.SECONDS).compactInterval(1, TimeUnit.MINUTES).build();
+        assertEquals(config.getShards(), 4);
+        assertEquals(config.getCacheTtl(), 2000);
+        assertEquals(config.getCompactInterval(), 60000);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testZeroShards() {
+        ShardedCounterConfig.builder().shards(0);
+    }
+
+    @Test
+    public void testShardId() {
+        assertEquals(ShardedCounter.shardId("views", 3), "views:3");
+    }
+
+    @Test
+    public void testSumOfShards() {
+        assertEquals(ShardedCounter.sum(ImmutableList.of(shard(0, 5), shard(1, 3), shard(2, -1))), 7);
+        assertEquals(ShardedCounter.sum(ImmutableList.of()), 0);
+    }
+
+    @Test
+    public void testValueDoesNotChangeAtEveryStepOfMove() {
+        DBObject move = new BasicDBObject(ShardedCounter.SEQ_FIELD, 1L).append(ShardedCounter.AMOUNT_FIELD, 3L);
+        // the value is moved from the shard to the marker
+        DBObject moving = shard(1, 0).append(ShardedCounter.MOVE_FIELD, move);
+        assertEquals(ShardedCounter.sum(ImmutableList.of(shard(0, 5), moving)), 8);
+        // the amount is added to the first shard, the marker isn't counted anymore
+        DBObject applied = shard(0, 8).append(ShardedCounter.APPLIED_FIELD, new BasicDBObject("1", 1L));
+        assertEquals(ShardedCounter.sum(ImmutableList.of(applied, moving)), 8);
+        // the marker and the empty shard are removed
+        assertEquals(ShardedCounter.sum(ImmutableList.of(applied)), 8);
+        // the next move of the shard has greater sequence
+        DBObject nextMove = new BasicDBObject(ShardedCounter.SEQ_FIELD, 2L).append(ShardedCounter.AMOUNT_FIELD, 4L);
+        assertEquals(ShardedCounter.sum(ImmutableList.of(applied,
+                shard(1, 1).append(ShardedCounter.MOVE_FIELD, nextMove))), 13);
+    }
+
+    @Test
+    public void testAppliedTotal() {
+        assertEquals(ShardedCounter.appliedTotal(null), 0);
+        assertEquals(ShardedCounter.appliedTotal(shard(0, 5)), 0);
+        // applying a move of any shard changes the total
+        assertEquals(ShardedCounter.appliedTotal(shard(0, 5).append(ShardedCounter.APPLIED_FIELD,
+                new BasicDBObject("1", 2L).append("2", 1L))), 3);
+    }
+
+    @Test
+    public void testMoveUpdates() {
+        DBObject move = new BasicDBObject(ShardedCounter.SEQ_FIELD, 2L).append(ShardedCounter.AMOUNT_FIELD, 3L);
+        assertEquals(ShardedCounter.startMove(move), new BasicDBObject("$inc",
+                new BasicDBObject(ShardedCounter.VALUE_FIELD, -3L))
+                .append("$set", new BasicDBObject(ShardedCounter.MOVE_FIELD, move)));
+        assertEquals(ShardedCounter.applyMoveQuery("views:0", 1, move), new BasicDBObject("_id", "views:0")
+                .append("applied.1", new BasicDBObject("$not", new BasicDBObject("$gte", 2L))));
+        assertEquals(ShardedCounter.applyMove(1, move), new BasicDBObject("$inc",
+                new BasicDBObject(ShardedCounter.VALUE_FIELD, 3L))
+                .append("$set", new BasicDBObject("applied.1", 2L)));
+    }
+
+    private static BasicDBObject shard(int shard, long value) {
+        return new BasicDBObject("_id", ShardedCounter.shardId("views", shard))
+                .append(ShardedCounter.COUNTER_FIELD, "views")
+                .append(ShardedCounter.SHARD_FIELD, shard)
+                .append(ShardedCounter.VALUE_FIELD, value);
+    }
+}
@@ -0,0 +1,46 @@
+package org.jmingo;
+
+import com.google.common.collect.Lists;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.jmingo.document.annotation.Document;
+import org.jmingo.document.annotation.TimeSeries;
+import org.testng.annotations.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Unit test for {@link TimeSeriesBuckets}.
+ */
+public class TimeSeriesBucketsTest {
+
+    private static final TimeSeries SETTINGS = TimeSeriesBuckets.getSettings(Reading.class);
+
+    @Test
+    public void testBucketQuery() {
+        DBObject event = new BasicDBObject("sensor", "s1").append("time", new Date(7250000));
+        DBObject query = TimeSeriesBuckets.bucketQuery(event, SETTINGS);
+        assertEquals(query.get(TimeSeriesBuckets.SERIES_FIELD), "s1");
+        assertEquals(query.get(TimeSeriesBuckets.START_FIELD), new Date(7200000));
+        assertEquals(query.get(TimeSeriesBuckets.COUNT_FIELD), new BasicDBObject("$lt", 100));
+    }
+
+    @Test
+    public void testUnpack() {
+        DBObject first = new BasicDBObject(TimeSeriesBuckets.EVENTS_FIELD, Lists.newArrayList(
+                new BasicDBObject("time", 3000L), new BasicDBObject("time", 1000L)));
+        DBObject second = new BasicDBObject(TimeSeriesBuckets.EVENTS_FIELD, Lists.newArrayList(
+                new BasicDBObject("time", 2000L), new BasicDBObject("time", 5000L)));
+        List<DBObject> events = TimeSeriesBuckets.unpack(Lists.newArrayList(first, second), 1000, 5000, SETTINGS);
+        assertEquals(events, Lists.newArrayList(new BasicDBObject("time", 1000L), new BasicDBObject("time", 2000L),
+                new BasicDBObject("time", 3000L)));
+    }
+
+    @Document(collectionName = "readings")
+    @TimeSeries(timeField = "time", seriesField = "sensor", maxEvents = 100)
+    private static class Reading {
+    }
+}
@@ -0,0 +1,56 @@
+package org.jmingo;
+
+import com.google.common.collect.Sets;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+/**
+ * Unit test for coalescing of updates in {@link WriteBehindChannel}.
+ */
+public class WriteBehindChannelTest {
+
+    @Test
+    public void testMergeSetAndInc() {
+        DBObject previous = new BasicDBObject("$set", new BasicDBObject("status", "OPEN"))
+                .append("$inc", new BasicDBObject("views", 1));
+        DBObject next = new BasicDBObject("$set", new BasicDBObject("status", "CLOSED").append("owner", "bob"))
+                .append("$inc", new BasicDBObject("views", 2));
+        DBObject merged = WriteBehindChannel.merge(previous, next);
+        assertEquals(merged.get("$set"), new BasicDBObject("status", "CLOSED").append("owner", "bob"));
+        assertEquals(merged.get("$inc"), new BasicDBObject("views", 3));
+    }
+
+    @Test
+    public void testMergeSetAndUnset() {
+        DBObject set = new BasicDBObject("$set", new BasicDBObject("status", "OPEN"));
+        DBObject unset = new BasicDBObject("$unset", new BasicDBObject("status", ""));
+        assertEquals(WriteBehindChannel.merge(set, unset), unset);
+        assertEquals(WriteBehindChannel.merge(unset, set), set);
+        DBObject setAndInc = new BasicDBObject("$set", new BasicDBObject("status", "OPEN"))
+                .append("$inc", new BasicDBObject("views", 1));
+        DBObject merged = WriteBehindChannel.merge(setAndInc, unset);
+        assertEquals(merged.keySet(), Sets.newHashSet("$inc", "$unset"));
+        assertEquals(merged.get("$unset"), new BasicDBObject("status", ""));
+    }
+
+    @Test
+    public void testReplacementOverridesUpdate() {
+        DBObject replacement = new BasicDBObject("status", "CLOSED");
+        assertEquals(WriteBehindChannel.merge(new BasicDBObject("$inc", new BasicDBObject("views", 1)), replacement),
+                replacement);
+    }
+
+    @Test
+    public void testConflictingUpdatesAreNotMerged() {
+        assertNull(WriteBehindChannel.merge(new BasicDBObject("$inc", new BasicDBObject("views", 1)),
+                new BasicDBObject("$set", new BasicDBObject("views", 0))));
+        assertNull(WriteBehindChannel.merge(new BasicDBObject("$set", new BasicDBObject("address", "x")),
+                new BasicDBObject("$set", new BasicDBObject("address.city", "y"))));
+        assertNull(WriteBehindChannel.merge(new BasicDBObject("$push", new BasicDBObject("tags", "a")),
+                new BasicDBObject("$push", new BasicDBObject("tags", "b"))));
+    }
+}
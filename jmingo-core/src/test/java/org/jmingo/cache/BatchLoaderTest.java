@@ -0,0 +1,95 @@
+package org.jmingo.cache;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit test for {@link BatchLoader}.
+ */
+public class BatchLoaderTest {
+
+    private ScheduledExecutorService scheduler;
+    private List<Set<Integer>> batches;
+
+    @BeforeMethod
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        batches = Lists.newCopyOnWriteArrayList();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void testMaxBatchSize() throws Exception {
+        BatchLoader<Integer, String> loader = new BatchLoader<>(this::load, 1, TimeUnit.HOURS, 3, scheduler);
+        CompletableFuture<String> first = loader.load(1);
+        CompletableFuture<String> duplicate = loader.load(1);
+        CompletableFuture<String> missing = loader.load(-2);
+        assertSame(first, duplicate);
+        assertFalse(first.isDone());
+
+        CompletableFuture<String> last = loader.load(3);
+        assertTrue(first.isDone());
+        assertEquals(first.get(), "1");
+        assertNull(missing.get());
+        assertEquals(last.get(), "3");
+        assertEquals(batches, Collections.singletonList(ImmutableSet.of(1, -2, 3)));
+        assertEquals(loader.getBatchSizes().getCount(), 1);
+        assertEquals(loader.getBatchSizes().getMax(), 3);
+    }
+
+    @Test
+    public void testWindow() throws Exception {
+        BatchLoader<Integer, String> loader = new BatchLoader<>(this::load, 10, TimeUnit.MILLISECONDS, 100,
+                scheduler);
+        CompletableFuture<String> first = loader.load(1);
+        CompletableFuture<String> second = loader.load(2);
+        assertEquals(first.get(5, TimeUnit.SECONDS), "1");
+        assertEquals(second.get(5, TimeUnit.SECONDS), "2");
+        assertEquals(batches, Collections.singletonList(ImmutableSet.of(1, 2)));
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testFailure() throws Throwable {
+        BatchLoader<Integer, String> loader = new BatchLoader<>(keys -> {
+            throw new IllegalStateException("failed");
+        }, 1, TimeUnit.HOURS, 100, scheduler);
+        CompletableFuture<String> result = loader.load(1);
+        loader.flush();
+        try {
+            result.get();
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Map<Integer, String> load(Set<Integer> keys) {
+        batches.add(ImmutableSet.copyOf(keys));
+        Map<Integer, String> result = new HashMap<>();
+        keys.stream().filter(key -> key > 0).forEach(key -> result.put(key, String.valueOf(key)));
+        return result;
+    }
+}
@@ -0,0 +1,78 @@
+package org.jmingo.cache;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.util.JSON;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit test for {@link CachedCollection} and {@link DocumentMatcher}.
+ */
+public class CachedCollectionTest {
+
+    private static final List<DBObject> DOCUMENTS = Lists.newArrayList(
+            parse("{_id: 1, code: 'USD', rate: 1.0, tags: ['major'], region: {name: 'america'}}"),
+            parse("{_id: 2, code: 'EUR', rate: 0.9, tags: ['major', 'europe'], region: {name: 'europe'}}"),
+            parse("{_id: 3, code: 'CHF', rate: 0.95, tags: ['europe']}"),
+            parse("{_id: 4, code: 'JPY', rate: 150, region: {name: 'asia'}}"));
+
+    @Test
+    public void testFind() {
+        CachedCollection collection = new CachedCollection(DOCUMENTS, ImmutableSet.of("code", "tags", "_id"));
+        assertEquals(ids(collection.find(parse("{code: 'EUR'}"), 0)), Lists.newArrayList(2));
+        assertEquals(ids(collection.find(parse("{code: {$in: ['JPY', 'USD']}}"), 0)), Lists.newArrayList(1, 4));
+        assertEquals(ids(collection.find(parse("{_id: 2.0}"), 0)), Lists.newArrayList(2));
+        assertEquals(ids(collection.find(parse("{tags: 'europe'}"), 0)), Lists.newArrayList(2, 3));
+        assertEquals(ids(collection.find(parse("{tags: 'europe', rate: {$gt: 0.9}}"), 0)), Lists.newArrayList(3));
+        assertEquals(ids(collection.find(parse("{rate: {$gte: 0.95, $lt: 150}}"), 0)), Lists.newArrayList(1, 3));
+        assertEquals(ids(collection.find(parse("{region: {$exists: false}}"), 0)), Lists.newArrayList(3));
+        assertEquals(ids(collection.find(parse("{'region.name': 'asia'}"), 0)), Lists.newArrayList(4));
+        assertEquals(ids(collection.find(parse("{$or: [{code: 'CHF'}, {rate: {$gt: 100}}]}"), 0)),
+                Lists.newArrayList(3, 4));
+        assertEquals(ids(collection.find(parse("{$and: [{tags: 'major'}, {code: {$eq: 'USD'}}]}"), 0)),
+                Lists.newArrayList(1));
+        assertEquals(ids(collection.find(parse("{tags: 'major'}"), 1)), Lists.newArrayList(1));
+        assertTrue(collection.find(parse("{code: 'GBP'}"), 0).isEmpty());
+    }
+
+    @Test
+    public void testDottedIndex() {
+        List<DBObject> documents = Lists.newArrayList(
+                new BasicDBObject("_id", 1).append("address", new BasicDBObject("city", "Paris")),
+                new BasicDBObject("_id", 2).append("address", Lists.newArrayList(
+                        new BasicDBObject("city", "Lyon"), new BasicDBObject("city", "Paris"))),
+                new BasicDBObject("_id", 3).append("address", new BasicDBObject("city", Lists.newArrayList("Nice"))),
+                new BasicDBObject("_id", 4));
+        CachedCollection collection = new CachedCollection(documents, ImmutableSet.of("address.city"));
+        assertEquals(ids(collection.find(new BasicDBObject("address.city", "Paris"), 0)), Lists.newArrayList(1, 2));
+        assertEquals(ids(collection.find(new BasicDBObject("address.city", "Lyon"), 0)), Lists.newArrayList(2));
+        assertEquals(ids(collection.find(new BasicDBObject("address.city", "Nice"), 0)), Lists.newArrayList(3));
+    }
+
+    @Test
+    public void testSupports() {
+        assertTrue(CachedCollection.supports(parse("{code: {$in: ['USD']}, rate: {$lte: 1}}")));
+        assertFalse(CachedCollection.supports(parse("{code: {$regex: '^U'}}")));
+        assertFalse(CachedCollection.supports(parse("{region: {name: 'asia'}}")));
+        assertFalse(CachedCollection.supports(parse("{'tags.0': 'major'}")));
+        assertFalse(CachedCollection.supports(parse("{$nor: [{code: 'USD'}]}")));
+        assertFalse(CachedCollection.supports(parse("{code: {$in: [{a: 1}]}}")));
+    }
+
+    private static List<Object> ids(List<DBObject> documents) {
+        return documents.stream().map(document -> document.get("_id")).collect(Collectors.toList());
+    }
+
+    private static DBObject parse(String json) {
+        return (BasicDBObject) JSON.parse(json);
+    }
+}
@@ -0,0 +1,46 @@
+package org.jmingo.cache;
+
+import org.testng.annotations.Test;
+
+import java.util.stream.IntStream;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit test for {@link CollectionBloomFilter}.
+ */
+public class CollectionBloomFilterTest {
+
+    @Test
+    public void testBuild() {
+        CollectionBloomFilter filter = new CollectionBloomFilter("_id", 1000, 0.001);
+        assertTrue(filter.mightContain("absent"), "filter that isn't built cannot answer absent");
+
+        filter.build(consumer -> {
+            IntStream.range(0, 100).forEach(consumer::accept);
+            // value stored while the filter is being built
+            filter.put("inserted");
+        });
+        assertTrue(filter.isReady());
+        IntStream.range(0, 100).forEach(value -> assertTrue(filter.mightContain(value)));
+        assertTrue(filter.mightContain("inserted"));
+        assertFalse(filter.mightContain("absent"));
+        assertTrue(filter.getNegativeCount() > 0);
+    }
+
+    @Test
+    public void testInvalidate() {
+        CollectionBloomFilter filter = new CollectionBloomFilter("_id", 1000, 0.001);
+        filter.build(consumer -> filter.invalidate());
+        assertFalse(filter.isReady(), "filter invalidated during build cannot be ready");
+        assertTrue(filter.mightContain("absent"));
+
+        filter.build(consumer -> consumer.accept("present"));
+        assertTrue(filter.isReady());
+        assertFalse(filter.mightContain("absent"));
+
+        filter.clear();
+        assertFalse(filter.mightContain("present"));
+    }
+}
@@ -0,0 +1,123 @@
+package org.jmingo.cache;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.jmingo.document.annotation.Document;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit test for {@link EntityCache}.
+ */
+public class EntityCacheTest {
+
+    private static final Function<DBObject, Item> CONVERTER = source -> new Item((String) source.get("name"));
+
+    private FakeTicker ticker;
+    private EntityCache cache;
+
+    @BeforeMethod
+    public void setUp() {
+        ticker = new FakeTicker();
+        cache = new EntityCache(ticker);
+    }
+
+    @Test
+    public void testCopiesAndExpiration() {
+        AtomicInteger loads = new AtomicInteger();
+        Item first = cache.get(Item.class, 1, () -> load(loads, "first"), CONVERTER);
+        Item second = cache.get(Item.class, 1, () -> load(loads, "second"), CONVERTER);
+        assertEquals(second.name, "first");
+        assertNotSame(first, second);
+        assertEquals(loads.get(), 1);
+
+        ticker.advance(61, TimeUnit.SECONDS);
+        assertEquals(cache.get(Item.class, 1, () -> load(loads, "third"), CONVERTER).name, "third");
+        assertEquals(loads.get(), 2);
+    }
+
+    @Test
+    public void testNegativeCachingAndInvalidation() {
+        AtomicInteger loads = new AtomicInteger();
+        assertNull(cache.get(Item.class, 1, () -> {
+            loads.incrementAndGet();
+            return null;
+        }, CONVERTER));
+        assertNull(cache.get(Item.class, 1, () -> load(loads, "first"), CONVERTER));
+        assertEquals(loads.get(), 1);
+
+        cache.invalidate("items");
+        assertEquals(cache.get(Item.class, 1, () -> load(loads, "first"), CONVERTER).name, "first");
+        assertEquals(loads.get(), 2);
+    }
+
+    @Test
+    public void testInvalidateById() {
+        AtomicInteger loads = new AtomicInteger();
+        cache.get(Item.class, 1, () -> load(loads, "first"), CONVERTER);
+        cache.get(Item.class, 2, () -> load(loads, "second"), CONVERTER);
+        cache.invalidate("items", 1);
+        assertEquals(cache.get(Item.class, 1, () -> load(loads, "changed"), CONVERTER).name, "changed");
+        assertEquals(cache.get(Item.class, 2, () -> load(loads, "changed"), CONVERTER).name, "second");
+        assertEquals(loads.get(), 3);
+    }
+
+    @Test
+    public void testGetAllLoadsOnlyMisses() {
+        AtomicInteger loads = new AtomicInteger();
+        cache.get(Item.class, 1, () -> load(loads, "first"), CONVERTER);
+        List<List<Object>> requested = Lists.newArrayList();
+        Map<Object, Item> items = cache.getAll(Item.class, Arrays.asList(1, 2, 3), ids -> {
+            requested.add(ids);
+            return ImmutableMap.of(2, new BasicDBObject("name", "second"));
+        }, CONVERTER);
+        assertEquals(requested, Collections.singletonList(Arrays.asList(2, 3)));
+        assertEquals(items.get(1).name, "first");
+        assertEquals(items.get(2).name, "second");
+        assertNull(items.get(3));
+        // loaded documents and misses are cached
+        assertEquals(cache.get(Item.class, 2, () -> load(loads, "changed"), CONVERTER).name, "second");
+        assertNull(cache.get(Item.class, 3, () -> load(loads, "changed"), CONVERTER));
+        assertEquals(loads.get(), 1);
+    }
+
+    @Test
+    public void testIsCached() {
+        assertTrue(cache.isCached(Item.class));
+        assertFalse(cache.isCached(NotCachedItem.class));
+    }
+
+    private static DBObject load(AtomicInteger loads, String name) {
+        loads.incrementAndGet();
+        return new BasicDBObject("name", name);
+    }
+
+    @Document(collectionName = "items", cacheTtl = 60000)
+    private static class Item {
+        private final String name;
+
+        private Item(String name) {
+            this.name = name;
+        }
+    }
+
+    @Document(collectionName = "items")
+    private static class NotCachedItem {
+    }
+}
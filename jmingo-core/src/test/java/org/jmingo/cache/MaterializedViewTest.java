@@ -0,0 +1,50 @@
+package org.jmingo.cache;
+
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * Unit test for {@link MaterializedView}.
+ */
+public class MaterializedViewTest {
+
+    @Test
+    public void testRefresh() {
+        MaterializedView view = new MaterializedView("orders.totalsByCustomer",
+                MaterializedViewConfig.builder().refreshInterval(60, TimeUnit.SECONDS).build());
+        assertEquals(view.getViewName(), "orders.totalsByCustomer.view");
+        assertEquals(view.getShadowName(), "orders.totalsByCustomer.view.tmp");
+        assertFalse(view.isAvailable(), "view that wasn't materialized cannot be used");
+        assertEquals(view.getStaleness(), -1);
+
+        try {
+            view.refresh(materialized -> {
+                throw new IllegalStateException("pipeline failed");
+            });
+            fail("failure of materializer must be propagated");
+        } catch (IllegalStateException e) {
+            assertEquals(view.getFailureCount(), 1);
+        }
+        assertFalse(view.isAvailable());
+
+        view.refresh(materialized -> assertEquals(materialized, view));
+        assertTrue(view.isAvailable());
+        assertEquals(view.getRefreshCount(), 1);
+        assertTrue(view.getStaleness() >= 0);
+        assertEquals(view.getRefreshInterval(), TimeUnit.SECONDS.toMillis(60));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testMaxStalenessLessThanRefresh() {
+        MaterializedViewConfig.builder()
+                .refreshInterval(60, TimeUnit.SECONDS)
+                .maxStaleness(30, TimeUnit.SECONDS)
+                .build();
+    }
+}
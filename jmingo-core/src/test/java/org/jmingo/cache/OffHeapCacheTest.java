@@ -0,0 +1,100 @@
+package org.jmingo.cache;
+
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit test for {@link OffHeapCache}.
+ */
+public class OffHeapCacheTest {
+
+    private static final int SLAB_SIZE = 1024;
+
+    @Test
+    public void testPutAndGet() {
+        OffHeapCache<String> cache = new OffHeapCache<>(4 * SLAB_SIZE, SLAB_SIZE, false);
+        assertNull(cache.getIfPresent("a"));
+        assertTrue(cache.put("a", bytes(100, 1), 1, TimeUnit.MINUTES));
+        assertEquals(cache.getIfPresent("a"), bytes(100, 1));
+        // replace
+        assertTrue(cache.put("a", bytes(10, 2), 1, TimeUnit.MINUTES));
+        assertEquals(cache.getIfPresent("a"), bytes(10, 2));
+        OffHeapCacheStats stats = cache.stats();
+        assertEquals(stats.getEntryCount(), 1);
+        assertEquals(stats.getDataBytes(), 10);
+        assertEquals(stats.getCacheStats().getHitCount(), 2);
+        assertEquals(stats.getCacheStats().getMissCount(), 1);
+        assertTrue(stats.getFragmentation() > 0);
+    }
+
+    @Test
+    public void testExpiration() {
+        FakeTicker ticker = new FakeTicker();
+        OffHeapCache<String> cache = new OffHeapCache<>(4 * SLAB_SIZE, SLAB_SIZE, false, ticker);
+        cache.put("a", bytes(100, 1), 1, TimeUnit.MINUTES);
+        ticker.advance(1, TimeUnit.MINUTES);
+        assertNull(cache.getIfPresent("a"));
+        assertEquals(cache.stats().getUsedBytes(), 0);
+    }
+
+    @Test
+    public void testLruEvictionWithinSizeClass() {
+        OffHeapCache<Integer> cache = new OffHeapCache<>(SLAB_SIZE, SLAB_SIZE, false);
+        // 16 chunks of 64 bytes fit in the slab
+        for (int key = 0; key < 16; key++) {
+            assertTrue(cache.put(key, bytes(60, key), 1, TimeUnit.MINUTES));
+        }
+        assertNotNull(cache.getIfPresent(0));
+        assertTrue(cache.put(16, bytes(60, 16), 1, TimeUnit.MINUTES));
+        assertNull(cache.getIfPresent(1));
+        assertEquals(cache.getIfPresent(0), bytes(60, 0));
+        assertEquals(cache.getIfPresent(16), bytes(60, 16));
+        assertEquals(cache.stats().getCacheStats().getEvictionCount(), 1);
+    }
+
+    @Test
+    public void testSlabReassignment() {
+        OffHeapCache<Integer> cache = new OffHeapCache<>(2 * SLAB_SIZE, SLAB_SIZE, false);
+        for (int key = 0; key < 32; key++) {
+            cache.put(key, bytes(60, key), 1, TimeUnit.MINUTES);
+        }
+        // all slabs belong to the smallest class
+        assertTrue(cache.put(100, bytes(SLAB_SIZE, 1), 1, TimeUnit.MINUTES));
+        assertEquals(cache.getIfPresent(100), bytes(SLAB_SIZE, 1));
+        assertEquals(cache.size(), 17);
+        assertEquals(cache.stats().getSlabReassignmentCount(), 1);
+    }
+
+    @Test
+    public void testTooLargeValueIsRejected() {
+        OffHeapCache<String> cache = new OffHeapCache<>(SLAB_SIZE, SLAB_SIZE, false);
+        assertFalse(cache.put("a", bytes(SLAB_SIZE + 1, 1), 1, TimeUnit.MINUTES));
+        assertNull(cache.getIfPresent("a"));
+        assertEquals(cache.stats().getRejectionCount(), 1);
+    }
+
+    @Test
+    public void testCompression() {
+        OffHeapCache<String> cache = new OffHeapCache<>(4 * SLAB_SIZE, SLAB_SIZE, true);
+        byte[] value = bytes(4 * SLAB_SIZE, 7);
+        assertTrue(cache.put("a", value, 1, TimeUnit.MINUTES));
+        assertEquals(cache.getIfPresent("a"), value);
+        OffHeapCacheStats stats = cache.stats();
+        assertEquals(stats.getRawBytes(), value.length);
+        assertTrue(stats.getCompressionRatio() < 0.1, "compression ratio: " + stats.getCompressionRatio());
+    }
+
+    private static byte[] bytes(int length, int value) {
+        byte[] bytes = new byte[length];
+        Arrays.fill(bytes, (byte) value);
+        return bytes;
+    }
+}
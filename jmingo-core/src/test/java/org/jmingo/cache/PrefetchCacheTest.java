@@ -0,0 +1,102 @@
+package org.jmingo.cache;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+/**
+ * Unit test for {@link PrefetchCache}.
+ */
+public class PrefetchCacheTest {
+
+    private static final long TTL = TimeUnit.MINUTES.toMillis(1);
+
+    @Test
+    public void testTakePrefetchedPage() {
+        PrefetchCache cache = new PrefetchCache(1);
+        try {
+            QueryCacheKey key = key(10);
+            cache.prefetch(key, TTL, () -> ImmutableList.of("a", "b"));
+            assertEquals(cache.take(key), ImmutableList.of("a", "b"));
+            // a prefetched page is served only once
+            assertNull(cache.take(key));
+            assertEquals(cache.getHitCount(), 1);
+            assertEquals(cache.getMissCount(), 1);
+            assertEquals(cache.getHitRate(), 0.5);
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    public void testInvalidate() {
+        PrefetchCache cache = new PrefetchCache(1);
+        try {
+            QueryCacheKey key = key(10);
+            cache.prefetch(key, TTL, () -> ImmutableList.of("a"));
+            cache.invalidate("users");
+            assertEquals(cache.size(), 1);
+            cache.invalidate("orders");
+            assertNull(cache.take(key));
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    public void testFailedPrefetch() {
+        PrefetchCache cache = new PrefetchCache(1);
+        try {
+            QueryCacheKey key = key(10);
+            cache.prefetch(key, TTL, () -> {
+                throw new IllegalStateException("connection refused");
+            });
+            assertNull(cache.take(key));
+            assertEquals(cache.getMissCount(), 1);
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    public void testConcurrencyLimit() {
+        PrefetchCache cache = new PrefetchCache(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            // one running and one queued prefetch are allowed
+            for (int page = 1; page <= 3; page++) {
+                cache.prefetch(key(page * 10), TTL, () -> {
+                    await(release);
+                    return ImmutableList.of();
+                });
+            }
+            assertEquals(cache.getPrefetchCount(), 2);
+            assertEquals(cache.getRejectedCount(), 1);
+            release.countDown();
+            assertEquals(cache.take(key(10)), ImmutableList.of());
+            assertNull(cache.take(key(30)));
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    private static QueryCacheKey key(int skip) {
+        return new QueryCacheKey("orders.findPage", ImmutableMap.<String, Object>of("skip", skip, "limit", 10),
+                List.class, true);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
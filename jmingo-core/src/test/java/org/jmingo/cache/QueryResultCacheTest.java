@@ -0,0 +1,92 @@
+package org.jmingo.cache;
+
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Unit test for refresh-ahead in {@link QueryResultCache}.
+ */
+public class QueryResultCacheTest {
+
+    private static final CacheConfig REFRESH_AHEAD_CONFIG = CacheConfig.builder()
+            .ttl(60, TimeUnit.SECONDS)
+            .refreshAhead(10, TimeUnit.SECONDS)
+            .maxStaleness(30, TimeUnit.SECONDS)
+            .build();
+
+    private FakeTicker ticker;
+    private Queue<Runnable> refreshTasks;
+    private QueryResultCache cache;
+
+    @BeforeMethod
+    public void setUp() {
+        ticker = new FakeTicker();
+        refreshTasks = new ArrayDeque<>();
+        cache = new QueryResultCache(ticker, refreshTasks::add, 1);
+    }
+
+    @Test
+    public void testRefreshAhead() {
+        AtomicInteger counter = new AtomicInteger();
+        QueryCacheKey key = key(1);
+        assertEquals(cache.get(key, REFRESH_AHEAD_CONFIG, counter::incrementAndGet), Integer.valueOf(1));
+
+        ticker.advance(49, TimeUnit.SECONDS);
+        assertEquals(cache.get(key, REFRESH_AHEAD_CONFIG, counter::incrementAndGet), Integer.valueOf(1));
+        assertEquals(refreshTasks.size(), 0);
+
+        ticker.advance(1, TimeUnit.SECONDS);
+        // close to expiration: old value is returned, refresh is scheduled once
+        assertEquals(cache.get(key, REFRESH_AHEAD_CONFIG, counter::incrementAndGet), Integer.valueOf(1));
+        assertEquals(cache.get(key, REFRESH_AHEAD_CONFIG, counter::incrementAndGet), Integer.valueOf(1));
+        assertEquals(refreshTasks.size(), 1);
+
+        refreshTasks.poll().run();
+        assertEquals(cache.get(key, REFRESH_AHEAD_CONFIG, counter::incrementAndGet), Integer.valueOf(2));
+        assertEquals(cache.refreshStats().getRefreshCount(), 1);
+    }
+
+    @Test
+    public void testMaxStaleness() {
+        AtomicInteger counter = new AtomicInteger();
+        QueryCacheKey key = key(1);
+        cache.get(key, REFRESH_AHEAD_CONFIG, counter::incrementAndGet);
+
+        ticker.advance(89, TimeUnit.SECONDS);
+        // expired but still within max-staleness
+        assertEquals(cache.get(key, REFRESH_AHEAD_CONFIG, counter::incrementAndGet), Integer.valueOf(1));
+
+        ticker.advance(1, TimeUnit.SECONDS);
+        assertEquals(cache.get(key, REFRESH_AHEAD_CONFIG, counter::incrementAndGet), Integer.valueOf(2));
+    }
+
+    @Test
+    public void testSkippedRefresh() {
+        AtomicInteger counter = new AtomicInteger();
+        cache.get(key(1), REFRESH_AHEAD_CONFIG, counter::incrementAndGet);
+        cache.get(key(2), REFRESH_AHEAD_CONFIG, counter::incrementAndGet);
+
+        ticker.advance(55, TimeUnit.SECONDS);
+        cache.get(key(1), REFRESH_AHEAD_CONFIG, counter::incrementAndGet);
+        // concurrency limit is reached
+        cache.get(key(2), REFRESH_AHEAD_CONFIG, counter::incrementAndGet);
+        assertEquals(refreshTasks.size(), 1);
+        assertEquals(cache.refreshStats().getSkippedCount(), 1);
+
+        refreshTasks.poll().run();
+        cache.get(key(2), REFRESH_AHEAD_CONFIG, counter::incrementAndGet);
+        assertEquals(refreshTasks.size(), 1);
+    }
+
+    private static QueryCacheKey key(int id) {
+        return new QueryCacheKey("collection.query", ImmutableMap.of("id", id), Integer.class, false);
+    }
+}
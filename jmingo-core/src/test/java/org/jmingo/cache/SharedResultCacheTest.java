@@ -0,0 +1,129 @@
+package org.jmingo.cache;
+
+import com.google.common.collect.ImmutableMap;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit test for {@link SharedResultCache}.
+ */
+public class SharedResultCacheTest {
+
+    private static final long TTL = TimeUnit.MINUTES.toMillis(1);
+
+    @Test
+    public void testComputeOnce() throws Exception {
+        InMemorySharedResultCache cache = new InMemorySharedResultCache(5, TimeUnit.SECONDS);
+        AtomicInteger computations = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<DBObject>> results = IntStream.range(0, 8)
+                    .mapToObj(node -> executor.submit(() -> {
+                        start.await();
+                        return cache.get("key", "orders", TTL, () -> {
+                            computations.incrementAndGet();
+                            sleep(100);
+                            return new BasicDBObject("total", 10);
+                        });
+                    }))
+                    .collect(Collectors.toList());
+            start.countDown();
+            for (Future<DBObject> result : results) {
+                assertEquals(result.get().get("total"), 10);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(computations.get(), 1);
+        assertEquals(cache.getMissCount() + cache.getHitCount(), 8);
+    }
+
+    @Test
+    public void testLockTimeout() {
+        InMemorySharedResultCache cache = new InMemorySharedResultCache(50, TimeUnit.MILLISECONDS);
+        assertTrue(cache.tryLock("key", "stuck", TimeUnit.SECONDS.toMillis(10)), "lock held by a stuck node");
+        DBObject result = cache.get("key", "orders", TTL, () -> new BasicDBObject("total", 1));
+        assertEquals(result.get("total"), 1);
+        assertEquals(cache.getLockTimeoutCount(), 1);
+    }
+
+    @Test
+    public void testFailuresDoNotFailQuery() {
+        InMemorySharedResultCache storeFails = new InMemorySharedResultCache(1, TimeUnit.SECONDS) {
+            @Override
+            protected void store(String key, String collectionName, DBObject value, long ttl) {
+                throw new IllegalStateException("document too large");
+            }
+        };
+        assertEquals(storeFails.get("key", "orders", TTL, () -> new BasicDBObject("total", 1)).get("total"), 1);
+        assertEquals(storeFails.getErrorCount(), 1);
+        // the lock is released after the failed store
+        assertTrue(storeFails.tryLock("key", "next", TTL));
+
+        InMemorySharedResultCache findFails = new InMemorySharedResultCache(1, TimeUnit.SECONDS) {
+            @Override
+            protected DBObject find(String key) {
+                throw new IllegalStateException("connection refused");
+            }
+        };
+        assertEquals(findFails.get("key", "orders", TTL, () -> new BasicDBObject("total", 2)).get("total"), 2);
+        assertEquals(findFails.getErrorCount(), 1);
+    }
+
+    @Test
+    public void testUnlockExpiredLock() {
+        InMemorySharedResultCache cache = new InMemorySharedResultCache(1, TimeUnit.SECONDS);
+        assertTrue(cache.tryLock("key", "slow", 0));
+        // the lock of the slow node expired and was taken by another node
+        assertTrue(cache.tryLock("key", "other", TTL));
+        cache.unlock("key", "slow");
+        assertFalse(cache.tryLock("key", "next", TTL));
+        cache.unlock("key", "other");
+        assertTrue(cache.tryLock("key", "next", TTL));
+    }
+
+    @Test
+    public void testInvalidate() {
+        InMemorySharedResultCache cache = new InMemorySharedResultCache(1, TimeUnit.SECONDS);
+        cache.get("orders-key", "orders", TTL, () -> new BasicDBObject("total", 1));
+        cache.get("users-key", "users", TTL, () -> new BasicDBObject("total", 2));
+        cache.invalidate("orders");
+        assertNull(cache.find("orders-key"));
+        assertEquals(cache.find("users-key").get("total"), 2);
+    }
+
+    @Test
+    public void testKey() {
+        String key = SharedResultCache.key("orders.totals", ImmutableMap.of("a", 1, "b", "x"), true, "checksum");
+        assertEquals(SharedResultCache.key("orders.totals", ImmutableMap.of("b", "x", "a", 1), true, "checksum"),
+                key);
+        assertFalse(key.equals(
+                SharedResultCache.key("orders.totals", ImmutableMap.of("a", 1, "b", "x"), true, "changed")));
+        assertTrue(key.startsWith("orders.totals:"));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
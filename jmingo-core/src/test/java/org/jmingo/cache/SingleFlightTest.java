@@ -0,0 +1,78 @@
+package org.jmingo.cache;
+
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Unit test for {@link SingleFlight}.
+ */
+public class SingleFlightTest {
+
+    @Test
+    public void testCoalescing() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(10, TimeUnit.SECONDS);
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<Integer> leader = executor.submit(() -> singleFlight.execute("key", () -> {
+                started.countDown();
+                await(release);
+                return executions.incrementAndGet();
+            }));
+            started.await();
+            Future<Integer> waiter1 = executor.submit(() -> singleFlight.execute("key", executions::incrementAndGet));
+            Future<Integer> waiter2 = executor.submit(() -> singleFlight.execute("key", executions::incrementAndGet));
+            while (singleFlight.getCoalescedCount() < 2) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            assertEquals(leader.get(), Integer.valueOf(1));
+            assertEquals(waiter1.get(), Integer.valueOf(1));
+            assertEquals(waiter2.get(), Integer.valueOf(1));
+            assertEquals(executions.get(), 1);
+            assertEquals(singleFlight.getExecutionCount(), 1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(10, TimeUnit.MILLISECONDS);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> leader = executor.submit(() -> singleFlight.execute("key", () -> {
+                started.countDown();
+                await(release);
+                return "leader";
+            }));
+            started.await();
+            assertEquals(singleFlight.execute("key", () -> "waiter"), "waiter");
+            assertEquals(singleFlight.getTimeoutCount(), 1);
+            release.countDown();
+            assertEquals(leader.get(), "leader");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
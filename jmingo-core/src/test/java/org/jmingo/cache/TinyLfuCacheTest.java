@@ -0,0 +1,81 @@
+package org.jmingo.cache;
+
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit test for {@link TinyLfuCache}.
+ */
+public class TinyLfuCacheTest {
+
+    @Test
+    public void testHitAndMiss() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(10, 0, TimeUnit.SECONDS);
+        assertNull(cache.getIfPresent("a"));
+        cache.put("a", "1");
+        assertEquals(cache.getIfPresent("a"), "1");
+        CacheStats stats = cache.stats();
+        assertEquals(stats.getHitCount(), 1);
+        assertEquals(stats.getMissCount(), 1);
+        assertEquals(stats.getEvictionCount(), 0);
+    }
+
+    @Test
+    public void testExpireAfterWrite() {
+        FakeTicker ticker = new FakeTicker();
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(10, 1, TimeUnit.MINUTES, ticker);
+        cache.put("a", "1");
+        ticker.advance(59, TimeUnit.SECONDS);
+        assertEquals(cache.getIfPresent("a"), "1");
+        ticker.advance(1, TimeUnit.SECONDS);
+        assertNull(cache.getIfPresent("a"));
+        assertEquals(cache.size(), 0);
+        assertEquals(cache.stats().getEvictionCount(), 1);
+    }
+
+    @Test
+    public void testFrequentlyUsedEntriesSurviveScan() {
+        int maximumSize = 100;
+        TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<>(maximumSize, 0, TimeUnit.SECONDS);
+        for (int key = 0; key < maximumSize; key++) {
+            cache.put(key, key);
+        }
+        // make all entries "hot"
+        for (int round = 0; round < 3; round++) {
+            for (int key = 0; key < maximumSize; key++) {
+                assertNotNull(cache.getIfPresent(key));
+            }
+        }
+        // one-time keys should not flush hot entries
+        for (int key = 1000; key < 2000; key++) {
+            cache.put(key, key);
+        }
+        int retained = 0;
+        for (int key = 0; key < maximumSize; key++) {
+            if (cache.getIfPresent(key) != null) {
+                retained++;
+            }
+        }
+        assertEquals(cache.size(), maximumSize);
+        // LRU would retain none of them
+        assertTrue(retained >= maximumSize * 9 / 10, "retained: " + retained);
+    }
+
+    @Test
+    public void testInvalidate() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(10, 0, TimeUnit.SECONDS);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.invalidate("a");
+        assertNull(cache.getIfPresent("a"));
+        assertEquals(cache.getIfPresent("b"), "2");
+        cache.invalidateAll();
+        assertEquals(cache.size(), 0);
+    }
+}
@@ -0,0 +1,69 @@
+package org.jmingo.cache;
+
+import com.google.common.collect.ImmutableSet;
+import org.jmingo.document.annotation.Document;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit test for {@link UnitOfWork}.
+ */
+public class UnitOfWorkTest {
+
+    @Test
+    public void testBinding() {
+        try (UnitOfWork outer = UnitOfWork.begin()) {
+            assertSame(UnitOfWork.current(), outer);
+            try (UnitOfWork inner = UnitOfWork.begin()) {
+                assertSame(UnitOfWork.current(), inner);
+            }
+            assertSame(UnitOfWork.current(), outer);
+            try (UnitOfWork ignored = UnitOfWork.create()) {
+                assertSame(UnitOfWork.current(), outer);
+            }
+        }
+        assertNull(UnitOfWork.current());
+    }
+
+    @Test
+    public void testIdentityAndRequiredIds() {
+        try (UnitOfWork unitOfWork = UnitOfWork.create()) {
+            Item item = new Item();
+            unitOfWork.put(Item.class, 1, item);
+            unitOfWork.put(Item.class, 2, null);
+            unitOfWork.require(Item.class, 1, 2, 3, 4);
+            assertSame(unitOfWork.get(Item.class, 1), item);
+            assertTrue(unitOfWork.contains(Item.class, 2));
+            assertNull(unitOfWork.get(Item.class, 2));
+            assertEquals(unitOfWork.drainRequired(Item.class), ImmutableSet.of(3, 4));
+            assertTrue(unitOfWork.drainRequired(Item.class).isEmpty());
+
+            unitOfWork.evict("items");
+            assertFalse(unitOfWork.contains(Item.class, 1));
+        }
+    }
+
+    @Test
+    public void testSync() {
+        try (UnitOfWork unitOfWork = UnitOfWork.create()) {
+            unitOfWork.sync("items", 0);
+            unitOfWork.put(Item.class, 1, new Item());
+            unitOfWork.sync("items", 0);
+            assertTrue(unitOfWork.contains(Item.class, 1));
+            unitOfWork.sync("others", 5);
+            assertTrue(unitOfWork.contains(Item.class, 1));
+            // the collection was changed through the template
+            unitOfWork.sync("items", 1);
+            assertFalse(unitOfWork.contains(Item.class, 1));
+        }
+    }
+
+    @Document(collectionName = "items")
+    private static class Item {
+    }
+}
@@ -0,0 +1,84 @@
+package org.jmingo.cache;
+
+import com.google.common.collect.ImmutableMap;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+/**
+ * Unit test for {@link WarmStartCache}.
+ */
+public class WarmStartCacheTest {
+
+    private static final String QUERY = "country.findByCode";
+    private static final Map<String, Object> PARAMETERS = ImmutableMap.<String, Object>of("code", "NL");
+    private static final long TTL = TimeUnit.HOURS.toMillis(1);
+
+    private Path snapshot;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        snapshot = Files.createTempFile("jmingo-snapshot", ".bin");
+        Files.delete(snapshot);
+    }
+
+    @AfterMethod
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(snapshot);
+    }
+
+    @Test
+    public void testRestore() throws IOException {
+        WarmStartCache cache = new WarmStartCache(snapshot);
+        cache.put(QUERY, PARAMETERS, false, "v1", new BasicDBObject("name", "Netherlands"), TTL);
+        // results stored in the current run aren't returned
+        assertNull(cache.get(QUERY, PARAMETERS, false, "v1"));
+        cache.write();
+
+        WarmStartCache restored = new WarmStartCache(snapshot);
+        restored.load(compositeId -> "v1");
+        assertEquals(restored.getRestoredCount(), 1);
+        assertNull(restored.get(QUERY, PARAMETERS, true, "v1"));
+        DBObject result = restored.get(QUERY, PARAMETERS, false, "v1");
+        assertEquals(result.get("name"), "Netherlands");
+        // restored result is returned only once
+        assertNull(restored.get(QUERY, PARAMETERS, false, "v1"));
+        assertEquals(restored.getHitCount(), 1);
+    }
+
+    @Test
+    public void testChangedQuerySetIsDiscarded() throws IOException {
+        WarmStartCache cache = new WarmStartCache(snapshot);
+        cache.put(QUERY, PARAMETERS, false, "v1", new BasicDBObject("name", "Netherlands"), TTL);
+        cache.write();
+
+        WarmStartCache restored = new WarmStartCache(snapshot);
+        restored.load(compositeId -> "v2");
+        assertEquals(restored.getRestoredCount(), 0);
+        assertEquals(restored.getDiscardedCount(), 1);
+        assertNull(restored.get(QUERY, PARAMETERS, false, "v2"));
+    }
+
+    @Test
+    public void testInvalidate() throws IOException {
+        WarmStartCache cache = new WarmStartCache(snapshot);
+        cache.put(QUERY, PARAMETERS, false, "v1", new BasicDBObject("name", "Netherlands"), TTL);
+        cache.invalidate("country");
+        cache.write();
+
+        WarmStartCache restored = new WarmStartCache(snapshot);
+        restored.load(compositeId -> "v1");
+        assertEquals(restored.size(), 0);
+    }
+}
@@ -0,0 +1,138 @@
+package org.jmingo.io;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.testng.annotations.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit test for {@link BulkExporter}.
+ */
+public class BulkExporterTest {
+
+    @Test
+    public void testPartFile() {
+        assertEquals(BulkExporter.getPartFile(Paths.get("/tmp/users.json.gz"), 1), Paths.get("/tmp/users-part-1.json.gz"));
+        assertEquals(BulkExporter.getPartFile(Paths.get("users"), 0), Paths.get("users-part-0"));
+        assertEquals(BulkExporter.getPartFile(Paths.get(".users"), 2), Paths.get(".users-part-2"));
+    }
+
+    @Test
+    public void testWriteNewlineDelimited() throws IOException {
+        Path file = createFile(".json");
+        long count = BulkExporter.write(getUsers().iterator(), file, ExportConfig.builder().build());
+        assertEquals(count, 3);
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(lines.size(), 3);
+        lines.forEach(line -> assertTrue(line.startsWith("{") && line.endsWith("}"), line));
+        assertTrue(new String(Files.readAllBytes(file), StandardCharsets.UTF_8).endsWith("}\n"));
+    }
+
+    @Test
+    public void testWriteGzip() throws IOException {
+        Path plain = createFile(".json");
+        Path gzip = createFile(".json.gz");
+        BulkExporter.write(getUsers().iterator(), plain, ExportConfig.builder().build());
+        assertEquals(BulkExporter.write(getUsers().iterator(), gzip, ExportConfig.builder().gzip(true).build()), 3);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(gzip)), StandardCharsets.UTF_8))) {
+            assertEquals(reader.lines().collect(Collectors.toList()),
+                    Files.readAllLines(plain, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testWriteEmpty() throws IOException {
+        Path file = createFile(".json");
+        assertEquals(BulkExporter.write(Collections.<DBObject>emptyIterator(), file, ExportConfig.builder().build()), 0);
+        assertEquals(Files.size(file), 0);
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        Path file = createFile(".json");
+        List<DBObject> users = getUsers();
+        BulkExporter.write(users.iterator(), file, ExportConfig.builder().build());
+        List<DBObject> read = Lists.newArrayList();
+        try (JsonRecordReader reader = new JsonRecordReader(file, 0)) {
+            for (DBObject document = reader.next(); document != null; document = reader.next()) {
+                read.add(document);
+            }
+            assertEquals(reader.getOffset(), reader.size() - 1);
+        }
+        assertEquals(read.size(), users.size());
+        for (int i = 0; i < users.size(); i++) {
+            assertEquals(read.get(i).get("name"), users.get(i).get("name"));
+            assertEquals(((Number) read.get(i).get("age")).intValue(), users.get(i).get("age"));
+            assertEquals(((DBObject) read.get(i).get("address")).get("city"),
+                    ((DBObject) users.get(i).get("address")).get("city"));
+        }
+    }
+
+    @Test
+    public void testProjection() {
+        assertNull(BulkExporter.getProjection(ExportConfig.builder().build()));
+        DBObject projection = BulkExporter.getProjection(ExportConfig.builder().fields("name", "address.city").build());
+        assertEquals(projection.toMap(), ImmutableMap.of("name", 1, "address.city", 1));
+    }
+
+    @Test
+    public void testSplitPoints() {
+        List<Integer> positions = Lists.newArrayList();
+        List<Object> splitPoints = BulkExporter.getSplitPoints(100, 4, position -> {
+            positions.add(position);
+            return "id" + position;
+        });
+        assertEquals(positions, Lists.newArrayList(25, 50, 75));
+        assertEquals(splitPoints, Lists.<Object>newArrayList("id25", "id50", "id75"));
+    }
+
+    @Test
+    public void testSplitPointsAreDistinct() {
+        Map<Integer, Object> ids = ImmutableMap.of(1, "a", 2, "b", 3, "b");
+        // 4 documents in 8 parts are split at positions 0, 1, 1, 2, 2, 3, 3, the first is skipped
+        List<Object> splitPoints = BulkExporter.getSplitPoints(4, 8, ids::get);
+        assertEquals(splitPoints, Lists.<Object>newArrayList("a", "b"));
+    }
+
+    @Test
+    public void testSplitPointsOfSmallCollection() {
+        assertTrue(BulkExporter.getSplitPoints(1, 4, position -> "id").isEmpty());
+        assertTrue(BulkExporter.getSplitPoints(0, 4, position -> "id").isEmpty());
+        // documents were removed after count
+        assertTrue(BulkExporter.getSplitPoints(10, 2, position -> null).isEmpty());
+    }
+
+    private static List<DBObject> getUsers() {
+        List<DBObject> users = Lists.newArrayList();
+        for (int i = 1; i <= 3; i++) {
+            users.add(new BasicDBObject("name", "user \"" + i + "\"").append("age", 20 + i)
+                    .append("address", new BasicDBObject("city", "city" + i)));
+        }
+        return users;
+    }
+
+    private static Path createFile(String suffix) throws IOException {
+        Path file = Files.createTempFile("export", suffix);
+        file.toFile().deleteOnExit();
+        return file;
+    }
+}
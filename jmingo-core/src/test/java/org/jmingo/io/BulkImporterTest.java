@@ -0,0 +1,107 @@
+package org.jmingo.io;
+
+import com.google.common.collect.Lists;
+import com.mongodb.DBObject;
+import org.jmingo.BulkResult;
+import org.jmingo.BulkResults;
+import org.jmingo.exceptions.JMingoException;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
+/**
+ * Unit test for {@link BulkImporter}.
+ */
+public class BulkImporterTest {
+
+    @Test
+    public void testOffsetAdvancesOverContiguousBatches() {
+        BulkImporter.ImportRun run = new BulkImporter.ImportRun(10, 100);
+        run.complete(1, 50);
+        run.complete(2, 70);
+        assertEquals(run.progress().getOffset(), 10);
+        run.complete(0, 30);
+        assertEquals(run.progress().getOffset(), 70);
+        assertEquals(run.progress().getBytesProcessed(), 60);
+        run.complete(4, 100);
+        assertEquals(run.progress().getOffset(), 70);
+    }
+
+    @Test
+    public void testDuplicatesAreCountedSeparately() throws IOException {
+        Path file = createFile(1, 4);
+        ImportConfig config = ImportConfig.builder().collectionName("items").batchSize(2).workers(2).build();
+        ImportProgress progress = new BulkImporter(config, batch -> getNumbers(batch).contains(1)
+                ? BulkResults.inserted(1, new BulkResult.BulkError(0, 11000, "duplicate key"))
+                : BulkResults.inserted(1, new BulkResult.BulkError(1, 121, "document failed validation")))
+                .importFile(file);
+        assertEquals(progress.getReadCount(), 4);
+        assertEquals(progress.getInsertedCount(), 2);
+        assertEquals(progress.getDuplicateCount(), 1);
+        assertEquals(progress.getFailedCount(), 1);
+    }
+
+    @Test
+    public void testRestartFromOffset() throws IOException {
+        Path file = createFile(1, 5);
+        AtomicLong offset = new AtomicLong();
+        List<Integer> inserted = Collections.synchronizedList(Lists.newArrayList());
+        ImportConfig config = ImportConfig.builder().collectionName("items").batchSize(2).workers(1)
+                .progressListener(progress -> offset.set(progress.getOffset())).build();
+        try {
+            new BulkImporter(config, batch -> {
+                List<Integer> numbers = getNumbers(batch);
+                if (numbers.contains(3)) {
+                    throw new IllegalStateException("connection refused");
+                }
+                inserted.addAll(numbers);
+                return BulkResults.inserted(batch.size());
+            }).importFile(file);
+            fail("import should fail");
+        } catch (JMingoException e) {
+            // the second batch failed, the offset doesn't advance over it
+            assertEquals(inserted.subList(0, 2), Lists.newArrayList(1, 2));
+        }
+        inserted.clear();
+        ImportConfig restartConfig = ImportConfig.builder().collectionName("items").batchSize(2).workers(1)
+                .offset(offset.get()).build();
+        ImportProgress progress = new BulkImporter(restartConfig, batch -> {
+            inserted.addAll(getNumbers(batch));
+            return BulkResults.inserted(batch.size());
+        }).importFile(file);
+        assertEquals(inserted, Lists.newArrayList(3, 4, 5));
+        assertEquals(progress.getReadCount(), 3);
+        // nothing is left after the offset of the completed import
+        ImportProgress completed = new BulkImporter(ImportConfig.builder().collectionName("items")
+                .offset(progress.getOffset()).build(), batch -> {
+            throw new IllegalStateException("all records were imported");
+        }).importFile(file);
+        assertEquals(completed.getReadCount(), 0);
+    }
+
+    private static List<Integer> getNumbers(List<DBObject> batch) {
+        List<Integer> numbers = Lists.newArrayList();
+        batch.forEach(record -> numbers.add(((Number) record.get("n")).intValue()));
+        return numbers;
+    }
+
+    private static Path createFile(int from, int to) throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int n = from; n <= to; n++) {
+            content.append("{\"n\": ").append(n).append("}\n");
+        }
+        Path file = Files.createTempFile("import", ".json");
+        file.toFile().deleteOnExit();
+        Files.write(file, content.toString().getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,75 @@
+package org.jmingo.io;
+
+import com.google.common.collect.Lists;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.bson.types.ObjectId;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Unit test for {@link JsonRecordReader}.
+ */
+public class JsonRecordReaderTest {
+
+    @Test
+    public void testReadNewlineDelimited() throws IOException {
+        Path file = createFile("{\"a\": 1}\n{\"a\": 2, \"b\": [1, {\"c\": true}]}\n");
+        assertEquals(readAll(file, 0), Lists.newArrayList(
+                new BasicDBObject("a", 1),
+                new BasicDBObject("a", 2).append("b", Lists.newArrayList(1, new BasicDBObject("c", true)))));
+    }
+
+    @Test
+    public void testRestartArray() throws IOException {
+        Path file = createFile(" [{\"a\": 1},\n {\"a\": 2},\n {\"a\": 3}]\n");
+        long offset;
+        try (JsonRecordReader reader = new JsonRecordReader(file, 0)) {
+            assertEquals(reader.next(), new BasicDBObject("a", 1));
+            offset = reader.getOffset();
+        }
+        assertEquals(readAll(file, offset), Lists.newArrayList(new BasicDBObject("a", 2), new BasicDBObject("a", 3)));
+    }
+
+    @Test
+    public void testRestartAtEndOfArray() throws IOException {
+        Path file = createFile("[{\"a\": 1}]");
+        assertEquals(readAll(file, file.toFile().length() - 1), Lists.newArrayList());
+    }
+
+    @Test
+    public void testExtendedJson() {
+        ObjectId id = new ObjectId();
+        assertEquals(JsonRecordReader.toExtendedValue(new BasicDBObject("$oid", id.toString())), id);
+        assertEquals(JsonRecordReader.toExtendedValue(new BasicDBObject("$date", 1000L)), new Date(1000));
+        assertEquals(JsonRecordReader.toExtendedValue(new BasicDBObject("$date", "1970-01-01T00:00:01Z")),
+                new Date(1000));
+        assertEquals(JsonRecordReader.toExtendedValue(new BasicDBObject("$numberLong", "5")), 5L);
+    }
+
+    private static List<DBObject> readAll(Path file, long offset) throws IOException {
+        List<DBObject> records = Lists.newArrayList();
+        try (JsonRecordReader reader = new JsonRecordReader(file, offset)) {
+            DBObject record;
+            while ((record = reader.next()) != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    private static Path createFile(String content) throws IOException {
+        Path file = Files.createTempFile("jmingo-import", ".json");
+        file.toFile().deleteOnExit();
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
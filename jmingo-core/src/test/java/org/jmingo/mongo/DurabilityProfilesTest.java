@@ -0,0 +1,51 @@
+package org.jmingo.mongo;
+
+import com.google.common.collect.ImmutableMap;
+import com.mongodb.WriteConcern;
+import org.jmingo.exceptions.JMingoException;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+/**
+ * Unit test for {@link DurabilityProfiles}.
+ */
+public class DurabilityProfilesTest {
+
+    private static final WriteConcern DEFAULT_CONCERN = new WriteConcern(1);
+    private static final WriteConcern AUDIT_CONCERN = new WriteConcern(2);
+
+    private final DurabilityProfiles profiles = new DurabilityProfiles(DEFAULT_CONCERN,
+            ImmutableMap.of("audit", AUDIT_CONCERN));
+
+    @Test
+    public void testGet() {
+        assertSame(profiles.get(null), profiles.getDefault());
+        assertSame(profiles.get(""), profiles.getDefault());
+        assertSame(profiles.get(DurabilityProfile.DEFAULT), profiles.getDefault());
+        assertSame(profiles.getDefault().getWriteConcern(), DEFAULT_CONCERN);
+        assertSame(profiles.get("audit").getWriteConcern(), AUDIT_CONCERN);
+        assertEquals(profiles.getAll().size(), 2);
+    }
+
+    @Test(expectedExceptions = JMingoException.class)
+    public void testGetUndeclared() {
+        profiles.get("unknown");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testReservedName() {
+        new DurabilityProfiles(DEFAULT_CONCERN, ImmutableMap.of(DurabilityProfile.DEFAULT, AUDIT_CONCERN));
+    }
+
+    @Test
+    public void testRecordLatency() {
+        DurabilityProfile profile = profiles.get("audit");
+        profile.recordLatency(TimeUnit.MILLISECONDS.toNanos(2));
+        assertEquals(profile.getLatency().getCount(), 1);
+        assertEquals(profile.getLatency().getMax(), 2000);
+    }
+}
@@ -36,6 +36,8 @@ public class ContextParserTest {
         Assert.assertTrue(MapUtils.isNotEmpty(contextDefinition.getMongoConfig().getOptions()));
         Assert.assertEquals(contextDefinition.getMongoConfig().getOptions().size(), 1);
         Assert.assertEquals(contextDefinition.getMongoConfig().getOptions().get("connectTimeout"), "100");
+        Assert.assertEquals(contextDefinition.getMongoConfig().getDurabilityProfiles().size(), 1);
+        Assert.assertEquals(contextDefinition.getMongoConfig().getDurabilityProfiles().get("audit"), "JOURNALED");
     }
 
 }
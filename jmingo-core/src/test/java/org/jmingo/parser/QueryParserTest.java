@@ -10,6 +10,8 @@ import org.jmingo.util.FileUtils;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.util.concurrent.TimeUnit;
+
 
 
 /**
@@ -33,6 +35,15 @@ public class QueryParserTest {
         Assert.assertEquals(querySet.getQueries().size(), 2);
         Query queryOne = querySet.getQueryMap().get(QUERY_1);
         checkQueryOne(queryOne);
+        Query queryTwo = querySet.getQueryMap().get(QUERY_2);
+        checkQueryTwo(queryTwo);
+    }
+
+    private void checkQueryTwo(Query query) {
+        Assert.assertEquals(query.getText(), "{'query-2_body' : 'this is query 2'}");
+        Assert.assertNotNull(query.getCacheConfig());
+        Assert.assertEquals(query.getCacheConfig().getTtl(), TimeUnit.SECONDS.toMillis(60));
+        Assert.assertEquals(query.getCacheConfig().getMaxSize(), 100);
     }
 
     private void checkQueryOne(Query query) {
@@ -44,5 +55,6 @@ public class QueryParserTest {
         Assert.assertEquals(query.getConverterClass(), "simpleDomainConverter");
         Assert.assertEquals(query.getConverterMethod(), "customConvertMethod");
         Assert.assertEquals(query.getQueryElements().size(), 3);
+        Assert.assertNull(query.getCacheConfig());
     }
 }
@@ -0,0 +1,37 @@
+package org.jmingo.query;
+
+import com.google.common.collect.ImmutableList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Unit test for {@link Update}.
+ */
+public class UpdateTest {
+
+    @Test
+    public void testGetUpdateObject() {
+        DBObject update = new Update()
+                .inc("views", 1)
+                .inc("stats.likes", -1)
+                .set("status", "PUBLISHED")
+                .unset("draft")
+                .pushAll("tags", ImmutableList.of("java", "mongo"))
+                .max("score", 10)
+                .getUpdateObject();
+        assertEquals(update.get("$inc"), new BasicDBObject("views", 1).append("stats.likes", -1));
+        assertEquals(update.get("$set"), new BasicDBObject("status", "PUBLISHED"));
+        assertEquals(update.get("$unset"), new BasicDBObject("draft", ""));
+        assertEquals(update.get("$push"), new BasicDBObject("tags",
+                new BasicDBObject("$each", ImmutableList.of("java", "mongo"))));
+        assertEquals(update.get("$max"), new BasicDBObject("score", 10));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testBlankField() {
+        new Update().set(" ", 1);
+    }
+}
@@ -0,0 +1,30 @@
+package org.jmingo.util;
+
+import com.google.common.collect.ImmutableList;
+import com.mongodb.BasicDBObject;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Unit test for {@link org.jmingo.util.MongoUtil}.
+ */
+public class MongoUtilTest {
+
+    @Test
+    public void testEstimateSize() {
+        // sizes of the documents encoded in BSON
+        assertEquals(MongoUtil.estimateSize(new BasicDBObject("a", 1)), 12);
+        assertEquals(MongoUtil.estimateSize(new BasicDBObject("s", "ab")), 15);
+        assertEquals(MongoUtil.estimateSize(new BasicDBObject("l", ImmutableList.of(1L, 2L))), 35);
+    }
+
+    @Test
+    public void testNormalize() {
+        // ids that match the same document in mongodb are equal after normalization
+        assertEquals(MongoUtil.normalize(1), MongoUtil.normalize(1L));
+        assertEquals(MongoUtil.normalize(1.0), 1L);
+        assertEquals(MongoUtil.normalize(1.5f), 1.5);
+        assertEquals(MongoUtil.normalize("1"), "1");
+    }
+}